@@ -0,0 +1,121 @@
+package Module;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Bank is a group of elevators serving the same set of floors, such as low-rise, high-rise or shuttle.
+ * Banks meet at transfer floors (sky lobbies) where passengers change to another bank.
+ *
+ * @author EJWang
+ */
+public class Bank {
+
+    private String name;
+
+    // the served floors indexed by (floor level - lowest level)
+    private int lowestLevel;
+    private boolean[] servedLevels;
+
+    // the elevators belong to this bank
+    private List<Elevator> elevators;
+
+    /**
+     * Construct a Bank.
+     *
+     * @param name         The name of this bank
+     * @param lowestLevel  The lowest level of the building
+     * @param highestLevel The highest level of the building
+     */
+    public Bank(String name, int lowestLevel, int highestLevel) {
+        this.name = name;
+        this.lowestLevel = lowestLevel;
+        servedLevels = new boolean[highestLevel - lowestLevel + 1];
+        elevators = new ArrayList<>();
+    }
+
+    /**
+     * Let this bank serve all floors between two levels, both included.
+     *
+     * @param fromLevel The lower level
+     * @param toLevel   The higher level
+     */
+    public void serve(int fromLevel, int toLevel) {
+        for (int level = fromLevel; level <= toLevel; level++)
+            serve(level);
+    }
+
+    /**
+     * Let this bank serve a floor level.
+     *
+     * @param level The floor level
+     */
+    public void serve(int level) {
+        if (level != 0 && level >= lowestLevel && level - lowestLevel < servedLevels.length)
+            servedLevels[level - lowestLevel] = true;
+    }
+
+    /**
+     * Check whether this bank serves given floor level.
+     *
+     * @param level The floor level
+     * @return true if elevators of this bank stop at this level
+     */
+    public boolean isServing(int level) {
+        return level >= lowestLevel && level - lowestLevel < servedLevels.length && servedLevels[level - lowestLevel];
+    }
+
+    /**
+     * Check whether this bank and the other bank share any floor, which passengers can transfer at.
+     *
+     * @param other The other bank
+     * @return true if there is a transfer floor between two banks
+     */
+    public boolean isConnectedTo(Bank other) {
+        for (int i = 0; i < servedLevels.length; i++)
+            if (servedLevels[i] && other.isServing(lowestLevel + i))
+                return true;
+        return false;
+    }
+
+    /**
+     * Get the lowest served level, where the elevators of this bank start.
+     *
+     * @return The lowest served level, or 0 if nothing is served
+     */
+    public int getLowestServedLevel() {
+        for (int i = 0; i < servedLevels.length; i++)
+            if (servedLevels[i])
+                return lowestLevel + i;
+        return 0;
+    }
+
+    /**
+     * Get the highest served level.
+     *
+     * @return The highest served level, or 0 if nothing is served
+     */
+    public int getHighestServedLevel() {
+        for (int i = servedLevels.length - 1; i >= 0; i--)
+            if (servedLevels[i])
+                return lowestLevel + i;
+        return 0;
+    }
+
+    /**
+     * Add an elevator to this bank.
+     *
+     * @param elevator The elevator
+     */
+    public void addElevator(Elevator elevator) {
+        elevators.add(elevator);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Elevator> getElevators() {
+        return elevators;
+    }
+}
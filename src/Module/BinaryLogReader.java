@@ -0,0 +1,114 @@
+package Module;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * The BinaryLogReader reads a binary log written by the LogRecorder message by message,
+ * and renders the messages into the same text as the text logs.
+ * <pre>
+ *   BinaryLogReader reader = new BinaryLogReader(new File("log.bin"));
+ *   while (reader.next())
+ *       System.out.println(reader.format());
+ * </pre>
+ *
+ * @author EJWang
+ */
+public class BinaryLogReader implements Closeable {
+
+    private DataInputStream in;
+    private SimpleDateFormat timeFormat;
+
+    // the current message
+    private int id;
+    private LogTemplate template;
+    private long time;
+    private int numOfArgs;
+    private int[] args;
+
+    /**
+     * Open a binary log.
+     *
+     * @param file The binary log
+     * @throws IOException if the file cannot be read or is not a binary log
+     */
+    public BinaryLogReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        if (in.readInt() != LogRecorder.MAGIC || in.readShort() != LogRecorder.VERSION) {
+            in.close();
+            throw new IOException(file + " is not a binary log of version " + LogRecorder.VERSION);
+        }
+
+        timeFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+        args = new int[LogTemplate.MAX_ARGS];
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Move to the next message.
+     *
+     * @return false if there is no more message
+     * @throws IOException if failed to read, or the last message is cut off
+     */
+    public boolean next() throws IOException {
+        try {
+            id = in.readShort();
+        } catch (EOFException e) {
+            return false;
+        }
+
+        numOfArgs = in.readByte();
+        time = in.readLong();
+        for (int i = 0; i < numOfArgs; i++)
+            args[i] = in.readInt();
+
+        template = LogTemplate.fromId(id);
+        return true;
+    }
+
+    /**
+     * Render the current message as a line of the text logs.
+     *
+     * @return The line without the line break
+     */
+    public String format() {
+        String msg = (template != null && template.getNumOfArgs() == numOfArgs) ? template.format(args)
+                : String.format("未知日志#%d %s", id, Arrays.toString(Arrays.copyOf(args, numOfArgs)));
+        return "[" + timeFormat.format(new Date(time)) + "] " + msg;
+    }
+
+    /**
+     * Get the template of the current message.
+     *
+     * @return The template, or null if written by a newer version which has more templates
+     */
+    public LogTemplate getTemplate() {
+        return template;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getNumOfArgs() {
+        return numOfArgs;
+    }
+
+    public int getArg(int index) {
+        return args[index];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
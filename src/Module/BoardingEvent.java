@@ -0,0 +1,45 @@
+package Module;
+
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A BoardingEvent is recorded when the passengers walk in or out of an elevator at a stop.
+ *
+ * @author EJWang
+ */
+@Name("Module.Boarding")
+@Label("Boarding")
+class BoardingEvent extends CarEvent {
+
+    static final String BOARD = "board";
+    static final String ALIGHT = "alight";
+
+    @Label("Action")
+    String action;
+
+    @Label("Passengers")
+    int passengers;
+
+    private static final EventType TYPE = EventType.getEventType(BoardingEvent.class);
+
+    BoardingEvent(String action) {
+        this.action = action;
+    }
+
+    /**
+     * Begin an event if it is being recorded.
+     *
+     * @param action The action
+     * @return The event, or null if not recorded
+     */
+    static BoardingEvent beginIfEnabled(String action) {
+        if (!TYPE.isEnabled())
+            return null;
+
+        BoardingEvent event = new BoardingEvent(action);
+        event.begin();
+        return event;
+    }
+}
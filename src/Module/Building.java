@@ -25,6 +25,9 @@ public class Building {
     private int lowestLevel;
     private int highestLevel;
 
+    // the clock seen by every component in this building
+    private SimulationClock clock;
+
     /* =================================== Constructor Methods ===================================================== */
 
     /**
@@ -36,6 +39,7 @@ public class Building {
     public Building(int lowestLevel, int highestLevel) throws Exception {
         this.lowestLevel = lowestLevel;
         this.highestLevel = highestLevel;
+        clock = new RealTimeClock();
         ems = new ElevatorManagerSystem(this);
 
         // construct Module.Floor based on lowest level and highest level
@@ -74,6 +78,58 @@ public class Building {
     }
 
 
+    /**
+     * Get the floor next to given floor in a direction, skipping floor level 0.
+     *
+     * @param floor     The floor to start from
+     * @param direction 1 for the floor above, -1 for the floor below
+     * @return The adjacent floor, or null if there is no floor in that direction
+     */
+    public Floor getAdjacentFloor(Floor floor, int direction) {
+        int index = getFloorIndex(floor.getFloorLevel()) + direction;
+
+        if (index < 0 || index >= floorLevels.size())
+            return null;
+
+        return floorLevels.get(index);
+    }
+
+    /**
+     * Get the position of a floor level counted from the lowest floor, skipping floor level 0.
+     *
+     * @param floorLevel The floor level
+     * @return The position of the floor, 0 for the lowest floor
+     */
+    public int getFloorIndex(int floorLevel) {
+        int index = floorLevel - lowestLevel;
+
+        // there is no floor level 0 between them
+        if (lowestLevel < 0 && floorLevel > 0)
+            index--;
+
+        return index;
+    }
+
+    /**
+     * Get the floor at a position counted from the lowest floor.
+     *
+     * @param index The position of the floor
+     * @return The floor at that position
+     */
+    public Floor getFloorByIndex(int index) {
+        return floorLevels.get(index);
+    }
+
+    /**
+     * Get the number of floors in this building.
+     *
+     * @return The number of floors
+     */
+    public int getNumOfFloors() {
+        return floorLevels.size();
+    }
+
+
     /* =================================== Getters ================================================================= */
 
     public int getLowestLevel() {
@@ -91,4 +147,12 @@ public class Building {
     public ElevatorManagerSystem getEMS() {
         return ems;
     }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    public void setClock(SimulationClock clock) {
+        this.clock = clock;
+    }
 }
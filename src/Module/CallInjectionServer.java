@@ -0,0 +1,273 @@
+package Module;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The CallInjectionServer lets an external harness push calls into a building through a local socket,
+ * so the Elevator Manager System can be loaded far beyond what the Module.EventGenerator produces.
+ * <p>
+ * Each connection speaks a line protocol, one command per line, numbers separated by single spaces:
+ * <pre>
+ *   H from to [weight]   a passenger at floor "from" calls a car to go to floor "to", 75kg if not given
+ *   C car floor          a car call, the car with the number is asked to stop at the floor
+ *   F                    flush, answered with "OK accepted rejected" counted since the last flush
+ * </pre>
+ * On connecting the server greets with "ELEVATOR lowest highest cars", so the harness knows the building.
+ * Commands are applied as soon as they are read, the answer to F only acknowledges a batch,
+ * so a harness can write many commands at once and wait for one answer.
+ * <p>
+ * The calls take the same path as the button of a floor, so the building must be run by the
+ * Module.SimulationExecutor where the calls may come from any thread.
+ *
+ * @author EJWang
+ */
+public class CallInjectionServer implements Closeable {
+
+    private static final int DEFAULT_WEIGHT = 75;
+    private static final int MAX_ARGS = 3;
+    private static final String LOG_FILENAME = "event_log.txt";
+
+    private Building building;
+    private ServerSocket serverSocket;
+    private volatile boolean isClosed;
+
+    // the commands of every connection
+    private AtomicLong accepted;
+    private AtomicLong rejected;
+
+    /**
+     * Start listening on a local port.
+     *
+     * @param building The building to call elevators in
+     * @param port     The port on the loopback address, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public CallInjectionServer(Building building, int port) throws IOException {
+        this.building = building;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.accepted = new AtomicLong();
+        this.rejected = new AtomicLong();
+
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "call-injection");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Stop listening, the open connections are closed when their harness disconnects.
+     *
+     * @throws IOException if failed to close the socket
+     */
+    @Override
+    public void close() throws IOException {
+        isClosed = true;
+        serverSocket.close();
+        LogRecorder.getInstance().recordLog(LOG_FILENAME,
+                String.format("注入: 共接收%d条指令, 拒绝%d条", getAccepted(), getRejected()), true);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Accept the harness connections until closed, every connection is served by its own thread.
+     */
+    private void acceptConnections() {
+        while (!isClosed) {
+            try {
+                final Socket socket = serverSocket.accept();
+                Thread connection = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "call-injection-" + socket.getPort());
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (!isClosed)
+                    System.err.println("WARNING: Failed to accept a call injection connection! " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Read and apply the commands of a connection until the harness disconnects.
+     */
+    private void serve(Socket socket) {
+        int[] args = new int[MAX_ARGS];
+        int numAccepted = 0;
+        int numRejected = 0;
+
+        try (Socket s = socket;
+             InputStream in = new BufferedInputStream(s.getInputStream(), 64 * 1024);
+             OutputStream out = new BufferedOutputStream(s.getOutputStream())) {
+            s.setTcpNoDelay(true);
+            write(out, String.format("ELEVATOR %d %d %d\n", building.getLowestLevel(), building.getHighestLevel(),
+                    building.getEMS().getAllElevators().size()));
+
+            for (int command = in.read(); command >= 0; command = in.read()) {
+                if (command == '\n' || command == '\r')
+                    continue;
+
+                if (command == 'F') {
+                    skipLine(in);
+                    accepted.addAndGet(numAccepted);
+                    rejected.addAndGet(numRejected);
+                    write(out, "OK " + numAccepted + " " + numRejected + "\n");
+                    numAccepted = 0;
+                    numRejected = 0;
+                    continue;
+                }
+
+                int numOfArgs = readArgs(in, args);
+                boolean isApplied;
+                if (command == 'H' && (numOfArgs == 2 || numOfArgs == 3))
+                    isApplied = callFromFloor(args[0], args[1], (numOfArgs == 3) ? args[2] : DEFAULT_WEIGHT);
+                else if (command == 'C' && numOfArgs == 2)
+                    isApplied = callFromCar(args[0], args[1]);
+                else
+                    isApplied = false;
+
+                if (isApplied)
+                    numAccepted++;
+                else
+                    numRejected++;
+            }
+        } catch (SocketException | EOFException e) {
+            // the harness has gone
+        } catch (IOException e) {
+            System.err.println("WARNING: Call injection connection failed! " + e.getMessage());
+        } finally {
+            accepted.addAndGet(numAccepted);
+            rejected.addAndGet(numRejected);
+        }
+    }
+
+    /**
+     * Let a new passenger push the button of a floor.
+     *
+     * @return false if either floor does not exist or they are the same floor
+     */
+    private boolean callFromFloor(int fromLevel, int toLevel, int weight) {
+        Floor from = findFloor(fromLevel);
+        Floor to = findFloor(toLevel);
+        if (from == null || to == null || from == to || weight <= 0)
+            return false;
+
+        from.pushButton(new Passenger(from, to, weight));
+        return true;
+    }
+
+    /**
+     * Ask a car to stop at a floor.
+     *
+     * @return false if the car does not exist or does not serve the floor
+     */
+    private boolean callFromCar(int number, int level) {
+        Floor floor = findFloor(level);
+        if (floor == null)
+            return false;
+
+        for (Elevator elevator : building.getEMS().getAllElevators()) {
+            if (elevator.getNumber() == number) {
+                if (!elevator.isServing(level))
+                    return false;
+                elevator.addTask(floor);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find a floor by its level without a search, there is no floor level 0.
+     *
+     * @return The floor, or null if it does not exist
+     */
+    private Floor findFloor(int level) {
+        if (level == 0 || level < building.getLowestLevel() || level > building.getHighestLevel())
+            return null;
+        return building.getFloorByIndex(building.getFloorIndex(level));
+    }
+
+    /**
+     * Read the numbers following a command up to the end of the line.
+     *
+     * @return The number of numbers read, or -1 if the line is malformed
+     */
+    private static int readArgs(InputStream in, int[] args) throws IOException {
+        int numOfArgs = 0;
+        boolean isMalformed = false;
+        boolean isInNumber = false;
+        boolean isNegative = false;
+        int value = 0;
+
+        for (int c = in.read(); ; c = in.read()) {
+            if (c < 0)
+                throw new EOFException();
+
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                isInNumber = true;
+            } else if (c == '-' && !isInNumber) {
+                isNegative = true;
+            } else if (c == ' ' || c == '\n' || c == '\r') {
+                if (isInNumber) {
+                    if (numOfArgs < args.length)
+                        args[numOfArgs] = isNegative ? -value : value;
+                    numOfArgs++;
+                }
+                isInNumber = false;
+                isNegative = false;
+                value = 0;
+                if (c == '\n')
+                    break;
+            } else {
+                isMalformed = true;
+            }
+        }
+        return (isMalformed || numOfArgs > args.length) ? -1 : numOfArgs;
+    }
+
+    private static void skipLine(InputStream in) throws IOException {
+        for (int c = in.read(); c != '\n'; c = in.read())
+            if (c < 0)
+                throw new EOFException();
+    }
+
+    private static void write(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,133 @@
+package Module;
+
+import java.util.List;
+
+/**
+ * The CampusMetrics is a snapshot of the statistics of all buildings on a campus, summed over every shard.
+ * It is taken while every shard waits at the end of the same time window, so all numbers are of the same moment.
+ *
+ * @author EJWang
+ */
+public class CampusMetrics {
+
+    private long time;
+    private int numOfBuildings;
+    private int numOfElevators;
+    private long numOfSteps;
+
+    // passenger trips
+    private long trips;
+    private long waitTime;
+    private long maxWaitTime;
+    private long journeyTime;
+
+    // elevator stops
+    private long stops;
+    private long doorTime;
+    private long boarded;
+    private long reopens;
+
+    /**
+     * Take a snapshot of the shards.
+     *
+     * @param shards The shards of the campus
+     * @param time   The time of the snapshot in millisecond
+     */
+    public CampusMetrics(List<CampusShard> shards, long time) {
+        this.time = time;
+
+        for (CampusShard shard : shards) {
+            numOfSteps += shard.getNumOfSteps();
+
+            for (Building building : shard.getBuildings()) {
+                numOfBuildings++;
+
+                TripMetrics tripMetrics = building.getEMS().getTripMetrics();
+                trips += tripMetrics.getTrips();
+                waitTime += tripMetrics.getWaitTime();
+                maxWaitTime = Math.max(maxWaitTime, tripMetrics.getMaxWaitTime());
+                journeyTime += tripMetrics.getJourneyTime();
+
+                for (Elevator elevator : building.getEMS().getAllElevators()) {
+                    numOfElevators++;
+
+                    ElevatorMetrics metrics = elevator.getMetrics();
+                    stops += metrics.getStops();
+                    doorTime += metrics.getDoorTime();
+                    boarded += metrics.getBoarded();
+                    reopens += metrics.getReopens();
+                }
+            }
+        }
+    }
+
+    public long getAverageWaitTime() {
+        return trips == 0 ? 0 : waitTime / trips;
+    }
+
+    public long getAverageJourneyTime() {
+        return trips == 0 ? 0 : journeyTime / trips;
+    }
+
+    @Override
+    public String toString() {
+        long timeOfDay = Math.floorMod(time, SimulationClock.DAY_MILLIS) / 1000;
+
+        return String.format("%02d:%02d:%02d 共%d栋楼%d部电梯, 送达%d人, 平均等待%dms, 最长等待%dms, 平均行程%dms, " +
+                        "停靠%d次, 开关门共%dms, 上客%d人, 重新开门%d次, 共计算%d步",
+                timeOfDay / 3600, timeOfDay / 60 % 60, timeOfDay % 60,
+                numOfBuildings, numOfElevators,
+                trips, getAverageWaitTime(), maxWaitTime, getAverageJourneyTime(),
+                stops, doorTime, boarded, reopens, numOfSteps);
+    }
+
+    /* =================================== Getters ================================================================= */
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getNumOfBuildings() {
+        return numOfBuildings;
+    }
+
+    public int getNumOfElevators() {
+        return numOfElevators;
+    }
+
+    public long getNumOfSteps() {
+        return numOfSteps;
+    }
+
+    public long getTrips() {
+        return trips;
+    }
+
+    public long getWaitTime() {
+        return waitTime;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public long getJourneyTime() {
+        return journeyTime;
+    }
+
+    public long getStops() {
+        return stops;
+    }
+
+    public long getDoorTime() {
+        return doorTime;
+    }
+
+    public long getBoarded() {
+        return boarded;
+    }
+
+    public long getReopens() {
+        return reopens;
+    }
+}
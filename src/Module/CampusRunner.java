@@ -0,0 +1,182 @@
+package Module;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * The CampusRunner simulates many buildings at once on a fixed set of worker threads.
+ * <p>
+ * The buildings are partitioned into one shard per worker, balanced by the number of elevators.
+ * Every shard advances its own virtual clock through the same time windows, and waits for the others
+ * at the end of each window. While all shards wait, the metrics of the whole campus are collected.
+ * Buildings never talk to each other, so the shards only have to agree on time.
+ *
+ * @author EJWang
+ */
+public class CampusRunner {
+
+    /* ---- Running Configuration ---- */
+    private static final String LOG_FILENAME = "campus_log.txt";
+    private static final boolean LOG_VERBOSE = true;
+
+    private int numOfWorkers;
+    private long windowSize;
+    private long reportInterval;
+    private long startTime;
+
+    // the buildings on this campus and the traffic of each one
+    private List<Building> buildings;
+    private List<SimulationActor> traffics;
+
+    private List<CampusShard> shards;
+    private volatile CampusMetrics latestMetrics;
+    private volatile Throwable failure;
+
+    /* =================================== Constructor Methods ===================================================== */
+
+    /**
+     * Construct a CampusRunner.
+     *
+     * @param numOfWorkers   The number of worker threads
+     * @param windowSize     The time window the shards advance before waiting for each other in millisecond
+     * @param reportInterval How often the campus metrics is logged in millisecond of simulation
+     * @param startTime      The time the simulation starts in millisecond, e.g. 7 hours for 07:00 of day 0
+     */
+    public CampusRunner(int numOfWorkers, long windowSize, long reportInterval, long startTime) {
+        this.numOfWorkers = Math.max(1, numOfWorkers);
+        this.windowSize = windowSize;
+        this.reportInterval = reportInterval;
+        this.startTime = startTime;
+        buildings = new ArrayList<>();
+        traffics = new ArrayList<>();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Add a building to this campus.
+     *
+     * @param building The building, its elevators must have been constructed
+     * @param traffic  The actor sending passengers to the building
+     */
+    public void addBuilding(Building building, SimulationActor traffic) {
+        buildings.add(building);
+        traffics.add(traffic);
+    }
+
+    /**
+     * Run the campus for a period of simulation time, and wait until all workers finish.
+     *
+     * @param duration The period in millisecond
+     * @return The metrics of the whole campus at the end
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public CampusMetrics run(long duration) throws InterruptedException {
+        partition();
+
+        final long numOfWindows = (duration + windowSize - 1) / windowSize;
+        final CyclicBarrier barrier = new CyclicBarrier(shards.size(), new Runnable() {
+            private long lastReport = startTime;
+
+            @Override
+            public void run() {
+                long now = shards.get(0).getClock().currentTimeMillis();
+                latestMetrics = new CampusMetrics(shards, now);
+
+                if (now - lastReport >= reportInterval) {
+                    log("园区: " + latestMetrics);
+                    lastReport = now;
+                }
+            }
+        });
+
+        List<Thread> workers = new ArrayList<>();
+        for (final CampusShard shard : shards) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (long window = 1; window <= numOfWindows; window++) {
+                            shard.advanceTo(startTime + Math.min(window * windowSize, duration));
+                            barrier.await();
+                        }
+                    } catch (InterruptedException | BrokenBarrierException e) {
+                        // another worker has failed, stop with it
+                    } catch (RuntimeException r) {
+                        failure = r;
+                        barrier.reset();
+                    }
+                }
+            }, "campus-worker-" + shard.getNumber());
+
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers)
+            worker.join();
+
+        if (failure != null)
+            throw new IllegalStateException("Campus simulation failed", failure);
+
+        log("园区: 模拟结束, " + latestMetrics);
+        return latestMetrics;
+    }
+
+    /**
+     * Get the metrics collected at the end of the latest time window.
+     *
+     * @return The latest metrics, or null if no window has finished
+     */
+    public CampusMetrics getLatestMetrics() {
+        return latestMetrics;
+    }
+
+    public List<CampusShard> getShards() {
+        return shards;
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Involke LogRecorder inorder to record the message of each stage of event.
+     *
+     * @param msg The status of event
+     */
+    private void log(String msg) {
+        LogRecorder.getInstance().recordLog(LOG_FILENAME, msg, LOG_VERBOSE);
+    }
+
+    /**
+     * Put every building into the shard with the fewest elevators, the largest building first.
+     */
+    private void partition() {
+        shards = new ArrayList<>();
+        for (int i = 0; i < Math.min(numOfWorkers, Math.max(1, buildings.size())); i++)
+            shards.add(new CampusShard(i + 1, startTime));
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < buildings.size(); i++)
+            order.add(i);
+
+        order.sort(new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Integer.compare(buildings.get(b).getEMS().getAllElevators().size(),
+                        buildings.get(a).getEMS().getAllElevators().size());
+            }
+        });
+
+        for (int i : order) {
+            CampusShard lightest = shards.get(0);
+            for (CampusShard shard : shards)
+                if (shard.getNumOfElevators() < lightest.getNumOfElevators())
+                    lightest = shard;
+
+            lightest.addBuilding(buildings.get(i), traffics.get(i));
+        }
+    }
+}
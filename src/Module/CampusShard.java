@@ -0,0 +1,186 @@
+package Module;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The CampusShard runs a part of the buildings of a campus on one worker thread.
+ * <p>
+ * The shard owns a virtual clock shared by its buildings, and a queue of the actors ordered by the time
+ * of their next step. Advancing the shard steps the actors in time order without sleeping,
+ * so a shard only costs the computation of its buildings.
+ *
+ * @author EJWang
+ */
+public class CampusShard implements SimulationScheduler {
+
+    private int number;
+    private VirtualClock clock;
+
+    // the actors waiting for their next step, in the order of time then the order of scheduling
+    private PriorityQueue<Wakeup> wakeups;
+    private long sequence;
+
+    private List<Building> buildings;
+    private int numOfElevators;
+    private long numOfSteps;
+
+    /**
+     * Construct a CampusShard.
+     *
+     * @param number    The number of this shard
+     * @param startTime The time the simulation starts in millisecond
+     */
+    public CampusShard(int number, long startTime) {
+        this.number = number;
+        clock = new VirtualClock(startTime);
+        wakeups = new PriorityQueue<>();
+        buildings = new ArrayList<>();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Move a building into this shard and start its elevators and traffic.
+     *
+     * @param building The building
+     * @param traffic  The actor sending passengers to the building
+     */
+    public void addBuilding(Building building, SimulationActor traffic) {
+        building.setClock(clock);
+        buildings.add(building);
+        numOfElevators += building.getEMS().getAllElevators().size();
+
+        building.getEMS().start(this);
+        start(traffic);
+    }
+
+    /**
+     * Schedule the first step of an actor at current time of this shard.
+     *
+     * @param actor The actor to run
+     */
+    @Override
+    public void start(SimulationActor actor) {
+        wakeups.add(new Wakeup(clock.currentTimeMillis(), sequence++, actor));
+    }
+
+    /**
+     * Step every actor due before the end of the time window, then move the clock to the end.
+     *
+     * @param endTime The end of the time window in millisecond
+     */
+    public void advanceTo(long endTime) {
+        while (!wakeups.isEmpty() && wakeups.peek().time < endTime) {
+            Wakeup wakeup = wakeups.poll();
+            clock.advanceTo(wakeup.time);
+
+            long next = wakeup.actor.step(wakeup.time);
+            numOfSteps++;
+
+            if (next != SimulationActor.STOP) {
+                // an actor is never stepped twice at the same time
+                wakeup.time = Math.max(next, wakeup.time + 1);
+                wakeup.sequence = sequence++;
+                wakeups.add(wakeup);
+            }
+        }
+
+        clock.advanceTo(endTime);
+    }
+
+    /* =================================== Checkpoint ============================================================== */
+
+    /**
+     * Get the scheduled steps in the order they will be run.
+     *
+     * @return A sorted copy of the scheduled steps
+     */
+    List<Wakeup> getWakeups() {
+        List<Wakeup> sorted = new ArrayList<>(wakeups);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Schedule a step of an actor at given time, used to restore the queue from a checkpoint.
+     * Steps scheduled at the same time run in the order they are scheduled.
+     *
+     * @param actor The actor
+     * @param time  The time of its next step
+     */
+    void schedule(SimulationActor actor, long time) {
+        wakeups.add(new Wakeup(time, sequence++, actor));
+    }
+
+    /**
+     * Move a restored building into this shard without starting it, its actors are scheduled by the checkpoint.
+     *
+     * @param building The building
+     */
+    void addRestoredBuilding(Building building) {
+        building.setClock(clock);
+        buildings.add(building);
+        numOfElevators += building.getEMS().getAllElevators().size();
+        building.getEMS().setExecutor(this);
+    }
+
+    void setNumOfSteps(long numOfSteps) {
+        this.numOfSteps = numOfSteps;
+    }
+
+    /* =================================== Getters ================================================================= */
+
+    public int getNumber() {
+        return number;
+    }
+
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    public List<Building> getBuildings() {
+        return buildings;
+    }
+
+    public int getNumOfElevators() {
+        return numOfElevators;
+    }
+
+    public long getNumOfSteps() {
+        return numOfSteps;
+    }
+
+    /**
+     * The next step of an actor.
+     */
+    static class Wakeup implements Comparable<Wakeup> {
+
+        private long time;
+        private long sequence;
+        private SimulationActor actor;
+
+        private Wakeup(long time, long sequence, SimulationActor actor) {
+            this.time = time;
+            this.sequence = sequence;
+            this.actor = actor;
+        }
+
+        long getTime() {
+            return time;
+        }
+
+        SimulationActor getActor() {
+            return actor;
+        }
+
+        @Override
+        public int compareTo(Wakeup other) {
+            if (time != other.time)
+                return Long.compare(time, other.time);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package Module;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A CarEvent is a Java Flight Recorder event of one step of an elevator.
+ * The duration of the event is the real time spent in the step, the simulated time is how long
+ * the step takes in the simulation. The fields are only filled while the event is being recorded.
+ * An event is only created while its type is being recorded, or the cars would create one on every step.
+ *
+ * @author EJWang
+ */
+@Category({"Elevator", "Car"})
+@StackTrace(false)
+abstract class CarEvent extends Event {
+
+    @Label("Car")
+    int car;
+
+    @Label("Floor")
+    int floor;
+
+    @Label("Load")
+    @Description("Passengers on board")
+    int load;
+
+    @Label("Simulated Time")
+    @Timespan(Timespan.MILLISECONDS)
+    long simulatedTime;
+}
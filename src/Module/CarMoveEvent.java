@@ -0,0 +1,31 @@
+package Module;
+
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A CarMoveEvent is recorded every time an elevator arrives at a floor and decides where to go next.
+ *
+ * @author EJWang
+ */
+@Name("Module.CarMove")
+@Label("Car Move")
+class CarMoveEvent extends CarEvent {
+
+    private static final EventType TYPE = EventType.getEventType(CarMoveEvent.class);
+
+    /**
+     * Begin an event if it is being recorded.
+     *
+     * @return The event, or null if not recorded
+     */
+    static CarMoveEvent beginIfEnabled() {
+        if (!TYPE.isEnabled())
+            return null;
+
+        CarMoveEvent event = new CarMoveEvent();
+        event.begin();
+        return event;
+    }
+}
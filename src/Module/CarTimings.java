@@ -0,0 +1,79 @@
+package Module;
+
+/**
+ * The CarTimings is the time a car takes for each part of a stop, decided by its door and its levelling gear.
+ * The time to move one floor is decided by the speed and kept by the elevator on its own.
+ *
+ * @author EJWang
+ */
+public final class CarTimings {
+
+    // the timings of the cars installed when nothing else is given
+    public static final CarTimings DEFAULT = new CarTimings(1000, 2000, 2500, 1000, 1200, 1000);
+
+    private final int dockingTime;          // levelling with the floor
+    private final int doorOpenTime;
+    private final int doorCloseTime;
+    private final int alightingTime;        // per alighting passenger
+    private final int boardingTime;         // per boarding passenger
+    private final int minDwellTime;         // door held open once anyone moved
+
+    /**
+     * Construct a CarTimings, every time is in millisecond.
+     *
+     * @param dockingTime   The time of levelling with the floor
+     * @param doorOpenTime  The time of opening the door
+     * @param doorCloseTime The time of closing the door
+     * @param alightingTime The time for one passenger to walk out
+     * @param boardingTime  The time for one passenger to walk in
+     * @param minDwellTime  The shortest time the door is held open once anyone moved
+     */
+    public CarTimings(int dockingTime, int doorOpenTime, int doorCloseTime, int alightingTime, int boardingTime,
+                      int minDwellTime) {
+        if (dockingTime < 0 || doorOpenTime < 0 || doorCloseTime < 0 || alightingTime < 0 || boardingTime < 0
+                || minDwellTime < 0)
+            throw new IllegalArgumentException("The timings of a car cannot be negative");
+
+        this.dockingTime = dockingTime;
+        this.doorOpenTime = doorOpenTime;
+        this.doorCloseTime = doorCloseTime;
+        this.alightingTime = alightingTime;
+        this.boardingTime = boardingTime;
+        this.minDwellTime = minDwellTime;
+    }
+
+    /**
+     * Get the time of a stop without anyone walking through the door.
+     *
+     * @return The time of docking, opening and closing the door in millisecond
+     */
+    public int getStopTime() {
+        return dockingTime + doorOpenTime + doorCloseTime;
+    }
+
+    /* =================================== Getters ================================================================= */
+
+    public int getDockingTime() {
+        return dockingTime;
+    }
+
+    public int getDoorOpenTime() {
+        return doorOpenTime;
+    }
+
+    public int getDoorCloseTime() {
+        return doorCloseTime;
+    }
+
+    public int getAlightingTime() {
+        return alightingTime;
+    }
+
+    public int getBoardingTime() {
+        return boardingTime;
+    }
+
+    public int getMinDwellTime() {
+        return minDwellTime;
+    }
+}
@@ -0,0 +1,197 @@
+package Module;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A ColumnarReader scans a file written by Module.ColumnarWriter chunk by chunk.
+ * Only the selected columns are inflated and decoded, the others are skipped unread.
+ * A file still being written can be read up to its last complete chunk.
+ *
+ * @author EJWang
+ */
+public class ColumnarReader implements Closeable {
+
+    private DataInputStream in;
+    private String[] columns;
+    private boolean[] isSelected;
+    private long[][] values;
+    private int numOfRows;
+
+    // reused by every chunk
+    private Inflater inflater;
+    private byte[] deflated;
+    private byte[] raw;
+
+    /**
+     * Open a columnar file, every column is selected.
+     *
+     * @param file The file to read
+     * @throws IOException if the file is not a columnar file
+     */
+    public ColumnarReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+
+        if (in.readInt() != ColumnarWriter.MAGIC || in.readShort() != ColumnarWriter.VERSION) {
+            in.close();
+            throw new IOException("Not a columnar file: " + file);
+        }
+
+        columns = new String[in.readShort()];
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = in.readUTF();
+
+        isSelected = new boolean[columns.length];
+        Arrays.fill(isSelected, true);
+        values = new long[columns.length][0];
+        inflater = new Inflater();
+        deflated = new byte[0];
+        raw = new byte[0];
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Select the only columns to decode from the next chunk on.
+     *
+     * @param names The names of the columns
+     */
+    public void select(String... names) {
+        Arrays.fill(isSelected, false);
+        for (String name : names)
+            isSelected[getColumnIndex(name)] = true;
+    }
+
+    /**
+     * Read the next chunk.
+     *
+     * @return The number of rows in the chunk, or -1 at the end of the file
+     * @throws IOException if the file is corrupted
+     */
+    public int nextChunk() throws IOException {
+        try {
+            numOfRows = in.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            int rawLength = in.readInt();
+            int length = in.readInt();
+
+            if (!isSelected[i]) {
+                skip(length);
+                continue;
+            }
+
+            if (deflated.length < length)
+                deflated = new byte[length];
+            if (raw.length < rawLength)
+                raw = new byte[rawLength];
+            if (values[i].length < numOfRows)
+                values[i] = new long[numOfRows];
+
+            in.readFully(deflated, 0, length);
+            inflate(length, rawLength);
+            decode(rawLength, values[i]);
+        }
+        return numOfRows;
+    }
+
+    /**
+     * Get the values of a selected column in the current chunk, only the first rows of the chunk are valid.
+     *
+     * @param column The index of the column
+     * @return The values of the column
+     */
+    public long[] getValues(int column) {
+        return values[column];
+    }
+
+    /**
+     * Get the index of a column by its name.
+     *
+     * @param name The name of the column
+     * @return The index of the column
+     */
+    public int getColumnIndex(String name) {
+        for (int i = 0; i < columns.length; i++)
+            if (columns[i].equals(name))
+                return i;
+        throw new IllegalArgumentException("No such column: " + name);
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public int getNumOfRows() {
+        return numOfRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+        inflater.end();
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Skip a column not selected.
+     */
+    private void skip(int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0)
+                throw new EOFException("Truncated chunk");
+            length -= skipped;
+        }
+    }
+
+    /**
+     * Inflate a column into the raw buffer.
+     */
+    private void inflate(int length, int rawLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(deflated, 0, length);
+
+        try {
+            int offset = 0;
+            while (offset < rawLength && !inflater.finished())
+                offset += inflater.inflate(raw, offset, rawLength - offset);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted chunk", e);
+        }
+    }
+
+    /**
+     * Decode the zig-zag varint deltas of a column.
+     */
+    private void decode(int rawLength, long[] column) {
+        int offset = 0;
+        long previous = 0;
+
+        for (int row = 0; row < numOfRows && offset < rawLength; row++) {
+            long zigzag = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = raw[offset++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            column[row] = previous;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package Module;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * A ColumnarWriter streams rows of long values into a columnar file.
+ * The rows are buffered column by column and written as a chunk once the buffer is full,
+ * so the memory used stays the same however many rows are written.
+ * <p>
+ * The file starts with a header of the column names, followed by the chunks.
+ * In a chunk every column is delta encoded into zig-zag varints, then deflated on its own,
+ * so a reader only inflates the columns it needs and skips the others:
+ * <pre>
+ *   header: magic, version, number of columns, column names
+ *   chunk:  number of rows, then per column: raw length, deflated length, deflated bytes
+ * </pre>
+ *
+ * @author EJWang
+ */
+public class ColumnarWriter implements Closeable {
+
+    static final int MAGIC = 0x454C4346;            // "ELCF"
+    static final short VERSION = 1;
+
+    public static final int DEFAULT_CHUNK_ROWS = 16 * 1024;
+
+    private DataOutputStream out;
+    private String[] columns;
+    private long[][] buffer;
+    private int numOfBufferedRows;
+    private long numOfRows;
+
+    // reused by every chunk
+    private Deflater deflater;
+    private ByteArrayOutputStream encoded;
+    private byte[] deflated;
+
+    /**
+     * Create a columnar file with the default chunk size.
+     *
+     * @param file    The file to write
+     * @param columns The names of the columns
+     * @throws IOException if failed to create the file
+     */
+    public ColumnarWriter(File file, String... columns) throws IOException {
+        this(file, DEFAULT_CHUNK_ROWS, columns);
+    }
+
+    /**
+     * Create a columnar file.
+     *
+     * @param file      The file to write
+     * @param chunkRows The number of rows in a chunk
+     * @param columns   The names of the columns
+     * @throws IOException if failed to create the file
+     */
+    public ColumnarWriter(File file, int chunkRows, String... columns) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        this.columns = columns.clone();
+        this.buffer = new long[columns.length][chunkRows];
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.encoded = new ByteArrayOutputStream(chunkRows * 2);
+        this.deflated = new byte[chunkRows * 2];
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(columns.length);
+        for (String column : columns)
+            out.writeUTF(column);
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Append a row, the chunk is written once it is full.
+     *
+     * @param values The value of every column in order
+     * @throws IOException if failed to write the chunk
+     */
+    public synchronized void append(long... values) throws IOException {
+        if (values.length != columns.length)
+            throw new IllegalArgumentException("Expected " + columns.length + " values but got " + values.length);
+
+        for (int i = 0; i < values.length; i++)
+            buffer[i][numOfBufferedRows] = values[i];
+        numOfBufferedRows++;
+        numOfRows++;
+
+        if (numOfBufferedRows == buffer[0].length)
+            writeChunk();
+    }
+
+    /**
+     * Write the rows buffered so far as a chunk, so the file can be read up to here.
+     *
+     * @throws IOException if failed to write the chunk
+     */
+    public synchronized void flush() throws IOException {
+        if (numOfBufferedRows > 0)
+            writeChunk();
+        out.flush();
+    }
+
+    /**
+     * Flush the last chunk and close the file.
+     *
+     * @throws IOException if failed to write the chunk
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        out.close();
+        deflater.end();
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public synchronized long getNumOfRows() {
+        return numOfRows;
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Encode and deflate every column of the buffered rows.
+     */
+    private void writeChunk() throws IOException {
+        out.writeInt(numOfBufferedRows);
+
+        for (long[] column : buffer) {
+            encoded.reset();
+            long previous = 0;
+            for (int row = 0; row < numOfBufferedRows; row++) {
+                writeVarLong(encoded, column[row] - previous);
+                previous = column[row];
+            }
+
+            byte[] raw = encoded.toByteArray();
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == deflated.length)
+                    deflated = Arrays.copyOf(deflated, deflated.length * 2);
+                length += deflater.deflate(deflated, length, deflated.length - length);
+            }
+
+            out.writeInt(raw.length);
+            out.writeInt(length);
+            out.write(deflated, 0, length);
+        }
+
+        numOfBufferedRows = 0;
+    }
+
+    /**
+     * Write a signed value as a zig-zag varint, small deltas of either sign take a single byte.
+     */
+    private static void writeVarLong(ByteArrayOutputStream stream, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7FL) != 0) {
+            stream.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        stream.write((int) zigzag);
+    }
+}
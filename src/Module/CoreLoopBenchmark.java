@@ -0,0 +1,179 @@
+package Module;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The CoreLoopBenchmark measures how fast the cars step and how much memory a step allocates.
+ * <p>
+ * A headless building is run on a virtual clock on the calling thread, first to warm up the JIT, then to measure.
+ * Every step of a car is wrapped to read the bytes allocated by the thread before and after, so the cost of the
+ * cars is told apart from the passengers created by the traffic and the work of the EMS.
+ * The logs should be muted, or the messages rendered as text are counted too.
+ *
+ * @author EJWang
+ */
+public class CoreLoopBenchmark implements SimulationScheduler {
+
+    private com.sun.management.ThreadMXBean threads;
+    private long threadId;
+    private CampusShard shard;
+
+    // the steps of the cars
+    private long carSteps;
+    private long carBytes;
+    private long carNanos;
+
+    // the whole run
+    private long steps;
+    private long bytes;
+    private long nanos;
+    private long simulatedTime;
+
+    /**
+     * Construct a CoreLoopBenchmark.
+     */
+    public CoreLoopBenchmark() {
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported())
+            throw new IllegalStateException("The allocated memory of a thread is not measured by this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Run a building through a warm-up period, then measure the following period.
+     *
+     * @param building     The building, not started yet
+     * @param traffic      The actor sending passengers to the building
+     * @param startTime    The time the simulation starts in millisecond
+     * @param warmUpTime   The simulated time to warm up in millisecond
+     * @param measuredTime The simulated time to measure in millisecond
+     */
+    public void run(Building building, SimulationActor traffic, long startTime, long warmUpTime, long measuredTime) {
+        run(building, Collections.singletonList(traffic), startTime, warmUpTime, measuredTime);
+    }
+
+    /**
+     * Run a building with its traffic and other actors, such as a FaultInjector, through a warm-up period,
+     * then measure the following period.
+     *
+     * @param building     The building, not started yet
+     * @param actors       The actors run with the building
+     * @param startTime    The time the simulation starts in millisecond
+     * @param warmUpTime   The simulated time to warm up in millisecond
+     * @param measuredTime The simulated time to measure in millisecond
+     */
+    public void run(Building building, List<SimulationActor> actors, long startTime, long warmUpTime,
+                    long measuredTime) {
+        threadId = Thread.currentThread().getId();
+        shard = new CampusShard(0, startTime);
+        building.setClock(shard.getClock());
+        building.getEMS().start(this);
+        for (SimulationActor actor : actors)
+            shard.start(actor);
+
+        shard.advanceTo(startTime + warmUpTime);
+        carSteps = 0;
+        carBytes = 0;
+        carNanos = 0;
+
+        long startSteps = shard.getNumOfSteps();
+        long startBytes = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+
+        shard.advanceTo(startTime + warmUpTime + measuredTime);
+
+        nanos = System.nanoTime() - start;
+        bytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+        steps = shard.getNumOfSteps() - startSteps;
+        simulatedTime = measuredTime;
+    }
+
+    /**
+     * Start to step an actor on the shard of this benchmark, the cars are measured step by step.
+     *
+     * @param actor The actor to run
+     */
+    @Override
+    public void start(SimulationActor actor) {
+        shard.start(actor instanceof Elevator ? new MeasuredCar(actor) : actor);
+    }
+
+    public long getCarSteps() {
+        return carSteps;
+    }
+
+    public double getBytesPerCarStep() {
+        return (carSteps == 0) ? 0 : (double) carBytes / carSteps;
+    }
+
+    public double getNanosPerCarStep() {
+        return (carSteps == 0) ? 0 : (double) carNanos / carSteps;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public double getStepsPerSecond() {
+        return (nanos == 0) ? 0 : steps * 1e9 / nanos;
+    }
+
+    public double getBytesPerStep() {
+        return (steps == 0) ? 0 : (double) bytes / steps;
+    }
+
+    /**
+     * Get the allocation rate of the whole run.
+     *
+     * @return The bytes allocated per second of wall time
+     */
+    public double getBytesPerSecond() {
+        return (nanos == 0) ? 0 : bytes * 1e9 / nanos;
+    }
+
+    /**
+     * Get how much faster than real time the measured period ran.
+     *
+     * @return The simulated time over the wall time
+     */
+    public double getSpeedUp() {
+        return (nanos == 0) ? 0 : simulatedTime * 1e6 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("电梯每步分配%.1f字节, 耗时%.0fns (%d步); 全部%d步, 每秒%.0f步, 每步分配%.1f字节, 模拟加速%.0f倍",
+                getBytesPerCarStep(), getNanosPerCarStep(), carSteps, steps, getStepsPerSecond(),
+                getBytesPerStep(), getSpeedUp());
+    }
+
+    /* =================================== Inner Classes =========================================================== */
+
+    /**
+     * Steps a car and counts the time and the bytes of the step.
+     */
+    private class MeasuredCar implements SimulationActor {
+        private SimulationActor car;
+
+        private MeasuredCar(SimulationActor car) {
+            this.car = car;
+        }
+
+        @Override
+        public long step(long now) {
+            long startBytes = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+
+            long next = car.step(now);
+
+            carNanos += System.nanoTime() - start;
+            carBytes += threads.getThreadAllocatedBytes(threadId) - startBytes;
+            carSteps++;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The DegradedModeMetrics tells how the service of a building degrades while some of its cars are out of
+ * service. The run is split by the number of cars down at the time, and for each number it keeps
+ * <ul>
+ *   <li>how long the building has run with that many cars down</li>
+ *   <li>the passengers whom called during that time, and how long they waited</li>
+ *   <li>the passengers delivered during that time, giving the handling capacity per 5 minutes</li>
+ * </ul>
+ * The changes of the number are kept in order, so a passenger is counted by the number when it first called.
+ *
+ * @author EJWang
+ */
+public class DegradedModeMetrics {
+
+    private static final long HANDLING_PERIOD = 5 * 60 * 1000;     // millisecond
+
+    private int carsDown;
+    private long lastChange;            // -1 before started
+    private long[] failures;            // by fault type, a failure raised by an error is counted as DRIVE
+
+    // indexed by the number of cars down
+    private long[] time;
+    private long[] trips;
+    private long[] waitTime;
+    private long[] deliveries;
+
+    // every change of the number of cars down
+    private long[] changeTimes;
+    private int[] changeLevels;
+    private int numOfChanges;
+
+    /**
+     * Construct a DegradedModeMetrics.
+     */
+    public DegradedModeMetrics() {
+        lastChange = -1;
+        failures = new long[FaultType.values().length];
+        time = new long[1];
+        trips = new long[1];
+        waitTime = new long[1];
+        deliveries = new long[1];
+        changeTimes = new long[16];
+        changeLevels = new int[16];
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Start counting the time, all cars are in service.
+     *
+     * @param now The current time
+     */
+    public synchronized void start(long now) {
+        if (lastChange < 0)
+            lastChange = now;
+    }
+
+    /**
+     * Record a car is out of service.
+     *
+     * @param type The fault, null if the car failed on an error
+     * @param now  The current time
+     */
+    public synchronized void recordFailure(FaultType type, long now) {
+        failures[(type == null) ? FaultType.DRIVE.ordinal() : type.ordinal()]++;
+        change(carsDown + 1, now);
+    }
+
+    /**
+     * Record a car is back in service.
+     *
+     * @param now The current time
+     */
+    public synchronized void recordRepair(long now) {
+        change(Math.max(0, carsDown - 1), now);
+    }
+
+    /**
+     * Record the waiting time of a passenger arrived at the destination.
+     *
+     * @param requestTime The time the passenger first called
+     * @param waitMillis  The time waited for the first elevator
+     */
+    public synchronized void recordTrip(long requestTime, long waitMillis) {
+        int level = getCarsDownAt(requestTime);
+        trips[level]++;
+        waitTime[level] += waitMillis;
+    }
+
+    /**
+     * Record a passenger delivered at the target of a leg.
+     */
+    public synchronized void recordDelivery() {
+        deliveries[carsDown]++;
+    }
+
+    /**
+     * Get the number of cars down at a time.
+     *
+     * @param when The time
+     * @return The number of cars down
+     */
+    public synchronized int getCarsDownAt(long when) {
+        // the changes are few, and the recent ones are asked the most
+        for (int i = numOfChanges - 1; i >= 0; i--)
+            if (changeTimes[i] <= when)
+                return changeLevels[i];
+        return 0;
+    }
+
+    /**
+     * Describe the service with every number of cars down seen so far, one line each.
+     *
+     * @param now The current time
+     * @return The report
+     */
+    public synchronized String report(long now) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("故障: 停梯%d次(平层%d次, 门%d次, 驱动%d次)", getNumOfFailures(),
+                failures[FaultType.DOCKING.ordinal()], failures[FaultType.DOOR.ordinal()],
+                failures[FaultType.DRIVE.ordinal()]));
+
+        long total = 0;
+        for (int level = 0; level < time.length; level++)
+            total += getTime(level, now);
+
+        for (int level = 0; level < time.length; level++) {
+            long levelTime = getTime(level, now);
+            if (levelTime == 0 && trips[level] == 0)
+                continue;
+
+            report.append(String.format("%n故障: %d部电梯停运 - 时间占比%.1f%%, 乘客%d人, 平均等待%dms, 5分钟运力%.1f人",
+                    level,
+                    total == 0 ? 0 : 100.0 * levelTime / total,
+                    trips[level],
+                    getAverageWait(level),
+                    getHandlingCapacity(level, now)));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Get how long the building has run with given number of cars down.
+     *
+     * @param level The number of cars down
+     * @param now   The current time
+     * @return The time in millisecond
+     */
+    public synchronized long getTime(int level, long now) {
+        if (level >= time.length)
+            return 0;
+
+        long result = time[level];
+        if (level == carsDown && lastChange >= 0)
+            result += Math.max(0, now - lastChange);
+        return result;
+    }
+
+    /**
+     * Get the average waiting time of the passengers whom called with given number of cars down.
+     *
+     * @param level The number of cars down
+     * @return The waiting time in millisecond, or 0 if nobody
+     */
+    public synchronized long getAverageWait(int level) {
+        return (level >= trips.length || trips[level] == 0) ? 0 : waitTime[level] / trips[level];
+    }
+
+    /**
+     * Get the passengers delivered in 5 minutes with given number of cars down.
+     *
+     * @param level The number of cars down
+     * @param now   The current time
+     * @return The handling capacity, or 0 if the building has never run with that many cars down
+     */
+    public synchronized double getHandlingCapacity(int level, long now) {
+        long levelTime = getTime(level, now);
+        return (levelTime == 0) ? 0 : (double) deliveries[level] * HANDLING_PERIOD / levelTime;
+    }
+
+    public synchronized long getTrips(int level) {
+        return (level < trips.length) ? trips[level] : 0;
+    }
+
+    public synchronized long getDeliveries(int level) {
+        return (level < deliveries.length) ? deliveries[level] : 0;
+    }
+
+    public synchronized long getNumOfFailures() {
+        long total = 0;
+        for (long count : failures)
+            total += count;
+        return total;
+    }
+
+    public synchronized int getMaxCarsDown() {
+        return time.length - 1;
+    }
+
+    public synchronized int getCarsDown() {
+        return carsDown;
+    }
+
+    /**
+     * Write the statistics into a checkpoint.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    synchronized void writeState(DataOutput out) throws IOException {
+        out.writeInt(carsDown);
+        out.writeLong(lastChange);
+        for (long count : failures)
+            out.writeLong(count);
+
+        out.writeInt(time.length);
+        for (int level = 0; level < time.length; level++) {
+            out.writeLong(time[level]);
+            out.writeLong(trips[level]);
+            out.writeLong(waitTime[level]);
+            out.writeLong(deliveries[level]);
+        }
+
+        out.writeInt(numOfChanges);
+        for (int i = 0; i < numOfChanges; i++) {
+            out.writeLong(changeTimes[i]);
+            out.writeInt(changeLevels[i]);
+        }
+    }
+
+    /**
+     * Read the statistics from a checkpoint.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    synchronized void readState(DataInput in) throws IOException {
+        carsDown = in.readInt();
+        lastChange = in.readLong();
+        for (int i = 0; i < failures.length; i++)
+            failures[i] = in.readLong();
+
+        int levels = in.readInt();
+        time = new long[levels];
+        trips = new long[levels];
+        waitTime = new long[levels];
+        deliveries = new long[levels];
+        for (int level = 0; level < levels; level++) {
+            time[level] = in.readLong();
+            trips[level] = in.readLong();
+            waitTime[level] = in.readLong();
+            deliveries[level] = in.readLong();
+        }
+
+        numOfChanges = in.readInt();
+        changeTimes = new long[Math.max(16, numOfChanges)];
+        changeLevels = new int[changeTimes.length];
+        for (int i = 0; i < numOfChanges; i++) {
+            changeTimes[i] = in.readLong();
+            changeLevels[i] = in.readInt();
+        }
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Close the time of the current number of cars down and move to another.
+     */
+    private void change(int level, long now) {
+        if (lastChange >= 0)
+            time[carsDown] += Math.max(0, now - lastChange);
+        lastChange = now;
+        carsDown = level;
+
+        if (level >= time.length) {
+            time = Arrays.copyOf(time, level + 1);
+            trips = Arrays.copyOf(trips, level + 1);
+            waitTime = Arrays.copyOf(waitTime, level + 1);
+            deliveries = Arrays.copyOf(deliveries, level + 1);
+        }
+
+        if (numOfChanges == changeTimes.length) {
+            changeTimes = Arrays.copyOf(changeTimes, numOfChanges * 2);
+            changeLevels = Arrays.copyOf(changeLevels, numOfChanges * 2);
+        }
+        changeTimes[numOfChanges] = now;
+        changeLevels[numOfChanges] = level;
+        numOfChanges++;
+    }
+}
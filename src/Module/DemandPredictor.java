@@ -0,0 +1,227 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The DemandPredictor learns the hall call arrival rate of every floor and direction online.
+ * <p>
+ * Two estimates are kept for each floor and direction:
+ * 1. A recent rate which decays exponentially, reacting to what is happening right now.
+ * 2. A time-of-day profile with one rate per bucket, blended with the rate counted each time the bucket passes.
+ * <p>
+ * The prediction of the next N seconds mixes both, so a surge seen at the same time of previous days
+ * is expected before its first call arrives. Everything is stored in flat primitive arrays
+ * indexed by (bucket, floor, direction) and updated incrementally.
+ *
+ * @author EJWang
+ */
+public class DemandPredictor {
+
+    private static final long BUCKET_MILLIS = 15 * 60 * 1000;
+    private static final int NUMBER_OF_BUCKETS = (int) (SimulationClock.DAY_MILLIS / BUCKET_MILLIS);
+
+    // time constant of the recent rate
+    private static final double RECENT_TAU_MILLIS = 2 * 60 * 1000;
+
+    // weight of the newest bucket count when blended into the profile
+    private static final double PROFILE_ALPHA = 0.3;
+
+    private int lowestLevel;
+    private int numOfKeys;
+
+    /* ---- recent rate, calls per millisecond ---- */
+    private double[] recentRates;
+    private long[] recentTimes;
+
+    /* ---- time-of-day profile, calls per millisecond ---- */
+    private double[] profileRates;
+    private boolean[] isProfileLearned;
+
+    /* ---- calls counted in the ongoing bucket ---- */
+    private int[] bucketCounts;
+    private int currBucket;
+    private long currBucketStart;
+    private boolean isCurrBucketPartial;
+
+    /**
+     * Construct a DemandPredictor.
+     *
+     * @param lowestLevel  The lowest level of the building
+     * @param highestLevel The highest level of the building
+     */
+    public DemandPredictor(int lowestLevel, int highestLevel) {
+        this.lowestLevel = lowestLevel;
+        numOfKeys = (highestLevel - lowestLevel + 1) * 2;
+
+        recentRates = new double[numOfKeys];
+        recentTimes = new long[numOfKeys];
+        profileRates = new double[NUMBER_OF_BUCKETS * numOfKeys];
+        isProfileLearned = new boolean[NUMBER_OF_BUCKETS];
+        bucketCounts = new int[numOfKeys];
+        currBucket = -1;
+    }
+
+    /**
+     * Learn from a hall call.
+     *
+     * @param floorLevel The level of floor which the call comes from
+     * @param direction  The direction the passenger want to go
+     * @param now        The current time in millisecond
+     * @param timeOfDay  The time of day in millisecond
+     */
+    public synchronized void record(int floorLevel, int direction, long now, long timeOfDay) {
+        roll(now, timeOfDay);
+
+        int key = getKey(floorLevel, direction);
+
+        recentRates[key] = decay(key, now) + 1.0 / RECENT_TAU_MILLIS;
+        recentTimes[key] = now;
+        bucketCounts[key]++;
+    }
+
+    /**
+     * Predict how many hall calls will arrive at given floor and direction in the next seconds.
+     *
+     * @param floorLevel The level of the floor
+     * @param direction  The direction of the calls
+     * @param seconds    The horizon of the prediction in second
+     * @param now        The current time in millisecond
+     * @param timeOfDay  The time of day in millisecond
+     * @return The expected number of calls
+     */
+    public synchronized double predict(int floorLevel, int direction, int seconds, long now, long timeOfDay) {
+        roll(now, timeOfDay);
+
+        int key = getKey(floorLevel, direction);
+        double recent = decay(key, now);
+        double expected = 0;
+
+        // walk through the horizon bucket by bucket
+        long remain = seconds * 1000L;
+        long time = timeOfDay;
+        while (remain > 0) {
+            long span = Math.min(remain, BUCKET_MILLIS - time % BUCKET_MILLIS);
+            int bucket = (int) ((time / BUCKET_MILLIS) % NUMBER_OF_BUCKETS);
+
+            double rate = recent;
+            if (isProfileLearned[bucket])
+                rate = (recent + profileRates[bucket * numOfKeys + key]) / 2;
+
+            expected += rate * span;
+            remain -= span;
+            time += span;
+        }
+
+        return expected;
+    }
+
+    /**
+     * Predict how many hall calls will arrive at given floor in both directions in the next seconds.
+     *
+     * @param floorLevel The level of the floor
+     * @param seconds    The horizon of the prediction in second
+     * @param now        The current time in millisecond
+     * @param timeOfDay  The time of day in millisecond
+     * @return The expected number of calls
+     */
+    public double predict(int floorLevel, int seconds, long now, long timeOfDay) {
+        return predict(floorLevel, 1, seconds, now, timeOfDay) + predict(floorLevel, -1, seconds, now, timeOfDay);
+    }
+
+    /**
+     * Get the array index of a floor level and direction.
+     */
+    private int getKey(int floorLevel, int direction) {
+        return (floorLevel - lowestLevel) * 2 + (direction > 0 ? 0 : 1);
+    }
+
+    /**
+     * Get the recent rate of a key decayed to the given time.
+     */
+    private double decay(int key, long now) {
+        long elapsed = now - recentTimes[key];
+        if (elapsed <= 0)
+            return recentRates[key];
+        return recentRates[key] * Math.exp(-elapsed / RECENT_TAU_MILLIS);
+    }
+
+    /**
+     * Fold the counts of the ongoing bucket into the profile once the bucket has passed.
+     */
+    private void roll(long now, long timeOfDay) {
+        int bucket = (int) (timeOfDay / BUCKET_MILLIS);
+
+        if (currBucket == bucket && now - currBucketStart < BUCKET_MILLIS)
+            return;
+
+        // only a bucket observed from its beginning tells the real rate
+        if (currBucket >= 0 && !isCurrBucketPartial) {
+            int offset = currBucket * numOfKeys;
+            double alpha = isProfileLearned[currBucket] ? PROFILE_ALPHA : 1.0;
+
+            for (int key = 0; key < numOfKeys; key++) {
+                double rate = bucketCounts[key] / (double) BUCKET_MILLIS;
+                profileRates[offset + key] = (1 - alpha) * profileRates[offset + key] + alpha * rate;
+            }
+            isProfileLearned[currBucket] = true;
+        }
+
+        for (int key = 0; key < numOfKeys; key++)
+            bucketCounts[key] = 0;
+
+        isCurrBucketPartial = (currBucket < 0);
+        currBucket = bucket;
+        currBucketStart = now - timeOfDay % BUCKET_MILLIS;
+    }
+
+    /**
+     * Write the learned rates into a checkpoint, only the profile buckets already learned are written.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    synchronized void writeState(DataOutput out) throws IOException {
+        for (int key = 0; key < numOfKeys; key++) {
+            out.writeDouble(recentRates[key]);
+            out.writeLong(recentTimes[key]);
+            out.writeInt(bucketCounts[key]);
+        }
+
+        for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++) {
+            out.writeBoolean(isProfileLearned[bucket]);
+            if (isProfileLearned[bucket])
+                for (int key = 0; key < numOfKeys; key++)
+                    out.writeDouble(profileRates[bucket * numOfKeys + key]);
+        }
+
+        out.writeInt(currBucket);
+        out.writeLong(currBucketStart);
+        out.writeBoolean(isCurrBucketPartial);
+    }
+
+    /**
+     * Read the learned rates from a checkpoint written by a predictor of the same building.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    synchronized void readState(DataInput in) throws IOException {
+        for (int key = 0; key < numOfKeys; key++) {
+            recentRates[key] = in.readDouble();
+            recentTimes[key] = in.readLong();
+            bucketCounts[key] = in.readInt();
+        }
+
+        for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++) {
+            isProfileLearned[bucket] = in.readBoolean();
+            for (int key = 0; key < numOfKeys; key++)
+                profileRates[bucket * numOfKeys + key] = isProfileLearned[bucket] ? in.readDouble() : 0;
+        }
+
+        currBucket = in.readInt();
+        currBucketStart = in.readLong();
+        isCurrBucketPartial = in.readBoolean();
+    }
+}
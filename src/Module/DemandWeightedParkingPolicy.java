@@ -0,0 +1,66 @@
+package Module;
+
+import exceptions.FloorDoesNotExistException;
+
+/**
+ * The DemandWeightedParkingPolicy parks an idle elevator at the floor with the most predicted hall calls
+ * that no other idle elevator is parking at yet. Closer floors win when the demand is equal.
+ * The lobby is used when no call is expected at all.
+ *
+ * @author EJWang
+ */
+public class DemandWeightedParkingPolicy implements ParkingPolicy {
+
+    // the horizon of predicted demand in second
+    private static final int PARKING_HORIZON = 120;
+
+    // a floor expecting fewer calls than this is not worth parking at
+    private static final double MIN_DEMAND = 0.1;
+
+    private ParkingPolicy fallback;
+
+    /**
+     * Construct a DemandWeightedParkingPolicy.
+     */
+    public DemandWeightedParkingPolicy() {
+        fallback = new LobbyParkingPolicy();
+    }
+
+    @Override
+    public Floor selectParkingFloor(Elevator elevator, ElevatorManagerSystem ems, Building building)
+            throws FloorDoesNotExistException {
+        int lowest = building.getLowestLevel();
+        int currLevel = elevator.getCurrFloor().getFloorLevel();
+
+        double[] demands = new double[building.getHighestLevel() - lowest + 1];
+        for (int i = 0; i < demands.length; i++) {
+            if (lowest + i != 0 && elevator.isServing(lowest + i))
+                demands[i] = ems.getPredictedArrivals(lowest + i, PARKING_HORIZON);
+        }
+
+        // floors already taken by other idle elevators
+        for (Elevator other : ems.getAllElevators()) {
+            if (other != elevator && other.getParkingFloor() != null)
+                demands[other.getParkingFloor().getFloorLevel() - lowest] = 0;
+        }
+
+        int bestLevel = 0;
+        for (int i = 0; i < demands.length; i++) {
+            int level = lowest + i;
+            if (demands[i] < MIN_DEMAND)
+                continue;
+
+            if (bestLevel == 0 || demands[i] > demands[bestLevel - lowest] ||
+                    demands[i] == demands[bestLevel - lowest] &&
+                            Math.abs(level - currLevel) < Math.abs(bestLevel - currLevel)) {
+                bestLevel = level;
+            }
+        }
+
+        // no demand is expected
+        if (bestLevel == 0)
+            return fallback.selectParkingFloor(elevator, ems, building);
+
+        return building.getSpecifiedFloor(bestLevel);
+    }
+}
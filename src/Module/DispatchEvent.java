@@ -0,0 +1,49 @@
+package Module;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A DispatchEvent is recorded when the EMS searches the elevators for a hall call.
+ * It is only created while its type is being recorded, the EMS dispatches on every call.
+ *
+ * @author EJWang
+ */
+@Name("Module.Dispatch")
+@Label("Dispatch")
+@Category({"Elevator", "EMS"})
+@StackTrace(false)
+class DispatchEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(DispatchEvent.class);
+
+    @Label("Floor")
+    int floor;
+
+    @Label("Assigned Cars")
+    int assigned;
+
+    @Label("Pending")
+    boolean isPending;
+
+    @Label("Strategy")
+    String strategy;
+
+    /**
+     * Begin an event if it is being recorded.
+     *
+     * @return The event, or null if not recorded
+     */
+    static DispatchEvent beginIfEnabled() {
+        if (!TYPE.isEnabled())
+            return null;
+
+        DispatchEvent event = new DispatchEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,94 @@
+package Module;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The DispatchMetrics collects how much work the Elevator Manager System does to answer the hall calls.
+ * The latency is the real time spent on choosing the elevators for a hall call, not the simulated time.
+ * It is written by the system thread and can be read by any other thread at any time.
+ *
+ * @author EJWang
+ */
+public class DispatchMetrics {
+
+    // the number of hall calls dispatched, including those put back for no elevator was able to serve
+    private AtomicLong dispatches;
+    private AtomicLong pendings;
+
+    // the real time spent on dispatching in nanosecond
+    private AtomicLong dispatchTime;
+    private AtomicLong maxDispatchTime;
+
+    // the hall calls left in the queue after the last round of dispatching
+    private AtomicInteger queueDepth;
+
+    /**
+     * Construct a DispatchMetrics.
+     */
+    public DispatchMetrics() {
+        dispatches = new AtomicLong();
+        pendings = new AtomicLong();
+        dispatchTime = new AtomicLong();
+        maxDispatchTime = new AtomicLong();
+        queueDepth = new AtomicInteger();
+    }
+
+    /**
+     * Record a hall call has been dispatched.
+     *
+     * @param nanos     The real time spent in nanosecond
+     * @param isPending Whether the hall call is put back to try again later
+     */
+    public void recordDispatch(long nanos, boolean isPending) {
+        dispatches.incrementAndGet();
+        if (isPending)
+            pendings.incrementAndGet();
+        dispatchTime.addAndGet(nanos);
+
+        long max = maxDispatchTime.get();
+        while (nanos > max && !maxDispatchTime.compareAndSet(max, nanos))
+            max = maxDispatchTime.get();
+    }
+
+    /**
+     * Record the hall calls left in the queue.
+     *
+     * @param depth The number of floors waiting to be dispatched
+     */
+    public void recordQueueDepth(int depth) {
+        queueDepth.set(depth);
+    }
+
+    @Override
+    public String toString() {
+        long numOfDispatches = getDispatches();
+        return String.format("调度%d次(其中%d次暂无可用电梯), 平均耗时%dns, 最长%dns",
+                numOfDispatches,
+                getPendings(),
+                numOfDispatches == 0 ? 0 : getDispatchTime() / numOfDispatches,
+                getMaxDispatchTime());
+    }
+
+    /* =================================== Getters ================================================================= */
+
+    public long getDispatches() {
+        return dispatches.get();
+    }
+
+    public long getPendings() {
+        return pendings.get();
+    }
+
+    public long getDispatchTime() {
+        return dispatchTime.get();
+    }
+
+    public long getMaxDispatchTime() {
+        return maxDispatchTime.get();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+}
@@ -0,0 +1,310 @@
+package Module;
+
+import java.util.List;
+
+/**
+ * A DispatchRollout is a light copy of a bank, made of plain arrays instead of elevators and passengers,
+ * which plays the next seconds forward to score a dispatch decision.
+ * Every car serves the stops in its direction first, the new calls go to the closest car with room.
+ * <p>
+ * The passengers already waiting are counted by their target floor, the riders on board are spread over
+ * the stops of their car, and the predicted callers are boarded without a destination.
+ * The cost is the total time all of them spend waiting or riding within the horizon.
+ *
+ * @author EJWang
+ */
+class DispatchRollout {
+
+    static final long NO_DEADLINE = Long.MAX_VALUE;         // play every tick of the horizon
+
+    private static final int TICK = 250;                    // millisecond per step of the rollout
+    private static final double CALL_THRESHOLD = 0.5;       // expected callers making a hall call
+    private static final int DEADLINE_CHECK_TICKS = 40;
+
+    private int numOfFloors;
+    private int numOfCars;
+
+    // shared by the copies, never changed during a rollout
+    private boolean[][] reachable;
+    private int[] capacity;
+    private int[] travelTime;
+    private CarTimings[] timings;       // the timing of a stop, the same as the real car
+    private double[] arrivalRates;      // expected callers per millisecond
+
+    // the state played forward
+    private int[] position;
+    private int[] direction;
+    private long[] readyTime;
+    private double[] load;
+    private int[] numOfStops;
+    private boolean[][] stops;
+    private double[][] riders;          // riders of a car by target floor
+    private int[][] waiting;            // waiting passengers by floor and target floor
+    private int[] numOfWaiting;
+    private double[] predicted;         // predicted callers by floor
+
+    /**
+     * Copy the state of the running cars of a bank.
+     *
+     * @param bank           The bank
+     * @param building       The building of the bank
+     * @param cars           The cars taking part, in the order of their index in the rollout
+     * @param ems            The elevator manager system which predicts the arrivals
+     * @param horizonSeconds The horizon of the prediction
+     */
+    DispatchRollout(Bank bank, Building building, List<Elevator> cars, ElevatorManagerSystem ems, int horizonSeconds) {
+        numOfFloors = building.getNumOfFloors();
+        numOfCars = cars.size();
+
+        reachable = new boolean[numOfCars][numOfFloors];
+        capacity = new int[numOfCars];
+        travelTime = new int[numOfCars];
+        timings = new CarTimings[numOfCars];
+        arrivalRates = new double[numOfFloors];
+
+        position = new int[numOfCars];
+        direction = new int[numOfCars];
+        readyTime = new long[numOfCars];
+        load = new double[numOfCars];
+        numOfStops = new int[numOfCars];
+        stops = new boolean[numOfCars][numOfFloors];
+        riders = new double[numOfCars][numOfFloors];
+        waiting = new int[numOfFloors][numOfFloors];
+        numOfWaiting = new int[numOfFloors];
+        predicted = new double[numOfFloors];
+
+        for (int c = 0; c < numOfCars; c++) {
+            Elevator car = cars.get(c);
+
+            for (int f = 0; f < numOfFloors; f++)
+                reachable[c][f] = car.isServing(building.getFloorByIndex(f).getFloorLevel());
+            capacity[c] = car.getCapacityOfPassengers();
+            travelTime[c] = car.getFloorTravelTime();
+            timings[c] = car.getTimings();
+            position[c] = building.getFloorIndex(car.getCurrFloor().getFloorLevel());
+            direction[c] = car.getDirection();
+            load[c] = car.getCurrNumOfPassenger();
+
+            List<Floor> tasks = car.getTasks();
+            for (Floor task : tasks) {
+                int f = building.getFloorIndex(task.getFloorLevel());
+                if (!stops[c][f]) {
+                    stops[c][f] = true;
+                    numOfStops[c]++;
+                }
+            }
+
+            // nobody knows where the riders go, spread them over the stops
+            for (int f = 0; f < numOfFloors; f++)
+                if (stops[c][f])
+                    riders[c][f] = load[c] / numOfStops[c];
+        }
+
+        for (int f = 0; f < numOfFloors; f++) {
+            Floor floor = building.getFloorByIndex(f);
+            if (!bank.isServing(floor.getFloorLevel()))
+                continue;
+
+            numOfWaiting[f] = floor.countWaitingFor(bank, building, waiting[f]);
+            arrivalRates[f] = ems.getPredictedArrivals(floor.getFloorLevel(), horizonSeconds) / (horizonSeconds * 1000.0);
+        }
+    }
+
+    /**
+     * Copy another rollout, only the arrays changed while playing are duplicated.
+     *
+     * @param other The rollout to copy
+     */
+    DispatchRollout(DispatchRollout other) {
+        numOfFloors = other.numOfFloors;
+        numOfCars = other.numOfCars;
+
+        reachable = other.reachable;
+        capacity = other.capacity;
+        travelTime = other.travelTime;
+        timings = other.timings;
+        arrivalRates = other.arrivalRates;
+
+        position = other.position.clone();
+        direction = other.direction.clone();
+        readyTime = other.readyTime.clone();
+        load = other.load.clone();
+        numOfStops = other.numOfStops.clone();
+        stops = copy(other.stops);
+        riders = copy(other.riders);
+        waiting = copy(other.waiting);
+        numOfWaiting = other.numOfWaiting.clone();
+        predicted = other.predicted.clone();
+    }
+
+    /**
+     * Let a car stop at a floor.
+     *
+     * @param car   The index of the car
+     * @param floor The index of the floor
+     */
+    void assign(int car, int floor) {
+        if (!stops[car][floor]) {
+            stops[car][floor] = true;
+            numOfStops[car]++;
+        }
+    }
+
+    /**
+     * Play the rollout forward.
+     *
+     * @param horizon  The length of the rollout in millisecond
+     * @param deadline The System.nanoTime() to give up at, or NO_DEADLINE
+     * @return The total seconds of waiting and riding, or -1 if the deadline has passed
+     */
+    double play(long horizon, long deadline) {
+        double cost = 0;
+        int ticks = 0;
+
+        for (long time = 0; time < horizon; time += TICK) {
+            if (deadline != NO_DEADLINE && ++ticks % DEADLINE_CHECK_TICKS == 0 && System.nanoTime() > deadline)
+                return -1;
+
+            for (int f = 0; f < numOfFloors; f++)
+                predicted[f] += arrivalRates[f] * TICK;
+            assignCalls();
+
+            double people = 0;
+            for (int c = 0; c < numOfCars; c++) {
+                if (readyTime[c] <= time)
+                    act(c, time);
+                people += load[c];
+            }
+            for (int f = 0; f < numOfFloors; f++)
+                people += numOfWaiting[f] + predicted[f];
+
+            cost += people * TICK / 1000.0;
+        }
+        return cost;
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Give every floor calling but not served yet to the closest car with room.
+     */
+    private void assignCalls() {
+        for (int f = 0; f < numOfFloors; f++) {
+            if (numOfWaiting[f] == 0 && predicted[f] < CALL_THRESHOLD || isStopping(f))
+                continue;
+
+            int selected = -1;
+            int lowestCost = 0;
+            for (int c = 0; c < numOfCars; c++) {
+                if (!reachable[c][f] || load[c] >= capacity[c])
+                    continue;
+
+                int cost = Math.abs(position[c] - f) + 2 * numOfStops[c];
+                if (selected < 0 || cost < lowestCost) {
+                    selected = c;
+                    lowestCost = cost;
+                }
+            }
+
+            if (selected >= 0)
+                assign(selected, f);
+        }
+    }
+
+    /**
+     * Let a car serve its current floor or move on by one floor.
+     */
+    private void act(int c, long time) {
+        int f = position[c];
+
+        if (stops[c][f]) {
+            stop(c, f, time);
+            return;
+        }
+
+        // keep the direction while there is any stop ahead
+        if (direction[c] == 0 || !hasStopAhead(c, direction[c]))
+            direction[c] = hasStopAhead(c, 1) ? 1 : hasStopAhead(c, -1) ? -1 : 0;
+
+        if (direction[c] == 0)
+            return;
+
+        position[c] += direction[c];
+        readyTime[c] = time + travelTime[c];
+    }
+
+    /**
+     * Let the riders of a car get off and the waiting passengers get on.
+     */
+    private void stop(int c, int f, long time) {
+        stops[c][f] = false;
+        numOfStops[c]--;
+
+        double alighted = riders[c][f];
+        riders[c][f] = 0;
+        load[c] = Math.max(0, load[c] - alighted);
+
+        int boarded = 0;
+        int room = (int) (capacity[c] - load[c]);
+        for (int to = 0; to < numOfFloors && boarded < room; to++) {
+            if (waiting[f][to] == 0 || !reachable[c][to])
+                continue;
+
+            int count = Math.min(waiting[f][to], room - boarded);
+            waiting[f][to] -= count;
+            riders[c][to] += count;
+            assign(c, to);
+            boarded += count;
+        }
+        numOfWaiting[f] -= boarded;
+        load[c] += boarded;
+
+        // the predicted callers are taken away, where they go is unknown
+        double picked = Math.min(predicted[f], room - boarded);
+        predicted[f] -= picked;
+
+        readyTime[c] = time + timings[c].getStopTime()
+                + (long) (timings[c].getAlightingTime() * alighted + timings[c].getBoardingTime() * (boarded + picked));
+    }
+
+    /**
+     * Check whether any car is going to stop at a floor.
+     */
+    private boolean isStopping(int f) {
+        for (int c = 0; c < numOfCars; c++)
+            if (stops[c][f])
+                return true;
+        return false;
+    }
+
+    /**
+     * Check whether a car has any stop ahead in a direction.
+     */
+    private boolean hasStopAhead(int c, int dir) {
+        for (int f = position[c] + dir; f >= 0 && f < numOfFloors; f += dir)
+            if (stops[c][f])
+                return true;
+        return false;
+    }
+
+    private static boolean[][] copy(boolean[][] array) {
+        boolean[][] result = new boolean[array.length][];
+        for (int i = 0; i < array.length; i++)
+            result[i] = array[i].clone();
+        return result;
+    }
+
+    private static double[][] copy(double[][] array) {
+        double[][] result = new double[array.length][];
+        for (int i = 0; i < array.length; i++)
+            result[i] = array[i].clone();
+        return result;
+    }
+
+    private static int[][] copy(int[][] array) {
+        int[][] result = new int[array.length][];
+        for (int i = 0; i < array.length; i++)
+            result[i] = array[i].clone();
+        return result;
+    }
+}
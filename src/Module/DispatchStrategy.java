@@ -0,0 +1,45 @@
+package Module;
+
+import java.util.List;
+
+/**
+ * A DispatchStrategy scores how costly it is to let an elevator answer a hall call.
+ * The Module.ElevatorManagerSystem assigns the call to the eligible elevator with the lowest cost.
+ *
+ * @author EJWang
+ */
+public interface DispatchStrategy {
+
+    /**
+     * Get the cost of sending the elevator to the floor.
+     *
+     * @param elevator    The candidate elevator, it is running and has room
+     * @param targetFloor The floor which request for service
+     * @param ems         The elevator manager system which controlled this elevator
+     * @return The cost, lower is better
+     */
+    int getCost(Elevator elevator, Floor targetFloor, ElevatorManagerSystem ems);
+
+    /**
+     * Select the elevator to answer the hall call, the one with the lowest cost by default.
+     * A strategy comparing the candidates against each other can override it.
+     *
+     * @param candidates  The eligible elevators in the bank, at least one
+     * @param targetFloor The floor which request for service
+     * @param ems         The elevator manager system which controlled these elevators
+     * @return The selected elevator
+     */
+    default Elevator selectElevator(List<Elevator> candidates, Floor targetFloor, ElevatorManagerSystem ems) {
+        Elevator selected = null;
+        int lowestCost = 0;
+
+        for (Elevator elevator : candidates) {
+            int cost = getCost(elevator, targetFloor, ems);
+            if (selected == null || cost < lowestCost) {
+                selected = elevator;
+                lowestCost = cost;
+            }
+        }
+        return selected;
+    }
+}
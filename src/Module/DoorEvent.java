@@ -0,0 +1,43 @@
+package Module;
+
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A DoorEvent is recorded when an elevator starts docking, opening or closing the door.
+ *
+ * @author EJWang
+ */
+@Name("Module.Door")
+@Label("Door")
+class DoorEvent extends CarEvent {
+
+    static final String DOCKING = "docking";
+    static final String OPEN = "open";
+    static final String CLOSE = "close";
+
+    @Label("Action")
+    String action;
+
+    private static final EventType TYPE = EventType.getEventType(DoorEvent.class);
+
+    DoorEvent(String action) {
+        this.action = action;
+    }
+
+    /**
+     * Begin an event if it is being recorded.
+     *
+     * @param action The action
+     * @return The event, or null if not recorded
+     */
+    static DoorEvent beginIfEnabled(String action) {
+        if (!TYPE.isEnabled())
+            return null;
+
+        DoorEvent event = new DoorEvent(action);
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,149 @@
+package Module;
+
+import java.util.List;
+
+/**
+ * A DoubleDeckElevator has two decks stacked in one car, serving two adjacent floors at each stop.
+ * The position of the car is the floor of its lower deck, so the lower deck never stops at the top floor.
+ * Passengers stay in the deck they boarded, and leave when that deck is aligned with their target.
+ *
+ * @author EJWang
+ */
+public class DoubleDeckElevator extends Elevator {
+
+    /**
+     * Construct a double-deck elevator belongs to a bank.
+     *
+     * @param number               The number of this elevator
+     * @param capacityOfWeight     The maximum capacity of weight of both decks
+     * @param capacityOfPassengers The maximum capacity of onboard passenger of both decks
+     * @param ems                  The elevator manager system which controlled this elevator
+     * @param building             The building which this elevator serving for
+     * @param bank                 The bank which decides the served floors, null to serve every floor
+     */
+    public DoubleDeckElevator(int number, double capacityOfWeight, int capacityOfPassengers,
+                              ElevatorManagerSystem ems, Building building, Bank bank) {
+        super(number, capacityOfWeight, capacityOfPassengers, ems, building, bank);
+    }
+
+    /**
+     * A passenger can be carried if either deck can board at the floor of the passenger and leave at the target.
+     * The lower deck never reaches the top floor, and the upper deck never reaches the bottom floor.
+     */
+    @Override
+    public boolean canCarry(Passenger passenger) {
+        if (!super.canCarry(passenger))
+            return false;
+
+        return canTake(passenger, 0) || canTake(passenger, 1);
+    }
+
+    /**
+     * At a stop only the deck aligned with the floor of the passenger can take the passenger.
+     */
+    @Override
+    public boolean canBoard(Passenger passenger) {
+        if (!super.canCarry(passenger))
+            return false;
+
+        for (int deck = 0; deck < getNumOfDecks(); deck++)
+            if (getDeckFloor(deck) == passenger.getCurrFloor())
+                return canTake(passenger, deck);
+        return false;
+    }
+
+    /**
+     * A call on the floor next to a floor this elevator will stop at anyway costs no extra stop.
+     */
+    @Override
+    public int getWorkLoad(Floor targetFloor) {
+        int grade = super.getWorkLoad(targetFloor);
+
+        Floor above = getBuilding().getAdjacentFloor(targetFloor, 1);
+        Floor below = getBuilding().getAdjacentFloor(targetFloor, -1);
+        if (getTasks().contains(above) || getTasks().contains(below))
+            grade /= 2;
+
+        return grade;
+    }
+
+    @Override
+    protected int getNumOfDecks() {
+        return 2;
+    }
+
+    @Override
+    protected Floor getDeckFloor(int deck) {
+        if (deck == 0)
+            return getCurrFloor();
+        return getBuilding().getAdjacentFloor(getCurrFloor(), 1);
+    }
+
+    /**
+     * Onboard passengers decide which deck must be aligned with the target, then the waiting passengers who can only
+     * use one deck, e.g. the upper deck for a trip to the top floor. Otherwise the deck reached first serves the
+     * target, as long as the other deck stays in the building.
+     */
+    @Override
+    protected Floor getAlignedFloor(Floor targetFloor) {
+        Floor below = getBuilding().getAdjacentFloor(targetFloor, -1);
+        Floor above = getBuilding().getAdjacentFloor(targetFloor, 1);
+
+        int deck = hasCarCall(targetFloor, 1) ? 1 : hasCarCall(targetFloor, 0) ? 0 : getRequiredDeck(targetFloor);
+        if (deck == 1 && below != null)
+            return below;
+        if (deck == 0 && above != null)
+            return targetFloor;
+
+        // the upper deck is reached first when coming from below
+        if (getCurrFloor().compareTo(targetFloor) < 0 && below != null || above == null)
+            return below;
+
+        return targetFloor;
+    }
+
+    @Override
+    protected int getDistance(Floor targetFloor) {
+        int lower = Math.abs(targetFloor.getFloorLevel() - getCurrFloor().getFloorLevel());
+        Floor upperFloor = getDeckFloor(1);
+
+        if (upperFloor == null)
+            return lower;
+
+        return Math.min(lower, Math.abs(targetFloor.getFloorLevel() - upperFloor.getFloorLevel()));
+    }
+
+    /**
+     * Check whether a deck can board a passenger at the floor of the passenger and leave at the target,
+     * the other deck must stay in the building at both floors.
+     */
+    private boolean canTake(Passenger passenger, int deck) {
+        int otherDeck = (deck == 0) ? 1 : -1;
+        return getBuilding().getAdjacentFloor(passenger.getCurrFloor(), otherDeck) != null
+                && getBuilding().getAdjacentFloor(passenger.getTargetFloor(), otherDeck) != null;
+    }
+
+    /**
+     * Get the deck which the first waiting passenger able to use only one deck needs.
+     *
+     * @param floor The floor of the hall call
+     * @return The deck, or -1 if everyone can use either deck
+     */
+    private int getRequiredDeck(Floor floor) {
+        synchronized (floor) {
+            for (int direction = -1; direction <= 1; direction += 2) {
+                List<Passenger> queue = floor.getQueue(direction);
+                for (int i = 0; i < queue.size(); i++) {
+                    Passenger passenger = queue.get(i);
+                    if (!canCarry(passenger))
+                        continue;
+
+                    boolean isLowerAble = canTake(passenger, 0);
+                    if (isLowerAble != canTake(passenger, 1))
+                        return isLowerAble ? 0 : 1;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -1,8 +1,13 @@
 package Module;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import Module.Building;
+import exceptions.CarFaultException;
 import exceptions.DockingFailedException;
 import exceptions.ElevatorMalfunctionException;
 import exceptions.FloorDoesNotExistException;
@@ -10,29 +15,67 @@ import exceptions.OverloadException;
 
 /**
  * This is a elevator installed in the building, and controlled by Module.Elevator Manager System.
+ * <p>
+ * The elevator runs as a state machine: each step finishes the ongoing stage, such as moving one floor or
+ * opening the door, and tells when the next stage finishes. It never sleeps by itself, so it can be stepped
+ * by its own thread or share a few carrier threads with thousands of other elevators.
  *
  * @author EJWang
  */
-public class Elevator implements Runnable {
+public class Elevator implements Runnable, SimulationActor {
+    /* ---- Operation signals ---- */
+    public static final int EMERGENCY = -1;
+    public static final int OFF = 0;
+    public static final int RUNNING = 1;
+
+    /* ---- Directions ---- */
+    public static final int DOWN = -1;
+    public static final int STOPPED = 0;
+    public static final int UP = 1;
+
     /* ---- Running configuration ---- */
     private static final int DELAY = 100;
     private static final String LOG_FILENAME = "elevator_log.txt";
     private static final boolean LOG_VERBOSE = true;
 
+    // the weight assumed for a passenger whom has not been seen yet
+    private static final int EXPECTED_PASSENGER_WEIGHT = 75;
+
+    /* ---- Travel timing (ms) ---- */
+    private static final int FLOOR_TRAVEL_TIME = 700;       // move one floor
+    private static final int PARKING_DELAY = 3000;          // idle time before going to park
+
+    /* ---- Door cycle ---- */
+    private static final int MAX_REOPEN = 2;                // re-open for late arrivals at most
+
     /* ---- Upper level class ---- */
     private ElevatorManagerSystem ems;
     private Building building;
+    private Bank bank;
+    private Shaft shaft;                    // the shaft shared with other cars, null if not shared
 
     /* The basic information of this elevator */
     private int number;
     private double capacityOfWeight;
     private int capacityOfPassengers;
+    private int floorTravelTime;            // the time to move one floor, decided by the speed
+    private CarTimings timings;             // the time of each part of a stop
 
     /* The status of this elevator. */
-    private int operationSignal;            // -1 = Emergency, 0 = Shutdown, 1 = Running
-    private int direction;                  // -1 = moving down, 0 = stop, 1 = moving up
+    private int operationSignal;            // EMERGENCY, OFF or RUNNING
+    private int direction;                  // DOWN, STOPPED or UP
     private int currWeight;              // current loading weight
     private Floor currFloor;                // current stay floor
+    private Floor parkingFloor;             // the floor this idle elevator parks at, null if not parked
+    private Floor yieldFloor;               // the floor to clear the shaft for another car, null if not asked
+    private boolean isWaitingForShaft;      // blocked by another car in the same shaft
+    private boolean isSteppingBack;         // has stepped back to let another car pass
+
+    /* The fault of this elevator */
+    private volatile FaultType pendingFault;    // injected, raised once the broken part is used, null if none
+    private volatile boolean pendingRepair;     // repaired, back in service at the next step
+    private volatile FaultType fault;           // raised, null if not broken or failed on an error
+    private volatile long failedSince;          // -1 if in service
 
     /* The task list of this elevator */
     private List<Floor> tasks;
@@ -40,6 +83,27 @@ public class Elevator implements Runnable {
     /* The sedan store passenger */
     private List<Passenger> sedan;
 
+    /* The door cycle and stop statistics of this elevator */
+    private ElevatorMetrics metrics;
+
+    /* The running stage of this elevator */
+    private Stage stage;
+    private Floor tripTarget;               // the task or parking floor of current trip
+    private Floor stopFloor;                // where the lowest deck stops for the trip target
+    private Floor nextFloor;                // the floor being moved into, null if not moving
+    private boolean isParking;              // current trip is parking, the door is not opened at the end
+    private boolean isShuttingDown;         // turnOff is requested
+    private boolean isActive;               // the elevator is being stepped
+    private long idleSince;
+    private int reopenCount;
+
+    /* The run in progress, from leaving idle until no task is left */
+    private long runStartTime;              // -1 if not running
+    private Floor runStartFloor;
+    private int runStops;
+    private int runBoarded;
+    private int runMaxLoad;
+
     /* =================================== Constructor Methods ===================================================== */
 
     /**
@@ -52,23 +116,48 @@ public class Elevator implements Runnable {
      * @param building             The building which this elevator serving for
      */
     public Elevator(int number, double capacityOfWeight, int capacityOfPassengers, ElevatorManagerSystem ems, Building building) {
+        this(number, capacityOfWeight, capacityOfPassengers, ems, building, null);
+    }
+
+    /**
+     * Construct an elevator belongs to a bank.
+     *
+     * @param number               The number of this elevator
+     * @param capacityOfWeight     The maximum capacity of weight of this elevator
+     * @param capacityOfPassengers The maximum capacity of onboard passenger of this elevator
+     * @param ems                  The elevator manager system which controlled this elevator
+     * @param building             The building which this elevator serving for
+     * @param bank                 The bank which decides the served floors, null to serve every floor
+     */
+    public Elevator(int number, double capacityOfWeight, int capacityOfPassengers, ElevatorManagerSystem ems,
+                    Building building, Bank bank) {
         this.number = number;
         this.capacityOfWeight = capacityOfWeight;
         this.capacityOfPassengers = capacityOfPassengers;
+        this.floorTravelTime = FLOOR_TRAVEL_TIME;
+        this.timings = CarTimings.DEFAULT;
         this.ems = ems;
         this.building = building;
+        this.bank = bank;
 
-        operationSignal = 0;
-        direction = 0;
+        operationSignal = OFF;
+        direction = STOPPED;
         currWeight = 0;
 
         try {
-            currFloor = building.getSpecifiedFloor(1);
+            // start at the lobby, or the lowest served floor if the lobby is not served
+            currFloor = building.getSpecifiedFloor(isServing(1) ? 1 : bank.getLowestServedLevel());
         } catch (Exception e) {
             System.err.printf("Failed to initialize elevator %d\n", number);
         }
-        tasks = new ArrayList<>();
+        tasks = new CopyOnWriteArrayList<>();
         sedan = new ArrayList<>();
+        metrics = new ElevatorMetrics();
+        if (currFloor != null)
+            metrics.recordPosition(currFloor.getFloorLevel());
+        stage = Stage.IDLE;
+        runStartTime = -1;
+        failedSince = -1;
     }
 
 
@@ -79,9 +168,68 @@ public class Elevator implements Runnable {
      */
     @Override
     public void run() {
-        operationSignal = 1;
+        operationSignal = RUNNING;
+        isActive = true;
         // standby this elevator
-        standby();
+        SimulationExecutor.runUntilStopped(this, building.getClock());
+    }
+
+    /**
+     * Finish the ongoing stage of this elevator and start the next one.
+     *
+     * @param now The current time in millisecond
+     * @return The time when the next stage finishes, or STOP if this elevator is not running any more
+     */
+    @Override
+    public long step(long now) {
+        long next;
+
+        try {
+            if (pendingRepair)
+                finishRepair();
+            if (pendingFault != null)
+                raiseFault();
+
+            switch (stage) {
+                case MOVING:
+                    CarMoveEvent event = CarMoveEvent.beginIfEnabled();
+                    next = moveOn(now);
+                    commit(event, now, next);
+                    break;
+                case DOCKING:
+                    next = openDoor(now);
+                    break;
+                case OPENING:
+                    next = exchangePassengers(now);
+                    break;
+                case DWELLING:
+                    next = closeDoor(now);
+                    break;
+                case CLOSING:
+                    next = checkDoorSensor(now);
+                    break;
+                case REOPENING:
+                    next = dwell(now, 0, load());
+                    break;
+                case CLOSED:
+                    next = finishStop(now);
+                    break;
+                default:
+                    next = standby(now);
+            }
+
+        } catch (DockingFailedException d) {
+            log("电梯#" + number + ": " + d.getMessage());
+            next = turnToEmergencyMode(true, now);
+        } catch (Exception e) {
+            log("电梯#" + number + ": " + e.getMessage());
+            next = turnToEmergencyMode(false, now);
+        }
+
+        if (next == STOP)
+            next = deactivate(now);
+        metrics.recordStatus(direction, operationSignal, stage.compareTo(Stage.OPENING) >= 0);
+        return next;
     }
 
 
@@ -93,7 +241,8 @@ public class Elevator implements Runnable {
      * @param targetFloor The target floor which request for service
      */
     public void addTask(Floor targetFloor) {
-        tasks.add(targetFloor);
+        if (!tasks.contains(targetFloor))
+            tasks.add(targetFloor);
     }
 
 
@@ -102,21 +251,29 @@ public class Elevator implements Runnable {
      * <p>
      * The workload of this elevator is based on this measurement:
      * <p>
-     * 1. If this elevator is currently moving
+     * 1. If this elevator is idle, the distance to the target floor
+     * 2. If this elevator is currently moving, the distance weighted by the number of tasks,
+     * and doubled if the target floor is behind it
+     * 3. If this elevator shares the shaft, the extra work to get the other car out of the way
      *
      * @param targetFloor The target floor of the task
      * @return The workload of this elevator
      */
     public int getWorkLoad(Floor targetFloor) {
-        if (direction == 0)
-            return 0;
-
         int grade = 0;
-        int absDistance = Math.abs(targetFloor.getFloorLevel() - currFloor.getFloorLevel());
+        int absDistance = getDistance(targetFloor);
+
+        // another car in the same shaft may have to clear the way first
+        if (shaft != null)
+            grade += shaft.getInterference(this, targetFloor);
+
+        // an idle elevator only need to travel the distance
+        if (direction == STOPPED)
+            return grade + absDistance;
 
         // same direction
-        if (currFloor.getFloorLevel() - targetFloor.getFloorLevel() > 0 && direction == -1 ||
-                currFloor.getFloorLevel() - targetFloor.getFloorLevel() < 0 && direction == 1) {
+        int difference = targetFloor.getFloorLevel() - currFloor.getFloorLevel();
+        if (difference < 0 && direction == DOWN || difference > 0 && direction == UP) {
             grade += absDistance * (1 + tasks.size());
         } else {
             // otherwise 2 times distance at least
@@ -133,36 +290,32 @@ public class Elevator implements Runnable {
      */
     public void turnOn() throws ElevatorMalfunctionException {
         // this elevator cannot be start
-        if (operationSignal == -1)
+        if (operationSignal == EMERGENCY)
             throw new ElevatorMalfunctionException(number);
 
         // set operation signal to normal and standby
-        operationSignal = 1;
-        standby();
+        operationSignal = RUNNING;
+        isShuttingDown = false;
+
+        // back in service after being repaired
+        if (failedSince >= 0) {
+            log("电梯#" + number + ": 已经修复, 恢复服务");
+            failedSince = -1;
+            fault = null;
+            ems.recordRepair(this);
+        }
+
+        activate();
     }
 
     /**
      * Module.Elevator is about to shutdown, move to ground floor
      * and safely release all on board passenger before turn off.
+     * The elevator finishes its ongoing stage first, and turns off once it has arrived.
      */
     public void turnOff() {
-        try {
-            // try to move to ground floor
-            log("电梯#" + number + ": 准备关机, 准备移动到1层释放乘客");
-
-            move(building.getSpecifiedFloor(1));
-            operationSignal = 0;
-
-            log("电梯#" + number + ": 已经顺利关机");
-
-        } catch (DockingFailedException d) {
-            log("电梯#" + number + ": " + d.getMessage());
-
-            turnToEmergencyMode(LOG_VERBOSE);
-        } catch (Exception e) {
-            log("电梯#" + number + ": " + e.getMessage());
-            turnToEmergencyMode(false);
-        }
+        log("电梯#" + number + ": 准备关机, 准备移动到1层释放乘客");
+        isShuttingDown = true;
     }
 
     /**
@@ -171,18 +324,197 @@ public class Elevator implements Runnable {
      * Once it has been fixed, this function can be used to reset the operationSignal back to 0.
      */
     public void resetAlert() {
-        operationSignal = 0;
+        operationSignal = OFF;
+    }
+
+    /**
+     * Break a part of this running elevator. The fault is raised once the broken part is used,
+     * e.g. a docking fault at the next stop, and the elevator stops service until it is repaired.
+     *
+     * @param type The kind of fault
+     */
+    public void injectFault(FaultType type) {
+        if (operationSignal == RUNNING && failedSince < 0)
+            pendingFault = type;
+    }
+
+    /**
+     * The fault has been fixed, the elevator resets the alert and returns to service at its next step,
+     * so the repair is safe from the thread of another actor.
+     */
+    public void repair() {
+        pendingRepair = true;
+        activate();
+    }
+
+    /**
+     * Let the parked elevator choose its parking floor again.
+     */
+    public void releaseParking() {
+        if (direction == STOPPED && tasks.isEmpty())
+            parkingFloor = null;
     }
 
     public void receivePassenger(Passenger passenger) throws OverloadException {
         // try to receive passenger
-        if (getCurrWeight() + passenger.getWeight() > getCapacityOfWeight() ||
-                getCurrNumOfPassenger() + 1 > getCapacityOfPassengers()) {
+        if (!hasRoomFor(passenger.getWeight())) {
             throw new OverloadException("Too many people!");
         }
+        passenger.setDeck(getDeckOf(passenger.getCurrFloor()));
+        if (passenger.getBoardTime() < 0)
+            passenger.setBoardTime(building.getClock().currentTimeMillis());
+        passenger.setCarNumber(number);
         sedan.add(passenger);
         currWeight += passenger.getWeight();
-        tasks.add(passenger.getTargetFloor());
+        addTask(passenger.getTargetFloor());
+    }
+
+    /**
+     * Check whether one more passenger with given weight can get on board.
+     *
+     * @param weight The weight of the passenger
+     * @return true if both weight and passenger capacity allow it
+     */
+    public boolean hasRoomFor(int weight) {
+        return getCurrWeight() + weight <= getCapacityOfWeight() &&
+                getCurrNumOfPassenger() + 1 <= getCapacityOfPassengers();
+    }
+
+    /**
+     * Check whether this elevator stops at given floor level.
+     *
+     * @param level The floor level
+     * @return true if the bank of this elevator serves the level
+     */
+    public boolean isServing(int level) {
+        return (bank == null || bank.isServing(level)) && (shaft == null || shaft.isReachable(this, level));
+    }
+
+    /**
+     * Check whether this elevator can take a waiting passenger to the target of the passenger.
+     *
+     * @param passenger The waiting passenger
+     * @return true if the passenger can get on board and leave at the target floor
+     */
+    public boolean canCarry(Passenger passenger) {
+        return isServing(passenger.getTargetFloor().getFloorLevel());
+    }
+
+    /**
+     * Check whether a waiting passenger can walk in at the current position of this elevator,
+     * which differs from canCarry only when the deck aligned with the floor matters.
+     *
+     * @param passenger The waiting passenger
+     * @return true if the passenger can get on board here and leave at the target floor
+     */
+    public boolean canBoard(Passenger passenger) {
+        return canCarry(passenger);
+    }
+
+    /**
+     * Ask this idle elevator to leave for a floor, so another car in the same shaft can pass.
+     *
+     * @param floor The floor to go
+     */
+    public void yieldTo(Floor floor) {
+        if (tasks.isEmpty())
+            yieldFloor = floor;
+    }
+
+    /**
+     * Check whether this elevator is too full to pick up anyone else.
+     *
+     * @return true if not even a passenger of expected weight can get on board
+     */
+    public boolean isFull() {
+        return !hasRoomFor(EXPECTED_PASSENGER_WEIGHT);
+    }
+
+    /* =================================== Protected: Deck Layout ================================================== */
+
+    /**
+     * Get the number of decks of this elevator.
+     *
+     * @return The number of decks
+     */
+    protected int getNumOfDecks() {
+        return 1;
+    }
+
+    /**
+     * Get the floor which a deck is aligned with at current position.
+     *
+     * @param deck The deck, 0 for the lowest deck
+     * @return The floor of the deck, or null if the deck is out of the building
+     */
+    protected Floor getDeckFloor(int deck) {
+        return currFloor;
+    }
+
+    /**
+     * Get the position where this elevator should stop to serve the target floor.
+     *
+     * @param targetFloor The target floor
+     * @return The floor which the lowest deck should stop at
+     */
+    protected Floor getAlignedFloor(Floor targetFloor) {
+        return targetFloor;
+    }
+
+    /**
+     * Get the distance in floor levels from this elevator to the target floor.
+     *
+     * @param targetFloor The target floor
+     * @return The distance
+     */
+    protected int getDistance(Floor targetFloor) {
+        return Math.abs(targetFloor.getFloorLevel() - currFloor.getFloorLevel());
+    }
+
+    /**
+     * Get the deck which is aligned with a floor at current position.
+     *
+     * @param floor The floor
+     * @return The deck, 0 if no deck is aligned with it
+     */
+    protected int getDeckOf(Floor floor) {
+        for (int deck = 0; deck < getNumOfDecks(); deck++)
+            if (getDeckFloor(deck) == floor)
+                return deck;
+        return 0;
+    }
+
+    /**
+     * Check whether any onboard passenger want to leave at the given floor.
+     *
+     * @param floor The floor to check
+     * @return true if someone on board is heading to this floor
+     */
+    protected boolean hasCarCall(Floor floor) {
+        for (int i = 0; i < sedan.size(); i++)
+            if (sedan.get(i).getTargetFloor() == floor)
+                return true;
+        return false;
+    }
+
+    /**
+     * Check whether any onboard passenger in given deck want to leave at the given floor.
+     *
+     * @param floor The floor to check
+     * @param deck  The deck of the passengers
+     * @return true if someone on board is heading to this floor
+     */
+    protected boolean hasCarCall(Floor floor, int deck) {
+        for (int i = 0; i < sedan.size(); i++) {
+            Passenger person = sedan.get(i);
+            if (person.getTargetFloor() == floor && person.getDeck() == deck)
+                return true;
+        }
+        return false;
+    }
+
+    protected Building getBuilding() {
+        return building;
     }
 
 
@@ -194,185 +526,703 @@ public class Elevator implements Runnable {
      * @param msg The status of event
      */
     private void log(String msg) {
-        LogRecorder.getInstance().recordLog(LOG_FILENAME, msg, LOG_VERBOSE);
+        LogRecorder.getInstance().recordLog(LOG_FILENAME, number, msg, LOG_VERBOSE);
+    }
+
+    /**
+     * Record a message of a template about this elevator, the number of this elevator comes first.
+     * Nothing is created unless the message is rendered as text.
+     *
+     * @param template The template
+     * @param level    The floor level the message is about
+     */
+    private void log(LogTemplate template, int level) {
+        LogRecorder recorder = LogRecorder.getInstance();
+        if (recorder.isEnabled(template))
+            recorder.record(template, building.getClock().currentTimeMillis(), number, level);
+    }
+
+    private void log(LogTemplate template, int a, int b) {
+        LogRecorder recorder = LogRecorder.getInstance();
+        if (recorder.isEnabled(template))
+            recorder.record(template, building.getClock().currentTimeMillis(), number, a, b);
+    }
+
+    private void log(LogTemplate template, int a, int b, int c) {
+        LogRecorder recorder = LogRecorder.getInstance();
+        if (recorder.isEnabled(template))
+            recorder.record(template, building.getClock().currentTimeMillis(), number, a, b, c);
     }
 
     /**
-     * Move the elevator from currFloor to targetFloor.
+     * Start a trip to the target floor.
      *
-     * @throws InterruptedException       if failed to sleep thread during move(use to mock real world emergency)
+     * @param targetFloor The task or parking floor
+     * @param isParking   true if the door should not be opened at the end
+     * @param now         The current time in millisecond
+     * @return The time of next step
      * @throws FloorDoesNotExistException if requested floor level does not exist
-     * @throws DockingFailedException     if failed to dock with the floor
      */
-    private void move(Floor targetFloor) throws InterruptedException, FloorDoesNotExistException,
-            DockingFailedException {
+    private long startTrip(Floor targetFloor, boolean isParking, long now) throws FloorDoesNotExistException {
+        if (isParking)
+            log(LogTemplate.CAR_PARKING, currFloor.getFloorLevel(), targetFloor.getFloorLevel());
+        else
+            log(LogTemplate.CAR_TRIP, currFloor.getFloorLevel(), targetFloor.getFloorLevel());
+
+        tripTarget = targetFloor;
+        stopFloor = getAlignedFloor(targetFloor);
+        this.isParking = isParking;
+        stage = Stage.MOVING;
+
+        return moveOn(now);
+    }
 
-        log(String.format("电梯#%d: 当前楼层为%d层, 准备移动至%d层", number, currFloor.getFloorLevel(), targetFloor.getFloorLevel()));
+    /**
+     * Arrive at the floor being moved into, then decide to stop here or keep moving to the next floor.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step
+     * @throws FloorDoesNotExistException if requested floor level does not exist
+     */
+    private long moveOn(long now) throws FloorDoesNotExistException {
+        if (nextFloor != null)
+            arrive(nextFloor);
+
+        if (isParking) {
+            // parking is abandoned as soon as a new task is assigned
+            if (currFloor == stopFloor || !tasks.isEmpty() || operationSignal != RUNNING || isShuttingDown) {
+                direction = STOPPED;
+                return finishTrip(now);
+            }
 
-        while (currFloor != targetFloor) {
-            // current floor has passenger to pick up
-            if (tasks.contains(currFloor) && !currFloor.getQueue(direction).isEmpty()) {
-                log(String.format("电梯#%d: 在当前楼层%d层发现乘客, 暂停移动先接人", number, currFloor.getFloorLevel()));
-                docking();
-                break;
+        } else if (currFloor == stopFloor) {
+            // the hall call at the target may no longer be served by this full elevator
+            if (tasks.contains(tripTarget) && !hasCarCall(tripTarget) && !isAbleToServe(tripTarget)) {
+                bypass(tripTarget);
+                return finishTrip(now);
             }
 
-            // keep moving to the target floor
-            int nextLevel;
-            int currLevel = currFloor.getFloorLevel();
-            int targetLevel = targetFloor.getFloorLevel();
-            boolean isGoingDown = (currLevel > targetLevel);
+            // arrive, about to docking with the door installed at the floor
+            return docking(now);
 
-            if (currLevel > targetLevel) {
-                // is going down
-                nextLevel = (currLevel - 1 == 0) ? currLevel - 2 : currLevel - 1;
-            } else {
-                nextLevel = (currLevel + 1 == 0) ? currLevel + 2 : currLevel + 1;
+        } else if (isStopRequired()) {
+            // current floor has passenger to pick up or drop off
+            log(LogTemplate.CAR_PICK_UP, currFloor.getFloorLevel());
+            return docking(now);
+        }
+
+        // keep moving to the target floor
+        direction = (currFloor.getFloorLevel() > stopFloor.getFloorLevel()) ? DOWN : UP;
+        Floor next = building.getAdjacentFloor(currFloor, direction);
+
+        // let the other car pass first after stepping back, keep stepping back if it is still blocked
+        if (isSteppingBack && shaft.isOncomingCarWaiting(this))
+            return giveWay(now);
+        isSteppingBack = false;
+
+        // another car in the same shaft is in the way, never wait in the shaft just for parking
+        if (shaft != null && !shaft.enter(this, next)) {
+            if (isParking) {
+                direction = STOPPED;
+                return finishTrip(now);
             }
+            return giveWay(now);
+        }
+        isWaitingForShaft = false;
+
+        // moving into the next floor takes FLOOR_TRAVEL_TIME (700 ms), or the travel time set by the car speed
+        nextFloor = next;
+        return now + floorTravelTime;
+    }
+
+    /**
+     * Finish current trip and standby for the next task.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step
+     */
+    private long finishTrip(long now) {
+        stage = Stage.IDLE;
+        tripTarget = null;
+        idleSince = now;
+        return now + DELAY;
+    }
 
-            direction = (isGoingDown) ? -1 : 1;
+    /**
+     * Wait for the other car in the same shaft to clear the way.
+     * Idle cars are asked to leave, and if two cars are blocking each other,
+     * the one with fewer passengers on board steps back to let the other pass.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step
+     */
+    private long giveWay(long now) {
+        if (!isWaitingForShaft)
+            log(LogTemplate.CAR_GIVE_WAY, currFloor.getFloorLevel());
 
-            // need 1 second to move
-            try {
-                Thread.sleep(700);
-            } catch (InterruptedException i) {
-                throw new InterruptedException("Failed to sleep Thread during moving.");
+        isWaitingForShaft = true;
+        shaft.requestYield(this, direction);
+
+        if (shaft.isGivingWayRequired(this)) {
+            Floor backFloor = shaft.getStepBackFloor(this);
+
+            if (backFloor != null && shaft.enter(this, backFloor)) {
+                nextFloor = backFloor;
+                isSteppingBack = true;
+                return now + floorTravelTime;
             }
-            currFloor = building.getSpecifiedFloor(nextLevel);
         }
 
-        // arrive, about to docking with the door installed at the floor
-        docking();
+        return now + DELAY;
     }
 
-    private void docking() throws DockingFailedException {
-        log(String.format("电梯#%d: 正在%d层进行docking....%n", number, currFloor.getFloorLevel()));
+    /**
+     * Arrive at the floor this elevator was moving into, releasing the claim in the shared shaft.
+     *
+     * @param nextFloor The floor arrived
+     */
+    private void arrive(Floor nextFloor) {
+        currFloor = nextFloor;
+        this.nextFloor = null;
+        metrics.recordPosition(currFloor.getFloorLevel());
+
+        if (shaft != null)
+            shaft.arrive(this);
+    }
 
-        try {
-            Thread.sleep(2500);
-        } catch (Exception e) {
+    /**
+     * Decide whether this elevator need to stop at current position, checking the floor of every deck.
+     *
+     * @return true if the elevator should dock here
+     */
+    private boolean isStopRequired() {
+        boolean isRequired = false;
 
+        for (int deck = 0; deck < getNumOfDecks(); deck++) {
+            Floor floor = getDeckFloor(deck);
+            if (floor != null && isStopRequired(floor, deck))
+                isRequired = true;
         }
 
-        // elevator stop at current floor
-        currFloor.requestForDocking();
-        openDoor();
+        return isRequired;
     }
 
-    private void openDoor() {
-        try {
-            log(String.format("电梯#%d: 已经完成与%d层对接, 正在开门准备下客....%n", number, currFloor.getFloorLevel()));
+    /**
+     * Decide whether this elevator need to stop at the passing floor.
+     * A car call always stops the elevator, but a hall call is bypassed if there is no room
+     * for the waiting passenger, and the call is handed back to the EMS for another elevator.
+     *
+     * @param floor The passing floor
+     * @param deck  The deck aligned with the floor
+     * @return true if the elevator should dock at this floor
+     */
+    private boolean isStopRequired(Floor floor, int deck) {
+        if (!tasks.contains(floor))
+            return false;
 
-            // Open door need 2.5 seconds to complete
-            Thread.sleep(2500);
+        if (hasCarCall(floor, deck))
+            return true;
 
-            // unload all onboard passenger whom has arrived
-            unload();
+        if (!floor.isWaitingFor(this, direction))
+            return false;
 
-            // do not load passenger when in emergency mode
-            if (operationSignal != -1)
-                load();
+        if (isAbleToServe(floor))
+            return true;
 
-            closeDoor();
+        bypass(floor);
+        return false;
+    }
 
-        } catch (Exception e) {
-            log(String.format("电梯#%d: 开门失败, 遇到问题, 请求EMS帮助"));
-            turnToEmergencyMode(false);
+    /**
+     * Check whether the remaining capacity is enough to board at least one waiting passenger.
+     *
+     * @param floor The floor which has a hall call
+     * @return true if stopping at this floor can pick up someone
+     */
+    private boolean isAbleToServe(Floor floor) {
+        int lightest = floor.getLightestWaitingWeight(this, direction);
+
+        // nobody is seen in the queue yet, assume an ordinary passenger
+        if (lightest < 0)
+            lightest = EXPECTED_PASSENGER_WEIGHT;
+
+        return hasRoomFor(lightest);
+    }
+
+    /**
+     * Skip the hall call of given floor and hand it back to the EMS for another elevator.
+     *
+     * @param floor The floor to bypass
+     */
+    private void bypass(Floor floor) {
+        log(LogTemplate.CAR_BYPASS, floor.getFloorLevel());
+
+        tasks.remove(floor);
+        ems.addTask(floor);
+    }
+
+    /**
+     * Level the elevator with current floor, then start the door cycle.
+     *
+     * @param now The current time in millisecond
+     * @return The time when the elevator is levelled
+     */
+    private long docking(long now) {
+        DoorEvent event = DoorEvent.beginIfEnabled(DoorEvent.DOCKING);
+        log(LogTemplate.CAR_DOCKING, currFloor.getFloorLevel());
+
+        stage = Stage.DOCKING;
+        commit(event, now, now + timings.getDockingTime());
+        return now + timings.getDockingTime();
+    }
+
+    /**
+     * Dock with the floor of every deck and start to open the door.
+     *
+     * @param now The current time in millisecond
+     * @return The time when the door is open
+     * @throws DockingFailedException if failed to dock with the floor
+     */
+    private long openDoor(long now) throws DockingFailedException {
+        DoorEvent event = DoorEvent.beginIfEnabled(DoorEvent.OPEN);
+
+        // elevator stop at current floor, every deck docks with its own floor
+        for (int deck = 0; deck < getNumOfDecks(); deck++)
+            if (getDeckFloor(deck) != null)
+                getDeckFloor(deck).requestForDocking();
+
+        metrics.recordStop();
+        log(LogTemplate.CAR_DOOR_OPEN, currFloor.getFloorLevel());
+
+        stage = Stage.OPENING;
+        commit(event, now, now + timings.getDoorOpenTime());
+        return now + timings.getDoorOpenTime();
+    }
+
+    /**
+     * The door is open, exchange passengers and hold the door for a dwell time depends on how many
+     * passengers have moved. If nobody moved and nobody is waiting, the door closes at once.
+     *
+     * @param now The current time in millisecond
+     * @return The time when the dwell ends
+     */
+    private long exchangePassengers(long now) {
+        metrics.recordDoorTime(timings.getDoorOpenTime());
+
+        // unload all onboard passenger whom has arrived
+        int alighted = unload();
+
+        // do not load passenger when in emergency mode
+        int boarded = 0;
+        if (operationSignal != EMERGENCY)
+            boarded = load();
+
+        if (runStartTime >= 0) {
+            runStops++;
+            runBoarded += boarded;
+            runMaxLoad = Math.max(runMaxLoad, sedan.size());
         }
+
+        return dwell(now, alighted, boarded);
     }
 
     /**
-     * Close door to be standby to perform the rest task.
+     * Hold the door open while passengers walk through it.
+     *
+     * @param now      The current time in millisecond
+     * @param alighted The number of passengers walked out
+     * @param boarded  The number of passengers walked in
+     * @return The time when the dwell ends
      */
-    private void closeDoor() {
-        try {
-            // Close door need 2.5 seconds to complete
-            Thread.sleep(2500);
+    private long dwell(long now, int alighted, int boarded) {
+        int dwellTime = getDwellTime(alighted, boarded);
+        metrics.recordDwell(dwellTime, alighted, boarded);
 
-            log(String.format("电梯#%d: 在%d层准备关门....%n", number, currFloor.getFloorLevel()));
+        stage = Stage.DWELLING;
+        return now + dwellTime;
+    }
 
-        } catch (Exception e) {
-            log(String.format("电梯#%d: 关门失败, 可能遇到危险, 请求帮助", number));
-            turnToEmergencyMode(false);
+    /**
+     * Start to close the door.
+     *
+     * @param now The current time in millisecond
+     * @return The time when the door is half closed
+     */
+    private long closeDoor(long now) {
+        DoorEvent event = DoorEvent.beginIfEnabled(DoorEvent.CLOSE);
+        log(LogTemplate.CAR_DOOR_CLOSE, currFloor.getFloorLevel());
+
+        stage = Stage.CLOSING;
+        commit(event, now, now + timings.getDoorCloseTime() / 2);
+        return now + timings.getDoorCloseTime() / 2;
+    }
+
+    /**
+     * The door is half closed. Late arrivals caught by the door sensor re-open the door, up to MAX_REOPEN times.
+     *
+     * @param now The current time in millisecond
+     * @return The time when the door is fully closed or re-opened
+     */
+    private long checkDoorSensor(long now) {
+        // door sensor catch someone just arrived whom can still get on board
+        if (reopenCount < MAX_REOPEN && operationSignal != EMERGENCY && isLateArrivalFound()) {
+            reopenCount++;
+            log(LogTemplate.CAR_DOOR_REOPEN, currFloor.getFloorLevel());
+
+            // the door is half closed, re-open the rest
+            metrics.recordReopen(timings.getDoorCloseTime() / 2 + timings.getDoorOpenTime() / 2);
+            stage = Stage.REOPENING;
+            return now + timings.getDoorOpenTime() / 2;
+        }
+
+        stage = Stage.CLOSED;
+        return now + timings.getDoorCloseTime() - timings.getDoorCloseTime() / 2;
+    }
+
+    /**
+     * The door is closed, be standby to perform the rest task.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step, or STOP if this elevator has turned off
+     * @throws FloorDoesNotExistException if the ground floor does not exist
+     */
+    private long finishStop(long now) throws FloorDoesNotExistException {
+        metrics.recordDoorTime(timings.getDoorCloseTime());
+        metrics.recordLoad(sedan.size());
+        reopenCount = 0;
+
+        for (int deck = 0; deck < getNumOfDecks(); deck++) {
+            Floor floor = getDeckFloor(deck);
+            if (floor == null)
+                continue;
+
+            // accepted task, unless a passenger in the other deck still need to come back
+            if (!hasCarCall(floor))
+                tasks.remove(floor);
+
+            // passengers left behind wait for another elevator
+            if (floor.hasWaitingPassengers())
+                ems.addTask(floor);
+        }
+
+        // the passengers have walked out of the broken elevator, their calls are answered by others
+        if (operationSignal == EMERGENCY)
+            releaseTasks();
+
+        // arrived at the ground floor to turn off
+        if (isShuttingDown && operationSignal == RUNNING && currFloor == stopFloor && tripTarget == getHomeFloor()) {
+            operationSignal = OFF;
+            stage = Stage.IDLE;
+            log("电梯#" + number + ": 已经顺利关机");
+            return STOP;
+        }
+
+        return finishTrip(now);
+    }
+
+    /**
+     * Check whether someone just arrived at the floor of any deck and can still get on board.
+     *
+     * @return true if the door should be re-opened
+     */
+    private boolean isLateArrivalFound() {
+        for (int deck = 0; deck < getNumOfDecks(); deck++) {
+            Floor floor = getDeckFloor(deck);
+            if (floor != null && floor.isWaitingFor(this, direction) && isAbleToServe(floor))
+                return true;
         }
-        // accepted task
-        tasks.remove(currFloor);
+        return false;
+    }
+
+    /**
+     * Calculate how long the door should be held open.
+     *
+     * @param alighted The number of passengers walked out
+     * @param boarded  The number of passengers walked in
+     * @return The dwell time in millisecond
+     */
+    private int getDwellTime(int alighted, int boarded) {
+        // nobody moved and nobody waits, close the door early
+        if (alighted + boarded == 0)
+            return 0;
+
+        return Math.max(timings.getMinDwellTime(),
+                alighted * timings.getAlightingTime() + boarded * timings.getBoardingTime());
     }
 
     /**
      * Unload passenger depends on the situation.
      * In normal mode, unload passenger whom is arrive to target floor.
      * In emergency mode, unload all passengers.
+     *
+     * @return The number of passengers walked out
      */
-    private void unload() {
+    private int unload() {
+        BoardingEvent event = BoardingEvent.beginIfEnabled(BoardingEvent.ALIGHT);
         int num = 0;
         int kg = 0;
 
+        // the ones staying are compacted in place, a stop creates nothing
+        int kept = 0;
         for (int i = 0; i < sedan.size(); i++) {
             Passenger person = sedan.get(i);
 
             // normal situation that passenger arrive at target floor
             // or in emergency situation all passenger need to escape immediately
-            if (operationSignal == -1) {
+            if (operationSignal == EMERGENCY) {
                 num++;
                 kg += person.getWeight();
-                person.escape();
+                person.escape(getDeckFloor(person.getDeck()));
                 currWeight -= person.getWeight();
-                sedan.remove(person);
 
-            } else if (person.getTargetFloor() == currFloor) {
+            } else if (person.getTargetFloor() == getDeckFloor(person.getDeck())) {
                 num++;
                 kg += person.getWeight();
                 person.walkOut(true);
                 currWeight -= person.getWeight();
-                sedan.remove(person);
+
+            } else {
+                sedan.set(kept++, person);
             }
         }
+        for (int i = sedan.size() - 1; i >= kept; i--)
+            sedan.remove(i);
 
         if (num != 0)
-            log(String.format("电梯#%d: 乘客已抵达%d层, 共释放%d名乘客, 载重减轻%dkg",
-                    number,
-                    currFloor.getFloorLevel(),
-                    num,
-                    kg));
+            log(LogTemplate.CAR_ALIGHT, currFloor.getFloorLevel(), num, kg);
+
+        if (event != null)
+            event.passengers = num;
+        commit(event, 0, (long) num * timings.getAlightingTime());
+        return num;
     }
 
     /**
      * Load passenger on board.
+     *
+     * @return The number of passengers walked in
+     */
+    private int load() {
+        // nobody on board, so serve whichever direction is waiting at this floor
+        if (direction == STOPPED || (sedan.isEmpty() && !isWaitingAtDecks(direction)))
+            direction = isWaitingAtDecks(UP) ? UP : DOWN;
+
+        BoardingEvent event = BoardingEvent.beginIfEnabled(BoardingEvent.BOARD);
+
+        int boarded = 0;
+        for (int deck = 0; deck < getNumOfDecks(); deck++)
+            if (getDeckFloor(deck) != null)
+                boarded += getDeckFloor(deck).notifyPassengerOnboard(this);
+
+        if (event != null)
+            event.passengers = boarded;
+        commit(event, 0, (long) boarded * timings.getBoardingTime());
+        return boarded;
+    }
+
+    /**
+     * Check whether anyone is waiting for this elevator at the floor of any deck.
+     *
+     * @param direction The direction of queue
+     * @return true if someone is waiting
      */
-    private void load() {
-        currFloor.notifyPassengerOnboard(this);
+    private boolean isWaitingAtDecks(int direction) {
+        for (int deck = 0; deck < getNumOfDecks(); deck++)
+            if (getDeckFloor(deck) != null && getDeckFloor(deck).isWaitingFor(this, direction))
+                return true;
+        return false;
     }
 
     /**
      * Standby the elevator, keep checking the tasks list and perform every task.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step, or STOP if this elevator is not running
+     * @throws FloorDoesNotExistException if requested floor level does not exist
      */
-    private void standby() {
-        Floor target;
+    private long standby(long now) throws FloorDoesNotExistException {
+        if (operationSignal != RUNNING)
+            return STOP;
+
+        if (tasks.isEmpty())
+            finishRun(now);
+
+        // move to the ground floor to turn off
+        if (isShuttingDown)
+            return startTrip(getHomeFloor(), false, now);
+
+        if (!tasks.isEmpty()) {
+            parkingFloor = null;
+            if (runStartTime < 0)
+                startRun(now);
 
-        while (operationSignal == 1) {
-            try {
-                Thread.sleep(DELAY);
-            } catch (InterruptedException i) {
-                log("电梯#" + number + ": " + i.getMessage());
+            // this function will control remained procedure
+            return startTrip(tasks.get(0), false, now);
+        }
+
+        // clear the shaft for another car
+        if (yieldFloor != null) {
+            Floor target = yieldFloor;
+            yieldFloor = null;
+            if (target != currFloor) {
+                parkingFloor = target;
+                return startTrip(target, true, now);
             }
+        }
 
-            if (!tasks.isEmpty()) {
-                target = tasks.get(0);
+        direction = STOPPED;
 
-                try {
-                    // this function will control remained procedure
-                    move(target);
+        // idle long enough, move toward where the next call is expected
+        if (parkingFloor == null && now - idleSince >= PARKING_DELAY) {
+            Floor target = ems.getParkingFloor(this);
 
-                } catch (DockingFailedException d) {
-                    log("电梯#" + number + ": " + d.getMessage());
-                    turnToEmergencyMode(LOG_VERBOSE);
-                } catch (Exception e) {
-                    log("电梯#" + number + ": " + e.getMessage());
-                    turnToEmergencyMode(false);
-                }
-            } else {
-                direction = 0;
+            parkingFloor = (target == null) ? currFloor : target;
+            if (target != null && target != currFloor)
+                return startTrip(target, true, now);
+        }
+
+        return now + DELAY;
+    }
+
+    /**
+     * Commit a flight recorder event of this elevator, the fields are only filled while it is recorded.
+     *
+     * @param event The event began at the start of the step, null if not recorded
+     * @param now   The current time in millisecond
+     * @param next  The time when the step finishes in the simulation
+     */
+    private void commit(CarEvent event, long now, long next) {
+        if (event != null && event.shouldCommit()) {
+            event.car = number;
+            event.floor = currFloor.getFloorLevel();
+            event.load = sedan.size();
+            event.simulatedTime = (next == STOP) ? 0 : next - now;
+            event.commit();
+        }
+    }
+
+    /**
+     * Start a run from the idle state.
+     *
+     * @param now The current time in millisecond
+     */
+    private void startRun(long now) {
+        runStartTime = now;
+        runStartFloor = currFloor;
+        runStops = 0;
+        runBoarded = 0;
+        runMaxLoad = sedan.size();
+    }
+
+    /**
+     * Finish the run in progress and report it to the EMS.
+     *
+     * @param now The current time in millisecond
+     */
+    private void finishRun(long now) {
+        if (runStartTime < 0)
+            return;
+
+        ems.recordCarTrip(this, runStartFloor, runStartTime, now, runStops, runBoarded, runMaxLoad);
+        runStartTime = -1;
+        runStartFloor = null;
+    }
+
+    /**
+     * Get the floor where this elevator turns off, the lobby or the lowest floor served by its bank.
+     * The upper car of a shared shaft stops above the lower one.
+     *
+     * @return The home floor
+     * @throws FloorDoesNotExistException if the floor level does not exist
+     */
+    private Floor getHomeFloor() throws FloorDoesNotExistException {
+        boolean isLobbyServed = bank == null || bank.isServing(1);
+        Floor ground = building.getSpecifiedFloor(isLobbyServed ? 1 : bank.getLowestServedLevel());
+
+        return (shaft == null) ? ground : shaft.getHomeFloor(this, ground);
+    }
+
+    /**
+     * Reset the alert of a repaired elevator and turn it on again.
+     */
+    private void finishRepair() {
+        pendingRepair = false;
+        pendingFault = null;
+        resetAlert();
+        try {
+            turnOn();
+        } catch (ElevatorMalfunctionException e) {
+            // never thrown once the alert is reset
+            log("电梯#" + number + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start to step this elevator again unless it is being stepped.
+     */
+    private synchronized void activate() {
+        if (!isActive) {
+            isActive = true;
+            ems.resume(this);
+        }
+    }
+
+    /**
+     * Stop stepping this elevator, unless a repair has come in since the step began.
+     *
+     * @param now The current time in millisecond
+     * @return The time of the next step picking the repair up, or STOP
+     */
+    private synchronized long deactivate(long now) {
+        if (pendingRepair)
+            return now;
+
+        isActive = false;
+        return STOP;
+    }
+
+    /**
+     * Raise the injected fault once this elevator uses the broken part:
+     * the levelling gear while docking, the door when it is about to close, and the drive while moving or idle.
+     *
+     * @throws DockingFailedException if the car cannot level with the floor
+     * @throws CarFaultException      if the door or the drive has broken down
+     */
+    private void raiseFault() throws DockingFailedException, CarFaultException {
+        FaultType type = pendingFault;
+
+        // an elevator out of service cannot break down again
+        if (operationSignal != RUNNING || isShuttingDown) {
+            pendingFault = null;
+            return;
+        }
+
+        if (type == FaultType.DOCKING && stage != Stage.DOCKING
+                || type == FaultType.DOOR && stage != Stage.DWELLING
+                || type == FaultType.DRIVE && stage != Stage.MOVING && stage != Stage.IDLE)
+            return;
+
+        pendingFault = null;
+        fault = type;
+        switch (type) {
+            case DOCKING:
+                throw new DockingFailedException(String.format("在%d层平层失败, 乘客被困在轿厢内", currFloor.getFloorLevel()));
+            case DOOR:
+                throw new CarFaultException(String.format("在%d层门无法关闭", currFloor.getFloorLevel()));
+            default:
+                throw new CarFaultException(String.format("在%d层附近驱动故障, 平层后放出乘客", currFloor.getFloorLevel()));
+        }
+    }
+
+    /**
+     * Hand every task without a passenger on board heading there back to the EMS,
+     * so the calls are answered by other elevators.
+     */
+    private void releaseTasks() {
+        for (Floor task : tasks) {
+            if (!hasCarCall(task)) {
+                tasks.remove(task);
+                ems.addTask(task);
             }
         }
     }
@@ -380,18 +1230,33 @@ public class Elevator implements Runnable {
     /**
      * This is the last measure to keep passenger safe.
      * Open door at current floor to unload all onboard passenger.
+     *
+     * @param isDockingFailed true if the door cannot be opened at current floor
+     * @param now             The current time in millisecond
+     * @return The time when the door is open, or STOP if the door cannot be opened
      */
-    private void turnToEmergencyMode(boolean isDockingFailed) {
+    private long turnToEmergencyMode(boolean isDockingFailed, long now) {
         // set the operation mode in emergency
-        operationSignal = -1;
+        operationSignal = EMERGENCY;
+        failedSince = now;
+        nextFloor = null;
+        if (shaft != null)
+            shaft.arrive(this);
+
+        // the waiting passengers are picked up by other elevators
+        releaseTasks();
 
         // notify the ems
         ems.requestForEmergency(this);
 
         // passenger can safely leave now
         if (!isDockingFailed) {
-            openDoor();
+            stage = Stage.OPENING;
+            return now + timings.getDoorOpenTime();
         }
+
+        stage = Stage.IDLE;
+        return STOP;
     }
 
 
@@ -400,10 +1265,55 @@ public class Elevator implements Runnable {
         return operationSignal;
     }
 
+    /**
+     * Get the fault which has taken this elevator out of service.
+     *
+     * @return The fault, or null if in service or failed on an error
+     */
+    public FaultType getFault() {
+        return fault;
+    }
+
+    public boolean isFailed() {
+        return failedSince >= 0;
+    }
+
+    public long getFailedSince() {
+        return failedSince;
+    }
+
     public int getNumber() {
         return number;
     }
 
+    public Bank getBank() {
+        return bank;
+    }
+
+    public Shaft getShaft() {
+        return shaft;
+    }
+
+    /**
+     * Put this elevator into a shaft shared with other cars.
+     *
+     * @param shaft      The shared shaft
+     * @param startFloor The floor this elevator starts at
+     */
+    public void setShaft(Shaft shaft, Floor startFloor) {
+        this.shaft = shaft;
+        this.currFloor = startFloor;
+        metrics.recordPosition(startFloor.getFloorLevel());
+    }
+
+    public boolean isWaitingForShaft() {
+        return isWaitingForShaft;
+    }
+
+    public boolean isSteppingBack() {
+        return isSteppingBack;
+    }
+
     public double getCapacityOfWeight() {
         return capacityOfWeight;
     }
@@ -412,10 +1322,30 @@ public class Elevator implements Runnable {
         return capacityOfPassengers;
     }
 
+    public int getFloorTravelTime() {
+        return floorTravelTime;
+    }
+
+    public void setFloorTravelTime(int floorTravelTime) {
+        this.floorTravelTime = floorTravelTime;
+    }
+
+    public CarTimings getTimings() {
+        return timings;
+    }
+
+    public void setTimings(CarTimings timings) {
+        this.timings = timings;
+    }
+
     public Floor getCurrFloor() {
         return currFloor;
     }
 
+    public Floor getParkingFloor() {
+        return parkingFloor;
+    }
+
     public List<Floor> getTasks() {
         return tasks;
     }
@@ -436,4 +1366,142 @@ public class Elevator implements Runnable {
         return sedan;
     }
 
+    public ElevatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isShuttingDown() {
+        return isShuttingDown;
+    }
+
+    /* =================================== Checkpoint ============================================================== */
+
+    /**
+     * Write the running state of this elevator into a checkpoint.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(floorTravelTime);
+        out.writeInt(timings.getDockingTime());
+        out.writeInt(timings.getDoorOpenTime());
+        out.writeInt(timings.getDoorCloseTime());
+        out.writeInt(timings.getAlightingTime());
+        out.writeInt(timings.getBoardingTime());
+        out.writeInt(timings.getMinDwellTime());
+        out.writeByte(operationSignal);
+        out.writeByte(direction);
+        out.writeInt(currWeight);
+        SimulationCheckpoint.writeFloor(out, currFloor);
+        SimulationCheckpoint.writeFloor(out, parkingFloor);
+        SimulationCheckpoint.writeFloor(out, yieldFloor);
+        out.writeBoolean(isWaitingForShaft);
+        out.writeBoolean(isSteppingBack);
+        FaultType pending = pendingFault;
+        out.writeByte(pending == null ? -1 : pending.ordinal());
+        out.writeBoolean(pendingRepair);
+        FaultType raised = fault;
+        out.writeByte(raised == null ? -1 : raised.ordinal());
+        out.writeLong(failedSince);
+
+        out.writeInt(tasks.size());
+        for (Floor task : tasks)
+            SimulationCheckpoint.writeFloor(out, task);
+
+        out.writeInt(sedan.size());
+        for (Passenger passenger : sedan)
+            SimulationCheckpoint.writePassenger(out, passenger);
+
+        metrics.writeState(out);
+
+        out.writeByte(stage.ordinal());
+        SimulationCheckpoint.writeFloor(out, tripTarget);
+        SimulationCheckpoint.writeFloor(out, stopFloor);
+        SimulationCheckpoint.writeFloor(out, nextFloor);
+        out.writeBoolean(isParking);
+        out.writeBoolean(isShuttingDown);
+        out.writeBoolean(isActive);
+        out.writeLong(idleSince);
+        out.writeByte(reopenCount);
+
+        out.writeLong(runStartTime);
+        SimulationCheckpoint.writeFloor(out, runStartFloor);
+        out.writeInt(runStops);
+        out.writeInt(runBoarded);
+        out.writeShort(runMaxLoad);
+    }
+
+    /**
+     * Read the running state of this elevator from a checkpoint.
+     * The elevator must have been constructed in the same bank and shaft as the one written.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    void readState(DataInput in) throws IOException {
+        floorTravelTime = in.readInt();
+        timings = new CarTimings(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        operationSignal = in.readByte();
+        direction = in.readByte();
+        currWeight = in.readInt();
+        currFloor = SimulationCheckpoint.readFloor(in, building);
+        parkingFloor = SimulationCheckpoint.readFloor(in, building);
+        yieldFloor = SimulationCheckpoint.readFloor(in, building);
+        isWaitingForShaft = in.readBoolean();
+        isSteppingBack = in.readBoolean();
+        int pending = in.readByte();
+        pendingFault = (pending < 0) ? null : FaultType.values()[pending];
+        pendingRepair = in.readBoolean();
+        int raised = in.readByte();
+        fault = (raised < 0) ? null : FaultType.values()[raised];
+        failedSince = in.readLong();
+
+        tasks.clear();
+        for (int i = in.readInt(); i > 0; i--)
+            tasks.add(SimulationCheckpoint.readFloor(in, building));
+
+        sedan.clear();
+        for (int i = in.readInt(); i > 0; i--)
+            sedan.add(SimulationCheckpoint.readPassenger(in, building));
+
+        metrics.readState(in);
+        metrics.recordPosition(currFloor.getFloorLevel());
+        metrics.recordLoad(sedan.size());
+
+        stage = Stage.values()[in.readByte()];
+        tripTarget = SimulationCheckpoint.readFloor(in, building);
+        stopFloor = SimulationCheckpoint.readFloor(in, building);
+        nextFloor = SimulationCheckpoint.readFloor(in, building);
+        isParking = in.readBoolean();
+        isShuttingDown = in.readBoolean();
+        isActive = in.readBoolean();
+        idleSince = in.readLong();
+        reopenCount = in.readByte();
+
+        runStartTime = in.readLong();
+        runStartFloor = SimulationCheckpoint.readFloor(in, building);
+        runStops = in.readInt();
+        runBoarded = in.readInt();
+        runMaxLoad = in.readShort();
+
+        // the moving car still occupies the floor it is moving into
+        if (shaft != null && nextFloor != null)
+            shaft.claim(this, nextFloor);
+    }
+
+    /**
+     * The stages of a running elevator, each one lasts until the next step.
+     */
+    private enum Stage {
+        IDLE,           // waiting for tasks
+        MOVING,         // moving into the next floor, or waiting for the shaft
+        DOCKING,        // levelling with the floor
+        OPENING,        // opening the door
+        DWELLING,       // holding the door while passengers walk through
+        CLOSING,        // closing the first half of the door
+        REOPENING,      // re-opening the door for late arrivals
+        CLOSED          // closing the rest of the door
+    }
+
 }
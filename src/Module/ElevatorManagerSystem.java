@@ -2,11 +2,15 @@ package Module;
 
 import Module.Building;
 import Module.Elevator;
+import exceptions.ElevatorMalfunctionException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Module.ElevatorManagerSystem is used to receive user-request-to-use-elevator signal then
@@ -20,21 +24,49 @@ import java.util.*;
  *
  * @author EJWang
  */
-public class ElevatorManagerSystem implements Runnable {
+public class ElevatorManagerSystem implements Runnable, SimulationActor {
 
     /* ---- Running Configuration ---- */
     private static final int DELAY = 100;
     private static final String LOG_FILENAME = "ems_log.txt";
     private static final boolean LOG_VERBOSE = true;
 
+    /* ---- Demand prediction ---- */
+    private static final int REPARKING_INTERVAL = 30 * 1000;  // millisecond
+
     // the client which use this system
     private Building building;
 
     // holding tasks of this system
     private Queue<Floor> tasks;
 
-    // all elevators controlled by this system
+    // all elevators controlled by this system, grouped in banks
     private List<Elevator> elevators;
+    private List<Bank> banks;
+
+    // the learned hall call demand, and the policy decides where idle elevators wait
+    private DemandPredictor demandPredictor;
+    private ParkingPolicy parkingPolicy;
+
+    // decides which elevator answers a hall call, and how long it takes to decide
+    private DispatchStrategy dispatchStrategy;
+    private DispatchMetrics dispatchMetrics;
+
+    // the waiting and journey time of arrived passengers, and the flows between the floors
+    private TripMetrics tripMetrics;
+    private TrafficAnalytics trafficAnalytics;
+
+    // how the service degrades while some elevators are out of service
+    private DegradedModeMetrics degradedModeMetrics;
+
+    // streams the passengers and the runs of the elevators, null if not exported
+    private ResultExporter resultExporter;
+    private int exportNumber;
+
+    // runs the elevators and this system
+    private SimulationScheduler executor;
+    private long lastParking;
+    private boolean isShuttingDown;
 
     /* =================================== Constructor Methods ===================================================== */
 
@@ -46,8 +78,15 @@ public class ElevatorManagerSystem implements Runnable {
      */
     public ElevatorManagerSystem(Building building) throws IOException {
         this.building = building;
-        tasks = new LinkedList<>();
+        tasks = new ConcurrentLinkedQueue<>();
         elevators = new ArrayList<>();
+        banks = new ArrayList<>();
+        demandPredictor = new DemandPredictor(building.getLowestLevel(), building.getHighestLevel());
+        tripMetrics = new TripMetrics();
+        trafficAnalytics = new TrafficAnalytics(building);
+        dispatchStrategy = new WorkloadDispatchStrategy();
+        dispatchMetrics = new DispatchMetrics();
+        degradedModeMetrics = new DegradedModeMetrics();
     }
 
     /**
@@ -58,8 +97,76 @@ public class ElevatorManagerSystem implements Runnable {
      * @param passengerCapacity     The maximum passenger capacity of every elevator
      */
     public void constructElevators(int totalNumberOfElevator, double weightCapacity, int passengerCapacity) {
-        for (int elevatorNumber = 1; elevatorNumber <= totalNumberOfElevator; elevatorNumber++)
-            elevators.add(new Elevator(elevatorNumber, weightCapacity, passengerCapacity, this, building));
+        constructBank("全楼", totalNumberOfElevator, weightCapacity, passengerCapacity,
+                building.getLowestLevel(), building.getHighestLevel());
+    }
+
+    /**
+     * Construct a bank of single-deck elevators serving a range of floors, plus some extra floors such as the lobby.
+     * Elevators are numbered after the elevators constructed before.
+     *
+     * @param name                  The name of the bank
+     * @param totalNumberOfElevator The total number of elevators in this bank
+     * @param weightCapacity        The maximum weight allowance of every elevator
+     * @param passengerCapacity     The maximum passenger capacity of every elevator
+     * @param fromLevel             The lowest level of the served range
+     * @param toLevel               The highest level of the served range
+     * @param extraLevels           The other served levels out of the range, e.g. lobby or sky lobby
+     * @return The constructed bank
+     */
+    public Bank constructBank(String name, int totalNumberOfElevator, double weightCapacity, int passengerCapacity,
+                              int fromLevel, int toLevel, int... extraLevels) {
+        return constructBank(name, ElevatorType.SINGLE_DECK, totalNumberOfElevator, weightCapacity, passengerCapacity,
+                fromLevel, toLevel, extraLevels);
+    }
+
+    /**
+     * Construct a bank of elevators of given type serving a range of floors, plus some extra floors.
+     * Elevators are numbered after the elevators constructed before.
+     *
+     * @param name               The name of the bank
+     * @param type               The type of elevators
+     * @param totalNumberOfShaft The total number of shafts in this bank, a twin shaft holds two elevators
+     * @param weightCapacity     The maximum weight allowance of every elevator
+     * @param passengerCapacity  The maximum passenger capacity of every elevator
+     * @param fromLevel          The lowest level of the served range
+     * @param toLevel            The highest level of the served range
+     * @param extraLevels        The other served levels out of the range, e.g. lobby or sky lobby
+     * @return The constructed bank
+     */
+    public Bank constructBank(String name, ElevatorType type, int totalNumberOfShaft, double weightCapacity,
+                              int passengerCapacity, int fromLevel, int toLevel, int... extraLevels) {
+        Bank bank = new Bank(name, building.getLowestLevel(), building.getHighestLevel());
+        bank.serve(fromLevel, toLevel);
+        for (int level : extraLevels)
+            bank.serve(level);
+
+        for (int i = 0; i < totalNumberOfShaft; i++) {
+            if (type == ElevatorType.DOUBLE_DECK) {
+                addElevator(bank, new DoubleDeckElevator(elevators.size() + 1, weightCapacity, passengerCapacity,
+                        this, building, bank));
+
+            } else if (type == ElevatorType.TWIN) {
+                Shaft shaft = new Shaft(building);
+                Elevator lower = new Elevator(elevators.size() + 1, weightCapacity, passengerCapacity, this, building, bank);
+                addElevator(bank, lower);
+                Elevator upper = new Elevator(elevators.size() + 1, weightCapacity, passengerCapacity, this, building, bank);
+                addElevator(bank, upper);
+
+                // the lower car starts at the lobby, the upper car at the top of the bank
+                shaft.addCar(lower);
+                shaft.addCar(upper);
+                lower.setShaft(shaft, lower.getCurrFloor());
+                upper.setShaft(shaft, getHighestServedFloor(bank, upper));
+
+            } else {
+                addElevator(bank, new Elevator(elevators.size() + 1, weightCapacity, passengerCapacity,
+                        this, building, bank));
+            }
+        }
+
+        banks.add(bank);
+        return bank;
     }
 
     /* =================================== Override Methods ======================================================== */
@@ -69,16 +176,107 @@ public class ElevatorManagerSystem implements Runnable {
      */
     @Override
     public void run() {
+        SimulationExecutor executor = new SimulationExecutor(ExecutionMode.PLATFORM_THREADS, building.getClock());
+        this.executor = executor;
+
         // put all elevators as a thread then start it
         for (Elevator elevator : elevators)
-            new Thread(elevator).start();
+            executor.start(elevator);
         // let this system standby for receiving task from each floor level
-        standby();
+        SimulationExecutor.runUntilStopped(this, building.getClock());
+    }
+
+    /**
+     * Receive task from each floor level and assign it to the most suitable elevator.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step, or STOP once all elevators have turned off
+     */
+    @Override
+    public long step(long now) {
+        if (lastParking == 0)
+            lastParking = now;
+        degradedModeMetrics.start(now);
+
+        // find the most eligible elevator then assign the task to it
+        int pending = tasks.size();
+        for (int i = 0; i < pending && !tasks.isEmpty(); i++)
+            searchElevatorAndAssignTask(tasks.poll());
+        dispatchMetrics.recordQueueDepth(tasks.size());
+
+        // move idle elevators toward the floors expecting a surge before it comes
+        if (now - lastParking >= REPARKING_INTERVAL) {
+            reconsiderParking();
+            lastParking = now;
+        }
+
+        if (isShuttingDown && isAllTurnedOff()) {
+            log("EMS: 所有电梯已经成功关闭, 主系统准备Shutdown....");
+
+            // report the stop and door cycle statistics of every elevator
+            for (Elevator elevator : elevators)
+                log(String.format("EMS: %d号电梯%s", elevator.getNumber(), elevator.getMetrics()));
+            log("EMS: " + dispatchMetrics);
+            if (degradedModeMetrics.getNumOfFailures() > 0)
+                log("EMS: " + degradedModeMetrics.report(now));
+
+            // report the peak handling capacity of every bank
+            for (int i = 0; i < banks.size(); i++)
+                log(String.format("EMS: %s电梯组5分钟内最多运送%d人", banks.get(i).getName(),
+                        trafficAnalytics.getPeakHandlingCount(i)));
+            return STOP;
+        }
+
+        return now + DELAY;
     }
 
 
     /* =================================== Public Methods ========================================================== */
 
+    /**
+     * Start all elevators and this system with the executor.
+     *
+     * @param executor The executor or scheduler runs the simulation
+     */
+    public void start(SimulationScheduler executor) {
+        this.executor = executor;
+
+        // every elevator turned on is resumed by this system
+        for (Elevator elevator : elevators) {
+            try {
+                elevator.turnOn();
+            } catch (ElevatorMalfunctionException e) {
+                log("EMS: " + e.getMessage());
+            }
+        }
+        executor.start(this);
+    }
+
+    /**
+     * Start to step an elevator again after it has been turned off.
+     *
+     * @param elevator The elevator turned on
+     */
+    public void resume(Elevator elevator) {
+        if (executor != null)
+            executor.start(elevator);
+        else
+            new Thread(elevator).start();
+    }
+
+    /**
+     * Check whether every elevator has stopped service.
+     *
+     * @return true if no elevator is running
+     */
+    public boolean isAllTurnedOff() {
+        for (Elevator elevator : elevators)
+            if (elevator.getOperationSignal() == Elevator.RUNNING)
+                return false;
+
+        return true;
+    }
+
     /**
      * Get the list of all elevators.
      *
@@ -88,13 +286,249 @@ public class ElevatorManagerSystem implements Runnable {
         return elevators;
     }
 
+    public Building getBuilding() {
+        return building;
+    }
+
+    /**
+     * Get the list of all banks.
+     *
+     * @return The list of all banks
+     */
+    public List<Bank> getAllBanks() {
+        return banks;
+    }
+
+    /**
+     * Get the waiting and journey time of the passengers served by this system.
+     *
+     * @return The trip metrics
+     */
+    public TripMetrics getTripMetrics() {
+        return tripMetrics;
+    }
+
+    public TrafficAnalytics getTrafficAnalytics() {
+        return trafficAnalytics;
+    }
+
+    public DispatchMetrics getDispatchMetrics() {
+        return dispatchMetrics;
+    }
+
+    public DegradedModeMetrics getDegradedModeMetrics() {
+        return degradedModeMetrics;
+    }
+
+    /**
+     * Plan the next leg of a trip. If no bank serves both floors, the passenger travels to a transfer floor
+     * first, which is found by searching the banks connected through shared floors.
+     *
+     * @param origin      The floor where the passenger is
+     * @param destination The floor where the passenger finally want to go
+     * @return The target floor of the next leg, the destination itself if it can be reached directly
+     */
+    public Floor planNextLeg(Floor origin, Floor destination) {
+        int from = origin.getFloorLevel();
+        int to = destination.getFloorLevel();
+
+        // most trips are served by one bank, found without creating the search
+        for (int i = 0; i < banks.size(); i++)
+            if (banks.get(i).isServing(from) && banks.get(i).isServing(to))
+                return destination;
+
+        // breadth first search over banks, remember which bank each bank is reached from
+        Map<Bank, Bank> previous = new HashMap<>();
+        Deque<Bank> frontier = new ArrayDeque<>();
+        for (Bank bank : banks) {
+            if (bank.isServing(from)) {
+                previous.put(bank, bank);
+                frontier.add(bank);
+            }
+        }
+
+        while (!frontier.isEmpty()) {
+            Bank bank = frontier.poll();
+
+            if (bank.isServing(to)) {
+                // walk back to the first bank, the bank reached from it is the next one to take
+                Bank second = null;
+                Bank first = bank;
+                while (previous.get(first) != first) {
+                    second = first;
+                    first = previous.get(first);
+                }
+
+                if (second == null)
+                    return destination;
+
+                return getTransferFloor(first, second, from, to, destination);
+            }
+
+            for (Bank next : banks) {
+                if (!previous.containsKey(next) && bank.isConnectedTo(next)) {
+                    previous.put(next, bank);
+                    frontier.add(next);
+                }
+            }
+        }
+
+        log(LogTemplate.EMS_NO_ROUTE, from, to);
+        return destination;
+    }
+
     /**
      * Add task to the system.
      *
      * @param floor The floor which is a task
      */
     public void addTask(Floor floor) {
-        tasks.add(floor);
+        if (!tasks.contains(floor))
+            tasks.add(floor);
+    }
+
+    /**
+     * Learn from a hall call pushed by a passenger, it will be used to predict the demand.
+     *
+     * @param floor     The floor which the call comes from
+     * @param direction The direction the passenger want to go
+     */
+    public void recordHallCall(Floor floor, int direction) {
+        SimulationClock clock = building.getClock();
+        demandPredictor.record(floor.getFloorLevel(), direction, clock.currentTimeMillis(), clock.timeOfDayMillis());
+    }
+
+    /**
+     * Note the time a passenger starts to wait, a transfer keeps the time of the first call.
+     *
+     * @param person The passenger who pushed the button
+     */
+    public void recordRequest(Passenger person) {
+        if (person.getRequestTime() < 0)
+            person.setRequestTime(building.getClock().currentTimeMillis());
+    }
+
+    /**
+     * Record the waiting and journey time of a passenger arrived at the destination.
+     *
+     * @param person The arrived passenger
+     */
+    public void recordTrip(Passenger person) {
+        long now = building.getClock().currentTimeMillis();
+        tripMetrics.recordTrip(person.getBoardTime() - person.getRequestTime(), now - person.getRequestTime());
+        degradedModeMetrics.recordTrip(person.getRequestTime(), person.getBoardTime() - person.getRequestTime());
+        trafficAnalytics.recordArrival(person.getOriginFloor().getFloorLevel(),
+                person.getDestinationFloor().getFloorLevel(), now);
+
+        if (resultExporter != null)
+            resultExporter.recordPassenger(exportNumber, person, now);
+    }
+
+    /**
+     * Record a passenger delivered at the target of a leg, counted for the bank of the car it took.
+     *
+     * @param person The delivered passenger
+     */
+    public void recordDelivery(Passenger person) {
+        degradedModeMetrics.recordDelivery();
+        for (int i = 0; i < elevators.size(); i++) {
+            Elevator elevator = elevators.get(i);
+            if (elevator.getNumber() == person.getCarNumber()) {
+                int bank = banks.indexOf(elevator.getBank());
+                trafficAnalytics.recordDelivery(Math.max(bank, 0), building.getClock().currentTimeMillis());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record a run of an elevator, from leaving idle until it has no task left.
+     *
+     * @param elevator   The elevator
+     * @param startFloor The floor the run started from
+     * @param startTime  The time the run started
+     * @param endTime    The time the run ended
+     * @param stops      The number of stops with the door opened
+     * @param boarded    The number of passengers got on board
+     * @param maxLoad    The most passengers on board at once
+     */
+    public void recordCarTrip(Elevator elevator, Floor startFloor, long startTime, long endTime,
+                              int stops, int boarded, int maxLoad) {
+        if (resultExporter != null)
+            resultExporter.recordCarTrip(exportNumber, elevator.getNumber(), startFloor.getFloorLevel(),
+                    elevator.getCurrFloor().getFloorLevel(), startTime, endTime, stops, boarded, maxLoad);
+    }
+
+    /**
+     * Predict how many hall calls will arrive at given floor in the next seconds.
+     *
+     * @param floorLevel The level of the floor
+     * @param seconds    The horizon of the prediction in second
+     * @return The expected number of calls of both directions
+     */
+    public double getPredictedArrivals(int floorLevel, int seconds) {
+        SimulationClock clock = building.getClock();
+        return demandPredictor.predict(floorLevel, seconds, clock.currentTimeMillis(), clock.timeOfDayMillis());
+    }
+
+    /**
+     * Predict how many hall calls will arrive at given floor and direction in the next seconds.
+     *
+     * @param floorLevel The level of the floor
+     * @param direction  The direction of the calls
+     * @param seconds    The horizon of the prediction in second
+     * @return The expected number of calls
+     */
+    public double getPredictedArrivals(int floorLevel, int direction, int seconds) {
+        SimulationClock clock = building.getClock();
+        return demandPredictor.predict(floorLevel, direction, seconds, clock.currentTimeMillis(), clock.timeOfDayMillis());
+    }
+
+    /**
+     * Ask the parking policy where the idle elevator should wait for the next call.
+     *
+     * @param elevator The idle elevator
+     * @return The parking floor, or null to stay at current floor
+     */
+    public Floor getParkingFloor(Elevator elevator) {
+        if (parkingPolicy == null)
+            return null;
+
+        try {
+            return parkingPolicy.selectParkingFloor(elevator, this, building);
+        } catch (Exception e) {
+            log("EMS: 无法为" + elevator.getNumber() + "号电梯选择待命楼层, " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Set the policy which decides where idle elevators wait, null to let them stay where they are.
+     *
+     * @param parkingPolicy The parking policy
+     */
+    public void setParkingPolicy(ParkingPolicy parkingPolicy) {
+        this.parkingPolicy = parkingPolicy;
+    }
+
+    /**
+     * Set the strategy which decides which elevator answers a hall call.
+     *
+     * @param dispatchStrategy The dispatch strategy
+     */
+    public void setDispatchStrategy(DispatchStrategy dispatchStrategy) {
+        this.dispatchStrategy = dispatchStrategy;
+    }
+
+    /**
+     * Export the passengers and the runs of the elevators of this building.
+     *
+     * @param resultExporter The exporter, may be shared by many buildings
+     * @param exportNumber   The number of this building in the exported rows
+     */
+    public void setResultExporter(ResultExporter resultExporter, int exportNumber) {
+        this.resultExporter = resultExporter;
+        this.exportNumber = exportNumber;
     }
 
     /**
@@ -102,12 +536,11 @@ public class ElevatorManagerSystem implements Runnable {
      */
     public void turnOff() {
         log("EMS: 准备关机中");
+        isShuttingDown = true;
 
-        // notify all elevators to shutting down
+        // notify all elevators to shutting down, they turn off after arriving at the ground floor
         for (Elevator elevator : elevators)
             elevator.turnOff();
-
-        log("EMS: 所有电梯已经成功关闭, 主系统准备Shutdown....");
     }
 
     /**
@@ -116,9 +549,19 @@ public class ElevatorManagerSystem implements Runnable {
      * @param elevator The elevator which request for emergency
      */
     public void requestForEmergency(Elevator elevator) {
-        log(String.format("EMS: %d号电梯在%d层请求支援!!",
-                elevator.getNumber(),
-                elevator.getCurrFloor().getFloorLevel()));
+        degradedModeMetrics.recordFailure(elevator.getFault(), building.getClock().currentTimeMillis());
+        log(LogTemplate.EMS_EMERGENCY, elevator.getNumber(), elevator.getCurrFloor().getFloorLevel(),
+                degradedModeMetrics.getCarsDown());
+    }
+
+    /**
+     * Record an elevator back in service after being repaired.
+     *
+     * @param elevator The repaired elevator
+     */
+    public void recordRepair(Elevator elevator) {
+        degradedModeMetrics.recordRepair(building.getClock().currentTimeMillis());
+        log(LogTemplate.EMS_REPAIRED, elevator.getNumber(), degradedModeMetrics.getCarsDown());
     }
 
 
@@ -134,52 +577,246 @@ public class ElevatorManagerSystem implements Runnable {
     }
 
     /**
-     * Search for the most eligible elevator then assign the task to it.
+     * Record a message of a template, nothing is created unless the message is rendered as text.
+     *
+     * @param template The template
+     * @param a        The first number
+     * @param b        The second number
+     */
+    private void log(LogTemplate template, int a, int b) {
+        LogRecorder recorder = LogRecorder.getInstance();
+        if (recorder.isEnabled(template))
+            recorder.record(template, building.getClock().currentTimeMillis(), a, b);
+    }
+
+    private void log(LogTemplate template, int a, int b, int c) {
+        LogRecorder recorder = LogRecorder.getInstance();
+        if (recorder.isEnabled(template))
+            recorder.record(template, building.getClock().currentTimeMillis(), a, b, c);
+    }
+
+    /**
+     * Search for the most eligible elevator in every bank needed by the waiting passengers,
+     * then assign the task to it. Banks not serving this floor are not scored at all.
      *
      * @param targetFloor The floor which request for service
      */
     private void searchElevatorAndAssignTask(Floor targetFloor) {
-        // buffer elevator list
-        int[] info = new int[elevators.size()];
+        long start = System.nanoTime();
+        DispatchEvent event = DispatchEvent.beginIfEnabled();
 
-        // find the elevator which has the lowest workload
-        for (int i = 0; i < elevators.size(); i++) {
-            // skip the malfunction elevator
-            if (elevators.get(i).getOperationSignal() != 1) {
+        boolean isPending = false;
+        int assigned = 0;
+
+        for (Bank bank : banks) {
+            if (!bank.isServing(targetFloor.getFloorLevel()) || !targetFloor.isWaitingFor(bank))
                 continue;
-            }
 
-            // the elevator has the lowest workload
-            int currWorkLoad = elevators.get(i).getWorkLoad(targetFloor);
-            if (i == 0) {
-                info[0] = i;
-                info[1] = currWorkLoad;
-            } else if (currWorkLoad < info[1]) {
-                info[0] = i;
-                info[1] = currWorkLoad;
+            Elevator selected = searchElevator(bank, targetFloor);
+
+            if (selected == null) {
+                isPending = true;
+            } else {
+                // send task to selected elevator
+                selected.addTask(targetFloor);
+                assigned++;
             }
         }
 
-        // send task to selected elevator
-        elevators.get(info[0]).addTask(targetFloor);
+        // no elevator is able to serve now, try again later
+        if (isPending)
+            addTask(targetFloor);
+        dispatchMetrics.recordDispatch(System.nanoTime() - start, isPending);
+
+        if (event != null && event.shouldCommit()) {
+            event.floor = targetFloor.getFloorLevel();
+            event.assigned = assigned;
+            event.isPending = isPending;
+            event.strategy = dispatchStrategy.getClass().getSimpleName();
+            event.commit();
+        }
     }
 
     /**
-     * Start execute task waiting in this system.
-     * Allocate task to the most suitable elevator.
+     * Search for the most eligible elevator in a bank, selected by the dispatch strategy.
+     *
+     * @param bank        The bank serving the floor
+     * @param targetFloor The floor which request for service
+     * @return The most eligible elevator, or null if no elevator is able to serve now
      */
-    private void standby() {
-        while (true) {
-            // Thread sleep control
-            try {
-                Thread.sleep(DELAY);
-            } catch (Exception e) {
-                log("EMS: Standby()线程休眠失败");
+    private Elevator searchElevator(Bank bank, Floor targetFloor) {
+        List<Elevator> candidates = new ArrayList<>();
+
+        for (Elevator elevator : bank.getElevators()) {
+            // skip the malfunction elevator, the full one which would only bypass the floor,
+            // and the one which cannot take anyone waiting, e.g. out of reach in its shared shaft
+            if (elevator.getOperationSignal() != Elevator.RUNNING || elevator.isShuttingDown() || elevator.isFull()
+                    || !targetFloor.isWaitingFor(elevator)) {
+                continue;
             }
+            candidates.add(elevator);
+        }
+
+        if (candidates.isEmpty())
+            return null;
+        return dispatchStrategy.selectElevator(candidates, targetFloor, this);
+    }
+
+    /**
+     * Add an elevator to this system and its bank.
+     *
+     * @param bank     The bank of the elevator
+     * @param elevator The elevator
+     */
+    void addElevator(Bank bank, Elevator elevator) {
+        elevators.add(elevator);
+        bank.addElevator(elevator);
+    }
+
+    /**
+     * Get the highest floor of a bank, used as the start floor of the upper car in a twin shaft.
+     *
+     * @param bank     The bank
+     * @param elevator The upper car
+     * @return The highest served floor, or current floor of the car if the bank serves nothing
+     */
+    private Floor getHighestServedFloor(Bank bank, Elevator elevator) {
+        for (int index = building.getNumOfFloors() - 1; index >= 0; index--) {
+            Floor floor = building.getFloorByIndex(index);
+            if (bank.isServing(floor.getFloorLevel()))
+                return floor;
+        }
+        return elevator.getCurrFloor();
+    }
 
-            // find the most eligible elevator then assign the task to it
-            if (tasks.size() != 0)
-                searchElevatorAndAssignTask(tasks.poll());
+    /**
+     * Find the transfer floor between two banks which makes the shortest detour.
+     *
+     * @param first       The bank which the passenger takes now
+     * @param second      The bank which the passenger transfers to
+     * @param from        The level of origin
+     * @param to          The level of destination
+     * @param destination The destination, used if no transfer floor is found
+     * @return The transfer floor
+     */
+    private Floor getTransferFloor(Bank first, Bank second, int from, int to, Floor destination) {
+        int bestLevel = 0;
+
+        for (int level = building.getLowestLevel(); level <= building.getHighestLevel(); level++) {
+            if (level == 0 || level == from || !first.isServing(level) || !second.isServing(level))
+                continue;
+
+            if (bestLevel == 0 || Math.abs(from - level) + Math.abs(level - to) <
+                    Math.abs(from - bestLevel) + Math.abs(bestLevel - to))
+                bestLevel = level;
+        }
+
+        try {
+            return bestLevel == 0 ? destination : building.getSpecifiedFloor(bestLevel);
+        } catch (Exception e) {
+            return destination;
+        }
+    }
+
+    /**
+     * Let the parked elevators choose their parking floors again, following the latest prediction.
+     */
+    private void reconsiderParking() {
+        for (Elevator elevator : elevators)
+            elevator.releaseParking();
+    }
+
+
+    /* =================================== Checkpoint ============================================================== */
+
+    /**
+     * Set the scheduler of a restored system without starting anything, so a repaired elevator is resumed by it.
+     *
+     * @param executor The scheduler runs the restored simulation
+     */
+    void setExecutor(SimulationScheduler executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Add an empty bank serving no floor, used to rebuild the banks from a checkpoint.
+     *
+     * @param name The name of the bank
+     * @return The bank
+     */
+    Bank addBank(String name) {
+        Bank bank = new Bank(name, building.getLowestLevel(), building.getHighestLevel());
+        banks.add(bank);
+        return bank;
+    }
+
+    /**
+     * Write the pending calls, the learned demand and the statistics into a checkpoint.
+     * The dispatch strategy and parking policy are written by their class, followed by their parameters.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    void writeState(DataOutput out) throws IOException {
+        List<Floor> pending = new ArrayList<>(tasks);
+        out.writeInt(pending.size());
+        for (Floor floor : pending)
+            SimulationCheckpoint.writeFloor(out, floor);
+
+        out.writeLong(lastParking);
+        out.writeBoolean(isShuttingDown);
+        demandPredictor.writeState(out);
+        tripMetrics.writeState(out);
+        trafficAnalytics.writeState(out);
+        degradedModeMetrics.writeState(out);
+
+        out.writeUTF(dispatchStrategy.getClass().getName());
+        if (dispatchStrategy instanceof LookaheadDispatchStrategy)
+            ((LookaheadDispatchStrategy) dispatchStrategy).writeState(out);
+        out.writeUTF(parkingPolicy == null ? "" : parkingPolicy.getClass().getName());
+        if (parkingPolicy instanceof LobbyParkingPolicy)
+            ((LobbyParkingPolicy) parkingPolicy).writeState(out);
+    }
+
+    /**
+     * Read the pending calls, the learned demand and the statistics from a checkpoint.
+     * The dispatch strategy and parking policy are created again by their default constructor and given their
+     * parameters, the rollouts of a lookahead strategy run on the common pool.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    void readState(DataInput in) throws IOException {
+        tasks.clear();
+        for (int i = in.readInt(); i > 0; i--)
+            tasks.add(SimulationCheckpoint.readFloor(in, building));
+
+        lastParking = in.readLong();
+        isShuttingDown = in.readBoolean();
+        demandPredictor.readState(in);
+        tripMetrics.readState(in);
+        trafficAnalytics.readState(in);
+        degradedModeMetrics.readState(in);
+
+        dispatchStrategy = (DispatchStrategy) newInstance(in.readUTF());
+        if (dispatchStrategy instanceof LookaheadDispatchStrategy)
+            ((LookaheadDispatchStrategy) dispatchStrategy).readState(in);
+
+        String policyName = in.readUTF();
+        parkingPolicy = policyName.isEmpty() ? null : (ParkingPolicy) newInstance(policyName);
+        if (parkingPolicy instanceof LobbyParkingPolicy)
+            ((LobbyParkingPolicy) parkingPolicy).readState(in);
+    }
+
+    /**
+     * Create a strategy or policy of a checkpoint by its default constructor, then its parameters are read.
+     * A class which cannot be constructed so is rejected rather than restored with other parameters.
+     */
+    private static Object newInstance(String className) throws IOException {
+        try {
+            return Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Cannot restore " + className + " without a default constructor", e);
         }
     }
 }
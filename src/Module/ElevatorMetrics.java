@@ -0,0 +1,227 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ElevatorMetrics collects the stop and door cycle statistics of one elevator,
+ * and keeps where the elevator is, where it is heading and how many passengers are on board.
+ * It is written by the elevator thread and can be read by any other thread at any time.
+ *
+ * @author EJWang
+ */
+public class ElevatorMetrics {
+
+    // the number of stops the elevator has docked
+    private AtomicLong stops;
+
+    // the time spent on opening, holding and closing the door in millisecond
+    private AtomicLong doorTime;
+    private AtomicLong dwellTime;
+
+    // the number of passengers moved through the door
+    private AtomicLong alighted;
+    private AtomicLong boarded;
+
+    // the number of times the door re-opened for late arrivals
+    private AtomicLong reopens;
+
+    // the floor level the elevator is at, and the passengers on board after the last stop
+    private AtomicInteger position;
+    private AtomicInteger load;
+
+    // published after every step of the elevator, a reader may see them one step apart
+    private AtomicInteger direction;
+    private AtomicInteger operationSignal;
+    private AtomicInteger doorOpen;         // 1 while the door is not fully closed
+
+    /**
+     * Construct an ElevatorMetrics.
+     */
+    public ElevatorMetrics() {
+        stops = new AtomicLong();
+        doorTime = new AtomicLong();
+        dwellTime = new AtomicLong();
+        alighted = new AtomicLong();
+        boarded = new AtomicLong();
+        reopens = new AtomicLong();
+        position = new AtomicInteger();
+        load = new AtomicInteger();
+        direction = new AtomicInteger();
+        operationSignal = new AtomicInteger();
+        doorOpen = new AtomicInteger();
+    }
+
+    /**
+     * Record the elevator has docked at a floor.
+     */
+    public void recordStop() {
+        stops.incrementAndGet();
+    }
+
+    /**
+     * Record the time spent on moving the door.
+     *
+     * @param millis The time in millisecond
+     */
+    public void recordDoorTime(long millis) {
+        doorTime.addAndGet(millis);
+    }
+
+    /**
+     * Record the door is held open while passengers walk through it.
+     *
+     * @param millis       The dwell time in millisecond
+     * @param numAlighted  The number of passengers walked out
+     * @param numBoarded   The number of passengers walked in
+     */
+    public void recordDwell(long millis, int numAlighted, int numBoarded) {
+        dwellTime.addAndGet(millis);
+        doorTime.addAndGet(millis);
+        alighted.addAndGet(numAlighted);
+        boarded.addAndGet(numBoarded);
+    }
+
+    /**
+     * Record the door is re-opened for a late arrival.
+     *
+     * @param millis The time spent on reversing the door in millisecond
+     */
+    public void recordReopen(long millis) {
+        reopens.incrementAndGet();
+        doorTime.addAndGet(millis);
+    }
+
+    /**
+     * Record the elevator has arrived at a floor.
+     *
+     * @param floorLevel The level of the floor
+     */
+    public void recordPosition(int floorLevel) {
+        position.set(floorLevel);
+    }
+
+    /**
+     * Record the passengers on board once they have walked through the door.
+     *
+     * @param passengers The number of passengers on board
+     */
+    public void recordLoad(int passengers) {
+        load.set(passengers);
+    }
+
+    /**
+     * Publish the status of the elevator after a step. The lazy sets never stall the elevator thread,
+     * the readers such as a dashboard see them a moment later.
+     *
+     * @param direction       The direction of the elevator
+     * @param operationSignal The operation signal of the elevator
+     * @param isDoorOpen      true if the door is not fully closed
+     */
+    public void recordStatus(int direction, int operationSignal, boolean isDoorOpen) {
+        this.direction.lazySet(direction);
+        this.operationSignal.lazySet(operationSignal);
+        this.doorOpen.lazySet(isDoorOpen ? 1 : 0);
+    }
+
+    /**
+     * Get the average door time of each stop.
+     *
+     * @return The average door time in millisecond, or 0 if never stopped
+     */
+    public long getAverageDoorTimePerStop() {
+        long numOfStops = getStops();
+        return numOfStops == 0 ? 0 : getDoorTime() / numOfStops;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("停靠%d次, 开关门共%dms(平均每次%dms, 其中停留%dms), 下客%d人, 上客%d人, 重新开门%d次",
+                getStops(),
+                getDoorTime(),
+                getAverageDoorTimePerStop(),
+                getDwellTime(),
+                getAlighted(),
+                getBoarded(),
+                getReopens());
+    }
+
+    /* =================================== Getters ================================================================= */
+
+    public long getStops() {
+        return stops.get();
+    }
+
+    public long getDoorTime() {
+        return doorTime.get();
+    }
+
+    public long getDwellTime() {
+        return dwellTime.get();
+    }
+
+    public long getAlighted() {
+        return alighted.get();
+    }
+
+    public long getBoarded() {
+        return boarded.get();
+    }
+
+    public long getReopens() {
+        return reopens.get();
+    }
+
+    public int getPosition() {
+        return position.get();
+    }
+
+    public int getLoad() {
+        return load.get();
+    }
+
+    public int getDirection() {
+        return direction.get();
+    }
+
+    public int getOperationSignal() {
+        return operationSignal.get();
+    }
+
+    public boolean isDoorOpen() {
+        return doorOpen.get() != 0;
+    }
+
+    /**
+     * Write the statistics into a checkpoint.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(getStops());
+        out.writeLong(getDoorTime());
+        out.writeLong(getDwellTime());
+        out.writeLong(getAlighted());
+        out.writeLong(getBoarded());
+        out.writeLong(getReopens());
+    }
+
+    /**
+     * Read the statistics from a checkpoint.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    void readState(DataInput in) throws IOException {
+        stops.set(in.readLong());
+        doorTime.set(in.readLong());
+        dwellTime.set(in.readLong());
+        alighted.set(in.readLong());
+        boarded.set(in.readLong());
+        reopens.set(in.readLong());
+    }
+}
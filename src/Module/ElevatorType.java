@@ -0,0 +1,17 @@
+package Module;
+
+/**
+ * The type of elevator cars installed in a bank.
+ *
+ * @author EJWang
+ */
+public enum ElevatorType {
+    // one single-deck car per shaft
+    SINGLE_DECK,
+
+    // one car per shaft with two decks serving two adjacent floors per stop
+    DOUBLE_DECK,
+
+    // two independent single-deck cars sharing one shaft
+    TWIN
+}
@@ -11,16 +11,22 @@ import java.util.Random;
  *
  * @author EJWang
  */
-public class EventGenerator implements Runnable {
+public class EventGenerator implements Runnable, SimulationActor {
     /* ---- Running configuration ---- */
     private static final int NUMBER_OF_EVENTS = 5;
     private static final int MAX_TIME = 500;
     private static final int MIN_TIME = 500;
+    private static final int DELAY = 100;
 
     private static final String LOG_FILENAME = "event_log.txt";
     private static final boolean LOG_VERBOSE = true;
 
     private Building building;
+    private Random random;
+
+    // the number of generated events, and whether the EMS has been asked to turn off
+    private int times;
+    private boolean isTurningOff;
 
     /* =================================== Constructor Methods ===================================================== */
 
@@ -31,6 +37,7 @@ public class EventGenerator implements Runnable {
      */
     public EventGenerator(Building building) {
         this.building = building;
+        random = new Random();
     }
 
     /* =================================== Private Methods ======================================================== */
@@ -44,78 +51,97 @@ public class EventGenerator implements Runnable {
         LogRecorder.getInstance().recordLog(LOG_FILENAME, msg, LOG_VERBOSE);
     }
 
-    /* =================================== Override Methods ======================================================== */
-
     /**
-     * This method will be invoked by start().
+     * Randomly generate a passenger and let him/her push the button of the floor.
      */
-    @Override
-    public void run() {
+    private void generateEvent() {
         int currLevel;
         int targetLevel;
         int weight;
 
         int high = building.getHighestLevel();
         int low = building.getLowestLevel();
-        int times = 0;
-        while (times < NUMBER_OF_EVENTS) {
+
+        try {
+            do {
+                currLevel = random.nextInt(high - low) + low;
+                targetLevel = random.nextInt(high - low) + low;
+                weight = random.nextInt(80) + 50;
+            } while (targetLevel == currLevel || targetLevel == 0 || currLevel == 0);
+
+            // generate current floor and target floor of this event
+            Floor currFloor = building.getSpecifiedFloor(currLevel);
+            Floor targetFloor = building.getSpecifiedFloor(targetLevel);
+            Passenger person = new Passenger(currFloor, targetFloor, weight);
+
+            // Record event
+            LogRecorder recorder = LogRecorder.getInstance();
+            if (recorder.isEnabled(LogTemplate.PASSENGER_CALL))
+                recorder.record(LogTemplate.PASSENGER_CALL, building.getClock().currentTimeMillis(),
+                        currLevel, targetLevel, weight);
+
+            // this will add person to the waiting queue
+            currFloor.pushButton(person);
+
+        } catch (FloorDoesNotExistException f) {
+            log("事件: " + f.getMessage());
+        }
+    }
+
+    /**
+     * Check whether every elevator has finished its tasks.
+     *
+     * @return true if no elevator has task
+     */
+    private boolean isAllTasksDone() {
+        for (Elevator elevator : building.getEMS().getAllElevators())
+            if (elevator.getTasks().size() != 0)
+                return false;
+
+        return true;
+    }
+
+    /* =================================== Override Methods ======================================================== */
+
+    /**
+     * This method will be invoked by start().
+     */
+    @Override
+    public void run() {
+        SimulationExecutor.runUntilStopped(this, building.getClock());
+    }
+
+    /**
+     * Generate the next event, or turn off the EMS after all events have been served.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step, or STOP once the experiment is done
+     */
+    @Override
+    public long step(long now) {
+        if (times < NUMBER_OF_EVENTS) {
             times++;
-            try {
-                Random random = new Random();
-
-                do {
-                    currLevel = random.nextInt(high - low) + low;
-                    targetLevel = random.nextInt(high - low) + low;
-                    weight = random.nextInt(80) + 50;
-                } while (targetLevel == currLevel || targetLevel == 0 || currLevel == 0);
-
-                // generate current floor and target floor of this event
-                Floor currFloor = building.getSpecifiedFloor(currLevel);
-                Floor targetFloor = building.getSpecifiedFloor(targetLevel);
-                Passenger person = new Passenger(currFloor, targetFloor, weight);
-
-                // Record event
-                log(String.format("事件: 在%d层有乘客准备前往%d层, 他/她的体重为: %dkg", currLevel, targetLevel, weight));
-
-                // this will add person to the waiting queue
-                currFloor.pushButton(person);
-
-                // time interval of generate event
-                Thread.sleep(random.nextInt(MAX_TIME) + MIN_TIME);
-
-            } catch (InterruptedException i) {
-                log("事件: " + i.getMessage());
-                break;
-            } catch (FloorDoesNotExistException f) {
-                log("事件: " + f.getMessage());
-            }
+            generateEvent();
+
+            // time interval of generate event
+            return now + random.nextInt(MAX_TIME) + MIN_TIME;
         }
-        while (true) {
-            int i = 0;
-            for (Elevator elevator : building.getEMS().getAllElevators()) {
-                if (elevator.getTasks().size() == 0)
-                    i++;
-            }
-            if (i == 4) {
+
+        if (!isTurningOff) {
+            if (isAllTasksDone()) {
                 building.getEMS().turnOff();
-                while (true) {
-                    int j = 0;
-                    for (Elevator elevator : building.getEMS().getAllElevators()) {
-                        try {
-                            if (elevator.getCurrFloor() == building.getSpecifiedFloor(1)) {
-                                j++;
-                            }
-                        } catch (Exception e) {
-
-                        }
-                    }
-                    if (j == 4) {
-                        log("所有的模拟运算已经完成!");
-                        System.exit(0);
-                    }
-                }
+                isTurningOff = true;
             }
+            return now + DELAY;
+        }
+
+        if (building.getEMS().isAllTurnedOff()) {
+            log("所有的模拟运算已经完成!");
+            System.exit(0);
+            return STOP;
         }
+
+        return now + DELAY;
     }
 
 }
@@ -0,0 +1,17 @@
+package Module;
+
+/**
+ * The way simulation actors are run by the SimulationExecutor.
+ *
+ * @author EJWang
+ */
+public enum ExecutionMode {
+    // one platform thread for each actor, sleeping between steps
+    PLATFORM_THREADS,
+
+    // one virtual thread for each actor, falls back to CARRIER_POOL if the JVM has no virtual thread
+    VIRTUAL_THREADS,
+
+    // all actors share a small pool of carrier threads, each step is scheduled at its time
+    CARRIER_POOL
+}
@@ -0,0 +1,215 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The FaultInjector breaks elevators down at random and repairs them again, so the simulation shows how the
+ * service degrades while some cars are out of service.
+ * <p>
+ * Every fault model of a car fails after an exponential time with the mean time between failures, counted while
+ * the car is in service. A failed car is repaired after an exponential time with the mean time to repair of the
+ * fault, then it returns to service by itself. Like the traffic generators it never stops the simulation.
+ *
+ * @author EJWang
+ */
+public class FaultInjector implements SimulationActor {
+
+    private static final long CHECK_INTERVAL = 1000;    // millisecond
+
+    private Random random;
+    private List<Model> models;
+
+    /**
+     * Construct a FaultInjector without any fault model.
+     *
+     * @param random The random source, seeded to repeat the same failures
+     */
+    public FaultInjector(Random random) {
+        this.random = random;
+        this.models = new ArrayList<>();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Let an elevator fail by a kind of fault.
+     *
+     * @param elevator                The elevator
+     * @param type                    The kind of fault
+     * @param meanTimeBetweenFailures The mean time in service between two failures in millisecond
+     * @param meanTimeToRepair        The mean time to repair in millisecond
+     */
+    public void addFaultModel(Elevator elevator, FaultType type, long meanTimeBetweenFailures, long meanTimeToRepair) {
+        if (meanTimeBetweenFailures <= 0 || meanTimeToRepair <= 0)
+            throw new IllegalArgumentException("Invalid fault model of elevator #" + elevator.getNumber());
+        models.add(new Model(elevator, type, meanTimeBetweenFailures, meanTimeToRepair));
+    }
+
+    /**
+     * Let every elevator of a bank fail by a kind of fault.
+     *
+     * @param bank                    The bank
+     * @param type                    The kind of fault
+     * @param meanTimeBetweenFailures The mean time in service between two failures in millisecond
+     * @param meanTimeToRepair        The mean time to repair in millisecond
+     */
+    public void addFaultModel(Bank bank, FaultType type, long meanTimeBetweenFailures, long meanTimeToRepair) {
+        for (Elevator elevator : bank.getElevators())
+            addFaultModel(elevator, type, meanTimeBetweenFailures, meanTimeToRepair);
+    }
+
+    public int getNumOfModels() {
+        return models.size();
+    }
+
+    /**
+     * Break the cars whose failure is due, and repair the failed cars whose repair is done.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next check
+     */
+    @Override
+    public long step(long now) {
+        for (Model model : models) {
+            Elevator elevator = model.elevator;
+
+            if (elevator.isFailed()) {
+                // the model which took the car down repairs it, a car failed otherwise is repaired by another model
+                if (model.repairAt < 0 && isCause(model, elevator))
+                    model.repairAt = now + draw(model.meanTimeToRepair);
+
+                if (model.repairAt >= 0 && now >= model.repairAt) {
+                    elevator.repair();
+                    model.repairAt = -1;
+                }
+
+                // the time in service starts again once repaired
+                model.failAt = -1;
+                continue;
+            }
+
+            // turned off, the running time does not count
+            if (elevator.getOperationSignal() != Elevator.RUNNING) {
+                model.failAt = -1;
+                continue;
+            }
+
+            if (model.failAt < 0)
+                model.failAt = now + draw(model.meanTimeBetweenFailures);
+            else if (now >= model.failAt) {
+                elevator.injectFault(model.type);
+                model.failAt = -1;
+            }
+        }
+
+        return now + CHECK_INTERVAL;
+    }
+
+    /* =================================== Checkpoint ============================================================== */
+
+    /**
+     * Write the fault models, their pending failures and repairs, and the random state into a checkpoint.
+     *
+     * @param out       The output of the checkpoint
+     * @param buildings The buildings of the checkpoint, every faulty elevator must be in one of them
+     * @throws IOException if failed to write
+     */
+    void writeState(DataOutput out, List<Building> buildings) throws IOException {
+        SimulationCheckpoint.writeRandom(out, random);
+
+        out.writeInt(models.size());
+        for (Model model : models) {
+            int buildingIndex = -1;
+            int elevatorIndex = -1;
+            for (int i = 0; i < buildings.size() && elevatorIndex < 0; i++) {
+                buildingIndex = i;
+                elevatorIndex = buildings.get(i).getEMS().getAllElevators().indexOf(model.elevator);
+            }
+            if (elevatorIndex < 0)
+                throw new IOException("Cannot save fault model of elevator #" + model.elevator.getNumber());
+
+            out.writeInt(buildingIndex);
+            out.writeInt(elevatorIndex);
+            out.writeByte(model.type.ordinal());
+            out.writeLong(model.meanTimeBetweenFailures);
+            out.writeLong(model.meanTimeToRepair);
+            out.writeLong(model.failAt);
+            out.writeLong(model.repairAt);
+        }
+    }
+
+    /**
+     * Read the fault models and the random state from a checkpoint.
+     *
+     * @param in        The input of the checkpoint
+     * @param buildings The restored buildings
+     * @throws IOException if failed to read
+     */
+    void readState(DataInput in, List<Building> buildings) throws IOException {
+        random = SimulationCheckpoint.readRandom(in);
+
+        models.clear();
+        for (int i = in.readInt(); i > 0; i--) {
+            Building building = buildings.get(in.readInt());
+            Elevator elevator = building.getEMS().getAllElevators().get(in.readInt());
+            Model model = new Model(elevator, FaultType.values()[in.readByte()], in.readLong(), in.readLong());
+            model.failAt = in.readLong();
+            model.repairAt = in.readLong();
+            models.add(model);
+        }
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Check whether a model repairs its failed car, only one model of the car does. It is the first model of the
+     * fault, a car failed on an error counts as a drive fault, or the first model of the car if none matches.
+     */
+    private boolean isCause(Model model, Elevator elevator) {
+        FaultType fault = (elevator.getFault() == null) ? FaultType.DRIVE : elevator.getFault();
+
+        Model cause = null;
+        for (Model other : models) {
+            if (other.elevator != elevator)
+                continue;
+            if (other.type == fault)
+                return other == model;
+            if (cause == null)
+                cause = other;
+        }
+        return cause == model;
+    }
+
+    /**
+     * Draw an exponential time with the given mean.
+     */
+    private long draw(long mean) {
+        return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * mean));
+    }
+
+    /**
+     * A kind of fault of an elevator, and its pending failure or repair.
+     */
+    private static class Model {
+        private Elevator elevator;
+        private FaultType type;
+        private long meanTimeBetweenFailures;
+        private long meanTimeToRepair;
+        private long failAt;            // -1 if not drawn
+        private long repairAt;          // -1 if not drawn
+
+        private Model(Elevator elevator, FaultType type, long meanTimeBetweenFailures, long meanTimeToRepair) {
+            this.elevator = elevator;
+            this.type = type;
+            this.meanTimeBetweenFailures = meanTimeBetweenFailures;
+            this.meanTimeToRepair = meanTimeToRepair;
+            this.failAt = -1;
+            this.repairAt = -1;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package Module;
+
+/**
+ * The kinds of fault which take a car out of service until it is repaired.
+ *
+ * @author EJWang
+ */
+public enum FaultType {
+    // the car cannot level with the floor, the passengers on board are trapped until it is repaired
+    DOCKING,
+
+    // the door cannot close, the passengers on board walk out and call again
+    DOOR,
+
+    // the drive stops, the car is levelled to the floor it is at and the passengers on board walk out
+    DRIVE
+}
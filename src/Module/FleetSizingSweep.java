@@ -0,0 +1,360 @@
+package Module;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The FleetSizingSweep simulates one tower with many fleet configurations to decide how many cars it needs.
+ * <p>
+ * Every configuration is simulated headless on a virtual clock, and all configurations run in parallel on a
+ * fixed pool of workers. The same seed gives every configuration the same passengers, so the differences
+ * come from the fleet only. The results are reduced to a Pareto front of car count against average and p95 wait.
+ *
+ * @author EJWang
+ */
+public class FleetSizingSweep {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    // the tower to simulate
+    private int lowestLevel;
+    private int highestLevel;
+
+    private long startTime;
+    private long duration;
+    private long seed;
+    private int numOfWorkers;
+
+    /* =================================== Constructor Methods ===================================================== */
+
+    /**
+     * Construct a FleetSizingSweep.
+     *
+     * @param lowestLevel  The lowest level of the tower
+     * @param highestLevel The highest level of the tower
+     * @param startTime    The time of day the simulation starts in millisecond
+     * @param duration     The simulated period of every configuration in millisecond
+     * @param seed         The seed of the passenger traffic
+     * @param numOfWorkers The number of configurations simulated at the same time
+     */
+    public FleetSizingSweep(int lowestLevel, int highestLevel, long startTime, long duration, long seed,
+                            int numOfWorkers) {
+        this.lowestLevel = lowestLevel;
+        this.highestLevel = highestLevel;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.seed = seed;
+        this.numOfWorkers = Math.max(1, numOfWorkers);
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Simulate every configuration.
+     *
+     * @param configurations The configurations, e.g. the cartesian product of the parameter ranges
+     * @return The results in the same order
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @throws ExecutionException   if a simulation failed
+     */
+    public List<Result> sweep(List<Configuration> configurations) throws InterruptedException, ExecutionException {
+        List<Callable<List<Result>>> jobs = new ArrayList<>();
+
+        for (final Configuration configuration : configurations) {
+            jobs.add(new Callable<List<Result>>() {
+                @Override
+                public List<Result> call() throws Exception {
+                    return Collections.singletonList(simulate(configuration));
+                }
+            });
+        }
+        return runAll(jobs);
+    }
+
+    /**
+     * Search the fewest cars keeping the average wait under the target for every configuration,
+     * by bisection over the car count. The car count of the configurations are ignored.
+     * Every probed car count is returned, so the trade-off around the answer is seen too.
+     *
+     * @param configurations The configurations of all other parameters
+     * @param minCars        The fewest cars to try
+     * @param maxCars        The most cars to try
+     * @param targetWait     The target of average wait in millisecond
+     * @return The results of every probe
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @throws ExecutionException   if a simulation failed
+     */
+    public List<Result> search(List<Configuration> configurations, final int minCars, final int maxCars,
+                               final long targetWait) throws InterruptedException, ExecutionException {
+        List<Callable<List<Result>>> jobs = new ArrayList<>();
+
+        for (final Configuration configuration : configurations) {
+            jobs.add(new Callable<List<Result>>() {
+                @Override
+                public List<Result> call() throws Exception {
+                    List<Result> probes = new ArrayList<>();
+                    int low = minCars;
+                    int high = maxCars;
+                    boolean isLowProbed = false;
+
+                    // the wait only gets shorter with more cars, find the first count meeting the target
+                    while (low < high) {
+                        int middle = (low + high) / 2;
+                        Result result = simulate(configuration.withCars(middle));
+                        probes.add(result);
+
+                        if (result.getAverageWait() <= targetWait) {
+                            high = middle;
+                            isLowProbed = (low == middle);
+                        } else {
+                            low = middle + 1;
+                            isLowProbed = false;
+                        }
+                    }
+
+                    if (!isLowProbed)
+                        probes.add(simulate(configuration.withCars(low)));
+                    return probes;
+                }
+            });
+        }
+        return runAll(jobs);
+    }
+
+    /**
+     * Simulate one configuration.
+     *
+     * @param configuration The configuration
+     * @return The waiting time of the passengers
+     * @throws Exception if failed to construct the tower
+     */
+    public Result simulate(Configuration configuration) throws Exception {
+        return simulate(configuration, seed);
+    }
+
+    /**
+     * Simulate one configuration with the passengers of given seed, e.g. one replication of many.
+     *
+     * @param configuration The configuration
+     * @param seed          The seed of the passenger traffic
+     * @return The waiting time of the passengers
+     * @throws Exception if failed to construct the tower
+     */
+    public Result simulate(Configuration configuration, long seed) throws Exception {
+        Building building = new Building(lowestLevel, highestLevel);
+        ElevatorManagerSystem ems = building.getEMS();
+
+        ems.constructElevators(configuration.getCars(), configuration.getWeight(), configuration.getPassengers());
+        for (Elevator elevator : ems.getAllElevators())
+            elevator.setFloorTravelTime(configuration.getFloorTravelTime());
+        ems.setDispatchStrategy(configuration.getStrategy());
+        ems.setParkingPolicy(new DemandWeightedParkingPolicy());
+
+        // the same seed sends the same passengers to every configuration
+        CampusShard shard = new CampusShard(1, startTime);
+        shard.addBuilding(building,
+                new TrafficGenerator(building, new Random(seed), HOUR / configuration.getCallsPerHour()));
+        shard.advanceTo(startTime + duration);
+
+        TripMetrics metrics = ems.getTripMetrics();
+        long trips = metrics.getTrips();
+        return new Result(configuration, trips, trips == 0 ? 0 : metrics.getWaitTime() / trips,
+                metrics.getWaitPercentile(0.95), (double) trips * HOUR / duration);
+    }
+
+    /**
+     * Get the results which no other result beats in car count, average wait and p95 wait at once.
+     * Only results of the same traffic are compared, so each traffic intensity has its own front.
+     *
+     * @param results The results
+     * @return The Pareto front, ordered by traffic, car count then average wait
+     */
+    public static List<Result> getParetoFront(List<Result> results) {
+        List<Result> front = new ArrayList<>();
+
+        for (Result result : results) {
+            boolean isDominated = false;
+            for (Result other : results) {
+                if (other != result && other.dominates(result)) {
+                    isDominated = true;
+                    break;
+                }
+            }
+            if (!isDominated)
+                front.add(result);
+        }
+
+        front.sort(new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                if (a.getConfiguration().getCallsPerHour() != b.getConfiguration().getCallsPerHour())
+                    return Integer.compare(a.getConfiguration().getCallsPerHour(),
+                            b.getConfiguration().getCallsPerHour());
+                if (a.getConfiguration().getCars() != b.getConfiguration().getCars())
+                    return Integer.compare(a.getConfiguration().getCars(), b.getConfiguration().getCars());
+                return Long.compare(a.getAverageWait(), b.getAverageWait());
+            }
+        });
+        return front;
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Run the jobs on the workers and join their results.
+     */
+    private List<Result> runAll(List<Callable<List<Result>>> jobs) throws InterruptedException, ExecutionException {
+        ExecutorService workers = Executors.newFixedThreadPool(numOfWorkers);
+        List<Result> results = new ArrayList<>();
+
+        try {
+            for (Future<List<Result>> future : workers.invokeAll(jobs))
+                results.addAll(future.get());
+        } finally {
+            workers.shutdownNow();
+        }
+        return results;
+    }
+
+    /* =================================== Nested Classes ========================================================== */
+
+    /**
+     * The fleet and traffic of one simulation.
+     */
+    public static class Configuration {
+
+        private int cars;
+        private double weight;
+        private int passengers;
+        private int floorTravelTime;
+        private DispatchStrategy strategy;
+        private int callsPerHour;
+
+        /**
+         * Construct a Configuration.
+         *
+         * @param cars            The number of cars
+         * @param weight          The maximum weight allowance of every car
+         * @param passengers      The maximum passenger capacity of every car
+         * @param floorTravelTime The time to move one floor in millisecond
+         * @param strategy        The dispatch strategy, it must not keep state of a simulation
+         * @param callsPerHour    The number of passengers per hour
+         */
+        public Configuration(int cars, double weight, int passengers, int floorTravelTime,
+                             DispatchStrategy strategy, int callsPerHour) {
+            this.cars = cars;
+            this.weight = weight;
+            this.passengers = passengers;
+            this.floorTravelTime = floorTravelTime;
+            this.strategy = strategy;
+            this.callsPerHour = callsPerHour;
+        }
+
+        /**
+         * Get the same configuration with another number of cars.
+         *
+         * @param cars The number of cars
+         * @return The new configuration
+         */
+        public Configuration withCars(int cars) {
+            return new Configuration(cars, weight, passengers, floorTravelTime, strategy, callsPerHour);
+        }
+
+        public int getCars() {
+            return cars;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        public int getPassengers() {
+            return passengers;
+        }
+
+        public int getFloorTravelTime() {
+            return floorTravelTime;
+        }
+
+        public DispatchStrategy getStrategy() {
+            return strategy;
+        }
+
+        public int getCallsPerHour() {
+            return callsPerHour;
+        }
+    }
+
+    /**
+     * The waiting time of the passengers in one simulation.
+     */
+    public static class Result {
+
+        private Configuration configuration;
+        private long trips;
+        private long averageWait;
+        private long p95Wait;
+        private double handlingCapacity;
+
+        private Result(Configuration configuration, long trips, long averageWait, long p95Wait,
+                       double handlingCapacity) {
+            this.configuration = configuration;
+            this.trips = trips;
+            this.averageWait = averageWait;
+            this.p95Wait = p95Wait;
+            this.handlingCapacity = handlingCapacity;
+        }
+
+        /**
+         * Check whether this result is at least as good as the other in all measures, and better in one.
+         * Results of different traffic are never compared.
+         *
+         * @param other The other result
+         * @return true if this result dominates the other
+         */
+        public boolean dominates(Result other) {
+            if (configuration.getCallsPerHour() != other.configuration.getCallsPerHour())
+                return false;
+
+            int cars = configuration.getCars();
+            int otherCars = other.configuration.getCars();
+
+            boolean isNoWorse = cars <= otherCars && averageWait <= other.averageWait && p95Wait <= other.p95Wait;
+            boolean isBetter = cars < otherCars || averageWait < other.averageWait || p95Wait < other.p95Wait;
+            return isNoWorse && isBetter;
+        }
+
+        public Configuration getConfiguration() {
+            return configuration;
+        }
+
+        public long getTrips() {
+            return trips;
+        }
+
+        public long getAverageWait() {
+            return averageWait;
+        }
+
+        public long getP95Wait() {
+            return p95Wait;
+        }
+
+        /**
+         * Get the number of passengers delivered per hour.
+         *
+         * @return The handling capacity
+         */
+        public double getHandlingCapacity() {
+            return handlingCapacity;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package Module;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A FlightRecording records the elevator events of Java Flight Recorder into a file while it is open,
+ * so the time spent in dispatching, moving, door cycles, boarding and logging can be told apart.
+ * The events cost next to nothing while no recording is running, and they can also be recorded
+ * by any recording started from the command line or jcmd.
+ *
+ * @author EJWang
+ */
+public class FlightRecording implements Closeable {
+
+    private static final Class<?>[] EVENT_TYPES = {
+            DispatchEvent.class, CarMoveEvent.class, DoorEvent.class, BoardingEvent.class, LogEvent.class};
+
+    private Recording recording;
+
+    /**
+     * Start recording the elevator events.
+     *
+     * @param destination The file to write when the recording is closed
+     * @throws IOException if the file cannot be written
+     */
+    public FlightRecording(Path destination) throws IOException {
+        recording = new Recording();
+        recording.setName("elevator");
+        for (Class<?> type : EVENT_TYPES)
+            recording.enable(type.asSubclass(Event.class)).withoutStackTrace();
+        recording.setDestination(destination);
+        recording.start();
+    }
+
+    /**
+     * Stop recording and write the events into the file.
+     */
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+    }
+}
@@ -59,35 +59,194 @@ public class Floor implements Comparable<Floor> {
      *
      * @param person The person whom push the button
      */
-    public void pushButton(Passenger person) {
+    public synchronized void pushButton(Passenger person) {
+        // go to a transfer floor first if no elevator here reaches the destination
+        person.setTargetFloor(ems.planNextLeg(this, person.getDestinationFloor()));
+
         if (person.getTargetDirection() > 0) {
             goingUp.add(person);
         } else {
             goingDown.add(person);
         }
+        ems.recordRequest(person);
+
         // push task to Module.Elevator Manager System
         // the system will automatically handle the request and allocate elevator to pick up the passenger
+        ems.recordHallCall(this, person.getTargetDirection());
         ems.addTask(this);
     }
 
-    public void notifyPassengerOnboard(Elevator elevator) {
+    /**
+     * Let the waiting passengers of the elevator's direction walk in.
+     * Whom cannot fit into the elevator, or whom is going to a floor this elevator does not serve,
+     * stays in the queue for the next elevator.
+     *
+     * @param elevator The elevator which is docking at this floor
+     * @return The number of passengers walked in
+     */
+    public synchronized int notifyPassengerOnboard(Elevator elevator) {
         List<Passenger> queue = (elevator.getDirection() == 1) ? goingUp : goingDown;
+        int boarded = 0;
+
+        // indexed and compacted in place, a stop creates nothing
+        int kept = 0;
+        for (int i = 0; i < queue.size(); i++) {
+            Passenger passenger = queue.get(i);
+
+            // a lighter passenger behind may still fit
+            if (!elevator.canBoard(passenger) || !elevator.hasRoomFor(passenger.getWeight())) {
+                queue.set(kept++, passenger);
+                continue;
+            }
 
-        for (Passenger passenger : queue) {
             passenger.walkIn(elevator);
+            boarded++;
+        }
+        truncate(queue, kept);
+
+        return boarded;
+    }
+
+    /**
+     * Get the weight of the lightest passenger waiting for given direction whom the elevator can take.
+     *
+     * @param elevator  The elevator which is going to stop
+     * @param direction The direction of queue
+     * @return The lightest weight, or -1 if nobody is waiting
+     */
+    public synchronized int getLightestWaitingWeight(Elevator elevator, int direction) {
+        List<Passenger> queue = getQueue(direction);
+        int lightest = -1;
+
+        for (int i = 0; i < queue.size(); i++) {
+            Passenger passenger = queue.get(i);
+            if (elevator.canBoard(passenger) && (lightest < 0 || passenger.getWeight() < lightest))
+                lightest = passenger.getWeight();
+        }
+
+        return lightest;
+    }
+
+    /**
+     * Check whether anyone waiting for given direction can walk into the elevator at its current position.
+     *
+     * @param elevator  The elevator which is going to stop
+     * @param direction The direction of queue
+     * @return true if someone is waiting for this elevator
+     */
+    public synchronized boolean isWaitingFor(Elevator elevator, int direction) {
+        List<Passenger> queue = getQueue(direction);
+        for (int i = 0; i < queue.size(); i++)
+            if (elevator.canBoard(queue.get(i)))
+                return true;
+        return false;
+    }
+
+    /**
+     * Check whether anyone waiting at this floor in either direction can be taken by the elevator.
+     * The elevator must be able to reach this floor at all, e.g. a twin car cannot go below the car under it.
+     *
+     * @param elevator The elevator to check
+     * @return true if someone is waiting for this elevator
+     */
+    public synchronized boolean isWaitingFor(Elevator elevator) {
+        if (!elevator.isServing(floorLevel))
+            return false;
+
+        // the elevator is not here yet, so anyone it can take from this floor counts
+        for (int i = 0; i < goingUp.size(); i++)
+            if (elevator.canCarry(goingUp.get(i)))
+                return true;
+        for (int i = 0; i < goingDown.size(); i++)
+            if (elevator.canCarry(goingDown.get(i)))
+                return true;
+        return false;
+    }
+
+    /**
+     * Check whether anyone waiting at this floor is going to a floor served by the bank, and can be carried
+     * by some car of the bank. A trip no car can make, e.g. from the bottom to the top floor in a double-deck car,
+     * is never dispatched again.
+     *
+     * @param bank The bank to check
+     * @return true if someone is waiting for this bank
+     */
+    public synchronized boolean isWaitingFor(Bank bank) {
+        for (Passenger passenger : goingUp)
+            if (bank.isServing(passenger.getTargetFloor().getFloorLevel()) && isCarriedBy(bank, passenger))
+                return true;
+        for (Passenger passenger : goingDown)
+            if (bank.isServing(passenger.getTargetFloor().getFloorLevel()) && isCarriedBy(bank, passenger))
+                return true;
+        return false;
+    }
+
+    /**
+     * Count the passengers waiting at this floor for the bank by the index of their target floor,
+     * a plain copy of the queues which can be taken while the passengers keep coming.
+     *
+     * @param bank     The bank to count for
+     * @param building The building which maps a level to its index
+     * @param counts   The counts indexed by floor index, added to
+     * @return The number of passengers counted
+     */
+    public synchronized int countWaitingFor(Bank bank, Building building, int[] counts) {
+        int total = 0;
+
+        for (int direction = -1; direction <= 1; direction += 2) {
+            for (Passenger passenger : getQueue(direction)) {
+                int targetLevel = passenger.getTargetFloor().getFloorLevel();
+                if (bank.isServing(targetLevel)) {
+                    counts[building.getFloorIndex(targetLevel)]++;
+                    total++;
+                }
+            }
         }
+        return total;
+    }
+
+    /**
+     * Get the number of passengers waiting for a direction.
+     *
+     * @param direction The direction of queue
+     * @return The number of passengers in the queue
+     */
+    public synchronized int getNumOfWaiting(int direction) {
+        return getQueue(direction).size();
+    }
+
+    /**
+     * Check whether anyone is still waiting at this floor.
+     *
+     * @return true if either queue is not empty
+     */
+    public synchronized boolean hasWaitingPassengers() {
+        return !goingUp.isEmpty() || !goingDown.isEmpty();
+    }
+
+    /**
+     * A passenger has left the elevator at this floor, which is the target of the leg.
+     *
+     * @param person The delivered passenger
+     */
+    public void notifyPassengerDelivered(Passenger person) {
+        ems.recordDelivery(person);
+    }
+
+    /**
+     * A passenger has left the elevator at this floor, which is the destination.
+     *
+     * @param person The arrived passenger
+     */
+    public void notifyPassengerArrived(Passenger person) {
+        ems.recordTrip(person);
     }
 
     /**
      * Request for docking.
-     * This method have 1/10000 probability to throw exception in order to mock real world event.
+     * The floor is always ready, the docking failures are injected into the elevators by a FaultInjector.
      */
     public void requestForDocking() throws DockingFailedException {
-        // use random to mock failed docking
-        int n = new Random().nextInt(10000);
-
-//        if (n == 5000)
-//            throw new DockingFailedException("Failed to docking at floor level " + floorLevel);
     }
 
 
@@ -110,8 +269,28 @@ public class Floor implements Comparable<Floor> {
         if (direction == -1) {
             return goingDown;
         } else {
-            return goingDown;
+            return goingUp;
         }
     }
 
+    /**
+     * Drop the tail of a queue compacted in place, from the end so nothing is shifted.
+     */
+    private static void truncate(List<Passenger> queue, int size) {
+        for (int i = queue.size() - 1; i >= size; i--)
+            queue.remove(i);
+    }
+
+    /**
+     * Check whether any car of a bank can carry a passenger, whatever it is doing now.
+     * A bank without cars yet is assumed to carry everyone.
+     */
+    private static boolean isCarriedBy(Bank bank, Passenger passenger) {
+        List<Elevator> elevators = bank.getElevators();
+        for (int i = 0; i < elevators.size(); i++)
+            if (elevators.get(i).canCarry(passenger))
+                return true;
+        return elevators.isEmpty();
+    }
+
 }
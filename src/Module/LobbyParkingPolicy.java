@@ -0,0 +1,53 @@
+package Module;
+
+import exceptions.FloorDoesNotExistException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The LobbyParkingPolicy sends every idle elevator back to the lobby.
+ * It suits the morning up-peak when nearly all calls come from the entrance floor.
+ * Elevators whose bank does not serve the lobby stay where they are.
+ *
+ * @author EJWang
+ */
+public class LobbyParkingPolicy implements ParkingPolicy {
+
+    private int lobbyLevel;
+
+    /**
+     * Construct a LobbyParkingPolicy with lobby at level 1.
+     */
+    public LobbyParkingPolicy() {
+        this(1);
+    }
+
+    /**
+     * Construct a LobbyParkingPolicy.
+     *
+     * @param lobbyLevel The level of the lobby
+     */
+    public LobbyParkingPolicy(int lobbyLevel) {
+        this.lobbyLevel = lobbyLevel;
+    }
+
+    @Override
+    public Floor selectParkingFloor(Elevator elevator, ElevatorManagerSystem ems, Building building)
+            throws FloorDoesNotExistException {
+        // the elevators of an upper bank never reach the lobby
+        if (!elevator.isServing(lobbyLevel))
+            return null;
+
+        return building.getSpecifiedFloor(lobbyLevel);
+    }
+
+    void writeState(DataOutput out) throws IOException {
+        out.writeShort(lobbyLevel);
+    }
+
+    void readState(DataInput in) throws IOException {
+        lobbyLevel = in.readShort();
+    }
+}
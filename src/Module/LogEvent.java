@@ -0,0 +1,43 @@
+package Module;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A LogEvent is recorded when a message is written into a log file.
+ * It is only created while its type is being recorded, a log line is written on nearly every step.
+ *
+ * @author EJWang
+ */
+@Name("Module.Log")
+@Label("Log")
+@Category({"Elevator", "Log"})
+@StackTrace(false)
+class LogEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(LogEvent.class);
+
+    @Label("File")
+    String filename;
+
+    @Label("Characters")
+    int length;
+
+    /**
+     * Begin an event if it is being recorded.
+     *
+     * @return The event, or null if not recorded
+     */
+    static LogEvent beginIfEnabled() {
+        if (!TYPE.isEnabled())
+            return null;
+
+        LogEvent event = new LogEvent();
+        event.begin();
+        return event;
+    }
+}
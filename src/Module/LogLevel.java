@@ -0,0 +1,12 @@
+package Module;
+
+/**
+ * The LogLevel tells how important a log message is, the messages below the level of the LogRecorder are skipped.
+ *
+ * @author EJWang
+ */
+public enum LogLevel {
+    DEBUG,      // every stage of a car, e.g. docking and the door cycle
+    INFO,       // trips, passengers and the service of the cars
+    WARN        // calls which cannot be served as asked and failures
+}
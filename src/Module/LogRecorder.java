@@ -2,22 +2,109 @@ package Module;
 
 import sun.rmi.runtime.Log;
 
-import java.io.FileWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The LogRecorder is followed Singleton design and used to record the status for each component of the simulation.
+ * <p>
+ * The messages of a LogTemplate are recorded by the id of the template and their numbers. Once a binary log is
+ * opened they are written into a reusable buffer without creating any object, and rendered into text by
+ * a BinaryLogReader later, otherwise they are rendered and appended to the text log at once.
+ * The messages below the level of the recorder, or of a muted file, are skipped before anything is done.
+ * <p>
+ * Every run writes its text logs into its own directory, logs/yyyyMMdd-HHmmss-pid unless -Delevator.log.dir is
+ * given, so the runs started together never share a file. Each log file is a LogSink rotated by
+ * -Delevator.log.maxBytes (16 MB) and -Delevator.log.maxMinutes (60), keeping -Delevator.log.segments (10)
+ * compressed segments. With -Delevator.log.perCar=true every car writes its own elevator log.
  */
 public class LogRecorder {
 
-    private static LogRecorder logRecorder = null;
+    static final int MAGIC = 0x454C4F47;            // "ELOG"
+    static final short VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 2 + 1 + 8 + 4 * LogTemplate.MAX_ARGS;
+
+    private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    private static final long DEFAULT_MAX_MINUTES = 60;
+    private static final int DEFAULT_SEGMENTS = 10;
+
+    // created at once, the elevators on many threads ask for it
+    private static final LogRecorder logRecorder = new LogRecorder();
+
+    // the log files not to record, e.g. a headless run with thousands of elevators
+    private Set<String> mutedFilenames = ConcurrentHashMap.newKeySet();
+
+    // whether the messages asked to be printed are echoed on the console, off while a dashboard draws on it
+    private volatile boolean isEchoed = true;
+
+    // the directory of this run, and the rotated text log files in it by name
+    private File directory;
+    private ConcurrentMap<String, LogSink> sinks = new ConcurrentHashMap<>();
+    private boolean isPerCar;
+    private long maxBytes;
+    private long maxAge;
+    private int maxSegments;
+
+    // one thread compresses the rotated segments in order, so a segment is never deleted while compressed
+    private ExecutorService compressor;
+
+    // the templates to skip, by muted file or level, indexed by ordinal
+    private volatile boolean[] skippedTemplates = new boolean[LogTemplate.values().length];
+    private LogLevel level = LogLevel.DEBUG;
+
+    // the binary log, null if the messages are written as text
+    private FileChannel binaryLog;
+    private ByteBuffer buffer;
 
     /**
      * Construct the LogRecorder.
      */
     private LogRecorder() {
+        String name = System.getProperty("elevator.log.level");
+        if (name != null)
+            setLevel(LogLevel.valueOf(name.toUpperCase()));
+
+        String dir = System.getProperty("elevator.log.dir");
+        if (dir != null)
+            directory = new File(dir);
+        isPerCar = Boolean.getBoolean("elevator.log.perCar");
+        maxBytes = Long.getLong("elevator.log.maxBytes", DEFAULT_MAX_BYTES);
+        maxAge = TimeUnit.MINUTES.toMillis(Long.getLong("elevator.log.maxMinutes", DEFAULT_MAX_MINUTES));
+        maxSegments = Integer.getInteger("elevator.log.segments", DEFAULT_SEGMENTS);
+
+        compressor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "log-compressor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // the last lines and the segments being compressed are kept when the program exits
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        }));
     }
 
     /**
@@ -26,8 +113,6 @@ public class LogRecorder {
      * @return An instance of LogRecorder.
      */
     public static LogRecorder getInstance() {
-        if (logRecorder == null)
-            logRecorder = new LogRecorder();
         return logRecorder;
     }
 
@@ -39,29 +124,303 @@ public class LogRecorder {
      * @param isRequiredToPrint print on the console if true
      */
     public void recordLog(String filename, String msg, boolean isRequiredToPrint) {
-        String log;
-        String timeStamp;
-        FileWriter fileWriter;
+        recordLog(filename, -1, msg, isRequiredToPrint);
+    }
+
+    /**
+     * Record the log of a car, which goes to its own file if every car writes its own log.
+     *
+     * @param filename          The filename of the file used to record log
+     * @param car               The number of the car, or -1 if not about a car
+     * @param msg               The description of an event
+     * @param isRequiredToPrint print on the console if true
+     */
+    public void recordLog(String filename, int car, String msg, boolean isRequiredToPrint) {
+        if (mutedFilenames.contains(filename))
+            return;
+
+        LogEvent event = LogEvent.beginIfEnabled();
+
+        // give a timeStamp on the msg
+        String timeStamp = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(Calendar.getInstance().getTime());
+        String log = "[" + timeStamp + "] " + msg + "\n";
+
+        // print out the log on the console immediately
+        if (isRequiredToPrint && isEchoed)
+            System.err.print(log);
+
+        // write log into the file and store the data to the hard disk immediately
+        try {
+            getSink((isPerCar && car >= 0) ? getCarFilename(filename, car) : filename).write(log);
+        } catch (IOException i) {
+            System.err.println("WARNING: Failed to write " + filename + " while recording log!");
+        }
+
+        if (event != null && event.shouldCommit()) {
+            event.filename = filename;
+            event.length = msg.length();
+            event.commit();
+        }
+
+    }
+
+    /**
+     * Stop recording the log to the specified file, the messages are dropped.
+     *
+     * @param filename The filename of the file used to record log
+     */
+    public void mute(String filename) {
+        mutedFilenames.add(filename);
+        updateSkippedTemplates();
+    }
+
+    /**
+     * Echo the messages on the console or not, they are still written into the files.
+     *
+     * @param isEchoed false to keep the console for a dashboard
+     */
+    public void setEchoed(boolean isEchoed) {
+        this.isEchoed = isEchoed;
+    }
+
+    /**
+     * Write the text logs of this run into a directory, must be called before the first log is written.
+     *
+     * @param directory The directory, created if not exists
+     */
+    public synchronized void setDirectory(File directory) {
+        if (!sinks.isEmpty())
+            throw new IllegalStateException("The logs have been written into " + this.directory);
+        this.directory = directory;
+    }
+
+    /**
+     * Get the directory of the text logs of this run.
+     *
+     * @return The directory, which may not be created yet
+     */
+    public synchronized File getDirectory() {
+        if (directory == null) {
+            // the process id tells apart the runs started in the same second
+            String process = ManagementFactory.getRuntimeMXBean().getName();
+            int at = process.indexOf('@');
+            directory = new File("logs", new SimpleDateFormat("yyyyMMdd-HHmmss").format(Calendar.getInstance().getTime())
+                    + "-" + ((at > 0) ? process.substring(0, at) : process));
+        }
+        return directory;
+    }
+
+    /**
+     * Let every car write its own elevator log, e.g. elevator_log_3.txt, or share one.
+     *
+     * @param isPerCar true if every car writes its own log
+     */
+    public void setPerCar(boolean isPerCar) {
+        this.isPerCar = isPerCar;
+    }
+
+    /**
+     * Rotate every text log file once it grows too large or too old.
+     *
+     * @param maxBytes    The size to rotate a file at, 0 to never rotate by size
+     * @param maxAge      The time in millisecond to rotate a file after, 0 to never rotate by time
+     * @param maxSegments The number of compressed segments to keep for every file
+     */
+    public synchronized void setRotation(long maxBytes, long maxAge, int maxSegments) {
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.maxSegments = maxSegments;
+    }
 
+    /**
+     * Close every text log file and the binary log, and wait a while for the segments being compressed.
+     * The files are opened again by the next message.
+     */
+    public void close() {
+        closeBinaryLog();
+        for (LogSink sink : sinks.values())
+            sink.close();
+
+        // the segments are compressed in order, so all of them are done once an empty task is done
         try {
-            fileWriter = new FileWriter(filename, true);
+            compressor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("WARNING: The rotated logs are still being compressed!");
+        }
+    }
 
-            // give a timeStamp on the msg
-            timeStamp = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(Calendar.getInstance().getTime());
-            log = "[" + timeStamp + "] " + msg + "\n";
+    /**
+     * Skip the messages below a level.
+     *
+     * @param level The lowest level to record
+     */
+    public void setLevel(LogLevel level) {
+        this.level = level;
+        updateSkippedTemplates();
+    }
 
-            // print out the log on the console immediately
-            if (isRequiredToPrint)
-                System.err.print(log);
+    public LogLevel getLevel() {
+        return level;
+    }
 
-            // write log into the file and flush the buffer to store the data to the hard disk immediately
-            fileWriter.write(log);
-            fileWriter.flush();
-            fileWriter.close();
+    /**
+     * Check whether the messages of a template are recorded, so the numbers need not be worked out if not.
+     *
+     * @param template The template
+     * @return true if recorded
+     */
+    public boolean isEnabled(LogTemplate template) {
+        return !skippedTemplates[template.ordinal()];
+    }
 
+    /**
+     * Write the messages of the templates into a binary log from now on, replacing the one opened before.
+     * The log is flushed when the program exits.
+     *
+     * @param file The binary log
+     * @throws IOException if failed to create the file
+     */
+    public void openBinaryLog(File file) throws IOException {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        ByteBuffer header = ByteBuffer.allocate(6);
+        header.putInt(MAGIC).putShort(VERSION).flip();
+        channel.write(header);
+
+        synchronized (this) {
+            closeBinaryLog();
+            if (buffer == null)
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            binaryLog = channel;
+        }
+    }
+
+    /**
+     * Flush and close the binary log, the messages are written as text again.
+     */
+    public synchronized void closeBinaryLog() {
+        if (binaryLog == null)
+            return;
+
+        try {
+            flush();
+            binaryLog.close();
         } catch (IOException i) {
-            System.err.println("WARNING: Failed to construct file writer while recording log!");
+            System.err.println("WARNING: Failed to close the binary log!");
         }
+        binaryLog = null;
+    }
+
+    /**
+     * Write the buffered messages into the binary log.
+     */
+    public synchronized void flush() {
+        if (binaryLog == null)
+            return;
+
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                binaryLog.write(buffer);
+        } catch (IOException i) {
+            System.err.println("WARNING: Failed to write the binary log!");
+        }
+        buffer.clear();
+    }
+
+    public void record(LogTemplate template, long time, int a) {
+        record(template, time, a, 0, 0, 0);
+    }
+
+    public void record(LogTemplate template, long time, int a, int b) {
+        record(template, time, a, b, 0, 0);
+    }
+
+    public void record(LogTemplate template, long time, int a, int b, int c) {
+        record(template, time, a, b, c, 0);
+    }
+
+    /**
+     * Record a message of a template, the numbers beyond the ones of the template are ignored.
+     *
+     * @param template The template
+     * @param time     The time of the message
+     * @param a        The first number
+     * @param b        The second number
+     * @param c        The third number
+     * @param d        The fourth number
+     */
+    public void record(LogTemplate template, long time, int a, int b, int c, int d) {
+        if (skippedTemplates[template.ordinal()])
+            return;
+
+        synchronized (this) {
+            if (binaryLog != null) {
+                if (buffer.remaining() < MAX_RECORD_SIZE)
+                    flush();
+
+                int numOfArgs = template.getNumOfArgs();
+                buffer.putShort(template.getId());
+                buffer.put((byte) numOfArgs);
+                buffer.putLong(time);
+                if (numOfArgs > 0)
+                    buffer.putInt(a);
+                if (numOfArgs > 1)
+                    buffer.putInt(b);
+                if (numOfArgs > 2)
+                    buffer.putInt(c);
+                if (numOfArgs > 3)
+                    buffer.putInt(d);
+                return;
+            }
+        }
+
+        // no binary log, render it now
+        recordLog(template.getFilename(), template.isAboutCar() ? a : -1, template.format(new int[]{a, b, c, d}), true);
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Get the sink of a text log file of this run, created once the first line is written.
+     */
+    private LogSink getSink(String filename) throws IOException {
+        LogSink sink = sinks.get(filename);
+        if (sink != null)
+            return sink;
+
+        synchronized (this) {
+            File dir = getDirectory();
+            if (!dir.isDirectory() && !dir.mkdirs())
+                throw new IOException("Failed to create " + dir);
+
+            sink = sinks.get(filename);
+            if (sink == null) {
+                sink = new LogSink(new File(dir, filename), maxBytes, maxAge, maxSegments, compressor);
+                sinks.put(filename, sink);
+            }
+            return sink;
+        }
+    }
+
+    /**
+     * Name the log file of a car, e.g. elevator_log_3.txt for elevator_log.txt.
+     */
+    private static String getCarFilename(String filename, int car) {
+        int dot = filename.lastIndexOf('.');
+        return (dot < 0) ? filename + "_" + car : filename.substring(0, dot) + "_" + car + filename.substring(dot);
+    }
 
+    private synchronized void updateSkippedTemplates() {
+        boolean[] skipped = new boolean[LogTemplate.values().length];
+        for (LogTemplate template : LogTemplate.values())
+            skipped[template.ordinal()] = template.getLevel().compareTo(level) < 0
+                    || mutedFilenames.contains(template.getFilename());
+        skippedTemplates = skipped;
     }
 }
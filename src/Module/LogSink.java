@@ -0,0 +1,156 @@
+package Module;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A LogSink is a text log file of a run which is rotated once it grows too large or too old.
+ * The rotated segment is renamed with a sequence number, e.g. ems_log.txt.3, and compressed into
+ * ems_log.txt.3.gz in the background. Only the latest segments are kept, so the disk used by a sink is bounded
+ * however long the run lasts.
+ * <p>
+ * Each sink has its own lock, so the subsystems and the cars writing to their own sinks never wait for each other.
+ *
+ * @author EJWang
+ */
+public class LogSink {
+
+    private File file;
+    private long maxBytes;              // 0 to never rotate by size
+    private long maxAge;                // millisecond, 0 to never rotate by time
+    private int maxSegments;            // the rotated segments to keep
+    private Executor compressor;
+
+    private OutputStream out;
+    private long size;
+    private long openedAt;
+    private int sequence;
+    private Deque<File> segments;
+
+    /**
+     * Construct a LogSink, the file is created once the first line is written.
+     *
+     * @param file        The log file
+     * @param maxBytes    The size to rotate the file at, 0 to never rotate by size
+     * @param maxAge      The time in millisecond to rotate the file after, 0 to never rotate by time
+     * @param maxSegments The number of rotated segments to keep
+     * @param compressor  The executor compresses the rotated segments
+     */
+    public LogSink(File file, long maxBytes, long maxAge, int maxSegments, Executor compressor) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.maxSegments = maxSegments;
+        this.compressor = compressor;
+        this.segments = new ArrayDeque<>();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Append a line to the log and store it on the disk immediately.
+     *
+     * @param line The line including the line break
+     * @throws IOException if failed to write
+     */
+    public synchronized void write(String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+
+        if (out != null && (maxBytes > 0 && size + bytes.length > maxBytes || maxAge > 0 && now - openedAt >= maxAge))
+            rotate();
+
+        if (out == null) {
+            out = new FileOutputStream(file, true);
+            size = file.length();
+            openedAt = now;
+        }
+
+        out.write(bytes);
+        out.flush();
+        size += bytes.length;
+    }
+
+    /**
+     * Close the file, it is opened again by the next line.
+     */
+    public synchronized void close() {
+        if (out == null)
+            return;
+
+        try {
+            out.close();
+        } catch (IOException i) {
+            System.err.println("WARNING: Failed to close " + file);
+        }
+        out = null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized int getNumOfSegments() {
+        return segments.size();
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Move the current file aside as a new segment, compress it in the background and drop the oldest segments.
+     */
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+
+        sequence++;
+        final File segment = new File(file.getPath() + "." + sequence);
+        if (!file.renameTo(segment))
+            throw new IOException("Failed to rotate " + file);
+
+        final File compressed = new File(segment.getPath() + ".gz");
+        segments.addLast(compressed);
+        compressor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compress(segment, compressed);
+            }
+        });
+
+        // the oldest segment may still be compressed, it is deleted once done
+        while (segments.size() > maxSegments) {
+            final File oldest = segments.removeFirst();
+            compressor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!oldest.delete())
+                        System.err.println("WARNING: Failed to delete " + oldest);
+                }
+            });
+        }
+    }
+
+    private static void compress(File segment, File compressed) {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new FileInputStream(segment);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed))) {
+            for (int n = in.read(buffer); n > 0; n = in.read(buffer))
+                out.write(buffer, 0, n);
+        } catch (IOException i) {
+            System.err.println("WARNING: Failed to compress " + segment);
+            return;
+        }
+
+        if (!segment.delete())
+            System.err.println("WARNING: Failed to delete " + segment);
+    }
+}
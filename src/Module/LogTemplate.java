@@ -0,0 +1,125 @@
+package Module;
+
+/**
+ * A LogTemplate is a kind of log message whose text is known in advance, only the numbers change.
+ * A message is recorded as the id of its template and the numbers, and the text is rendered when it is read.
+ * <p>
+ * The id of a template is written into the binary log, so it must never change once released.
+ * A new template takes a new id, and the ids of the removed ones are not reused.
+ *
+ * @author EJWang
+ */
+public enum LogTemplate {
+
+    /* ---- Elevator, the first number is always the car ---- */
+    CAR_PARKING(1, "elevator_log.txt", LogLevel.INFO, "电梯#%d: 空闲中, 从%d层前往%d层待命", true),
+    CAR_TRIP(2, "elevator_log.txt", LogLevel.INFO, "电梯#%d: 当前楼层为%d层, 准备移动至%d层", true),
+    CAR_PICK_UP(3, "elevator_log.txt", LogLevel.INFO, "电梯#%d: 在当前楼层%d层发现乘客, 暂停移动先接人", true),
+    CAR_GIVE_WAY(4, "elevator_log.txt", LogLevel.INFO, "电梯#%d: 在%d层等待同井道的电梯让路", true),
+    CAR_BYPASS(5, "elevator_log.txt", LogLevel.WARN, "电梯#%d: 已满载, 跳过%d层的呼叫并交还EMS重新分配", true),
+    CAR_DOCKING(6, "elevator_log.txt", LogLevel.DEBUG, "电梯#%d: 正在%d层进行docking....", true),
+    CAR_DOOR_OPEN(7, "elevator_log.txt", LogLevel.DEBUG, "电梯#%d: 已经完成与%d层对接, 正在开门准备下客....", true),
+    CAR_DOOR_CLOSE(8, "elevator_log.txt", LogLevel.DEBUG, "电梯#%d: 在%d层准备关门....", true),
+    CAR_DOOR_REOPEN(9, "elevator_log.txt", LogLevel.DEBUG, "电梯#%d: %d层有乘客赶到, 重新开门", true),
+    CAR_ALIGHT(10, "elevator_log.txt", LogLevel.INFO, "电梯#%d: 乘客已抵达%d层, 共释放%d名乘客, 载重减轻%dkg", true),
+
+    /* ---- Elevator Manager System ---- */
+    EMS_NO_ROUTE(20, "ems_log.txt", LogLevel.WARN, "EMS: 没有电梯能从%d层到达%d层"),
+    EMS_EMERGENCY(21, "ems_log.txt", LogLevel.WARN, "EMS: %d号电梯在%d层请求支援!! 停运%d部"),
+    EMS_REPAIRED(22, "ems_log.txt", LogLevel.INFO, "EMS: %d号电梯恢复服务, 停运%d部"),
+
+    /* ---- Event Generator ---- */
+    PASSENGER_CALL(40, "event_log.txt", LogLevel.INFO, "事件: 在%d层有乘客准备前往%d层, 他/她的体重为: %dkg");
+
+    public static final int MAX_ARGS = 4;
+
+    private static final LogTemplate[] BY_ID;
+
+    static {
+        int maxId = 0;
+        for (LogTemplate template : values())
+            maxId = Math.max(maxId, template.id);
+
+        BY_ID = new LogTemplate[maxId + 1];
+        for (LogTemplate template : values()) {
+            if (BY_ID[template.id] != null)
+                throw new IllegalStateException("Duplicated log template id " + template.id);
+            BY_ID[template.id] = template;
+        }
+    }
+
+    private final short id;
+    private final String filename;
+    private final LogLevel level;
+    private final String pattern;
+    private final int numOfArgs;
+    private final boolean isAboutCar;       // the first number is the car
+
+    LogTemplate(int id, String filename, LogLevel level, String pattern) {
+        this(id, filename, level, pattern, false);
+    }
+
+    LogTemplate(int id, String filename, LogLevel level, String pattern, boolean isAboutCar) {
+        this.id = (short) id;
+        this.filename = filename;
+        this.level = level;
+        this.pattern = pattern;
+        this.isAboutCar = isAboutCar;
+
+        int count = 0;
+        for (int i = pattern.indexOf("%d"); i >= 0; i = pattern.indexOf("%d", i + 2))
+            count++;
+        if (count > MAX_ARGS)
+            throw new IllegalArgumentException("Too many numbers in log template " + pattern);
+        this.numOfArgs = count;
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Find the template of an id read from a binary log.
+     *
+     * @param id The id of the template
+     * @return The template, or null if the id is unknown
+     */
+    public static LogTemplate fromId(int id) {
+        return (id >= 0 && id < BY_ID.length) ? BY_ID[id] : null;
+    }
+
+    /**
+     * Render the text of a message.
+     *
+     * @param args The numbers of the message, only the first getNumOfArgs() are used
+     * @return The text
+     */
+    public String format(int[] args) {
+        Object[] values = new Object[numOfArgs];
+        for (int i = 0; i < numOfArgs; i++)
+            values[i] = args[i];
+        return String.format(pattern, values);
+    }
+
+    public short getId() {
+        return id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public int getNumOfArgs() {
+        return numOfArgs;
+    }
+
+    public boolean isAboutCar() {
+        return isAboutCar;
+    }
+}
@@ -0,0 +1,188 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The LookaheadDispatchStrategy tries every candidate elevator for a hall call in a short rollout
+ * over the predicted arrivals of the next seconds, and sends the one leaving the least waiting and riding time.
+ * The rollouts run in parallel on light copies of the bank, see Module.DispatchRollout.
+ * <p>
+ * A decision never takes longer than the time budget, when any rollout misses it
+ * the call is dispatched by the workload instead. On a virtual clock the budget is the fixed number of ticks
+ * of the horizon rather than the wall time, so a seeded run makes the same decisions however loaded the machine is.
+ *
+ * @author EJWang
+ */
+public class LookaheadDispatchStrategy implements DispatchStrategy {
+
+    private static final int DEFAULT_HORIZON = 60;          // second
+    private static final long DEFAULT_BUDGET = 20;          // millisecond per decision
+
+    private int horizonSeconds;
+    private long budgetMillis;
+    private ExecutorService pool;
+    private DispatchStrategy greedy;
+
+    private AtomicLong decisions;
+    private AtomicLong fallbacks;
+
+    /**
+     * Construct a lookahead strategy with the default horizon and budget on the common pool.
+     */
+    public LookaheadDispatchStrategy() {
+        this(DEFAULT_HORIZON, DEFAULT_BUDGET, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construct a lookahead strategy.
+     *
+     * @param horizonSeconds The length of a rollout in second
+     * @param budgetMillis   The time to decide in millisecond
+     * @param pool           The threads running the rollouts
+     */
+    public LookaheadDispatchStrategy(int horizonSeconds, long budgetMillis, ExecutorService pool) {
+        this.horizonSeconds = horizonSeconds;
+        this.budgetMillis = budgetMillis;
+        this.pool = pool;
+        this.greedy = new WorkloadDispatchStrategy();
+        this.decisions = new AtomicLong();
+        this.fallbacks = new AtomicLong();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    @Override
+    public int getCost(Elevator elevator, Floor targetFloor, ElevatorManagerSystem ems) {
+        return greedy.getCost(elevator, targetFloor, ems);
+    }
+
+    @Override
+    public Elevator selectElevator(List<Elevator> candidates, Floor targetFloor, ElevatorManagerSystem ems) {
+        if (candidates.size() == 1)
+            return candidates.get(0);
+
+        decisions.incrementAndGet();
+        Building building = ems.getBuilding();
+        boolean isTimed = !(building.getClock() instanceof VirtualClock);
+        long deadline = isTimed
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis) : DispatchRollout.NO_DEADLINE;
+
+        // copy the bank once, every candidate plays its own copy
+        Bank bank = candidates.get(0).getBank();
+        List<Elevator> cars = getRunningCars(bank, candidates);
+        final DispatchRollout base = new DispatchRollout(bank, building, cars, ems, horizonSeconds);
+        final int floor = building.getFloorIndex(targetFloor.getFloorLevel());
+        final long horizon = horizonSeconds * 1000L;
+        final long giveUpTime = deadline;
+
+        List<Callable<Double>> rollouts = new ArrayList<>();
+        for (Elevator candidate : candidates) {
+            final int car = cars.indexOf(candidate);
+            rollouts.add(new Callable<Double>() {
+                @Override
+                public Double call() {
+                    DispatchRollout rollout = new DispatchRollout(base);
+                    rollout.assign(car, floor);
+                    return rollout.play(horizon, giveUpTime);
+                }
+            });
+        }
+
+        double[] costs = new double[candidates.size()];
+        try {
+            List<Future<Double>> results = isTimed
+                    ? pool.invokeAll(rollouts, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    : pool.invokeAll(rollouts);
+            for (int i = 0; i < costs.length; i++) {
+                Future<Double> result = results.get(i);
+                costs[i] = result.isCancelled() ? -1 : result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(candidates, targetFloor, ems);
+        } catch (ExecutionException e) {
+            return fallback(candidates, targetFloor, ems);
+        }
+
+        int selected = -1;
+        for (int i = 0; i < costs.length; i++) {
+            // any rollout out of time, the costs are not comparable
+            if (costs[i] < 0)
+                return fallback(candidates, targetFloor, ems);
+            if (selected < 0 || costs[i] < costs[selected])
+                selected = i;
+        }
+        return candidates.get(selected);
+    }
+
+    public long getDecisions() {
+        return decisions.get();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /* =================================== Checkpoint ============================================================== */
+
+    /**
+     * Write the horizon, the budget and the counters into a checkpoint.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(horizonSeconds);
+        out.writeLong(budgetMillis);
+        out.writeLong(decisions.get());
+        out.writeLong(fallbacks.get());
+    }
+
+    /**
+     * Read the horizon, the budget and the counters from a checkpoint.
+     * The pool is not part of the state, the rollouts keep running on the pool of this strategy.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    void readState(DataInput in) throws IOException {
+        horizonSeconds = in.readInt();
+        budgetMillis = in.readLong();
+        decisions.set(in.readLong());
+        fallbacks.set(in.readLong());
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Get the cars in the bank which keep working during the rollout, including all the candidates.
+     */
+    private List<Elevator> getRunningCars(Bank bank, List<Elevator> candidates) {
+        List<Elevator> cars = new ArrayList<>();
+
+        for (Elevator elevator : bank.getElevators())
+            if (candidates.contains(elevator)
+                    || elevator.getOperationSignal() == Elevator.RUNNING && !elevator.isShuttingDown())
+                cars.add(elevator);
+        return cars;
+    }
+
+    /**
+     * Dispatch by the workload when the rollouts cannot decide in time.
+     */
+    private Elevator fallback(List<Elevator> candidates, Floor targetFloor, ElevatorManagerSystem ems) {
+        fallbacks.incrementAndGet();
+        return greedy.selectElevator(candidates, targetFloor, ems);
+    }
+}
@@ -0,0 +1,217 @@
+package Module;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The MetricsServer serves the live metrics of the registered buildings at http://localhost:port/metrics
+ * in the Prometheus text format, using the HTTP server shipped with the JDK.
+ * <p>
+ * Every number is read from the atomics kept by Module.ElevatorMetrics, Module.DispatchMetrics and
+ * Module.TripMetrics, no lock of the simulation is taken, so a scrape never stalls the elevators or the
+ * Elevator Manager Systems. The numbers of one scrape are therefore not taken at exactly the same instant.
+ * The buildings are labelled by the order they are registered, starting from 1.
+ *
+ * @author EJWang
+ */
+public class MetricsServer implements Closeable {
+
+    public static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] WAIT_QUANTILES = {0.5, 0.9, 0.95, 0.99};
+
+    private HttpServer server;
+    private ExecutorService handler;
+    private List<ElevatorManagerSystem> systems;
+
+    /**
+     * Start serving on a local port.
+     *
+     * @param port The port on the loopback address, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsServer(int port) throws IOException {
+        systems = new CopyOnWriteArrayList<>();
+
+        // a single daemon thread answers the scrapes, it never keeps the simulation from exiting
+        handler = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metrics-server");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        server.setExecutor(handler);
+        server.start();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Add the metrics of a building.
+     *
+     * @param ems The Elevator Manager System of the building
+     */
+    public void register(ElevatorManagerSystem ems) {
+        systems.add(ems);
+    }
+
+    /**
+     * Render the current metrics of every registered building.
+     *
+     * @return The metrics in the Prometheus text format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        family(out, "elevator_position", "gauge", "The floor level the car is at");
+        for (int b = 0; b < systems.size(); b++)
+            for (Elevator elevator : systems.get(b).getAllElevators())
+                sample(out, "elevator_position", b, elevator, elevator.getMetrics().getPosition());
+
+        family(out, "elevator_load_passengers", "gauge", "The passengers on board after the last stop");
+        for (int b = 0; b < systems.size(); b++)
+            for (Elevator elevator : systems.get(b).getAllElevators())
+                sample(out, "elevator_load_passengers", b, elevator, elevator.getMetrics().getLoad());
+
+        family(out, "elevator_stops_total", "counter", "The stops the car has docked");
+        for (int b = 0; b < systems.size(); b++)
+            for (Elevator elevator : systems.get(b).getAllElevators())
+                sample(out, "elevator_stops_total", b, elevator, elevator.getMetrics().getStops());
+
+        family(out, "elevator_door_seconds_total", "counter", "The time spent on opening, holding and closing the door");
+        for (int b = 0; b < systems.size(); b++)
+            for (Elevator elevator : systems.get(b).getAllElevators())
+                sample(out, "elevator_door_seconds_total", b, elevator, elevator.getMetrics().getDoorTime() / 1000.0);
+
+        family(out, "ems_queue_depth", "gauge", "The hall calls left undispatched after the last round");
+        for (int b = 0; b < systems.size(); b++)
+            sample(out, "ems_queue_depth", b, systems.get(b).getDispatchMetrics().getQueueDepth());
+
+        family(out, "ems_dispatches_total", "counter", "The hall calls dispatched");
+        for (int b = 0; b < systems.size(); b++)
+            sample(out, "ems_dispatches_total", b, systems.get(b).getDispatchMetrics().getDispatches());
+
+        family(out, "ems_dispatch_pending_total", "counter", "The hall calls put back for no car was able to serve");
+        for (int b = 0; b < systems.size(); b++)
+            sample(out, "ems_dispatch_pending_total", b, systems.get(b).getDispatchMetrics().getPendings());
+
+        family(out, "ems_dispatch_seconds_total", "counter", "The real time spent on dispatching");
+        for (int b = 0; b < systems.size(); b++)
+            sample(out, "ems_dispatch_seconds_total", b, systems.get(b).getDispatchMetrics().getDispatchTime() / 1e9);
+
+        family(out, "ems_dispatch_max_seconds", "gauge", "The longest real time spent on a single dispatch");
+        for (int b = 0; b < systems.size(); b++)
+            sample(out, "ems_dispatch_max_seconds", b, systems.get(b).getDispatchMetrics().getMaxDispatchTime() / 1e9);
+
+        family(out, "passenger_wait_seconds", "summary", "The time from the first hall call to the first boarding");
+        for (int b = 0; b < systems.size(); b++) {
+            TripMetrics trips = systems.get(b).getTripMetrics();
+            for (double quantile : WAIT_QUANTILES) {
+                out.append("passenger_wait_seconds{building=\"").append(b + 1)
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(trips.getWaitPercentile(quantile) / 1000.0).append('\n');
+            }
+            sample(out, "passenger_wait_seconds_sum", b, trips.getWaitTime() / 1000.0);
+            sample(out, "passenger_wait_seconds_count", b, trips.getTrips());
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Get the port being served, useful when any free port is asked.
+     *
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop serving.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        handler.shutdown();
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Answer a scrape, only GET and HEAD are allowed.
+     */
+    private void respond(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, int building, Elevator elevator, double value) {
+        out.append(name).append("{building=\"").append(building + 1)
+                .append("\",car=\"").append(elevator.getNumber()).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, int building, Elevator elevator, long value) {
+        out.append(name).append("{building=\"").append(building + 1)
+                .append("\",car=\"").append(elevator.getNumber()).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, int building, double value) {
+        out.append(name).append("{building=\"").append(building + 1).append("\"} ").append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, int building, long value) {
+        out.append(name).append("{building=\"").append(building + 1).append("\"} ").append(value).append('\n');
+    }
+}
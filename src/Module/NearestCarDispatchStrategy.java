@@ -0,0 +1,15 @@
+package Module;
+
+/**
+ * The NearestCarDispatchStrategy sends the elevator closest to the calling floor,
+ * no matter where it is heading or how many tasks it has.
+ *
+ * @author EJWang
+ */
+public class NearestCarDispatchStrategy implements DispatchStrategy {
+
+    @Override
+    public int getCost(Elevator elevator, Floor targetFloor, ElevatorManagerSystem ems) {
+        return Math.abs(elevator.getCurrFloor().getFloorLevel() - targetFloor.getFloorLevel());
+    }
+}
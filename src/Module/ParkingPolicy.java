@@ -0,0 +1,24 @@
+package Module;
+
+import exceptions.FloorDoesNotExistException;
+
+/**
+ * A ParkingPolicy decides where an idle elevator should wait for the next call.
+ * The Module.ElevatorManagerSystem asks its policy once an elevator has been idle for a while.
+ *
+ * @author EJWang
+ */
+public interface ParkingPolicy {
+
+    /**
+     * Select the floor which the idle elevator should park at.
+     *
+     * @param elevator The idle elevator
+     * @param ems      The elevator manager system which controlled this elevator
+     * @param building The building which this elevator serving for
+     * @return The parking floor, or null to stay at current floor
+     * @throws FloorDoesNotExistException if the selected floor level does not exist
+     */
+    Floor selectParkingFloor(Elevator elevator, ElevatorManagerSystem ems, Building building)
+            throws FloorDoesNotExistException;
+}
@@ -10,13 +10,18 @@ import exceptions.OverloadException;
  */
 public class Passenger {
 
-    // TODO: 给passenger一个开始等待的时间，和想去的楼层，想按的方向
-
+    private Floor originFloor;              // the floor this passenger first called from
     private Floor currFloor;
-    private Floor targetFloor;
+    private Floor targetFloor;              // the target of current leg, may be a transfer floor
+    private Floor destinationFloor;         // the floor this passenger finally want to go
     private int weight;
 
     private int targetDirection;
+    private int deck;                       // the deck of a double-deck elevator this passenger is in
+
+    private long requestTime;               // when this passenger first pushed the button, -1 if not yet
+    private long boardTime;                 // when this passenger first got on board, -1 if not yet
+    private int carNumber;                  // the last car this passenger got on board, 0 if not yet
 
     /**
      * Construct a Module.Passenger.
@@ -25,17 +30,30 @@ public class Passenger {
      * @param targetFloor The target floor that this passenger want to visit
      */
     public Passenger(Floor currFloor, Floor targetFloor, int weight) {
+        this.originFloor = currFloor;
         this.currFloor = currFloor;
         this.targetFloor = targetFloor;
+        this.destinationFloor = targetFloor;
         this.weight = weight;
         this.targetDirection = currFloor.compareTo(targetFloor) == 1 ? -1 : 1;
+        this.requestTime = -1;
+        this.boardTime = -1;
     }
 
     /**
      * Run, run, little bird!
+     * Leave the broken elevator at the floor it stopped, and call another one from there.
+     *
+     * @param floor The floor the elevator stopped at
      */
-    public void escape() {
-        System.err.println("乘客: 卧槽电梯差点夹死我了!");
+    public void escape(Floor floor) {
+        if (floor == targetFloor) {
+            walkOut(true);
+            return;
+        }
+
+        currFloor = floor;
+        floor.pushButton(this);
     }
 
     /**
@@ -56,8 +74,16 @@ public class Passenger {
         if (!isArrived) {
             // Walk back to the queue and wait for next elevator
             currFloor.getQueue(getTargetDirection()).add(this);
+        } else if (targetFloor != destinationFloor) {
+            // arrive at a transfer floor, call the elevator of next bank
+            currFloor = targetFloor;
+            currFloor.notifyPassengerDelivered(this);
+            currFloor.pushButton(this);
         } else {
-            // TODO: Calculating waiting time
+            // arrive at the destination, the trip is finished
+            currFloor = targetFloor;
+            currFloor.notifyPassengerDelivered(this);
+            currFloor.notifyPassengerArrived(this);
         }
     }
 
@@ -79,6 +105,33 @@ public class Passenger {
         return targetFloor;
     }
 
+    /**
+     * Set the target floor of next leg, the target direction follows it.
+     *
+     * @param targetFloor The target floor of next leg
+     */
+    public void setTargetFloor(Floor targetFloor) {
+        this.targetFloor = targetFloor;
+        this.targetDirection = currFloor.compareTo(targetFloor) == 1 ? -1 : 1;
+    }
+
+    /**
+     * Get the floor this passenger finally want to go.
+     *
+     * @return The destinationFloor.
+     */
+    public Floor getDestinationFloor() {
+        return destinationFloor;
+    }
+
+    public Floor getOriginFloor() {
+        return originFloor;
+    }
+
+    public void setOriginFloor(Floor originFloor) {
+        this.originFloor = originFloor;
+    }
+
     /**
      * Get target direction of this passenger.
      *
@@ -91,4 +144,36 @@ public class Passenger {
     public int getWeight() {
         return weight;
     }
+
+    public int getDeck() {
+        return deck;
+    }
+
+    public void setDeck(int deck) {
+        this.deck = deck;
+    }
+
+    public long getRequestTime() {
+        return requestTime;
+    }
+
+    public void setRequestTime(long requestTime) {
+        this.requestTime = requestTime;
+    }
+
+    public long getBoardTime() {
+        return boardTime;
+    }
+
+    public void setBoardTime(long boardTime) {
+        this.boardTime = boardTime;
+    }
+
+    public int getCarNumber() {
+        return carNumber;
+    }
+
+    public void setCarNumber(int carNumber) {
+        this.carNumber = carNumber;
+    }
 }
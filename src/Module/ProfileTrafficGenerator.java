@@ -0,0 +1,139 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * The ProfileTrafficGenerator sends passengers to a building following a traffic profile,
+ * so the calls rise and fall through the day and flow in and out of the lobby as the period says.
+ * <p>
+ * The calls of each period arrive as a Poisson process. The generator draws candidates at the peak rate of
+ * the profile and keeps each one by the share of the current rate in the peak rate, so a change of period
+ * in the middle of an interval is followed exactly. Like the TrafficGenerator it never stops the simulation.
+ *
+ * @author EJWang
+ */
+public class ProfileTrafficGenerator implements SimulationActor {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private Building building;
+    private Random random;
+    private TrafficProfile profile;
+    private Floor lobby;
+    private double meanInterval;            // of the candidates at the peak rate, in millisecond
+
+    /**
+     * Construct a ProfileTrafficGenerator.
+     *
+     * @param building The building to send passengers to
+     * @param random   The random source, seeded to repeat the same traffic
+     * @param profile  The traffic profile
+     */
+    public ProfileTrafficGenerator(Building building, Random random, TrafficProfile profile) {
+        this.building = building;
+        this.random = random;
+        this.profile = profile;
+
+        // the ground floor is the lobby, or the lowest floor of a building standing on a hill
+        int lobbyLevel = (building.getHighestLevel() >= 1) ? 1 : building.getLowestLevel();
+        this.lobby = building.getFloorByIndex(building.getFloorIndex(lobbyLevel));
+
+        this.meanInterval = getMeanInterval(profile);
+    }
+
+    /**
+     * Send a passenger if the candidate is kept, then wait for the next candidate.
+     *
+     * @param now The current time in millisecond
+     * @return The time the next candidate arrives, or STOP if the profile never makes a call
+     */
+    @Override
+    public long step(long now) {
+        if (meanInterval == 0)
+            return STOP;
+
+        int period = profile.getPeriod(building.getClock().timeOfDayMillis());
+        double share = (double) profile.getCallsPerHour(period) / profile.getPeakCallsPerHour();
+        if (random.nextDouble() < share)
+            sendPassenger(period);
+
+        // exponential interval between two candidates
+        long interval = (long) (-Math.log(1 - random.nextDouble()) * meanInterval);
+        return now + Math.max(1, interval);
+    }
+
+    Building getBuilding() {
+        return building;
+    }
+
+    /**
+     * Write the profile and the random state into a checkpoint, the period follows the clock of the building.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeShort(profile.getNumOfPeriods());
+        for (int i = 0; i < profile.getNumOfPeriods(); i++) {
+            out.writeLong(profile.getStartTime(i));
+            out.writeInt(profile.getCallsPerHour(i));
+            out.writeDouble(profile.getIncomingShare(i));
+            out.writeDouble(profile.getOutgoingShare(i));
+        }
+        SimulationCheckpoint.writeRandom(out, random);
+    }
+
+    /**
+     * Read the profile and the random state from a checkpoint.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    void readState(DataInput in) throws IOException {
+        profile = new TrafficProfile();
+        for (int i = in.readShort(); i > 0; i--)
+            profile.addPeriod(in.readLong(), in.readInt(), in.readDouble(), in.readDouble());
+        meanInterval = getMeanInterval(profile);
+        random = SimulationCheckpoint.readRandom(in);
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Send a passenger in, out of, or across the building by the shares of the period.
+     */
+    private void sendPassenger(int period) {
+        double kind = random.nextDouble();
+        Floor currFloor;
+        Floor targetFloor;
+
+        if (kind < profile.getIncomingShare(period)) {
+            currFloor = lobby;
+            targetFloor = randomFloorExcept(lobby);
+        } else if (kind < profile.getIncomingShare(period) + profile.getOutgoingShare(period)) {
+            currFloor = randomFloorExcept(lobby);
+            targetFloor = lobby;
+        } else {
+            currFloor = building.getFloorByIndex(random.nextInt(building.getNumOfFloors()));
+            targetFloor = randomFloorExcept(currFloor);
+        }
+
+        currFloor.pushButton(new Passenger(currFloor, targetFloor, random.nextInt(80) + 50));
+    }
+
+    private static double getMeanInterval(TrafficProfile profile) {
+        int peak = profile.getPeakCallsPerHour();
+        return (peak == 0) ? 0 : (double) HOUR / peak;
+    }
+
+    private Floor randomFloorExcept(Floor floor) {
+        int except = building.getFloorIndex(floor.getFloorLevel());
+        int index = random.nextInt(building.getNumOfFloors() - 1);
+        if (index >= except)
+            index++;
+        return building.getFloorByIndex(index);
+    }
+}
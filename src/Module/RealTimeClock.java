@@ -0,0 +1,23 @@
+package Module;
+
+import java.util.TimeZone;
+
+/**
+ * The RealTimeClock follows the wall clock of this machine in local time zone.
+ *
+ * @author EJWang
+ */
+public class RealTimeClock implements SimulationClock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long timeOfDayMillis() {
+        long now = currentTimeMillis();
+        long local = now + TimeZone.getDefault().getOffset(now);
+        return Math.floorMod(local, DAY_MILLIS);
+    }
+}
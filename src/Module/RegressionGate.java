@@ -0,0 +1,346 @@
+package Module;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RegressionGate runs a fixed set of seeded scenarios and compares their results with a baseline, so a change
+ * which makes the passengers wait longer or the engine slower is caught before it is merged.
+ * <p>
+ * Every scenario is measured by these metrics, named like office.meanWait in the baseline file:
+ * <ul>
+ *   <li>stepsPerSecond - the simulated events stepped per second of wall time, higher is better</li>
+ *   <li>bytesPerStep - the bytes allocated per event, lower is better</li>
+ *   <li>meanWait, p95Wait - the waiting time of the passengers in millisecond, lower is better</li>
+ *   <li>handling - the peak 5 minute handling count summed over the banks, higher is better</li>
+ * </ul>
+ * The scenarios run on a virtual clock, where every dispatch strategy including the lookahead one is
+ * deterministic, so the service KPIs of a seeded scenario never change unless the behavior does and their
+ * tolerance is tight. The 95th percentile wait is counted in buckets of a second, so it may move by one bucket.
+ * The engine metrics vary between runs, so all the scenarios take turns to warm up and then to be measured for a
+ * minimum wall time each. The median of the measured runs is compared, and their tolerances are wider.
+ * The default tolerances are overridden by the tolerance.kpi, tolerance.throughput and tolerance.allocation lines
+ * of the baseline file, which are overridden by the system properties elevator.regression.tolerance.kpi etc.
+ *
+ * @author EJWang
+ */
+public class RegressionGate {
+
+    public static final double DEFAULT_KPI_TOLERANCE = 0.02;
+    public static final double DEFAULT_THROUGHPUT_TOLERANCE = 0.25;
+    public static final double DEFAULT_ALLOCATION_TOLERANCE = 0.20;
+
+    private static final String TOLERANCE_PREFIX = "tolerance.";
+    private static final String TOLERANCE_PROPERTY = "elevator.regression.tolerance.";
+
+    private List<File> scenarios;
+    private int repetitions;
+    private long measureMillis;
+
+    /* =================================== Constructor Methods ===================================================== */
+
+    /**
+     * Construct a RegressionGate.
+     *
+     * @param scenarios     The scenario files, the name of a file without the extension names its metrics
+     * @param repetitions   The least measured runs of every scenario, the median engine metrics are kept
+     * @param measureMillis The least wall time of the measured runs of every scenario in millisecond,
+     *                      the warm-up takes as long
+     */
+    public RegressionGate(List<File> scenarios, int repetitions, long measureMillis) {
+        this.scenarios = scenarios;
+        this.repetitions = Math.max(1, repetitions);
+        this.measureMillis = measureMillis;
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Run every scenario and measure it.
+     *
+     * @return The metrics by name, in the order of name
+     * @throws Exception if failed to load or build a scenario
+     */
+    public SortedMap<String, Double> measure() throws Exception {
+        List<Scenario> loaded = new ArrayList<>();
+        List<List<Double>> stepsPerSecond = new ArrayList<>();
+        List<List<Double>> bytesPerStep = new ArrayList<>();
+        for (File file : scenarios) {
+            loaded.add(Scenario.load(file));
+            stepsPerSecond.add(new ArrayList<Double>());
+            bytesPerStep.add(new ArrayList<Double>());
+        }
+
+        // the scenarios take turns to warm up the JIT, so the code is compiled for all of them before any is measured
+        long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(measureMillis) * loaded.size();
+        for (int i = 0; i < repetitions || System.nanoTime() < warmUpEnd; i++)
+            for (Scenario scenario : loaded)
+                run(scenario, scenario.build());
+
+        // and take turns to be measured, so a slow spell of the machine is shared by all of them
+        Building[] buildings = new Building[loaded.size()];
+        long measureEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(measureMillis) * loaded.size();
+        for (int i = 0; i < repetitions || System.nanoTime() < measureEnd; i++) {
+            for (int index = 0; index < loaded.size(); index++) {
+                buildings[index] = loaded.get(index).build();
+                CoreLoopBenchmark benchmark = run(loaded.get(index), buildings[index]);
+                stepsPerSecond.get(index).add(benchmark.getStepsPerSecond());
+                bytesPerStep.get(index).add(benchmark.getBytesPerStep());
+            }
+        }
+
+        SortedMap<String, Double> results = new TreeMap<>();
+        for (int index = 0; index < loaded.size(); index++) {
+            String name = getName(scenarios.get(index));
+
+            // the same seed gives the same service in every run, the last one is kept
+            ElevatorManagerSystem ems = buildings[index].getEMS();
+            TripMetrics trips = ems.getTripMetrics();
+            int handling = 0;
+            for (int bank = 0; bank < ems.getAllBanks().size(); bank++)
+                handling += ems.getTrafficAnalytics().getPeakHandlingCount(bank);
+
+            results.put(name + "." + Metric.STEPS_PER_SECOND.key, getMedian(stepsPerSecond.get(index)));
+            results.put(name + "." + Metric.BYTES_PER_STEP.key, getMedian(bytesPerStep.get(index)));
+            results.put(name + "." + Metric.MEAN_WAIT.key,
+                    trips.getTrips() == 0 ? 0.0 : (double) trips.getWaitTime() / trips.getTrips());
+            results.put(name + "." + Metric.P95_WAIT.key, (double) trips.getWaitPercentile(0.95));
+            results.put(name + "." + Metric.HANDLING.key, (double) handling);
+        }
+        return results;
+    }
+
+    /**
+     * Write the metrics as the new baseline, along with the tolerances in use.
+     *
+     * @param results  The metrics measured
+     * @param baseline The baseline file
+     * @param previous The previous baseline whose tolerances are kept, or null
+     * @throws IOException if failed to write
+     */
+    public static void writeBaseline(SortedMap<String, Double> results, File baseline, Properties previous)
+            throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(baseline),
+                StandardCharsets.UTF_8))) {
+            out.println("# The baseline of the regression gate, recorded by RegressionMain --record");
+            for (String group : new String[]{"allocation", "kpi", "throughput"})
+                out.println(TOLERANCE_PREFIX + group + "=" + getTolerance(group, previous));
+            for (Map.Entry<String, Double> result : results.entrySet())
+                out.println(result.getKey() + "=" + result.getValue());
+        }
+    }
+
+    /**
+     * Read a baseline file.
+     *
+     * @param baseline The baseline file
+     * @return The baseline metrics and tolerances
+     * @throws IOException if failed to read
+     */
+    public static Properties readBaseline(File baseline) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(baseline)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    /**
+     * Compare the metrics with the baseline. A metric not in the baseline is new and never regresses,
+     * and a baseline metric no longer measured is reported as missing.
+     *
+     * @param results  The metrics measured
+     * @param baseline The baseline metrics and tolerances
+     * @return The comparison of every metric, in the order of name
+     */
+    public static List<Comparison> compare(SortedMap<String, Double> results, Properties baseline) {
+        SortedMap<String, Comparison> comparisons = new TreeMap<>();
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            String name = result.getKey();
+            Metric metric = Metric.of(name);
+            String recorded = baseline.getProperty(name);
+            double tolerance = getTolerance(metric.group, baseline);
+            comparisons.put(name, new Comparison(name, metric,
+                    recorded == null ? Double.NaN : Double.parseDouble(recorded), result.getValue(), tolerance));
+        }
+
+        for (String name : baseline.stringPropertyNames()) {
+            if (name.startsWith(TOLERANCE_PREFIX) || results.containsKey(name))
+                continue;
+            Metric metric = Metric.of(name);
+            comparisons.put(name, new Comparison(name, metric, Double.parseDouble(baseline.getProperty(name)),
+                    Double.NaN, getTolerance(metric.group, baseline)));
+        }
+        return new ArrayList<>(comparisons.values());
+    }
+
+    /**
+     * Get the name of a scenario file without the extension.
+     *
+     * @param file The scenario file
+     * @return The name
+     */
+    public static String getName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0) ? name.substring(0, dot) : name;
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Run a scenario through its whole period on the calling thread.
+     */
+    private static CoreLoopBenchmark run(Scenario scenario, Building building) {
+        Random random = new Random(scenario.getSeed());
+        List<SimulationActor> actors = new ArrayList<>();
+        actors.add(scenario.createTraffic(building, random));
+        FaultInjector faults = scenario.createFaults(building, new Random(random.nextLong()));
+        if (faults != null)
+            actors.add(faults);
+
+        CoreLoopBenchmark benchmark = new CoreLoopBenchmark();
+        benchmark.run(building, actors, scenario.getStartTime(), 0, scenario.getDuration());
+        return benchmark;
+    }
+
+    /**
+     * Get the median of the runs, a run disturbed by the machine moves it much less than the best or the mean.
+     */
+    private static double getMedian(List<Double> values) {
+        Collections.sort(values);
+        int middle = values.size() / 2;
+        return (values.size() % 2 == 1) ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2;
+    }
+
+    private static double getTolerance(String group, Properties baseline) {
+        String value = System.getProperty(TOLERANCE_PROPERTY + group);
+        if (value == null && baseline != null)
+            value = baseline.getProperty(TOLERANCE_PREFIX + group);
+        if (value != null)
+            return Double.parseDouble(value);
+
+        switch (group) {
+            case "throughput":
+                return DEFAULT_THROUGHPUT_TOLERANCE;
+            case "allocation":
+                return DEFAULT_ALLOCATION_TOLERANCE;
+            default:
+                return DEFAULT_KPI_TOLERANCE;
+        }
+    }
+
+    /* =================================== Inner Classes =========================================================== */
+
+    /**
+     * The kinds of metric of a scenario, and which way they regress.
+     */
+    private enum Metric {
+        STEPS_PER_SECOND("stepsPerSecond", "throughput", true, 0),
+        BYTES_PER_STEP("bytesPerStep", "allocation", false, 8),     // a few bytes come and go with the JIT
+        MEAN_WAIT("meanWait", "kpi", false, 0),
+        P95_WAIT("p95Wait", "kpi", false, 1000),   // one bucket of the wait histogram
+        HANDLING("handling", "kpi", true, 0);
+
+        private String key;
+        private String group;
+        private boolean higherIsBetter;
+        private double slack;           // the absolute change always allowed
+
+        Metric(String key, String group, boolean higherIsBetter, double slack) {
+            this.key = key;
+            this.group = group;
+            this.higherIsBetter = higherIsBetter;
+            this.slack = slack;
+        }
+
+        private static Metric of(String name) {
+            String key = name.substring(name.lastIndexOf('.') + 1);
+            for (Metric metric : values())
+                if (metric.key.equals(key))
+                    return metric;
+            throw new IllegalArgumentException("Unknown metric " + name);
+        }
+    }
+
+    /**
+     * A metric measured against its baseline.
+     */
+    public static class Comparison {
+        private String name;
+        private double baseline;        // NaN if new
+        private double current;         // NaN if missing
+        private double tolerance;
+        private boolean regressed;
+
+        private Comparison(String name, Metric metric, double baseline, double current, double tolerance) {
+            this.name = name;
+            this.baseline = baseline;
+            this.current = current;
+            this.tolerance = tolerance;
+
+            if (Double.isNaN(baseline) || Double.isNaN(current))
+                regressed = false;
+            else if (metric.higherIsBetter)
+                regressed = current < baseline * (1 - tolerance) - metric.slack;
+            else
+                regressed = current > baseline * (1 + tolerance) + metric.slack;
+        }
+
+        /**
+         * Get the relative change from the baseline.
+         *
+         * @return The change, e.g. 0.05 for 5% more, or NaN if the metric is new or missing
+         */
+        public double getChange() {
+            if (Double.isNaN(baseline) || Double.isNaN(current))
+                return Double.NaN;
+            if (baseline == 0)
+                return (current == 0) ? 0 : Double.POSITIVE_INFINITY;
+            return (current - baseline) / baseline;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getBaseline() {
+            return baseline;
+        }
+
+        public double getCurrent() {
+            return current;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public boolean isRegressed() {
+            return regressed;
+        }
+
+        public boolean isNew() {
+            return Double.isNaN(baseline);
+        }
+
+        public boolean isMissing() {
+            return Double.isNaN(current);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package Module;
+
+import Module.FleetSizingSweep.Configuration;
+import Module.FleetSizingSweep.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ReplicationController decides how many replications each configuration needs.
+ * <p>
+ * Every configuration is replicated with different seeds until the 95% confidence interval of each KPI
+ * (average wait, p95 wait and handling capacity) is narrower than the precision relative to its mean.
+ * A worker which finishes a replication always takes the configuration that is the least certain,
+ * so the cores freed by the configurations already clear go to the noisy ones.
+ *
+ * @author EJWang
+ */
+public class ReplicationController {
+
+    private static final String LOG_FILENAME = "replication_log.txt";
+    private static final boolean LOG_VERBOSE = true;
+
+    private FleetSizingSweep sweep;
+    private int numOfWorkers;
+    private double precision;
+    private int minReplications;
+    private int maxReplications;
+    private long seed;
+
+    // the estimates of the configurations being run
+    private List<Estimate> estimates;
+    private volatile Exception failure;
+
+    /* =================================== Constructor Methods ===================================================== */
+
+    /**
+     * Construct a ReplicationController.
+     *
+     * @param sweep           The sweep simulating the configurations
+     * @param numOfWorkers    The number of replications run at the same time
+     * @param precision       The target half width of the confidence interval relative to the mean, e.g. 0.05
+     * @param minReplications The fewest replications of each configuration, at least 2
+     * @param maxReplications The most replications of each configuration
+     * @param seed            The seed of the first replication, the others follow it
+     */
+    public ReplicationController(FleetSizingSweep sweep, int numOfWorkers, double precision, int minReplications,
+                                 int maxReplications, long seed) {
+        this.sweep = sweep;
+        this.numOfWorkers = Math.max(1, numOfWorkers);
+        this.precision = precision;
+        this.minReplications = Math.max(2, minReplications);
+        this.maxReplications = Math.max(this.minReplications, maxReplications);
+        this.seed = seed;
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Replicate every configuration until all KPIs are precise enough or the replications run out.
+     *
+     * @param configurations The configurations
+     * @return The estimates in the same order
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public List<Estimate> run(List<Configuration> configurations) throws InterruptedException {
+        estimates = new ArrayList<>();
+        for (Configuration configuration : configurations)
+            estimates.add(new Estimate(configuration));
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < numOfWorkers; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    replicate();
+                }
+            }, "replication-worker-" + (i + 1));
+
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers)
+            worker.join();
+
+        if (failure != null)
+            throw new IllegalStateException("Replication failed", failure);
+
+        return estimates;
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Involke LogRecorder inorder to record the message of each stage of event.
+     *
+     * @param msg The status of event
+     */
+    private void log(String msg) {
+        LogRecorder.getInstance().recordLog(LOG_FILENAME, msg, LOG_VERBOSE);
+    }
+
+    /**
+     * Keep running the replications needed most, until nothing is needed.
+     */
+    private void replicate() {
+        while (failure == null) {
+            Estimate estimate;
+            long replicationSeed;
+
+            synchronized (this) {
+                estimate = getNeediestEstimate();
+                if (estimate == null)
+                    return;
+
+                replicationSeed = seed + estimate.numOfStarted;
+                estimate.numOfStarted++;
+            }
+
+            try {
+                Result result = sweep.simulate(estimate.configuration, replicationSeed);
+
+                synchronized (this) {
+                    estimate.add(result);
+                    if (estimate.isConverged())
+                        log(String.format("重复实验: %s 在%d次后收敛", estimate.getName(), estimate.getReplications()));
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Find the configuration needing a replication the most. Configurations below the minimum come first,
+     * then the one with the widest relative interval. Replications already running count as done,
+     * so a configuration is not flooded before its results come back.
+     *
+     * @return The estimate, or null if every configuration has enough replications
+     */
+    private Estimate getNeediestEstimate() {
+        Estimate neediest = null;
+
+        // every configuration has the minimum replications first
+        for (Estimate estimate : estimates) {
+            if (estimate.numOfStarted < minReplications &&
+                    (neediest == null || estimate.numOfStarted < neediest.numOfStarted))
+                neediest = estimate;
+        }
+        if (neediest != null)
+            return neediest;
+
+        double widest = 0;
+        for (Estimate estimate : estimates) {
+            if (estimate.numOfStarted >= maxReplications || estimate.isConverged())
+                continue;
+
+            // the results of running replications are not known yet, expect each one to narrow the interval
+            int numOfRunning = estimate.numOfStarted - estimate.getReplications();
+            double width = estimate.getRelativeHalfWidth() / (1 + numOfRunning);
+            if (neediest == null || width > widest) {
+                neediest = estimate;
+                widest = width;
+            }
+        }
+        return neediest;
+    }
+
+    /* =================================== Nested Classes ========================================================== */
+
+    /**
+     * The running estimate of the KPIs of one configuration.
+     */
+    public class Estimate {
+
+        private Configuration configuration;
+        private int numOfStarted;
+
+        private RunningStatistics averageWait;
+        private RunningStatistics p95Wait;
+        private RunningStatistics handlingCapacity;
+
+        private Estimate(Configuration configuration) {
+            this.configuration = configuration;
+            averageWait = new RunningStatistics();
+            p95Wait = new RunningStatistics();
+            handlingCapacity = new RunningStatistics();
+        }
+
+        private void add(Result result) {
+            averageWait.add(result.getAverageWait());
+            p95Wait.add(result.getP95Wait());
+            handlingCapacity.add(result.getHandlingCapacity());
+        }
+
+        /**
+         * Get the widest relative half width among the KPIs.
+         *
+         * @return The relative half width
+         */
+        public double getRelativeHalfWidth() {
+            return Math.max(averageWait.getRelativeHalfWidth(),
+                    Math.max(p95Wait.getRelativeHalfWidth(), handlingCapacity.getRelativeHalfWidth()));
+        }
+
+        /**
+         * Check whether every KPI is precise enough.
+         *
+         * @return true if no more replication is needed
+         */
+        public boolean isConverged() {
+            return getReplications() >= minReplications && getRelativeHalfWidth() <= precision;
+        }
+
+        /**
+         * Get a short name of the configuration.
+         *
+         * @return The name
+         */
+        public String getName() {
+            return String.format("%d台/%.0fkg/%d人/%dms/%s/%d人每小时",
+                    configuration.getCars(), configuration.getWeight(), configuration.getPassengers(),
+                    configuration.getFloorTravelTime(), configuration.getStrategy().getClass().getSimpleName(),
+                    configuration.getCallsPerHour());
+        }
+
+        public Configuration getConfiguration() {
+            return configuration;
+        }
+
+        public int getReplications() {
+            return (int) averageWait.getCount();
+        }
+
+        public RunningStatistics getAverageWait() {
+            return averageWait;
+        }
+
+        public RunningStatistics getP95Wait() {
+            return p95Wait;
+        }
+
+        public RunningStatistics getHandlingCapacity() {
+            return handlingCapacity;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package Module;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The ResultExporter streams the result of a simulation into two columnar files in a directory,
+ * read back by Module.ColumnarReader:
+ * <ul>
+ *   <li>passengers.col - one row per passenger arrived at the destination</li>
+ *   <li>trips.col - one row per run of a car, from leaving idle until it has no task left</li>
+ * </ul>
+ * Every row is tagged with the number of the building, so one exporter can be shared by a campus.
+ * The times are in simulated millisecond and the floors are given by their level.
+ *
+ * @author EJWang
+ */
+public class ResultExporter implements Closeable {
+
+    public static final String PASSENGER_FILENAME = "passengers.col";
+    public static final String TRIP_FILENAME = "trips.col";
+
+    public static final String[] PASSENGER_COLUMNS = {
+            "building", "origin", "destination", "request_time", "board_time", "arrive_time", "car"};
+    public static final String[] TRIP_COLUMNS = {
+            "building", "car", "start_floor", "end_floor", "start_time", "end_time", "stops", "boarded", "max_load"};
+
+    private ColumnarWriter passengers;
+    private ColumnarWriter trips;
+    private volatile boolean isFailed;
+
+    /**
+     * Create the result files in a directory.
+     *
+     * @param directory The directory, created if not exists
+     * @throws IOException if failed to create the files
+     */
+    public ResultExporter(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Failed to create directory " + directory);
+
+        passengers = new ColumnarWriter(new File(directory, PASSENGER_FILENAME), PASSENGER_COLUMNS);
+        trips = new ColumnarWriter(new File(directory, TRIP_FILENAME), TRIP_COLUMNS);
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Export a passenger arrived at the destination.
+     *
+     * @param building   The number of the building
+     * @param passenger  The arrived passenger
+     * @param arriveTime The time of arrival
+     */
+    public void recordPassenger(int building, Passenger passenger, long arriveTime) {
+        if (isFailed)
+            return;
+
+        try {
+            passengers.append(building,
+                    passenger.getOriginFloor().getFloorLevel(),
+                    passenger.getDestinationFloor().getFloorLevel(),
+                    passenger.getRequestTime(),
+                    passenger.getBoardTime(),
+                    arriveTime,
+                    passenger.getCarNumber());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Export a run of a car.
+     *
+     * @param building   The number of the building
+     * @param car        The number of the car
+     * @param startLevel The floor the run started from
+     * @param endLevel   The floor the run ended at
+     * @param startTime  The time the run started
+     * @param endTime    The time the run ended
+     * @param stops      The number of stops with the door opened
+     * @param boarded    The number of passengers got on board
+     * @param maxLoad    The most passengers on board at once
+     */
+    public void recordCarTrip(int building, int car, int startLevel, int endLevel, long startTime, long endTime,
+                              int stops, int boarded, int maxLoad) {
+        if (isFailed)
+            return;
+
+        try {
+            trips.append(building, car, startLevel, endLevel, startTime, endTime, stops, boarded, maxLoad);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Write the rows buffered so far, the files can be read up to here.
+     *
+     * @throws IOException if failed to write
+     */
+    public void flush() throws IOException {
+        passengers.flush();
+        trips.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        passengers.close();
+        trips.close();
+    }
+
+    public long getNumOfPassengers() {
+        return passengers.getNumOfRows();
+    }
+
+    public long getNumOfTrips() {
+        return trips.getNumOfRows();
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Stop exporting once the disk fails, the simulation itself goes on.
+     */
+    private void fail(IOException e) {
+        isFailed = true;
+        System.err.println("WARNING: Failed to export the result! " + e.getMessage());
+    }
+}
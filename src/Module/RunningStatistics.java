@@ -0,0 +1,76 @@
+package Module;
+
+/**
+ * The RunningStatistics keeps the mean and variance of a stream of samples without keeping the samples,
+ * updated by Welford's method, and tells the 95% confidence interval of the mean.
+ *
+ * @author EJWang
+ */
+public class RunningStatistics {
+
+    // the 97.5% quantile of Student's t distribution for 1 to 30 degrees of freedom
+    private static final double[] T_QUANTILES = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double Z_QUANTILE = 1.960;
+
+    private long count;
+    private double mean;
+    private double sumOfSquares;    // the sum of squared differences from the mean
+
+    /**
+     * Add a sample.
+     *
+     * @param sample The sample
+     */
+    public void add(double sample) {
+        count++;
+        double delta = sample - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (sample - mean);
+    }
+
+    /**
+     * Get the sample variance.
+     *
+     * @return The variance, or 0 with less than 2 samples
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : sumOfSquares / (count - 1);
+    }
+
+    /**
+     * Get the half width of the 95% confidence interval of the mean.
+     *
+     * @return The half width, or infinity with less than 2 samples
+     */
+    public double getHalfWidth() {
+        if (count < 2)
+            return Double.POSITIVE_INFINITY;
+
+        double quantile = (count - 1 <= T_QUANTILES.length) ? T_QUANTILES[(int) count - 2] : Z_QUANTILE;
+        return quantile * Math.sqrt(getVariance() / count);
+    }
+
+    /**
+     * Get the half width of the confidence interval relative to the mean.
+     *
+     * @return The relative half width, 0 if both the mean and half width are 0
+     */
+    public double getRelativeHalfWidth() {
+        double halfWidth = getHalfWidth();
+        if (halfWidth == 0)
+            return 0;
+
+        return halfWidth / Math.abs(mean);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+}
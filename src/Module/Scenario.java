@@ -0,0 +1,708 @@
+package Module;
+
+import exceptions.ScenarioFormatException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A Scenario describes a simulation run: the building, the car types, the banks, the traffic through the day,
+ * the faults of the cars and how long to run. It is written as a text file, one directive per line:
+ * <pre>
+ *   building -2 40                       # lowest and highest level
+ *   run 07:00 2h                         # start time of day and duration, in h, m or s
+ *   seed 42
+ *   strategy workload                    # workload, nearest or lookahead
+ *   parking demand                       # demand, lobby, zone or none
+ *   car standard speed=700 weight=1300 passengers=11 open=2000 close=2500 board=1200
+ *   bank low single standard 4 -2 20     # name, single|double|twin, car type, shafts, range, extra levels
+ *   bank high single standard 4 21 40 1
+ *   traffic 07:00 3000 incoming=0.8 outgoing=0.05     # from time of day, calls per hour, lobby shares
+ *   traffic 09:30 600 incoming=0.1 outgoing=0.1
+ *   fault high mtbf=8h mttr=30m kind=door    # a bank or * for every bank, kind is docking, door or drive
+ * </pre>
+ * Only building, at least one car and one bank are needed, the rest have defaults. The options of a car
+ * are all optional, docking, alight and dwell can be given too, and the time is in millisecond.
+ * <p>
+ * Parsing the text is slow next to a short run, so a scenario is compiled once into a compact binary form,
+ * which is loaded by a plain sequence of reads. A sweep keeps the bytes and decodes a fresh scenario
+ * for every run, so no run shares anything with another.
+ *
+ * @author EJWang
+ */
+public class Scenario {
+
+    static final int MAGIC = 0x454C5343;            // "ELSC"
+    static final short VERSION = 2;
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+
+    private int lowestLevel;
+    private int highestLevel;
+    private long startTime;                 // time of day in millisecond
+    private long duration;                  // millisecond
+    private long seed;
+    private String strategy;
+    private String parking;
+
+    private List<CarType> carTypes;
+    private List<BankLayout> banks;
+    private TrafficProfile traffic;
+    private List<FaultModel> faults;
+
+    /**
+     * Construct an empty Scenario, a working day from 07:00 for one hour.
+     */
+    private Scenario() {
+        startTime = 7 * HOUR;
+        duration = HOUR;
+        seed = 42;
+        strategy = "workload";
+        parking = "demand";
+        carTypes = new ArrayList<>();
+        banks = new ArrayList<>();
+        traffic = new TrafficProfile();
+        faults = new ArrayList<>();
+    }
+
+    /* =================================== Loading ================================================================= */
+
+    /**
+     * Load a scenario from a file, either compiled or text.
+     *
+     * @param file The scenario file
+     * @return The scenario
+     * @throws IOException             if failed to read the file
+     * @throws ScenarioFormatException if the file is not a valid scenario
+     */
+    public static Scenario load(File file) throws IOException, ScenarioFormatException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (isCompiled(bytes))
+            return fromBytes(bytes);
+
+        return parse(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compile a text scenario into its binary form.
+     *
+     * @param text   The text scenario file
+     * @param binary The compiled file to write
+     * @return The compiled scenario
+     * @throws IOException             if failed to read or write
+     * @throws ScenarioFormatException if the text is not a valid scenario
+     */
+    public static Scenario compile(File text, File binary) throws IOException, ScenarioFormatException {
+        Scenario scenario = load(text);
+        try (OutputStream out = new FileOutputStream(binary)) {
+            out.write(scenario.toBytes());
+        }
+        return scenario;
+    }
+
+    /**
+     * Parse a text scenario.
+     *
+     * @param reader The text
+     * @return The scenario
+     * @throws IOException             if failed to read
+     * @throws ScenarioFormatException if the text is not a valid scenario, the message tells the line
+     */
+    public static Scenario parse(Reader reader) throws IOException, ScenarioFormatException {
+        Scenario scenario = new Scenario();
+        boolean hasBuilding = false;
+        BufferedReader lines = new BufferedReader(reader);
+
+        int lineNumber = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+                line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+
+            String[] words = line.split("\\s+");
+            try {
+                if (!hasBuilding && !words[0].equals("building"))
+                    throw new IllegalArgumentException("the building must be given first");
+                scenario.parseDirective(words);
+                hasBuilding = true;
+            } catch (RuntimeException e) {
+                throw new ScenarioFormatException("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+
+        if (scenario.carTypes.isEmpty() || scenario.banks.isEmpty())
+            throw new ScenarioFormatException("A scenario needs at least one car type and one bank");
+        return scenario;
+    }
+
+    /**
+     * Decode a compiled scenario.
+     *
+     * @param bytes The compiled scenario
+     * @return The scenario
+     * @throws ScenarioFormatException if the bytes are not a compiled scenario of this version
+     */
+    public static Scenario fromBytes(byte[] bytes) throws ScenarioFormatException {
+        Scenario scenario = new Scenario();
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION)
+                throw new ScenarioFormatException("Not a compiled scenario of version " + VERSION);
+
+            scenario.lowestLevel = in.readInt();
+            scenario.highestLevel = in.readInt();
+            scenario.startTime = in.readLong();
+            scenario.duration = in.readLong();
+            scenario.seed = in.readLong();
+            scenario.strategy = in.readUTF();
+            scenario.parking = in.readUTF();
+
+            for (int i = in.readShort(); i > 0; i--) {
+                scenario.carTypes.add(new CarType(in.readUTF(), in.readInt(), in.readDouble(), in.readInt(),
+                        new CarTimings(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                                in.readInt())));
+            }
+
+            for (int i = in.readShort(); i > 0; i--) {
+                String name = in.readUTF();
+                ElevatorType type = ElevatorType.values()[in.readByte()];
+                int carType = in.readShort();
+                int shafts = in.readShort();
+                int fromLevel = in.readInt();
+                int toLevel = in.readInt();
+                int[] extraLevels = new int[in.readShort()];
+                for (int j = 0; j < extraLevels.length; j++)
+                    extraLevels[j] = in.readInt();
+                scenario.banks.add(new BankLayout(name, type, carType, shafts, fromLevel, toLevel, extraLevels));
+            }
+
+            for (int i = in.readShort(); i > 0; i--)
+                scenario.traffic.addPeriod(in.readLong(), in.readInt(), in.readDouble(), in.readDouble());
+
+            for (int i = in.readShort(); i > 0; i--)
+                scenario.faults.add(new FaultModel(in.readShort(), FaultType.values()[in.readByte()], in.readLong(),
+                        in.readLong()));
+        } catch (IOException | RuntimeException e) {
+            throw new ScenarioFormatException("Corrupted compiled scenario: " + e);
+        }
+        return scenario;
+    }
+
+    /**
+     * Encode this scenario into its compiled form.
+     *
+     * @return The compiled scenario
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(lowestLevel);
+            out.writeInt(highestLevel);
+            out.writeLong(startTime);
+            out.writeLong(duration);
+            out.writeLong(seed);
+            out.writeUTF(strategy);
+            out.writeUTF(parking);
+
+            out.writeShort(carTypes.size());
+            for (CarType car : carTypes) {
+                out.writeUTF(car.name);
+                out.writeInt(car.floorTravelTime);
+                out.writeDouble(car.weightCapacity);
+                out.writeInt(car.passengerCapacity);
+                out.writeInt(car.timings.getDockingTime());
+                out.writeInt(car.timings.getDoorOpenTime());
+                out.writeInt(car.timings.getDoorCloseTime());
+                out.writeInt(car.timings.getAlightingTime());
+                out.writeInt(car.timings.getBoardingTime());
+                out.writeInt(car.timings.getMinDwellTime());
+            }
+
+            out.writeShort(banks.size());
+            for (BankLayout bank : banks) {
+                out.writeUTF(bank.name);
+                out.writeByte(bank.type.ordinal());
+                out.writeShort(bank.carType);
+                out.writeShort(bank.shafts);
+                out.writeInt(bank.fromLevel);
+                out.writeInt(bank.toLevel);
+                out.writeShort(bank.extraLevels.length);
+                for (int level : bank.extraLevels)
+                    out.writeInt(level);
+            }
+
+            out.writeShort(traffic.getNumOfPeriods());
+            for (int i = 0; i < traffic.getNumOfPeriods(); i++) {
+                out.writeLong(traffic.getStartTime(i));
+                out.writeInt(traffic.getCallsPerHour(i));
+                out.writeDouble(traffic.getIncomingShare(i));
+                out.writeDouble(traffic.getOutgoingShare(i));
+            }
+
+            out.writeShort(faults.size());
+            for (FaultModel fault : faults) {
+                out.writeShort(fault.bank);
+                out.writeByte(fault.type.ordinal());
+                out.writeLong(fault.meanTimeBetweenFailures);
+                out.writeLong(fault.meanTimeToRepair);
+            }
+        } catch (IOException e) {
+            // never thrown by a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Construct the building of this scenario, with its banks, cars, dispatch strategy and parking policy.
+     *
+     * @return The building, not started yet
+     * @throws Exception if failed to construct the building
+     */
+    public Building build() throws Exception {
+        Building building = new Building(lowestLevel, highestLevel);
+        ElevatorManagerSystem ems = building.getEMS();
+
+        for (BankLayout layout : banks) {
+            CarType car = carTypes.get(layout.carType);
+            int first = ems.getAllElevators().size();
+            ems.constructBank(layout.name, layout.type, layout.shafts, car.weightCapacity, car.passengerCapacity,
+                    layout.fromLevel, layout.toLevel, layout.extraLevels);
+
+            List<Elevator> elevators = ems.getAllElevators();
+            for (int i = first; i < elevators.size(); i++) {
+                if (car.floorTravelTime > 0)
+                    elevators.get(i).setFloorTravelTime(car.floorTravelTime);
+                elevators.get(i).setTimings(car.timings);
+            }
+        }
+
+        ems.setDispatchStrategy(createStrategy(strategy));
+        ems.setParkingPolicy(createParkingPolicy(parking));
+        return building;
+    }
+
+    /**
+     * Create the traffic of this scenario for a building built by it.
+     *
+     * @param building The building
+     * @param random   The random source, seeded to repeat the same traffic
+     * @return The traffic generator
+     */
+    public SimulationActor createTraffic(Building building, Random random) {
+        return new ProfileTrafficGenerator(building, random, traffic);
+    }
+
+    /**
+     * Create the faults of this scenario for a building built by it.
+     *
+     * @param building The building
+     * @param random   The random source, seeded to repeat the same failures
+     * @return The fault injector, or null if no car ever fails
+     */
+    public FaultInjector createFaults(Building building, Random random) {
+        if (faults.isEmpty())
+            return null;
+
+        FaultInjector injector = new FaultInjector(random);
+        List<Bank> built = building.getEMS().getAllBanks();
+        for (FaultModel fault : faults) {
+            for (int i = 0; i < built.size(); i++)
+                if (fault.bank < 0 || fault.bank == i)
+                    injector.addFaultModel(built.get(i), fault.type, fault.meanTimeBetweenFailures,
+                            fault.meanTimeToRepair);
+        }
+        return injector;
+    }
+
+    /* =================================== Getters ================================================================= */
+
+    public int getLowestLevel() {
+        return lowestLevel;
+    }
+
+    public int getHighestLevel() {
+        return highestLevel;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public TrafficProfile getTraffic() {
+        return traffic;
+    }
+
+    public List<FaultModel> getFaults() {
+        return faults;
+    }
+
+    public String getBankName(int bank) {
+        return banks.get(bank).name;
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Apply a directive of the text scenario.
+     */
+    private void parseDirective(String[] words) {
+        switch (words[0]) {
+            case "building":
+                expectWords(words, 3, 3);
+                lowestLevel = Integer.parseInt(words[1]);
+                highestLevel = Integer.parseInt(words[2]);
+                if (lowestLevel >= highestLevel)
+                    throw new IllegalArgumentException("the lowest level must be below the highest level");
+                break;
+
+            case "run":
+                expectWords(words, 3, 3);
+                startTime = parseTimeOfDay(words[1]);
+                duration = parseDuration(words[2]);
+                break;
+
+            case "seed":
+                expectWords(words, 2, 2);
+                seed = Long.parseLong(words[1]);
+                break;
+
+            case "strategy":
+                expectWords(words, 2, 2);
+                createStrategy(words[1]);
+                strategy = words[1];
+                break;
+
+            case "parking":
+                expectWords(words, 2, 2);
+                createParkingPolicy(words[1]);
+                parking = words[1];
+                break;
+
+            case "car":
+                expectWords(words, 2, 11);
+                parseCar(words);
+                break;
+
+            case "bank":
+                expectWords(words, 7, Integer.MAX_VALUE);
+                parseBank(words);
+                break;
+
+            case "traffic":
+                expectWords(words, 3, 5);
+                traffic.addPeriod(parseTimeOfDay(words[1]), Integer.parseInt(words[2]),
+                        parseDouble(option(words, 3, "incoming"), 0), parseDouble(option(words, 3, "outgoing"), 0));
+                break;
+
+            case "fault":
+                expectWords(words, 4, 5);
+                int bank = words[1].equals("*") ? -1 : findBank(words[1]);
+                String mtbf = option(words, 2, "mtbf");
+                String mttr = option(words, 2, "mttr");
+                if (mtbf == null || mttr == null)
+                    throw new IllegalArgumentException("a fault needs both mtbf and mttr");
+                String kind = option(words, 2, "kind");
+                faults.add(new FaultModel(bank, parseFaultType(kind == null ? "drive" : kind),
+                        parseDuration(mtbf), parseDuration(mttr)));
+                break;
+
+            default:
+                throw new IllegalArgumentException("unknown directive " + words[0]);
+        }
+    }
+
+    private void parseCar(String[] words) {
+        for (CarType car : carTypes)
+            if (car.name.equals(words[1]))
+                throw new IllegalArgumentException("car type " + words[1] + " is defined twice");
+
+        CarTimings defaults = CarTimings.DEFAULT;
+        CarTimings timings = new CarTimings(
+                parseInt(option(words, 2, "docking"), defaults.getDockingTime()),
+                parseInt(option(words, 2, "open"), defaults.getDoorOpenTime()),
+                parseInt(option(words, 2, "close"), defaults.getDoorCloseTime()),
+                parseInt(option(words, 2, "alight"), defaults.getAlightingTime()),
+                parseInt(option(words, 2, "board"), defaults.getBoardingTime()),
+                parseInt(option(words, 2, "dwell"), defaults.getMinDwellTime()));
+
+        carTypes.add(new CarType(words[1],
+                parseInt(option(words, 2, "speed"), 0),
+                parseDouble(option(words, 2, "weight"), 1300.0),
+                parseInt(option(words, 2, "passengers"), 11),
+                timings));
+    }
+
+    private void parseBank(String[] words) {
+        for (BankLayout bank : banks)
+            if (bank.name.equals(words[1]))
+                throw new IllegalArgumentException("bank " + words[1] + " is defined twice");
+
+        ElevatorType type;
+        switch (words[2]) {
+            case "single":
+                type = ElevatorType.SINGLE_DECK;
+                break;
+            case "double":
+                type = ElevatorType.DOUBLE_DECK;
+                break;
+            case "twin":
+                type = ElevatorType.TWIN;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown car arrangement " + words[2]);
+        }
+
+        int carType = -1;
+        for (int i = 0; i < carTypes.size(); i++)
+            if (carTypes.get(i).name.equals(words[3]))
+                carType = i;
+        if (carType < 0)
+            throw new IllegalArgumentException("car type " + words[3] + " is not defined");
+
+        int shafts = Integer.parseInt(words[4]);
+        if (shafts <= 0)
+            throw new IllegalArgumentException("a bank needs at least one shaft");
+
+        int[] extraLevels = new int[words.length - 7];
+        for (int i = 0; i < extraLevels.length; i++)
+            extraLevels[i] = checkLevel(Integer.parseInt(words[7 + i]));
+
+        banks.add(new BankLayout(words[1], type, carType, shafts, checkLevel(Integer.parseInt(words[5])),
+                checkLevel(Integer.parseInt(words[6])), extraLevels));
+    }
+
+    private int findBank(String name) {
+        for (int i = 0; i < banks.size(); i++)
+            if (banks.get(i).name.equals(name))
+                return i;
+        throw new IllegalArgumentException("bank " + name + " is not defined");
+    }
+
+    private int checkLevel(int level) {
+        if (level == 0 || level < lowestLevel || level > highestLevel)
+            throw new IllegalArgumentException("floor level " + level + " is not in the building");
+        return level;
+    }
+
+    private static void expectWords(String[] words, int min, int max) {
+        if (words.length < min || words.length > max)
+            throw new IllegalArgumentException("wrong number of values for " + words[0]);
+    }
+
+    /**
+     * Find the value of a name=value option after the positional values.
+     *
+     * @return The value, or null if not given
+     */
+    private static String option(String[] words, int from, String name) {
+        String value = null;
+        for (int i = from; i < words.length; i++) {
+            int split = words[i].indexOf('=');
+            if (split < 0)
+                throw new IllegalArgumentException("expected name=value but got " + words[i]);
+            if (words[i].substring(0, split).equals(name))
+                value = words[i].substring(split + 1);
+        }
+        return value;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        return (value == null) ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static double parseDouble(String value, double defaultValue) {
+        return (value == null) ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * Parse a time of day as hh:mm.
+     */
+    private static long parseTimeOfDay(String value) {
+        String[] parts = value.split(":");
+        if (parts.length != 2)
+            throw new IllegalArgumentException("expected hh:mm but got " + value);
+        return Integer.parseInt(parts[0]) * HOUR + Integer.parseInt(parts[1]) * MINUTE;
+    }
+
+    /**
+     * Parse a duration such as 2h, 90m or 30s.
+     */
+    private static long parseDuration(String value) {
+        long unit;
+        switch (value.charAt(value.length() - 1)) {
+            case 'h':
+                unit = HOUR;
+                break;
+            case 'm':
+                unit = MINUTE;
+                break;
+            case 's':
+                unit = SECOND;
+                break;
+            default:
+                throw new IllegalArgumentException("expected a duration in h, m or s but got " + value);
+        }
+        return (long) (Double.parseDouble(value.substring(0, value.length() - 1)) * unit);
+    }
+
+    private static FaultType parseFaultType(String name) {
+        switch (name) {
+            case "docking":
+                return FaultType.DOCKING;
+            case "door":
+                return FaultType.DOOR;
+            case "drive":
+                return FaultType.DRIVE;
+            default:
+                throw new IllegalArgumentException("unknown fault kind " + name);
+        }
+    }
+
+    private static DispatchStrategy createStrategy(String name) {
+        switch (name) {
+            case "nearest":
+                return new NearestCarDispatchStrategy();
+            case "workload":
+                return new WorkloadDispatchStrategy();
+            case "lookahead":
+                return new LookaheadDispatchStrategy();
+            default:
+                throw new IllegalArgumentException("unknown dispatch strategy " + name);
+        }
+    }
+
+    private static ParkingPolicy createParkingPolicy(String name) {
+        switch (name) {
+            case "demand":
+                return new DemandWeightedParkingPolicy();
+            case "lobby":
+                return new LobbyParkingPolicy();
+            case "zone":
+                return new ZoneParkingPolicy();
+            case "none":
+                return null;
+            default:
+                throw new IllegalArgumentException("unknown parking policy " + name);
+        }
+    }
+
+    private static boolean isCompiled(byte[] bytes) {
+        return bytes.length >= 4 && ((bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8
+                | (bytes[3] & 0xFF)) == MAGIC;
+    }
+
+    /* =================================== Inner Classes =========================================================== */
+
+    /**
+     * A type of car, installed by any number of banks.
+     */
+    private static class CarType {
+        private String name;
+        private int floorTravelTime;        // 0 to keep the speed of the elevator
+        private double weightCapacity;
+        private int passengerCapacity;
+        private CarTimings timings;
+
+        CarType(String name, int floorTravelTime, double weightCapacity, int passengerCapacity, CarTimings timings) {
+            this.name = name;
+            this.floorTravelTime = floorTravelTime;
+            this.weightCapacity = weightCapacity;
+            this.passengerCapacity = passengerCapacity;
+            this.timings = timings;
+        }
+    }
+
+    /**
+     * A bank of cars of one type serving a range of floors.
+     */
+    private static class BankLayout {
+        private String name;
+        private ElevatorType type;
+        private int carType;
+        private int shafts;
+        private int fromLevel;
+        private int toLevel;
+        private int[] extraLevels;
+
+        BankLayout(String name, ElevatorType type, int carType, int shafts, int fromLevel, int toLevel,
+                   int[] extraLevels) {
+            this.name = name;
+            this.type = type;
+            this.carType = carType;
+            this.shafts = shafts;
+            this.fromLevel = fromLevel;
+            this.toLevel = toLevel;
+            this.extraLevels = extraLevels;
+        }
+    }
+
+    /**
+     * How often the cars of a bank break down by a kind of fault and how long they take to repair.
+     */
+    public static class FaultModel {
+        private int bank;                           // -1 for every bank
+        private FaultType type;
+        private long meanTimeBetweenFailures;       // millisecond
+        private long meanTimeToRepair;              // millisecond
+
+        FaultModel(int bank, FaultType type, long meanTimeBetweenFailures, long meanTimeToRepair) {
+            if (meanTimeBetweenFailures <= 0 || meanTimeToRepair <= 0)
+                throw new IllegalArgumentException("mtbf and mttr must be positive");
+
+            this.bank = bank;
+            this.type = type;
+            this.meanTimeBetweenFailures = meanTimeBetweenFailures;
+            this.meanTimeToRepair = meanTimeToRepair;
+        }
+
+        public int getBank() {
+            return bank;
+        }
+
+        public FaultType getType() {
+            return type;
+        }
+
+        public long getMeanTimeBetweenFailures() {
+            return meanTimeBetweenFailures;
+        }
+
+        public long getMeanTimeToRepair() {
+            return meanTimeToRepair;
+        }
+    }
+}
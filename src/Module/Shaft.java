@@ -0,0 +1,309 @@
+package Module;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Shaft shared by several independent cars, ordered from the lowest car to the highest car.
+ * Cars can never pass each other, so they keep a safe separation, and the lowest car cannot reach
+ * the top floors which the cars above it need, and the other way round.
+ *
+ * @author EJWang
+ */
+public class Shaft {
+
+    // the minimum distance in floors between two cars
+    private static final int MIN_SEPARATION = 2;
+
+    // the extra workload for each floor another car must clear
+    private static final int INTERFERENCE_PENALTY = 3;
+
+    private Building building;
+
+    // the cars in this shaft, from the lowest to the highest
+    private List<Elevator> cars;
+
+    // the floor each car is moving into, a moving car occupies both floors
+    private Map<Elevator, Floor> entering;
+
+    /**
+     * Construct a Shaft.
+     *
+     * @param building The building which this shaft is in
+     */
+    public Shaft(Building building) {
+        this.building = building;
+        cars = new ArrayList<>();
+        entering = new HashMap<>();
+    }
+
+    /**
+     * Add a car above all cars already in this shaft, it starts at the highest floor it can reach.
+     *
+     * @param car The car to add
+     */
+    public void addCar(Elevator car) {
+        cars.add(car);
+    }
+
+    /**
+     * Check whether a car can move to a floor level keeping the separation from other cars.
+     *
+     * @param car   The car about to move
+     * @param level The floor level to move to
+     * @return true if the move is safe
+     */
+    public synchronized boolean isClear(Elevator car, int level) {
+        int index = building.getFloorIndex(level);
+
+        for (Elevator other : cars) {
+            if (other == car)
+                continue;
+
+            int otherIndex = building.getFloorIndex(other.getCurrFloor().getFloorLevel());
+            if (Math.abs(index - otherIndex) < MIN_SEPARATION)
+                return false;
+
+            Floor otherEntering = entering.get(other);
+            if (otherEntering != null &&
+                    Math.abs(index - building.getFloorIndex(otherEntering.getFloorLevel())) < MIN_SEPARATION)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Claim the floor a car is moving into if the move is safe, no other car can come close to it until the car
+     * has arrived.
+     *
+     * @param car   The car about to move
+     * @param floor The floor to move into
+     * @return true if the floor is claimed and the car can move
+     */
+    public synchronized boolean enter(Elevator car, Floor floor) {
+        if (!isClear(car, floor.getFloorLevel()))
+            return false;
+
+        entering.put(car, floor);
+        return true;
+    }
+
+    /**
+     * Claim a floor without checking, used to restore a car moving when the checkpoint was taken.
+     *
+     * @param car   The moving car
+     * @param floor The floor it is moving into
+     */
+    synchronized void claim(Elevator car, Floor floor) {
+        entering.put(car, floor);
+    }
+
+    /**
+     * Release the claim once the car has arrived at the floor it was moving into.
+     *
+     * @param car The car which has arrived
+     */
+    public synchronized void arrive(Elevator car) {
+        entering.remove(car);
+    }
+
+    /**
+     * Check whether a car can ever reach a floor level, leaving room for the cars above and below it.
+     *
+     * @param car   The car
+     * @param level The floor level
+     * @return true if the floor is reachable
+     */
+    public boolean isReachable(Elevator car, int level) {
+        int index = building.getFloorIndex(level);
+        int order = cars.indexOf(car);
+
+        return index >= getLowestReachableIndex(order) && index <= getHighestReachableIndex(order);
+    }
+
+    /**
+     * Get the extra work for a car to reach a floor when other cars stand in the way.
+     *
+     * @param car         The car
+     * @param targetFloor The target floor
+     * @return The extra workload
+     */
+    public int getInterference(Elevator car, Floor targetFloor) {
+        int from = building.getFloorIndex(car.getCurrFloor().getFloorLevel());
+        int to = building.getFloorIndex(targetFloor.getFloorLevel());
+        int low = Math.min(from, to) - MIN_SEPARATION + 1;
+        int high = Math.max(from, to) + MIN_SEPARATION - 1;
+        int interference = 0;
+
+        for (Elevator other : cars) {
+            if (other == car)
+                continue;
+
+            // the other car is in the way, and it is harder to move away if it is busy
+            int otherIndex = building.getFloorIndex(other.getCurrFloor().getFloorLevel());
+            if (otherIndex >= low && otherIndex <= high) {
+                int clearance = Math.min(otherIndex - low, high - otherIndex) + 1;
+                interference += INTERFERENCE_PENALTY * clearance * (1 + other.getTasks().size());
+            }
+        }
+        return interference;
+    }
+
+    /**
+     * Ask the idle cars in the way to leave toward the end of the shaft.
+     *
+     * @param car       The blocked car
+     * @param direction The direction the blocked car want to go
+     */
+    public void requestYield(Elevator car, int direction) {
+        int order = cars.indexOf(car);
+
+        for (int i = 0; i < cars.size(); i++) {
+            Elevator other = cars.get(i);
+
+            // only the cars ahead are in the way
+            if (other == car || Integer.signum(i - order) != direction)
+                continue;
+
+            if (other.getDirection() == 0 && other.getTasks().isEmpty()) {
+                // the farthest served floor toward the end of the shaft
+                int index = direction > 0 ? getHighestReachableIndex(i) : getLowestReachableIndex(i);
+                int otherIndex = building.getFloorIndex(other.getCurrFloor().getFloorLevel());
+                while (index != otherIndex && !other.isServing(building.getFloorByIndex(index).getFloorLevel()))
+                    index -= direction;
+
+                other.yieldTo(building.getFloorByIndex(index));
+            }
+        }
+    }
+
+    /**
+     * Check whether a car should step back because it is blocking another car which is blocking it too.
+     * The car with fewer passengers on board gives way, the lower number wins a tie,
+     * unless that car has no room behind it to step back.
+     *
+     * @param car The blocked car
+     * @return true if the car should step back
+     */
+    public boolean isGivingWayRequired(Elevator car) {
+        int order = cars.indexOf(car);
+
+        for (int i = 0; i < cars.size(); i++) {
+            Elevator other = cars.get(i);
+            if (other == car || !other.isWaitingForShaft())
+                continue;
+
+            // both cars are heading to each other
+            boolean isFacing = car.getDirection() == Integer.signum(i - order) &&
+                    other.getDirection() == Integer.signum(order - i);
+            if (!isFacing)
+                continue;
+
+            boolean isLowerPriority = car.getCurrNumOfPassenger() < other.getCurrNumOfPassenger() ||
+                    car.getCurrNumOfPassenger() == other.getCurrNumOfPassenger() && car.getNumber() < other.getNumber();
+
+            if (isLowerPriority ? canStepBack(car) : !canStepBack(other))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether another car heading to a car is still waiting for the shaft.
+     * A car which has just stepped back holds its position until that car gets going,
+     * otherwise it would take the freed floor back at once.
+     *
+     * @param car The car which has stepped back
+     * @return true if an oncoming car is still waiting
+     */
+    public boolean isOncomingCarWaiting(Elevator car) {
+        int order = cars.indexOf(car);
+
+        for (int i = 0; i < cars.size(); i++) {
+            Elevator other = cars.get(i);
+            if (other == car || !other.isWaitingForShaft() || other.isSteppingBack())
+                continue;
+
+            if (car.getDirection() == Integer.signum(i - order) && other.getDirection() == Integer.signum(order - i))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the floor where a car turns off. The lowest car goes to the ground floor,
+     * and every car above it stops the minimum separation higher.
+     *
+     * @param car    The car
+     * @param ground The ground floor of the bank
+     * @return The floor to turn off at
+     */
+    public Floor getHomeFloor(Elevator car, Floor ground) {
+        int order = cars.indexOf(car);
+        int index = Math.max(building.getFloorIndex(ground.getFloorLevel()), getLowestReachableIndex(0))
+                + order * MIN_SEPARATION;
+        index = Math.min(Math.max(index, getLowestReachableIndex(order)), getHighestReachableIndex(order));
+
+        // the passengers must be able to leave at that floor
+        while (index < getHighestReachableIndex(order) && !car.isServing(building.getFloorByIndex(index).getFloorLevel()))
+            index++;
+
+        return building.getFloorByIndex(index);
+    }
+
+    /**
+     * Get the floor behind a car which it would step back to.
+     *
+     * @param car The car
+     * @return The floor behind, or null if the car cannot step back
+     */
+    public Floor getStepBackFloor(Elevator car) {
+        Floor backFloor = building.getAdjacentFloor(car.getCurrFloor(), -car.getDirection());
+
+        if (backFloor == null || !isClear(car, backFloor.getFloorLevel()) ||
+                !isReachable(car, backFloor.getFloorLevel()))
+            return null;
+
+        return backFloor;
+    }
+
+    /**
+     * Check whether a car has room behind it to step back.
+     */
+    private boolean canStepBack(Elevator car) {
+        return getStepBackFloor(car) != null;
+    }
+
+    /**
+     * Get the lowest floor position a car can reach, the cars below it need the floors under it.
+     * The shaft ends at the lowest floor served by the bank.
+     */
+    private int getLowestReachableIndex(int order) {
+        Bank bank = cars.get(order).getBank();
+        int lowest = (bank == null) ? 0 : building.getFloorIndex(bank.getLowestServedLevel());
+
+        return lowest + order * MIN_SEPARATION;
+    }
+
+    /**
+     * Get the highest floor position a car can reach, the cars above it need the floors over it.
+     * The shaft ends at the highest floor served by the bank.
+     */
+    private int getHighestReachableIndex(int order) {
+        Bank bank = cars.get(order).getBank();
+        int highest = (bank == null) ? building.getNumOfFloors() - 1 : building.getFloorIndex(bank.getHighestServedLevel());
+
+        return highest - (cars.size() - 1 - order) * MIN_SEPARATION;
+    }
+
+    /**
+     * Get the cars sharing this shaft.
+     *
+     * @return The cars from the lowest one to the highest one
+     */
+    public List<Elevator> getCars() {
+        return cars;
+    }
+}
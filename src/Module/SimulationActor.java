@@ -0,0 +1,22 @@
+package Module;
+
+/**
+ * A SimulationActor is a component which advances step by step instead of blocking a thread,
+ * such as an elevator, the elevator manager system or an event generator.
+ * Each step is short and never sleeps, it tells when the actor need to be stepped again.
+ *
+ * @author EJWang
+ */
+public interface SimulationActor {
+
+    // returned by step when the actor need not to be stepped any more
+    long STOP = -1;
+
+    /**
+     * Advance this actor to the given time.
+     *
+     * @param now The current time in millisecond
+     * @return The time of next step, or STOP
+     */
+    long step(long now);
+}
@@ -0,0 +1,425 @@
+package Module;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The SimulationCheckpoint saves the full state of a headless simulation into a compact binary form,
+ * and restores it into new buildings which continue exactly as the original would.
+ * <p>
+ * A checkpoint holds the clock, the buildings with their banks and shafts, every elevator with its stage,
+ * tasks and onboard passengers, the floor queues, the state of every EMS, the profile and random state of the
+ * traffic, the pending failures and repairs of the fault injector, and the time of the next step of every actor.
+ * Floors are written as their level, level 0 never exists so it stands for no floor. Restoring a checkpoint many
+ * times forks many branches from the same warm state, and each branch can be changed before it continues,
+ * e.g. another dispatch strategy or a car turned off.
+ *
+ * @author EJWang
+ */
+public class SimulationCheckpoint {
+
+    private static final int MAGIC = 0x454C5643;    // "ELVC"
+    private static final short VERSION = 8;
+
+    // the kinds of actors in the queue of a shard
+    private static final byte ACTOR_EMS = 0;
+    private static final byte ACTOR_ELEVATOR = 1;
+    private static final byte ACTOR_TRAFFIC = 2;
+    private static final byte ACTOR_PROFILE_TRAFFIC = 3;
+    private static final byte ACTOR_FAULTS = 4;
+
+    /**
+     * A checkpoint only has static methods.
+     */
+    private SimulationCheckpoint() {
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Save the state of a shard between two time windows.
+     *
+     * @param shard The shard, its actors must be elevators, EMS, traffic generators of either kind and fault
+     *              injectors of its own elevators
+     * @return The checkpoint
+     * @throws IOException if an actor cannot be saved
+     */
+    public static byte[] save(CampusShard shard) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(shard.getNumber());
+        out.writeLong(shard.getClock().currentTimeMillis());
+        out.writeLong(shard.getNumOfSteps());
+
+        List<Building> buildings = shard.getBuildings();
+        out.writeInt(buildings.size());
+        for (Building building : buildings)
+            writeBuilding(out, building);
+
+        List<CampusShard.Wakeup> wakeups = shard.getWakeups();
+        out.writeInt(wakeups.size());
+        for (CampusShard.Wakeup wakeup : wakeups) {
+            out.writeLong(wakeup.getTime());
+            writeActor(out, buildings, wakeup.getActor());
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restore a shard from a checkpoint. Every call creates new buildings, so the branches never share state.
+     *
+     * @param checkpoint The checkpoint
+     * @return The restored shard, ready to advance
+     * @throws IOException if the checkpoint is broken
+     */
+    public static CampusShard restore(byte[] checkpoint) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint));
+
+        if (in.readInt() != MAGIC || in.readShort() != VERSION)
+            throw new IOException("Not a checkpoint of this version");
+
+        CampusShard shard = new CampusShard(in.readInt(), in.readLong());
+        shard.setNumOfSteps(in.readLong());
+
+        List<Building> buildings = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            Building building = readBuilding(in);
+            buildings.add(building);
+            shard.addRestoredBuilding(building);
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            long time = in.readLong();
+            shard.schedule(readActor(in, buildings), time);
+        }
+
+        return shard;
+    }
+
+    /* =================================== Package Methods ========================================================= */
+
+    /**
+     * Write a floor as its level.
+     *
+     * @param out   The output of the checkpoint
+     * @param floor The floor, may be null
+     * @throws IOException if failed to write
+     */
+    static void writeFloor(DataOutput out, Floor floor) throws IOException {
+        out.writeShort(floor == null ? 0 : floor.getFloorLevel());
+    }
+
+    /**
+     * Read a floor written by its level.
+     *
+     * @param in       The input of the checkpoint
+     * @param building The building of the floor
+     * @return The floor, or null if no floor was written
+     * @throws IOException if the floor does not exist
+     */
+    static Floor readFloor(DataInput in, Building building) throws IOException {
+        int level = in.readShort();
+        if (level == 0)
+            return null;
+
+        try {
+            return building.getSpecifiedFloor(level);
+        } catch (Exception e) {
+            throw new IOException("Floor " + level + " does not exist", e);
+        }
+    }
+
+    /**
+     * Write a passenger, waiting or onboard.
+     *
+     * @param out       The output of the checkpoint
+     * @param passenger The passenger
+     * @throws IOException if failed to write
+     */
+    static void writePassenger(DataOutput out, Passenger passenger) throws IOException {
+        writeFloor(out, passenger.getOriginFloor());
+        writeFloor(out, passenger.getCurrFloor());
+        writeFloor(out, passenger.getTargetFloor());
+        writeFloor(out, passenger.getDestinationFloor());
+        out.writeShort(passenger.getWeight());
+        out.writeByte(passenger.getDeck());
+        out.writeLong(passenger.getRequestTime());
+        out.writeLong(passenger.getBoardTime());
+        out.writeShort(passenger.getCarNumber());
+    }
+
+    /**
+     * Read a passenger.
+     *
+     * @param in       The input of the checkpoint
+     * @param building The building of the passenger
+     * @return The passenger
+     * @throws IOException if failed to read
+     */
+    static Passenger readPassenger(DataInput in, Building building) throws IOException {
+        Floor originFloor = readFloor(in, building);
+        Floor currFloor = readFloor(in, building);
+        Floor targetFloor = readFloor(in, building);
+        Floor destinationFloor = readFloor(in, building);
+
+        Passenger passenger = new Passenger(currFloor, destinationFloor, in.readShort());
+        passenger.setTargetFloor(targetFloor);
+        passenger.setDeck(in.readByte());
+        passenger.setRequestTime(in.readLong());
+        passenger.setBoardTime(in.readLong());
+        passenger.setCarNumber(in.readShort());
+        passenger.setOriginFloor(originFloor);
+        return passenger;
+    }
+
+    /**
+     * Write the state of a Random, which is only reachable by serialization.
+     *
+     * @param out    The output of the checkpoint
+     * @param random The random source
+     * @throws IOException if failed to write
+     */
+    static void writeRandom(DataOutput out, Random random) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream serialized = new ObjectOutputStream(bytes);
+        serialized.writeObject(random);
+        serialized.close();
+
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * Read the state of a Random.
+     *
+     * @param in The input of the checkpoint
+     * @return The random source, continuing where the saved one stopped
+     * @throws IOException if failed to read
+     */
+    static Random readRandom(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try {
+            ObjectInputStream serialized = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            return (Random) serialized.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot restore random state", e);
+        }
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Write the structure and state of a building.
+     */
+    private static void writeBuilding(DataOutput out, Building building) throws IOException {
+        ElevatorManagerSystem ems = building.getEMS();
+        out.writeShort(building.getLowestLevel());
+        out.writeShort(building.getHighestLevel());
+
+        // the banks and their served floors
+        List<Bank> banks = ems.getAllBanks();
+        out.writeInt(banks.size());
+        for (Bank bank : banks) {
+            out.writeUTF(bank.getName());
+            for (int index = 0; index < building.getNumOfFloors(); index++) {
+                Floor floor = building.getFloorByIndex(index);
+                if (bank.isServing(floor.getFloorLevel()))
+                    writeFloor(out, floor);
+            }
+            writeFloor(out, null);
+        }
+
+        // the elevators, every one belongs to a bank and the cars sharing a shaft are written from the lowest one
+        List<Elevator> elevators = ems.getAllElevators();
+        List<Shaft> shafts = new ArrayList<>();
+        out.writeInt(elevators.size());
+        for (Elevator elevator : elevators) {
+            if (elevator.getShaft() != null && !shafts.contains(elevator.getShaft()))
+                shafts.add(elevator.getShaft());
+
+            out.writeBoolean(elevator instanceof DoubleDeckElevator);
+            out.writeInt(banks.indexOf(elevator.getBank()));
+            out.writeInt(shafts.indexOf(elevator.getShaft()));
+            out.writeInt(elevator.getNumber());
+            out.writeDouble(elevator.getCapacityOfWeight());
+            out.writeInt(elevator.getCapacityOfPassengers());
+        }
+        for (Elevator elevator : elevators)
+            elevator.writeState(out);
+
+        // the waiting passengers
+        for (int index = 0; index < building.getNumOfFloors(); index++) {
+            Floor floor = building.getFloorByIndex(index);
+            synchronized (floor) {
+                for (int direction = -1; direction <= 1; direction += 2) {
+                    List<Passenger> queue = floor.getQueue(direction);
+                    out.writeInt(queue.size());
+                    for (Passenger passenger : queue)
+                        writePassenger(out, passenger);
+                }
+            }
+        }
+
+        ems.writeState(out);
+    }
+
+    /**
+     * Read a building and rebuild its banks, shafts and elevators.
+     */
+    private static Building readBuilding(DataInput in) throws IOException {
+        Building building;
+        try {
+            building = new Building(in.readShort(), in.readShort());
+        } catch (Exception e) {
+            throw new IOException("Cannot construct the building", e);
+        }
+        ElevatorManagerSystem ems = building.getEMS();
+
+        List<Bank> banks = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            Bank bank = ems.addBank(in.readUTF());
+            for (Floor floor = readFloor(in, building); floor != null; floor = readFloor(in, building))
+                bank.serve(floor.getFloorLevel());
+            banks.add(bank);
+        }
+
+        List<Shaft> shafts = new ArrayList<>();
+        List<Elevator> elevators = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            boolean isDoubleDeck = in.readBoolean();
+            int bankIndex = in.readInt();
+            int shaftIndex = in.readInt();
+            int number = in.readInt();
+            double capacityOfWeight = in.readDouble();
+            int capacityOfPassengers = in.readInt();
+
+            Bank bank = banks.get(bankIndex);
+            Elevator elevator = isDoubleDeck
+                    ? new DoubleDeckElevator(number, capacityOfWeight, capacityOfPassengers, ems, building, bank)
+                    : new Elevator(number, capacityOfWeight, capacityOfPassengers, ems, building, bank);
+
+            if (shaftIndex >= 0) {
+                if (shaftIndex == shafts.size())
+                    shafts.add(new Shaft(building));
+                shafts.get(shaftIndex).addCar(elevator);
+                elevator.setShaft(shafts.get(shaftIndex), elevator.getCurrFloor());
+            }
+
+            ems.addElevator(bank, elevator);
+            elevators.add(elevator);
+        }
+        for (Elevator elevator : elevators)
+            elevator.readState(in);
+
+        for (int index = 0; index < building.getNumOfFloors(); index++) {
+            Floor floor = building.getFloorByIndex(index);
+            for (int direction = -1; direction <= 1; direction += 2)
+                for (int i = in.readInt(); i > 0; i--)
+                    floor.getQueue(direction).add(readPassenger(in, building));
+        }
+
+        ems.readState(in);
+        return building;
+    }
+
+    /**
+     * Write which actor a step belongs to, the traffic generators and fault injectors are written with their state.
+     */
+    private static void writeActor(DataOutput out, List<Building> buildings, SimulationActor actor)
+            throws IOException {
+        // a fault injector may break the elevators of several buildings
+        if (actor instanceof FaultInjector) {
+            out.writeByte(ACTOR_FAULTS);
+            ((FaultInjector) actor).writeState(out, buildings);
+            return;
+        }
+
+        for (int i = 0; i < buildings.size(); i++) {
+            ElevatorManagerSystem ems = buildings.get(i).getEMS();
+
+            if (actor == ems) {
+                out.writeByte(ACTOR_EMS);
+                out.writeInt(i);
+                return;
+            }
+
+            int elevatorIndex = ems.getAllElevators().indexOf(actor);
+            if (elevatorIndex >= 0) {
+                out.writeByte(ACTOR_ELEVATOR);
+                out.writeInt(i);
+                out.writeInt(elevatorIndex);
+                return;
+            }
+
+            if (actor instanceof TrafficGenerator && ((TrafficGenerator) actor).getBuilding() == buildings.get(i)) {
+                TrafficGenerator traffic = (TrafficGenerator) actor;
+                out.writeByte(ACTOR_TRAFFIC);
+                out.writeInt(i);
+                out.writeLong(traffic.getMeanInterval());
+                writeRandom(out, traffic.getRandom());
+                return;
+            }
+
+            if (actor instanceof ProfileTrafficGenerator
+                    && ((ProfileTrafficGenerator) actor).getBuilding() == buildings.get(i)) {
+                out.writeByte(ACTOR_PROFILE_TRAFFIC);
+                out.writeInt(i);
+                ((ProfileTrafficGenerator) actor).writeState(out);
+                return;
+            }
+        }
+
+        throw new IOException("Cannot save actor " + actor.getClass().getName());
+    }
+
+    /**
+     * Read which actor a step belongs to.
+     */
+    private static SimulationActor readActor(DataInput in, List<Building> buildings) throws IOException {
+        byte kind = in.readByte();
+        if (kind == ACTOR_FAULTS) {
+            FaultInjector faults = new FaultInjector(new Random());
+            faults.readState(in, buildings);
+            return faults;
+        }
+
+        Building building = buildings.get(in.readInt());
+
+        switch (kind) {
+            case ACTOR_EMS:
+                return building.getEMS();
+
+            case ACTOR_ELEVATOR:
+                return building.getEMS().getAllElevators().get(in.readInt());
+
+            case ACTOR_TRAFFIC:
+                long meanInterval = in.readLong();
+                return new TrafficGenerator(building, readRandom(in), meanInterval);
+
+            case ACTOR_PROFILE_TRAFFIC:
+                ProfileTrafficGenerator profileTraffic =
+                        new ProfileTrafficGenerator(building, new Random(), new TrafficProfile());
+                profileTraffic.readState(in);
+                return profileTraffic;
+
+            default:
+                throw new IOException("Unknown actor " + kind);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package Module;
+
+/**
+ * The SimulationClock tells the time seen by every component of the simulation.
+ *
+ * @author EJWang
+ */
+public interface SimulationClock {
+
+    long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * Get the current time.
+     *
+     * @return The current time in millisecond
+     */
+    long currentTimeMillis();
+
+    /**
+     * Get the time passed since the midnight of current day.
+     *
+     * @return The time of day in millisecond
+     */
+    long timeOfDayMillis();
+}
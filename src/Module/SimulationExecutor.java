@@ -0,0 +1,161 @@
+package Module;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SimulationExecutor runs simulation actors in real time.
+ * <p>
+ * With platform threads every actor holds a thread and its stack, sleeping nearly all the time.
+ * With the carrier pool an actor is only a scheduled task between steps, so thousands of elevators
+ * cost a few KB each and share as many threads as the machine has cores.
+ * Virtual threads are used when the JVM supports them, otherwise the carrier pool is used instead.
+ *
+ * @author EJWang
+ */
+public class SimulationExecutor implements SimulationScheduler {
+
+    private ExecutionMode mode;
+    private SimulationClock clock;
+
+    // the shared carrier threads, only used by CARRIER_POOL
+    private ScheduledThreadPoolExecutor carrierPool;
+
+    // creates virtual threads through reflection, only used by VIRTUAL_THREADS
+    private Object virtualThreadBuilder;
+    private Method startVirtualThread;
+
+    /**
+     * Construct a SimulationExecutor with one carrier thread per core.
+     *
+     * @param mode  The execution mode
+     * @param clock The clock of the simulation
+     */
+    public SimulationExecutor(ExecutionMode mode, SimulationClock clock) {
+        this(mode, clock, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct a SimulationExecutor.
+     *
+     * @param mode          The execution mode
+     * @param clock         The clock of the simulation
+     * @param numOfCarriers The number of carrier threads used by CARRIER_POOL
+     */
+    public SimulationExecutor(ExecutionMode mode, SimulationClock clock, int numOfCarriers) {
+        this.mode = mode;
+        this.clock = clock;
+
+        if (mode == ExecutionMode.VIRTUAL_THREADS) {
+            try {
+                virtualThreadBuilder = Thread.class.getMethod("ofVirtual").invoke(null);
+                startVirtualThread = Class.forName("java.lang.Thread$Builder").getMethod("start", Runnable.class);
+            } catch (Exception e) {
+                System.err.println("WARNING: Virtual thread is not supported by this JVM, use carrier pool instead.");
+                this.mode = ExecutionMode.CARRIER_POOL;
+            }
+        }
+
+        if (this.mode == ExecutionMode.CARRIER_POOL) {
+            carrierPool = new ScheduledThreadPoolExecutor(Math.max(1, numOfCarriers), new CarrierThreadFactory());
+            carrierPool.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * Run an actor until it stops, sleeping the current thread between steps.
+     *
+     * @param actor The actor to run
+     * @param clock The clock of the simulation
+     */
+    public static void runUntilStopped(SimulationActor actor, SimulationClock clock) {
+        while (true) {
+            long next = actor.step(clock.currentTimeMillis());
+            if (next == SimulationActor.STOP)
+                return;
+
+            try {
+                long delay = next - clock.currentTimeMillis();
+                if (delay > 0)
+                    Thread.sleep(delay);
+            } catch (InterruptedException i) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Start to run an actor.
+     *
+     * @param actor The actor to run
+     */
+    @Override
+    public void start(final SimulationActor actor) {
+        Runnable loop = new Runnable() {
+            public void run() {
+                runUntilStopped(actor, clock);
+            }
+        };
+
+        switch (mode) {
+            case VIRTUAL_THREADS:
+                try {
+                    startVirtualThread.invoke(virtualThreadBuilder, loop);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to start virtual thread", e);
+                }
+                break;
+
+            case CARRIER_POOL:
+                schedule(actor, 0);
+                break;
+
+            default:
+                new Thread(loop).start();
+        }
+    }
+
+    /**
+     * Stop the carrier threads, the actors still scheduled will not be stepped any more.
+     */
+    public void shutdown() {
+        if (carrierPool != null)
+            carrierPool.shutdownNow();
+    }
+
+    /**
+     * Schedule the next step of an actor on the carrier pool.
+     */
+    private void schedule(final SimulationActor actor, long delay) {
+        if (carrierPool.isShutdown())
+            return;
+
+        carrierPool.schedule(new Runnable() {
+            public void run() {
+                long next = actor.step(clock.currentTimeMillis());
+                if (next != SimulationActor.STOP)
+                    schedule(actor, Math.max(0, next - clock.currentTimeMillis()));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Names the carrier threads, they keep the JVM alive like the platform threads do.
+     */
+    private static class CarrierThreadFactory implements ThreadFactory {
+
+        private AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "simulation-carrier-" + count.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package Module;
+
+/**
+ * The SimulationScheduler decides when and on which thread a simulation actor is stepped.
+ *
+ * @author EJWang
+ */
+public interface SimulationScheduler {
+
+    /**
+     * Start to step an actor, beginning at current time of the simulation.
+     *
+     * @param actor The actor to run
+     */
+    void start(SimulationActor actor);
+}
@@ -0,0 +1,492 @@
+package Module;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The StressHarness runs the cars, the EMS and many call generators of a building on their own threads at once,
+ * at call rates far beyond a real building, and keeps checking that no passenger is lost or duplicated.
+ * <p>
+ * The simulation runs in real time on a clock sped up by a factor, so the threads really interleave like they do
+ * with platform threads, only faster. These invariants are checked while it runs:
+ * <ul>
+ *   <li>after every step of a car, on its own thread, the car holds its passengers only once, their weight adds
+ *   up to the load of the car, and neither the weight nor the number of passengers is over the capacity</li>
+ *   <li>a passenger walks into a car only when not in another car, and arrives at the destination only once</li>
+ *   <li>under the lock of every floor, a waiting passenger is queued only once and is not in a car</li>
+ *   <li>no passenger waits longer than the given time</li>
+ * </ul>
+ * After the calls stop the cars are given time to serve everyone, then every thread is stopped and each passenger
+ * created must be either arrived, or in exactly one queue or car. Whom is still there has never been served.
+ *
+ * @author EJWang
+ */
+public class StressHarness implements SimulationScheduler {
+
+    private static final long CHECK_INTERVAL = 20;          // millisecond of wall time
+    private static final int MAX_MESSAGES = 20;
+
+    /**
+     * The invariants checked by the harness.
+     */
+    public enum Invariant {
+        CONSERVATION("乘客守恒"),
+        DOUBLE_BOARDING("重复登梯"),
+        OVERLOAD("超载"),
+        UNSERVED("未送达");
+
+        private String description;
+
+        Invariant(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private Building building;
+    private int numOfGenerators;
+    private long meanInterval;
+    private double speedUp;
+    private long maxWait;
+    private ScaledClock clock;
+
+    // the threads stepping the actors, they stop once the run is over
+    private List<Thread> threads;
+    private volatile boolean isStopped;
+    private volatile boolean isCalling;
+
+    // the passengers created and not arrived yet
+    private Map<StressPassenger, Boolean> living;
+    private AtomicLong created;
+    private AtomicLong arrived;
+    private AtomicLong steps;
+    private AtomicLong carSteps;
+
+    private AtomicLongArray violations;
+    private List<String> messages;
+    private long wallTime;                  // nanosecond
+
+    /**
+     * Construct a StressHarness.
+     *
+     * @param building        The building, not started yet
+     * @param numOfGenerators The number of call generators, each on its own thread
+     * @param meanInterval    The mean interval between two calls of a generator in millisecond
+     * @param speedUp         How many times faster than real time the clock runs
+     * @param maxWait         The longest wait allowed in millisecond
+     */
+    public StressHarness(Building building, int numOfGenerators, long meanInterval, double speedUp, long maxWait) {
+        this.building = building;
+        this.numOfGenerators = numOfGenerators;
+        this.meanInterval = meanInterval;
+        this.speedUp = speedUp;
+        this.maxWait = maxWait;
+        threads = new ArrayList<>();
+        living = new ConcurrentHashMap<>();
+        created = new AtomicLong();
+        arrived = new AtomicLong();
+        steps = new AtomicLong();
+        carSteps = new AtomicLong();
+        violations = new AtomicLongArray(Invariant.values().length);
+        messages = new ArrayList<>();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Send the calls for a period, let the cars serve the passengers left, then check everyone is accounted for.
+     *
+     * @param startTime The time the simulation starts in millisecond
+     * @param callTime  The simulated time the generators keep calling in millisecond
+     * @param drainTime The simulated time at most given to serve the passengers left in millisecond
+     * @param seed      The seed of the generators
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void run(long startTime, long callTime, long drainTime, long seed) throws InterruptedException {
+        clock = new ScaledClock(startTime, speedUp);
+        building.setClock(clock);
+        isCalling = true;
+        long start = System.nanoTime();
+
+        building.getEMS().start(this);
+        for (int i = 0; i < numOfGenerators; i++)
+            start(new CallGenerator(new Random(seed + i)));
+
+        // keep checking the floors while the calls come and the cars serve them
+        long end = startTime + callTime + drainTime;
+        while (clock.currentTimeMillis() < end) {
+            if (isCalling && clock.currentTimeMillis() >= startTime + callTime)
+                isCalling = false;
+            if (!isCalling && living.isEmpty())
+                break;
+
+            checkFloors();
+            checkWaits();
+            Thread.sleep(CHECK_INTERVAL);
+        }
+
+        isStopped = true;
+        for (Thread thread : threads)
+            thread.join();
+        wallTime = System.nanoTime() - start;
+
+        checkConservation();
+    }
+
+    /**
+     * Step an actor on its own thread until it stops or the run is over, the cars are checked step by step.
+     *
+     * @param actor The actor to run
+     */
+    @Override
+    public synchronized void start(SimulationActor actor) {
+        final SimulationActor stepped = (actor instanceof Elevator) ? new CheckedCar((Elevator) actor) : actor;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runUntilStopped(stepped);
+            }
+        }, "stress-" + threads.size());
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    public long getViolations(Invariant invariant) {
+        return violations.get(invariant.ordinal());
+    }
+
+    public long getTotalViolations() {
+        long total = 0;
+        for (int i = 0; i < violations.length(); i++)
+            total += violations.get(i);
+        return total;
+    }
+
+    public synchronized List<String> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    public long getArrived() {
+        return arrived.get();
+    }
+
+    public double getCallsPerSecond() {
+        return (wallTime == 0) ? 0 : created.get() * 1e9 / wallTime;
+    }
+
+    public double getArrivalsPerSecond() {
+        return (wallTime == 0) ? 0 : arrived.get() * 1e9 / wallTime;
+    }
+
+    public double getStepsPerSecond() {
+        return (wallTime == 0) ? 0 : steps.get() * 1e9 / wallTime;
+    }
+
+    public double getCarStepsPerSecond() {
+        return (wallTime == 0) ? 0 : carSteps.get() * 1e9 / wallTime;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("压力测试: %d个线程, 用时%.1fs; 呼叫%d人(%.0f人/s), 送达%d人(%.0f人/s), " +
+                        "共%d步(%.0f步/s), 电梯%d步(%.0f步/s)",
+                threads.size(), wallTime / 1e9, created.get(), getCallsPerSecond(), arrived.get(),
+                getArrivalsPerSecond(), steps.get(), getStepsPerSecond(), carSteps.get(), getCarStepsPerSecond()));
+        for (Invariant invariant : Invariant.values())
+            report.append(String.format("%n压力测试: %s - 违反%d次", invariant.getDescription(),
+                    getViolations(invariant)));
+        for (String message : getMessages())
+            report.append(String.format("%n压力测试: %s", message));
+        return report.toString();
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Step an actor and sleep until its next step is due on the sped up clock.
+     */
+    private void runUntilStopped(SimulationActor actor) {
+        while (!isStopped) {
+            long next = actor.step(clock.currentTimeMillis());
+            steps.incrementAndGet();
+            if (next == SimulationActor.STOP)
+                return;
+
+            for (long delay = next - clock.currentTimeMillis(); delay > 0 && !isStopped;
+                 delay = next - clock.currentTimeMillis())
+                LockSupport.parkNanos(Math.min((long) (delay * 1e6 / speedUp), CHECK_INTERVAL * 1000000));
+        }
+    }
+
+    private void violate(Invariant invariant, String message) {
+        violations.incrementAndGet(invariant.ordinal());
+        synchronized (this) {
+            if (messages.size() < MAX_MESSAGES)
+                messages.add(invariant.getDescription() + ": " + message);
+        }
+    }
+
+    /**
+     * Check the car after its step, on its own thread, so the passengers on board are not changing.
+     */
+    private void checkCar(Elevator elevator) {
+        List<Passenger> sedan = elevator.getSedan();
+        int weight = 0;
+
+        for (int i = 0; i < sedan.size(); i++) {
+            StressPassenger passenger = (StressPassenger) sedan.get(i);
+            weight += passenger.getWeight();
+
+            for (int j = 0; j < i; j++)
+                if (sedan.get(j) == passenger)
+                    violate(Invariant.CONSERVATION, String.format("%d号电梯中乘客%d出现两次", elevator.getNumber(),
+                            passenger.id));
+
+            Elevator car = passenger.car.get();
+            if (car != elevator)
+                violate(Invariant.DOUBLE_BOARDING, String.format("%d号电梯中的乘客%d登记在%s", elevator.getNumber(),
+                        passenger.id, car == null ? "楼层" : car.getNumber() + "号电梯"));
+            if (passenger.isArrived.get())
+                violate(Invariant.CONSERVATION, String.format("已送达的乘客%d仍在%d号电梯中", passenger.id,
+                        elevator.getNumber()));
+        }
+
+        if (weight != elevator.getCurrWeight())
+            violate(Invariant.CONSERVATION, String.format("%d号电梯载重%dkg, 乘客合计%dkg", elevator.getNumber(),
+                    elevator.getCurrWeight(), weight));
+        if (weight > elevator.getCapacityOfWeight() || sedan.size() > elevator.getCapacityOfPassengers())
+            violate(Invariant.OVERLOAD, String.format("%d号电梯载客%d人%dkg", elevator.getNumber(), sedan.size(),
+                    weight));
+    }
+
+    /**
+     * Check the queues of every floor under its lock, a waiting passenger is in neither a car nor another queue.
+     */
+    private void checkFloors() {
+        Map<Passenger, Boolean> seen = new IdentityHashMap<>();
+        for (int i = 0; i < building.getNumOfFloors(); i++) {
+            Floor floor = building.getFloorByIndex(i);
+            seen.clear();
+            synchronized (floor) {
+                for (int direction = -1; direction <= 1; direction += 2) {
+                    for (Passenger waiting : floor.getQueue(direction)) {
+                        StressPassenger passenger = (StressPassenger) waiting;
+                        if (seen.put(passenger, Boolean.TRUE) != null)
+                            violate(Invariant.CONSERVATION, String.format("乘客%d在%d楼排队两次", passenger.id,
+                                    floor.getFloorLevel()));
+
+                        Elevator car = passenger.car.get();
+                        if (car != null)
+                            violate(Invariant.DOUBLE_BOARDING, String.format("乘客%d在%d楼排队, 同时在%d号电梯中",
+                                    passenger.id, floor.getFloorLevel(), car.getNumber()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Report every passenger waiting too long, once each.
+     */
+    private void checkWaits() {
+        long now = clock.currentTimeMillis();
+        for (StressPassenger passenger : living.keySet()) {
+            long requestTime = passenger.getRequestTime();
+            if (requestTime >= 0 && passenger.getBoardTime() < 0 && now - requestTime > maxWait
+                    && passenger.isStarving.compareAndSet(false, true))
+                violate(Invariant.UNSERVED, String.format("乘客%d在%d楼等待超过%dms", passenger.id,
+                        passenger.getCurrFloor().getFloorLevel(), maxWait));
+        }
+    }
+
+    /**
+     * Count every passenger in the queues and the cars once all threads have stopped.
+     */
+    private void checkConservation() {
+        Map<Passenger, Integer> places = new IdentityHashMap<>();
+        int waiting = 0;
+        int riding = 0;
+
+        for (int i = 0; i < building.getNumOfFloors(); i++) {
+            Floor floor = building.getFloorByIndex(i);
+            for (int direction = -1; direction <= 1; direction += 2) {
+                for (Passenger passenger : floor.getQueue(direction)) {
+                    Integer count = places.get(passenger);
+                    places.put(passenger, (count == null) ? 1 : count + 1);
+                    waiting++;
+                }
+            }
+        }
+        for (Elevator elevator : building.getEMS().getAllElevators()) {
+            for (Passenger passenger : elevator.getSedan()) {
+                Integer count = places.get(passenger);
+                places.put(passenger, (count == null) ? 1 : count + 1);
+                riding++;
+            }
+        }
+
+        for (Map.Entry<Passenger, Integer> place : places.entrySet()) {
+            StressPassenger passenger = (StressPassenger) place.getKey();
+            if (place.getValue() > 1)
+                violate(Invariant.CONSERVATION, String.format("乘客%d同时出现在%d处", passenger.id, place.getValue()));
+            if (passenger.isArrived.get())
+                violate(Invariant.CONSERVATION, String.format("已送达的乘客%d仍未离开", passenger.id));
+        }
+
+        for (StressPassenger passenger : living.keySet()) {
+            if (!places.containsKey(passenger))
+                violate(Invariant.CONSERVATION, String.format("乘客%d丢失, 最后在%d楼", passenger.id,
+                        passenger.getCurrFloor().getFloorLevel()));
+            else if (!passenger.isStarving.get())
+                violate(Invariant.UNSERVED, String.format("乘客%d在%d楼未被送达", passenger.id,
+                        passenger.getCurrFloor().getFloorLevel()));
+        }
+
+        if (created.get() != arrived.get() + waiting + riding)
+            violate(Invariant.CONSERVATION, String.format("呼叫%d人, 送达%d人, 排队%d人, 乘梯%d人", created.get(),
+                    arrived.get(), waiting, riding));
+    }
+
+    /* =================================== Inner Classes =========================================================== */
+
+    /**
+     * A clock running faster than the wall clock by a factor.
+     */
+    private static class ScaledClock implements SimulationClock {
+        private long startTime;
+        private long startNanos;
+        private double speedUp;
+
+        private ScaledClock(long startTime, double speedUp) {
+            this.startTime = startTime;
+            this.startNanos = System.nanoTime();
+            this.speedUp = speedUp;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return startTime + (long) ((System.nanoTime() - startNanos) * speedUp / 1e6);
+        }
+
+        @Override
+        public long timeOfDayMillis() {
+            return Math.floorMod(currentTimeMillis(), DAY_MILLIS);
+        }
+    }
+
+    /**
+     * Steps a car and checks it after each step.
+     */
+    private class CheckedCar implements SimulationActor {
+        private Elevator car;
+
+        private CheckedCar(Elevator car) {
+            this.car = car;
+        }
+
+        @Override
+        public long step(long now) {
+            long next = car.step(now);
+            carSteps.incrementAndGet();
+            checkCar(car);
+            return next;
+        }
+    }
+
+    /**
+     * Sends passengers between random floors as a Poisson process, until the calls stop.
+     */
+    private class CallGenerator implements SimulationActor {
+        private Random random;
+
+        private CallGenerator(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public long step(long now) {
+            if (!isCalling)
+                return STOP;
+
+            int numOfFloors = building.getNumOfFloors();
+            int from = random.nextInt(numOfFloors);
+            int to = random.nextInt(numOfFloors - 1);
+            if (to >= from)
+                to++;
+
+            StressPassenger passenger = new StressPassenger(created.incrementAndGet(),
+                    building.getFloorByIndex(from), building.getFloorByIndex(to), random.nextInt(80) + 50);
+            living.put(passenger, Boolean.TRUE);
+            passenger.getCurrFloor().pushButton(passenger);
+
+            long interval = (long) (-Math.log(1 - random.nextDouble()) * meanInterval);
+            return now + Math.max(1, interval);
+        }
+    }
+
+    /**
+     * A passenger which knows the car it is in, so boarding a second car or arriving twice is caught at once.
+     * The car is cleared before the passenger queues again, so a passenger seen in a queue is never in a car.
+     */
+    private class StressPassenger extends Passenger {
+        private long id;
+        private AtomicReference<Elevator> car;
+        private AtomicBoolean isArrived;
+        private AtomicBoolean isStarving;
+
+        private StressPassenger(long id, Floor currFloor, Floor targetFloor, int weight) {
+            super(currFloor, targetFloor, weight);
+            this.id = id;
+            car = new AtomicReference<>();
+            isArrived = new AtomicBoolean();
+            isStarving = new AtomicBoolean();
+        }
+
+        @Override
+        public void walkIn(Elevator elevator) {
+            Elevator other = car.getAndSet(elevator);
+            if (other != null)
+                violate(Invariant.DOUBLE_BOARDING, String.format("乘客%d在%d号电梯中又进入%d号电梯", id,
+                        other.getNumber(), elevator.getNumber()));
+            super.walkIn(elevator);
+        }
+
+        @Override
+        public void walkOut(boolean isArrived) {
+            car.set(null);
+            if (isArrived && getTargetFloor() == getDestinationFloor()) {
+                if (this.isArrived.getAndSet(true))
+                    violate(Invariant.CONSERVATION, String.format("乘客%d送达两次", id));
+                else {
+                    arrived.incrementAndGet();
+                    living.remove(this);
+                }
+            }
+            super.walkOut(isArrived);
+        }
+
+        @Override
+        public void escape(Floor floor) {
+            car.set(null);
+            super.escape(floor);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The TrafficAnalytics counts the traffic of one building while the simulation runs:
+ * <ul>
+ *   <li>the origin-destination matrix of the arrived passengers, for the current time window,
+ *   a few windows before it, and in total</li>
+ *   <li>the passengers delivered by each bank in the last 5 minutes, and the peak of it,
+ *   which is the handling capacity the building is sized by</li>
+ * </ul>
+ * Only arrays of counts are kept, the memory does not grow with the number of passengers or windows.
+ * Every query can be made in the middle of a run.
+ *
+ * @author EJWang
+ */
+public class TrafficAnalytics {
+
+    public static final long DEFAULT_WINDOW_SIZE = 15 * 60 * 1000;     // millisecond
+    public static final long HANDLING_PERIOD = 5 * 60 * 1000;           // millisecond
+
+    private static final int NUM_OF_WINDOWS = 4;                        // the current one and 3 before
+    private static final int HANDLING_BUCKET_SIZE = 1000;               // millisecond
+    private static final int NUM_OF_HANDLING_BUCKETS = (int) (HANDLING_PERIOD / HANDLING_BUCKET_SIZE);
+
+    private Building building;
+    private int numOfFloors;
+    private long windowSize;
+
+    // the origin-destination matrices by floor index, flattened as origin * floors + destination
+    private int[][] windows;            // ring of the recent windows
+    private long currWindow;            // the number of the current window since time 0, -1 before any arrival
+    private long[] total;
+
+    // the deliveries of each bank in buckets of 1 second over the last 5 minutes
+    private int[][] handlingBuckets;
+    private int[] handlingCounts;
+    private long[] lastBuckets;
+    private int[] peakHandlingCounts;
+    private long[] peakHandlingTimes;
+
+    /**
+     * Construct the analytics of a building with the default window size.
+     *
+     * @param building The building
+     */
+    public TrafficAnalytics(Building building) {
+        this(building, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Construct the analytics of a building.
+     *
+     * @param building   The building
+     * @param windowSize The length of the window of the origin-destination matrix in millisecond
+     */
+    public TrafficAnalytics(Building building, long windowSize) {
+        this.building = building;
+        this.numOfFloors = building.getFloorIndex(building.getHighestLevel()) + 1;
+        this.windowSize = windowSize;
+        this.windows = new int[NUM_OF_WINDOWS][numOfFloors * numOfFloors];
+        this.currWindow = -1;
+        this.total = new long[numOfFloors * numOfFloors];
+
+        handlingBuckets = new int[0][];
+        handlingCounts = new int[0];
+        lastBuckets = new long[0];
+        peakHandlingCounts = new int[0];
+        peakHandlingTimes = new long[0];
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Count a passenger arrived at the destination.
+     *
+     * @param originLevel      The floor the passenger first called from
+     * @param destinationLevel The destination floor
+     * @param now              The time of arrival
+     */
+    public synchronized void recordArrival(int originLevel, int destinationLevel, long now) {
+        int cell = building.getFloorIndex(originLevel) * numOfFloors + building.getFloorIndex(destinationLevel);
+
+        rollWindow(now);
+        windows[(int) (currWindow % NUM_OF_WINDOWS)][cell]++;
+        total[cell]++;
+    }
+
+    /**
+     * Count a passenger delivered by a bank, at the destination or at a transfer floor.
+     *
+     * @param bank The index of the bank in the building
+     * @param now  The time of delivery
+     */
+    public synchronized void recordDelivery(int bank, long now) {
+        ensureBank(bank);
+        rollHandling(bank, now);
+
+        handlingBuckets[bank][(int) (lastBuckets[bank] % NUM_OF_HANDLING_BUCKETS)]++;
+        handlingCounts[bank]++;
+
+        if (handlingCounts[bank] > peakHandlingCounts[bank]) {
+            peakHandlingCounts[bank] = handlingCounts[bank];
+            peakHandlingTimes[bank] = now;
+        }
+    }
+
+    /**
+     * Get the origin-destination matrix of a recent window.
+     *
+     * @param windowsAgo 0 for the current window, up to 3 for the windows before it
+     * @param now        The current time
+     * @return The counts by origin and destination floor index, a copy
+     */
+    public synchronized int[][] getOriginDestination(int windowsAgo, long now) {
+        if (windowsAgo < 0 || windowsAgo >= NUM_OF_WINDOWS)
+            throw new IllegalArgumentException("Only the last " + NUM_OF_WINDOWS + " windows are kept");
+
+        rollWindow(now);
+        int[][] matrix = new int[numOfFloors][numOfFloors];
+        if (currWindow - windowsAgo < 0)
+            return matrix;
+
+        int[] window = windows[(int) ((currWindow - windowsAgo) % NUM_OF_WINDOWS)];
+        for (int origin = 0; origin < numOfFloors; origin++)
+            System.arraycopy(window, origin * numOfFloors, matrix[origin], 0, numOfFloors);
+        return matrix;
+    }
+
+    /**
+     * Get the origin-destination matrix since the start.
+     *
+     * @return The counts by origin and destination floor index, a copy
+     */
+    public synchronized long[][] getTotalOriginDestination() {
+        long[][] matrix = new long[numOfFloors][numOfFloors];
+        for (int origin = 0; origin < numOfFloors; origin++)
+            System.arraycopy(total, origin * numOfFloors, matrix[origin], 0, numOfFloors);
+        return matrix;
+    }
+
+    /**
+     * Get the passengers delivered by a bank in the last 5 minutes.
+     *
+     * @param bank The index of the bank in the building
+     * @param now  The current time
+     * @return The number of passengers
+     */
+    public synchronized int getHandlingCount(int bank, long now) {
+        if (bank >= handlingCounts.length)
+            return 0;
+
+        rollHandling(bank, now);
+        return handlingCounts[bank];
+    }
+
+    /**
+     * Get the most passengers delivered by a bank in any 5 minutes.
+     *
+     * @param bank The index of the bank in the building
+     * @return The number of passengers
+     */
+    public synchronized int getPeakHandlingCount(int bank) {
+        return (bank < peakHandlingCounts.length) ? peakHandlingCounts[bank] : 0;
+    }
+
+    /**
+     * Get when the peak 5 minutes of a bank ended.
+     *
+     * @param bank The index of the bank in the building
+     * @return The time of the peak, or 0 if nobody is delivered yet
+     */
+    public synchronized long getPeakHandlingTime(int bank) {
+        return (bank < peakHandlingTimes.length) ? peakHandlingTimes[bank] : 0;
+    }
+
+    /**
+     * Get the start of a recent window.
+     *
+     * @param windowsAgo 0 for the current window
+     * @param now        The current time
+     * @return The start time of the window
+     */
+    public long getWindowStart(int windowsAgo, long now) {
+        return (now / windowSize - windowsAgo) * windowSize;
+    }
+
+    public long getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Write the counts into a checkpoint, the empty cells are skipped.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    synchronized void writeState(DataOutput out) throws IOException {
+        out.writeLong(currWindow);
+        for (int[] window : windows)
+            writeCells(out, window);
+
+        for (int cell = 0; cell < total.length; cell++) {
+            if (total[cell] != 0) {
+                out.writeInt(cell);
+                out.writeLong(total[cell]);
+            }
+        }
+        out.writeInt(-1);
+
+        out.writeShort(handlingCounts.length);
+        for (int bank = 0; bank < handlingCounts.length; bank++) {
+            writeCells(out, handlingBuckets[bank]);
+            out.writeInt(handlingCounts[bank]);
+            out.writeLong(lastBuckets[bank]);
+            out.writeInt(peakHandlingCounts[bank]);
+            out.writeLong(peakHandlingTimes[bank]);
+        }
+    }
+
+    /**
+     * Read the counts from a checkpoint.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    synchronized void readState(DataInput in) throws IOException {
+        currWindow = in.readLong();
+        for (int[] window : windows)
+            readCells(in, window);
+
+        Arrays.fill(total, 0);
+        for (int cell = in.readInt(); cell >= 0; cell = in.readInt())
+            total[cell] = in.readLong();
+
+        int numOfBanks = in.readShort();
+        ensureBank(numOfBanks - 1);
+        for (int bank = 0; bank < numOfBanks; bank++) {
+            readCells(in, handlingBuckets[bank]);
+            handlingCounts[bank] = in.readInt();
+            lastBuckets[bank] = in.readLong();
+            peakHandlingCounts[bank] = in.readInt();
+            peakHandlingTimes[bank] = in.readLong();
+        }
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Move to the window of given time, the windows passed by are cleared for reuse.
+     */
+    private void rollWindow(long now) {
+        long window = now / windowSize;
+
+        // a long quiet time clears every window at once
+        if (currWindow < 0 || window - currWindow >= NUM_OF_WINDOWS) {
+            for (int[] w : windows)
+                Arrays.fill(w, 0);
+            currWindow = window;
+            return;
+        }
+
+        while (currWindow < window) {
+            currWindow++;
+            Arrays.fill(windows[(int) (currWindow % NUM_OF_WINDOWS)], 0);
+        }
+    }
+
+    /**
+     * Move the 5 minutes of a bank to end at given time, the buckets fallen out are taken off the count.
+     */
+    private void rollHandling(int bank, long now) {
+        long bucket = now / HANDLING_BUCKET_SIZE;
+        int[] buckets = handlingBuckets[bank];
+
+        if (bucket - lastBuckets[bank] >= NUM_OF_HANDLING_BUCKETS) {
+            Arrays.fill(buckets, 0);
+            handlingCounts[bank] = 0;
+        } else {
+            for (long b = lastBuckets[bank] + 1; b <= bucket; b++) {
+                int index = (int) (b % NUM_OF_HANDLING_BUCKETS);
+                handlingCounts[bank] -= buckets[index];
+                buckets[index] = 0;
+            }
+        }
+        lastBuckets[bank] = Math.max(lastBuckets[bank], bucket);
+    }
+
+    /**
+     * Make room for the counters of a bank, banks are added after the building is constructed.
+     */
+    private void ensureBank(int bank) {
+        if (bank < handlingCounts.length)
+            return;
+
+        int oldLength = handlingCounts.length;
+        handlingBuckets = Arrays.copyOf(handlingBuckets, bank + 1);
+        for (int i = oldLength; i <= bank; i++)
+            handlingBuckets[i] = new int[NUM_OF_HANDLING_BUCKETS];
+        handlingCounts = Arrays.copyOf(handlingCounts, bank + 1);
+        lastBuckets = Arrays.copyOf(lastBuckets, bank + 1);
+        peakHandlingCounts = Arrays.copyOf(peakHandlingCounts, bank + 1);
+        peakHandlingTimes = Arrays.copyOf(peakHandlingTimes, bank + 1);
+    }
+
+    private static void writeCells(DataOutput out, int[] cells) throws IOException {
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) {
+                out.writeInt(cell);
+                out.writeInt(cells[cell]);
+            }
+        }
+        out.writeInt(-1);
+    }
+
+    private static void readCells(DataInput in, int[] cells) throws IOException {
+        Arrays.fill(cells, 0);
+        for (int cell = in.readInt(); cell >= 0; cell = in.readInt())
+            cells[cell] = in.readInt();
+    }
+}
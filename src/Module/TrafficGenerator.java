@@ -0,0 +1,66 @@
+package Module;
+
+import java.util.Random;
+
+/**
+ * The TrafficGenerator keeps sending passengers to the floors of a building at random,
+ * the calls arrive as a Poisson process with given mean interval.
+ * Unlike the EventGenerator it never stops the simulation, the runner decides when to stop.
+ *
+ * @author EJWang
+ */
+public class TrafficGenerator implements SimulationActor {
+
+    private Building building;
+    private Random random;
+    private long meanInterval;
+
+    /**
+     * Construct a TrafficGenerator.
+     *
+     * @param building     The building to send passengers to
+     * @param random       The random source, seeded to repeat the same traffic
+     * @param meanInterval The mean interval between two calls in millisecond
+     */
+    public TrafficGenerator(Building building, Random random, long meanInterval) {
+        this.building = building;
+        this.random = random;
+        this.meanInterval = meanInterval;
+    }
+
+    /**
+     * Send a passenger, then wait for the next one.
+     *
+     * @param now The current time in millisecond
+     * @return The time the next passenger arrives
+     */
+    @Override
+    public long step(long now) {
+        int numOfFloors = building.getNumOfFloors();
+        int from = random.nextInt(numOfFloors);
+        int to = random.nextInt(numOfFloors - 1);
+        if (to >= from)
+            to++;
+
+        Floor currFloor = building.getFloorByIndex(from);
+        Floor targetFloor = building.getFloorByIndex(to);
+
+        currFloor.pushButton(new Passenger(currFloor, targetFloor, random.nextInt(80) + 50));
+
+        // exponential interval between two arrivals
+        long interval = (long) (-Math.log(1 - random.nextDouble()) * meanInterval);
+        return now + Math.max(1, interval);
+    }
+
+    Building getBuilding() {
+        return building;
+    }
+
+    Random getRandom() {
+        return random;
+    }
+
+    long getMeanInterval() {
+        return meanInterval;
+    }
+}
@@ -0,0 +1,139 @@
+package Module;
+
+import java.util.Arrays;
+
+/**
+ * A TrafficProfile tells how busy a building is through the day, as periods starting at a time of day.
+ * Each period has its own call rate, and its own share of the calls coming in from the lobby and
+ * going out to the lobby, the rest travels between the other floors, e.g.
+ * <pre>
+ *   07:00  3000 calls/hour  80% incoming  5% outgoing     up-peak
+ *   09:30   600 calls/hour  10% incoming 10% outgoing     interfloor
+ * </pre>
+ * A period lasts until the next one starts, the last one lasts until the first one starts on the next day.
+ *
+ * @author EJWang
+ */
+public class TrafficProfile {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private long[] startTimes;          // time of day in millisecond, ascending
+    private int[] callsPerHour;
+    private double[] incomingShares;
+    private double[] outgoingShares;
+
+    /**
+     * Construct an empty TrafficProfile, no call is made until a period is added.
+     */
+    public TrafficProfile() {
+        startTimes = new long[0];
+        callsPerHour = new int[0];
+        incomingShares = new double[0];
+        outgoingShares = new double[0];
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Add a period, replacing the one starting at the same time.
+     *
+     * @param startTime     The time of day the period starts in millisecond
+     * @param calls         The calls per hour
+     * @param incomingShare The share of calls from the lobby to the other floors
+     * @param outgoingShare The share of calls from the other floors to the lobby
+     */
+    public void addPeriod(long startTime, int calls, double incomingShare, double outgoingShare) {
+        if (startTime < 0 || startTime >= DAY || calls < 0 || incomingShare < 0 || outgoingShare < 0
+                || incomingShare + outgoingShare > 1)
+            throw new IllegalArgumentException("Invalid traffic period at " + startTime);
+
+        int index = Arrays.binarySearch(startTimes, startTime);
+        if (index < 0) {
+            index = -index - 1;
+            startTimes = insert(startTimes, index, startTime);
+            callsPerHour = insert(callsPerHour, index);
+            incomingShares = insert(incomingShares, index);
+            outgoingShares = insert(outgoingShares, index);
+        }
+
+        callsPerHour[index] = calls;
+        incomingShares[index] = incomingShare;
+        outgoingShares[index] = outgoingShare;
+    }
+
+    /**
+     * Get the period covering a time of day.
+     *
+     * @param timeOfDay The time of day in millisecond
+     * @return The index of the period, or -1 if there is no period
+     */
+    public int getPeriod(long timeOfDay) {
+        if (startTimes.length == 0)
+            return -1;
+
+        int index = Arrays.binarySearch(startTimes, timeOfDay);
+        if (index >= 0)
+            return index;
+
+        // before the first period, the last one of the previous day is still going
+        index = -index - 2;
+        return (index < 0) ? startTimes.length - 1 : index;
+    }
+
+    /**
+     * Get the highest call rate of any period.
+     *
+     * @return The calls per hour
+     */
+    public int getPeakCallsPerHour() {
+        int peak = 0;
+        for (int calls : callsPerHour)
+            peak = Math.max(peak, calls);
+        return peak;
+    }
+
+    public int getNumOfPeriods() {
+        return startTimes.length;
+    }
+
+    public long getStartTime(int period) {
+        return startTimes[period];
+    }
+
+    public int getCallsPerHour(int period) {
+        return callsPerHour[period];
+    }
+
+    public double getIncomingShare(int period) {
+        return incomingShares[period];
+    }
+
+    public double getOutgoingShare(int period) {
+        return outgoingShares[period];
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    private static long[] insert(long[] array, int index, long value) {
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        result[index] = value;
+        return result;
+    }
+
+    private static int[] insert(int[] array, int index) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static double[] insert(double[] array, int index) {
+        double[] result = new double[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+}
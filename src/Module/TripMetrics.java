@@ -0,0 +1,149 @@
+package Module;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The TripMetrics collects the waiting and journey time of the passengers arrived in one building.
+ * The waiting time is counted from the first hall call to the first boarding, and the journey time
+ * from the first hall call to the arrival at the destination, transfers included.
+ *
+ * @author EJWang
+ */
+public class TripMetrics {
+
+    // the waiting time is counted in buckets of 1 second, the last bucket holds every longer wait
+    private static final int WAIT_BUCKET_SIZE = 1000;   // millisecond
+    private static final int NUM_OF_WAIT_BUCKETS = 601;
+
+    // the number of passengers arrived at their destinations
+    private AtomicLong trips;
+
+    // the time in millisecond
+    private AtomicLong waitTime;
+    private AtomicLong maxWaitTime;
+    private AtomicLong journeyTime;
+
+    // the number of trips in each bucket of waiting time
+    private AtomicLongArray waitHistogram;
+
+    /**
+     * Construct a TripMetrics.
+     */
+    public TripMetrics() {
+        trips = new AtomicLong();
+        waitTime = new AtomicLong();
+        maxWaitTime = new AtomicLong();
+        journeyTime = new AtomicLong();
+        waitHistogram = new AtomicLongArray(NUM_OF_WAIT_BUCKETS);
+    }
+
+    /**
+     * Record a passenger has arrived at the destination.
+     *
+     * @param waitMillis    The time waited for the first elevator
+     * @param journeyMillis The time from the first hall call to the arrival
+     */
+    public void recordTrip(long waitMillis, long journeyMillis) {
+        trips.incrementAndGet();
+        waitTime.addAndGet(waitMillis);
+        journeyTime.addAndGet(journeyMillis);
+        waitHistogram.incrementAndGet((int) Math.min(waitMillis / WAIT_BUCKET_SIZE, NUM_OF_WAIT_BUCKETS - 1));
+
+        long max = maxWaitTime.get();
+        while (waitMillis > max && !maxWaitTime.compareAndSet(max, waitMillis))
+            max = maxWaitTime.get();
+    }
+
+    /**
+     * Get the waiting time which the given share of passengers did not exceed, e.g. 0.95 for the 95th percentile.
+     * The result is rounded up to whole seconds.
+     *
+     * @param share The share of passengers between 0 and 1
+     * @return The waiting time in millisecond, or 0 if nobody has arrived
+     */
+    public long getWaitPercentile(double share) {
+        long total = 0;
+        for (int i = 0; i < NUM_OF_WAIT_BUCKETS; i++)
+            total += waitHistogram.get(i);
+        if (total == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(share * total);
+        long count = 0;
+        for (int i = 0; i < NUM_OF_WAIT_BUCKETS - 1; i++) {
+            count += waitHistogram.get(i);
+            if (count >= rank)
+                return (long) (i + 1) * WAIT_BUCKET_SIZE;
+        }
+        return getMaxWaitTime();
+    }
+
+    @Override
+    public String toString() {
+        long numOfTrips = getTrips();
+        return String.format("送达%d人, 平均等待%dms, 最长等待%dms, 平均行程%dms",
+                numOfTrips,
+                numOfTrips == 0 ? 0 : getWaitTime() / numOfTrips,
+                getMaxWaitTime(),
+                numOfTrips == 0 ? 0 : getJourneyTime() / numOfTrips);
+    }
+
+    /* =================================== Getters ================================================================= */
+
+    public long getTrips() {
+        return trips.get();
+    }
+
+    public long getWaitTime() {
+        return waitTime.get();
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    public long getJourneyTime() {
+        return journeyTime.get();
+    }
+
+    /**
+     * Write the statistics into a checkpoint, the empty buckets are skipped.
+     *
+     * @param out The output of the checkpoint
+     * @throws IOException if failed to write
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(getTrips());
+        out.writeLong(getWaitTime());
+        out.writeLong(getMaxWaitTime());
+        out.writeLong(getJourneyTime());
+
+        for (int i = 0; i < NUM_OF_WAIT_BUCKETS; i++) {
+            if (waitHistogram.get(i) != 0) {
+                out.writeShort(i);
+                out.writeLong(waitHistogram.get(i));
+            }
+        }
+        out.writeShort(-1);
+    }
+
+    /**
+     * Read the statistics from a checkpoint.
+     *
+     * @param in The input of the checkpoint
+     * @throws IOException if failed to read
+     */
+    void readState(DataInput in) throws IOException {
+        trips.set(in.readLong());
+        waitTime.set(in.readLong());
+        maxWaitTime.set(in.readLong());
+        journeyTime.set(in.readLong());
+
+        for (int i = in.readShort(); i >= 0; i = in.readShort())
+            waitHistogram.set(i, in.readLong());
+    }
+}
@@ -0,0 +1,41 @@
+package Module;
+
+/**
+ * The VirtualClock only moves when the simulation advances it, so the simulation runs as fast as it can be computed.
+ * The time starts at the midnight of day 0.
+ *
+ * @author EJWang
+ */
+public class VirtualClock implements SimulationClock {
+
+    private volatile long now;
+
+    /**
+     * Construct a VirtualClock.
+     *
+     * @param startTime The time to start from in millisecond
+     */
+    public VirtualClock(long startTime) {
+        now = startTime;
+    }
+
+    /**
+     * Move the clock forward, it never goes back.
+     *
+     * @param time The new time in millisecond
+     */
+    public void advanceTo(long time) {
+        if (time > now)
+            now = time;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public long timeOfDayMillis() {
+        return Math.floorMod(now, DAY_MILLIS);
+    }
+}
@@ -0,0 +1,36 @@
+package Module;
+
+/**
+ * The WorkloadDispatchStrategy prefers the elevator with the lowest workload.
+ * An idle elevator parked at a floor expecting calls soon is kept for that floor if possible.
+ *
+ * @author EJWang
+ */
+public class WorkloadDispatchStrategy implements DispatchStrategy {
+
+    private static final int RESERVATION_HORIZON = 60;        // second
+    private static final int RESERVATION_PENALTY = 5;         // workload per expected call
+
+    @Override
+    public int getCost(Elevator elevator, Floor targetFloor, ElevatorManagerSystem ems) {
+        return elevator.getWorkLoad(targetFloor) + getReservationPenalty(elevator, targetFloor, ems);
+    }
+
+    /**
+     * Get the extra workload of taking this elevator away from its parking floor.
+     *
+     * @param elevator    The candidate elevator
+     * @param targetFloor The floor which request for service
+     * @param ems         The elevator manager system which controlled this elevator
+     * @return The extra workload
+     */
+    private int getReservationPenalty(Elevator elevator, Floor targetFloor, ElevatorManagerSystem ems) {
+        Floor parkingFloor = elevator.getParkingFloor();
+
+        if (parkingFloor == null || parkingFloor == targetFloor || elevator.getDirection() != 0)
+            return 0;
+
+        double expected = ems.getPredictedArrivals(parkingFloor.getFloorLevel(), RESERVATION_HORIZON);
+        return (int) Math.round(expected * RESERVATION_PENALTY);
+    }
+}
@@ -0,0 +1,65 @@
+package Module;
+
+import exceptions.FloorDoesNotExistException;
+
+import java.util.List;
+
+/**
+ * The ZoneParkingPolicy splits the floors served by a bank into one zone per running elevator of the bank,
+ * and parks each idle elevator in the middle of its own zone.
+ * <p>
+ * Zones are split by the predicted demand of every floor, so busy floors get smaller zones.
+ * Without any prediction every floor weighs the same and zones are split evenly.
+ *
+ * @author EJWang
+ */
+public class ZoneParkingPolicy implements ParkingPolicy {
+
+    // the horizon of predicted demand in second
+    private static final int ZONE_HORIZON = 300;
+
+    // the weight every floor has even if no call is expected
+    private static final double BASE_WEIGHT = 0.01;
+
+    @Override
+    public Floor selectParkingFloor(Elevator elevator, ElevatorManagerSystem ems, Building building)
+            throws FloorDoesNotExistException {
+        List<Elevator> elevators = ems.getAllElevators();
+
+        // the zone of this elevator is decided by its order among running elevators of the same bank
+        int zone = 0;
+        int numOfZones = 0;
+        for (Elevator other : elevators) {
+            if (other.getOperationSignal() != Elevator.RUNNING || other.getBank() != elevator.getBank())
+                continue;
+            if (other == elevator)
+                zone = numOfZones;
+            numOfZones++;
+        }
+
+        if (numOfZones == 0)
+            return null;
+
+        // weigh every floor by its predicted demand, there is no floor level 0
+        int lowest = building.getLowestLevel();
+        double[] weights = new double[building.getHighestLevel() - lowest + 1];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (lowest + i == 0 || !elevator.isServing(lowest + i))
+                continue;
+            weights[i] = BASE_WEIGHT + ems.getPredictedArrivals(lowest + i, ZONE_HORIZON);
+            total += weights[i];
+        }
+
+        // park where the accumulated demand reaches the middle of this zone
+        double middle = (zone + 0.5) * total / numOfZones;
+        double accumulated = 0;
+        for (int i = 0; i < weights.length; i++) {
+            accumulated += weights[i];
+            if (weights[i] > 0 && accumulated >= middle)
+                return building.getSpecifiedFloor(lowest + i);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+package driver;
+
+import Module.Building;
+import Module.CampusMetrics;
+import Module.CampusRunner;
+import Module.DemandWeightedParkingPolicy;
+import Module.ElevatorManagerSystem;
+import Module.FlightRecording;
+import Module.LogRecorder;
+import Module.MetricsServer;
+import Module.ResultExporter;
+import Module.TrafficGenerator;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The entry-point of the campus simulation.
+ * Many buildings of different heights are simulated headless on all cores of this machine.
+ * Given an export directory, every passenger and every run of the cars is streamed into columnar files there.
+ * With -Delevator.jfr=run.jfr the flight recorder events of the elevators are recorded into that file.
+ * With -Delevator.metrics=9400 the live metrics of every building are served at http://localhost:9400/metrics.
+ *
+ * @author EJWang
+ */
+public class CampusMain {
+
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long WINDOW_SIZE = 1000;                 // millisecond
+    private static final long REPORT_INTERVAL = 15 * 60 * 1000;   // millisecond
+    private static final long MEAN_CALL_INTERVAL = 20 * 1000;     // millisecond
+
+    /**
+     * The main method.
+     *
+     * @param args [number of buildings] [number of workers] [hours] [random seed] [export directory]
+     */
+    public static void main(String[] args) throws Exception {
+        int numOfBuildings = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int numOfWorkers = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double hours = (args.length > 2) ? Double.parseDouble(args[2]) : 1;
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : 42;
+        ResultExporter exporter = (args.length > 4) ? new ResultExporter(new File(args[4])) : null;
+
+        // thousands of elevators would flood the log files, only the campus report is kept
+        LogRecorder.getInstance().mute("elevator_log.txt");
+        LogRecorder.getInstance().mute("ems_log.txt");
+
+        Integer metricsPort = Integer.getInteger("elevator.metrics");
+        MetricsServer metricsServer = (metricsPort == null) ? null : new MetricsServer(metricsPort);
+
+        // the campus opens at 07:00
+        CampusRunner runner = new CampusRunner(numOfWorkers, WINDOW_SIZE, REPORT_INTERVAL, 7 * HOUR);
+        Random random = new Random(seed);
+
+        for (int i = 0; i < numOfBuildings; i++) {
+            // a building of 10 to 59 floors with 2 basements
+            int highestLevel = random.nextInt(50) + 10;
+            Building building = new Building(-2, highestLevel);
+            ElevatorManagerSystem ems = building.getEMS();
+
+            if (highestLevel < 30) {
+                ems.constructElevators(highestLevel / 8 + 1, 1300.0, 11);
+            } else {
+                // a tall building has a low-rise and a high-rise bank, both serve the lobby
+                int middle = highestLevel / 2;
+                ems.constructBank("低区", middle / 8 + 1, 1300.0, 11, -2, middle);
+                ems.constructBank("高区", (highestLevel - middle) / 8 + 1, 1300.0, 11, middle, highestLevel, 1);
+            }
+            ems.setParkingPolicy(new DemandWeightedParkingPolicy());
+            if (exporter != null)
+                ems.setResultExporter(exporter, i + 1);
+            if (metricsServer != null)
+                metricsServer.register(ems);
+
+            // every building repeats the same traffic with the same seed, however the campus is partitioned
+            runner.addBuilding(building, new TrafficGenerator(building, new Random(seed + i), MEAN_CALL_INTERVAL));
+        }
+
+        String jfrFile = System.getProperty("elevator.jfr");
+        FlightRecording recording = (jfrFile == null) ? null : new FlightRecording(Paths.get(jfrFile));
+
+        long start = System.currentTimeMillis();
+        CampusMetrics metrics = runner.run((long) (hours * HOUR));
+
+        if (recording != null)
+            recording.close();
+        if (metricsServer != null)
+            metricsServer.close();
+
+        System.out.printf("%d buildings, %d elevators on %d workers, %.1f hours simulated in %d ms%n",
+                metrics.getNumOfBuildings(), metrics.getNumOfElevators(), runner.getShards().size(),
+                hours, System.currentTimeMillis() - start);
+
+        if (exporter != null) {
+            exporter.close();
+            System.out.printf("exported %d passengers and %d runs to %s%n",
+                    exporter.getNumOfPassengers(), exporter.getNumOfTrips(), args[4]);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package driver;
+
+import Module.Building;
+import Module.CoreLoopBenchmark;
+import Module.LogRecorder;
+import Module.TrafficGenerator;
+
+import java.util.Random;
+
+/**
+ * The entry-point of the core loop benchmark, which tells how many bytes a step of a car allocates
+ * and how fast the engine steps. A busy tower runs an hour to warm up, then the given hours are measured.
+ * Run it with -XX:+UnlockDiagnosticVMOptions -XX:+PrintInlining to check what the JIT inlines into a step.
+ *
+ * @author EJWang
+ */
+public class CoreLoopBenchMain {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    /**
+     * The main method.
+     *
+     * @param args [highest level] [number of cars] [hours] [random seed]
+     */
+    public static void main(String[] args) throws Exception {
+        int highestLevel = (args.length > 0) ? Integer.parseInt(args[0]) : 40;
+        int numOfCars = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        double hours = (args.length > 2) ? Double.parseDouble(args[2]) : 4;
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : 42;
+
+        // only the steps are measured, not the messages
+        LogRecorder.getInstance().mute("elevator_log.txt");
+        LogRecorder.getInstance().mute("ems_log.txt");
+
+        Building building = new Building(-2, highestLevel);
+        building.getEMS().constructElevators(numOfCars, 1300.0, 11);
+
+        CoreLoopBenchmark benchmark = new CoreLoopBenchmark();
+        benchmark.run(building, new TrafficGenerator(building, new Random(seed), 3000), 7 * HOUR, HOUR,
+                (long) (hours * HOUR));
+        System.out.println(benchmark);
+    }
+}
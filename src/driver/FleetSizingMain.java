@@ -0,0 +1,179 @@
+package driver;
+
+import Module.DispatchStrategy;
+import Module.FleetSizingSweep;
+import Module.FleetSizingSweep.Configuration;
+import Module.FleetSizingSweep.Result;
+import Module.LogRecorder;
+import Module.LookaheadDispatchStrategy;
+import Module.NearestCarDispatchStrategy;
+import Module.ReplicationController;
+import Module.ReplicationController.Estimate;
+import Module.RunningStatistics;
+import Module.WorkloadDispatchStrategy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The entry-point of the fleet sizing sweep, it prints how the waiting time changes with the number of cars.
+ * <p>
+ * Every parameter is given as name=value, a value can be a list "1000,1300" or a range "2..8":
+ * <pre>
+ *   floors=-2..40 cars=2..8 weight=1300 passengers=11 travel=700 strategy=workload,nearest traffic=300 hours=1
+ * </pre>
+ * The strategy is one of workload, nearest and lookahead.
+ * With target=30000 the cars range is searched by bisection for the fewest cars with 30s average wait,
+ * otherwise every combination is simulated.
+ * With precision=0.05 every combination is replicated with different seeds until the 95% confidence interval
+ * of each KPI is within 5% of its mean, between replications=3..30 times.
+ *
+ * @author EJWang
+ */
+public class FleetSizingMain {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    /**
+     * The main method.
+     *
+     * @param args The parameters as name=value
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            params.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+
+        int[] floors = parseInts(params.getOrDefault("floors", "-2..40"));
+        int[] cars = parseInts(params.getOrDefault("cars", "2..8"));
+        int[] weights = parseInts(params.getOrDefault("weight", "1300"));
+        int[] passengers = parseInts(params.getOrDefault("passengers", "11"));
+        int[] travelTimes = parseInts(params.getOrDefault("travel", "700"));
+        int[] traffics = parseInts(params.getOrDefault("traffic", "300"));
+        String[] strategies = params.getOrDefault("strategy", "workload").split(",");
+        double hours = Double.parseDouble(params.getOrDefault("hours", "1"));
+        long seed = Long.parseLong(params.getOrDefault("seed", "42"));
+        int numOfWorkers = Integer.parseInt(params.getOrDefault("workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        LogRecorder.getInstance().mute("elevator_log.txt");
+        LogRecorder.getInstance().mute("ems_log.txt");
+
+        // the cartesian product of every range, the cars range is left to the search if there is a target
+        boolean isSearching = params.containsKey("target");
+        List<Configuration> configurations = new ArrayList<>();
+        for (int car : isSearching ? new int[]{cars[0]} : cars)
+            for (int weight : weights)
+                for (int passenger : passengers)
+                    for (int travelTime : travelTimes)
+                        for (String strategy : strategies)
+                            for (int traffic : traffics)
+                                configurations.add(new Configuration(car, weight, passenger, travelTime,
+                                        createStrategy(strategy), traffic));
+
+        FleetSizingSweep sweep = new FleetSizingSweep(floors[0], floors[floors.length - 1], 8 * HOUR,
+                (long) (hours * HOUR), seed, numOfWorkers);
+
+        long start = System.currentTimeMillis();
+
+        if (params.containsKey("precision")) {
+            int[] replications = parseInts(params.getOrDefault("replications", "3..30"));
+            ReplicationController controller = new ReplicationController(sweep, numOfWorkers,
+                    Double.parseDouble(params.get("precision")), replications[0],
+                    replications[replications.length - 1], seed);
+
+            List<Estimate> estimates = controller.run(configurations);
+            printEstimates(estimates, System.currentTimeMillis() - start);
+            return;
+        }
+
+        List<Result> results = isSearching
+                ? sweep.search(configurations, cars[0], cars[cars.length - 1], Long.parseLong(params.get("target")))
+                : sweep.sweep(configurations);
+
+        System.out.printf("%d simulations in %d ms, Pareto front:%n", results.size(), System.currentTimeMillis() - start);
+        System.out.printf("%5s %7s %5s %7s %-12s %8s %7s %10s %10s%n",
+                "cars", "weight", "pass", "travel", "strategy", "calls/h", "trips", "avg wait", "p95 wait");
+
+        for (Result result : FleetSizingSweep.getParetoFront(results)) {
+            Configuration c = result.getConfiguration();
+            System.out.printf("%5d %7.0f %5d %7d %-12s %8d %7d %9.1fs %9.1fs%n",
+                    c.getCars(), c.getWeight(), c.getPassengers(), c.getFloorTravelTime(),
+                    c.getStrategy().getClass().getSimpleName().replace("DispatchStrategy", ""),
+                    c.getCallsPerHour(), result.getTrips(),
+                    result.getAverageWait() / 1000.0, result.getP95Wait() / 1000.0);
+        }
+    }
+
+    /**
+     * Print the mean and 95% confidence interval of every KPI.
+     */
+    private static void printEstimates(List<Estimate> estimates, long elapsed) {
+        int total = 0;
+        for (Estimate estimate : estimates)
+            total += estimate.getReplications();
+
+        System.out.printf("%d replications in %d ms:%n", total, elapsed);
+        System.out.printf("%5s %7s %5s %7s %-12s %8s %5s %16s %16s %18s%n", "cars", "weight", "pass", "travel",
+                "strategy", "calls/h", "reps", "avg wait", "p95 wait", "delivered/h");
+
+        for (Estimate estimate : estimates) {
+            Configuration c = estimate.getConfiguration();
+            System.out.printf("%5d %7.0f %5d %7d %-12s %8d %5d %16s %16s %18s%n",
+                    c.getCars(), c.getWeight(), c.getPassengers(), c.getFloorTravelTime(),
+                    c.getStrategy().getClass().getSimpleName().replace("DispatchStrategy", ""),
+                    c.getCallsPerHour(), estimate.getReplications(),
+                    formatInterval(estimate.getAverageWait(), 1000), formatInterval(estimate.getP95Wait(), 1000),
+                    formatInterval(estimate.getHandlingCapacity(), 1));
+        }
+    }
+
+    /**
+     * Format the mean and the half width of the confidence interval.
+     */
+    private static String formatInterval(RunningStatistics statistics, double unit) {
+        return String.format("%.1f±%.1f", statistics.getMean() / unit, statistics.getHalfWidth() / unit);
+    }
+
+    /**
+     * Parse a list "1,2,3" or a range "1..3" of integers.
+     */
+    private static int[] parseInts(String value) {
+        if (value.contains("..")) {
+            String[] bounds = value.split("\\.\\.");
+            int from = Integer.parseInt(bounds[0]);
+            int to = Integer.parseInt(bounds[1]);
+
+            int[] values = new int[to - from + 1];
+            for (int i = 0; i < values.length; i++)
+                values[i] = from + i;
+            return values;
+        }
+
+        String[] items = value.split(",");
+        int[] values = new int[items.length];
+        for (int i = 0; i < items.length; i++)
+            values[i] = Integer.parseInt(items[i].trim());
+        return values;
+    }
+
+    /**
+     * Create the dispatch strategy of given name.
+     */
+    private static DispatchStrategy createStrategy(String name) {
+        switch (name.trim()) {
+            case "nearest":
+                return new NearestCarDispatchStrategy();
+            case "workload":
+                return new WorkloadDispatchStrategy();
+            case "lookahead":
+                return new LookaheadDispatchStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown dispatch strategy: " + name);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package driver;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The entry-point of the load driver, it pushes hall calls into a building served by Module.CallInjectionServer,
+ * e.g. one started by Main with -Delevator.calls=9500.
+ * The calls are written in batches every 10 ms over several connections, and every batch is acknowledged,
+ * so the time from writing a batch to its acknowledgement tells how fast the Elevator Manager System takes calls in.
+ *
+ * @author EJWang
+ */
+public class LoadDriverMain {
+
+    private static final long BATCH_INTERVAL = 10;     // millisecond
+
+    /**
+     * The main method.
+     *
+     * @param args [port] [calls per second] [seconds] [number of connections] [random seed]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 9500;
+        int rate = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+        double seconds = (args.length > 2) ? Double.parseDouble(args[2]) : 10;
+        int numOfConnections = (args.length > 3) ? Integer.parseInt(args[3]) : 4;
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 42;
+
+        int batchSize = (int) Math.max(1, rate * BATCH_INTERVAL / 1000 / numOfConnections);
+        long numOfBatches = (long) (seconds * 1000 / BATCH_INTERVAL);
+
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < numOfConnections; i++)
+            connections.add(new Connection(port, batchSize, numOfBatches, new Random(seed + i)));
+
+        long start = System.currentTimeMillis();
+        for (Connection connection : connections)
+            connection.start();
+        for (Connection connection : connections)
+            connection.join();
+        long elapsed = System.currentTimeMillis() - start;
+
+        long sent = 0;
+        long accepted = 0;
+        long rejected = 0;
+        long ackTime = 0;
+        long maxAckTime = 0;
+        for (Connection connection : connections) {
+            sent += connection.sent;
+            accepted += connection.accepted;
+            rejected += connection.rejected;
+            ackTime += connection.ackTime;
+            maxAckTime = Math.max(maxAckTime, connection.maxAckTime);
+        }
+
+        System.out.printf("sent %d calls in %d ms (%.0f calls/s), %d accepted, %d rejected%n",
+                sent, elapsed, sent * 1000.0 / Math.max(1, elapsed), accepted, rejected);
+        System.out.printf("batch of %d calls acknowledged in %.3f ms on average, %.3f ms at most%n",
+                batchSize, ackTime / 1e6 / Math.max(1, numOfBatches * numOfConnections), maxAckTime / 1e6);
+    }
+
+    /**
+     * A connection writing batches of random hall calls at a steady pace.
+     */
+    private static class Connection extends Thread {
+
+        private Socket socket;
+        private BufferedReader in;
+        private OutputStream out;
+        private Random random;
+        private int batchSize;
+        private long numOfBatches;
+
+        // the building announced by the server
+        private int lowestLevel;
+        private int highestLevel;
+
+        private long sent;
+        private long accepted;
+        private long rejected;
+        private long ackTime;                  // nanosecond
+        private long maxAckTime;
+
+        Connection(int port, int batchSize, long numOfBatches, Random random) throws IOException {
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            this.socket.setTcpNoDelay(true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            this.random = random;
+            this.batchSize = batchSize;
+            this.numOfBatches = numOfBatches;
+
+            // ELEVATOR lowest highest cars
+            String[] greeting = in.readLine().split(" ");
+            lowestLevel = Integer.parseInt(greeting[1]);
+            highestLevel = Integer.parseInt(greeting[2]);
+        }
+
+        @Override
+        public void run() {
+            StringBuilder batch = new StringBuilder(batchSize * 12);
+            long start = System.currentTimeMillis();
+
+            try {
+                for (long i = 0; i < numOfBatches; i++) {
+                    // keep the pace, a late batch is sent at once to catch up
+                    long delay = start + i * BATCH_INTERVAL - System.currentTimeMillis();
+                    if (delay > 0)
+                        Thread.sleep(delay);
+
+                    batch.setLength(0);
+                    for (int j = 0; j < batchSize; j++) {
+                        int from = randomLevel();
+                        int to;
+                        do {
+                            to = randomLevel();
+                        } while (to == from);
+                        batch.append("H ").append(from).append(' ').append(to).append(' ')
+                                .append(random.nextInt(80) + 50).append('\n');
+                    }
+                    batch.append("F\n");
+
+                    long written = System.nanoTime();
+                    out.write(batch.toString().getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+
+                    // OK accepted rejected
+                    String[] ack = in.readLine().split(" ");
+                    long elapsed = System.nanoTime() - written;
+                    ackTime += elapsed;
+                    maxAckTime = Math.max(maxAckTime, elapsed);
+                    accepted += Long.parseLong(ack[1]);
+                    rejected += Long.parseLong(ack[2]);
+                    sent += batchSize;
+                }
+                socket.close();
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Connection failed: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Pick a floor level, there is no floor level 0.
+         */
+        private int randomLevel() {
+            int level;
+            do {
+                level = random.nextInt(highestLevel - lowestLevel + 1) + lowestLevel;
+            } while (level == 0);
+            return level;
+        }
+    }
+}
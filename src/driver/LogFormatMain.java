@@ -0,0 +1,45 @@
+package driver;
+
+import Module.BinaryLogReader;
+import Module.LogLevel;
+import Module.LogTemplate;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The offline formatter of a binary log, which prints the messages as the lines of the text logs.
+ * <pre>
+ *   run.bin                            every message
+ *   run.bin elevator_log.txt           only the messages of a text log
+ *   run.bin * WARN                     only the messages at or above a level
+ * </pre>
+ *
+ * @author EJWang
+ */
+public class LogFormatMain {
+
+    /**
+     * The main method.
+     *
+     * @param args [binary log] [text log or *] [level]
+     */
+    public static void main(String[] args) throws IOException {
+        String filename = (args.length > 1 && !args[1].equals("*")) ? args[1] : null;
+        LogLevel level = (args.length > 2) ? LogLevel.valueOf(args[2].toUpperCase()) : LogLevel.DEBUG;
+
+        long count = 0;
+        try (BinaryLogReader reader = new BinaryLogReader(new File(args[0]))) {
+            while (reader.next()) {
+                LogTemplate template = reader.getTemplate();
+                if (template != null && (filename != null && !template.getFilename().equals(filename)
+                        || template.getLevel().compareTo(level) < 0))
+                    continue;
+
+                System.out.println(reader.format());
+                count++;
+            }
+        }
+        System.err.printf("%d messages%n", count);
+    }
+}
@@ -1,13 +1,30 @@
 package driver;
 
 import Module.Building;
+import Module.CallInjectionServer;
+import Module.DemandWeightedParkingPolicy;
 import Module.ElevatorManagerSystem;
 import Module.EventGenerator;
+import Module.ExecutionMode;
+import Module.LogRecorder;
+import Module.MetricsServer;
+import Module.SimulationExecutor;
 import view.GUI;
+import view.TerminalDashboard;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
 
 /**
  * The entry-point of this program.
  * Everything will be configured and set up at this class.
+ * With -Delevator.metrics=9400 the live metrics are served at http://localhost:9400/metrics.
+ * With -Delevator.calls=9500 the calls are taken from a harness such as LoadDriverMain on that port
+ * instead of the EventGenerator.
+ * With -Delevator.log=run.bin the messages are written into a binary log, which is printed by LogFormatMain,
+ * and -Delevator.log.level=INFO skips the messages of every stage of the cars.
+ * With -Delevator.dashboard=4 the building is drawn on the terminal 4 times a second instead of the GUI,
+ * for the hosts without a display, and the messages are no longer echoed on the console.
  *
  * @author EJWang
  */
@@ -16,9 +33,14 @@ public class Main {
     /**
      * The main method.
      *
-     * @param args This will not be used
+     * @param args The execution mode can be given as the first argument, e.g. CARRIER_POOL
      */
     public static void main(String[] args) throws Exception {
+        // write the messages into a binary log if a file is given
+        String binaryLog = System.getProperty("elevator.log");
+        if (binaryLog != null)
+            LogRecorder.getInstance().openBinaryLog(new File(binaryLog));
+
         // create a building with lowest floor -4 and highest floor 43
         Building building = new Building(-4, 43);
 
@@ -28,13 +50,34 @@ public class Main {
         // construct 4 elevators with capacity of 1300kg and 11 passengers
         ems.constructElevators(4, 1300.0, 11);
 
-        // start GUI
-        new Thread(new GUI(building)).start();
+        // idle elevators wait at the floors with the most recent calls
+        ems.setParkingPolicy(new DemandWeightedParkingPolicy());
+
+        // elevators run as platform threads unless another execution mode is given
+        ExecutionMode mode = (args.length > 0) ? ExecutionMode.valueOf(args[0]) : ExecutionMode.PLATFORM_THREADS;
+        SimulationExecutor executor = new SimulationExecutor(mode, building.getClock());
+
+        // serve the live metrics if a port is given
+        Integer metricsPort = Integer.getInteger("elevator.metrics");
+        if (metricsPort != null)
+            new MetricsServer(metricsPort).register(ems);
+
+        // draw on the terminal if a frame rate is given, or start GUI
+        Integer framesPerSecond = Integer.getInteger("elevator.dashboard");
+        if (framesPerSecond != null) {
+            LogRecorder.getInstance().setEchoed(false);
+            new TerminalDashboard(building, System.out, framesPerSecond).start();
+        } else
+            SwingUtilities.invokeLater(new GUI(building));
 
-        // start ems thread, and ems will start all thread of elevator
-        new Thread(ems).start();
+        // start ems, and ems will start all elevators
+        ems.start(executor);
 
-        // start generate event
-        new Thread(new EventGenerator(building)).start();
+        // take calls from an external harness, or start generate event
+        Integer callPort = Integer.getInteger("elevator.calls");
+        if (callPort != null)
+            new CallInjectionServer(building, callPort);
+        else
+            executor.start(new EventGenerator(building));
     }
 }
@@ -0,0 +1,92 @@
+package driver;
+
+import Module.LogRecorder;
+import Module.RegressionGate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedMap;
+
+/**
+ * The entry-point of the regression gate, which runs every scenario in the scenarios directory and compares
+ * the results with a baseline file. It exits with 1 if any metric regressed beyond its tolerance.
+ * <pre>
+ *   [baseline file] --record   measure and write a new baseline, e.g. before a change or on a new machine
+ *   [baseline file]            measure and compare with the baseline
+ * </pre>
+ * The baseline defaults to regression-baseline.properties. The engine metrics depend on the machine, so a
+ * baseline is recorded on the machine which runs the gate.
+ *
+ * @author EJWang
+ */
+public class RegressionMain {
+
+    private static final String DEFAULT_BASELINE = "regression-baseline.properties";
+    private static final int REPETITIONS = 10;
+    private static final long MEASURE_TIME = 5000;     // millisecond of measured runs per scenario
+
+    /**
+     * The main method.
+     *
+     * @param args [baseline file] [--record]
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        boolean record = options.remove("--record");
+        File baselineFile = new File(options.isEmpty() ? DEFAULT_BASELINE : options.get(0));
+
+        File[] files = new File("scenarios").listFiles();
+        List<File> scenarios = new ArrayList<>();
+        if (files != null)
+            for (File file : files)
+                if (file.getName().endsWith(".txt"))
+                    scenarios.add(file);
+        if (scenarios.isEmpty())
+            throw new IllegalStateException("No scenario found in " + new File("scenarios").getAbsolutePath());
+        scenarios.sort(null);
+
+        // only the steps are measured, not the messages
+        LogRecorder.getInstance().mute("elevator_log.txt");
+        LogRecorder.getInstance().mute("ems_log.txt");
+
+        Properties baseline = baselineFile.exists() ? RegressionGate.readBaseline(baselineFile) : null;
+        if (!record && baseline == null)
+            throw new IllegalStateException("No baseline " + baselineFile + ", record one with --record");
+
+        SortedMap<String, Double> results = new RegressionGate(scenarios, REPETITIONS, MEASURE_TIME).measure();
+
+        if (record) {
+            RegressionGate.writeBaseline(results, baselineFile, baseline);
+            System.out.printf("recorded %d metrics of %d scenarios into %s%n", results.size(), scenarios.size(),
+                    baselineFile);
+            return;
+        }
+
+        int regressions = 0;
+        System.out.printf("%-32s %14s %14s %9s %7s%n", "metric", "baseline", "current", "change", "status");
+        for (RegressionGate.Comparison comparison : RegressionGate.compare(results, baseline)) {
+            String status;
+            if (comparison.isNew())
+                status = "NEW";
+            else if (comparison.isMissing())
+                status = "MISSING";
+            else if (comparison.isRegressed()) {
+                status = "FAIL";
+                regressions++;
+            } else
+                status = "ok";
+
+            System.out.printf("%-32s %14.1f %14.1f %8.1f%% %7s%n", comparison.getName(), comparison.getBaseline(),
+                    comparison.getCurrent(), 100 * comparison.getChange(), status);
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d metrics regressed beyond the tolerance%n", regressions);
+            System.exit(1);
+        }
+        System.out.println("no regression");
+    }
+}
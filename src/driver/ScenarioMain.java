@@ -0,0 +1,150 @@
+package driver;
+
+import Module.Building;
+import Module.CampusShard;
+import Module.DegradedModeMetrics;
+import Module.FaultInjector;
+import Module.LogRecorder;
+import Module.RunningStatistics;
+import Module.Scenario;
+import Module.TripMetrics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The entry-point of the scenario runs, see Module.Scenario for the format of a scenario file.
+ * <pre>
+ *   compile office.txt office.bin      compile a text scenario
+ *   office.bin [replications] [workers]  run the scenario with a different seed for every replication
+ * </pre>
+ * A text scenario can be run as well, it is compiled in memory first.
+ * Every replication decodes its own copy of the compiled scenario, the time it takes is reported too.
+ * If the cars of the scenario break down, the wait and the handling capacity with every number of cars down
+ * are summed over the replications.
+ *
+ * @author EJWang
+ */
+public class ScenarioMain {
+
+    /**
+     * The main method.
+     *
+     * @param args compile [text file] [compiled file], or [scenario file] [replications] [workers]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args[0].equals("compile")) {
+            long start = System.nanoTime();
+            Scenario.compile(new File(args[1]), new File(args[2]));
+            System.out.printf("compiled %s into %s (%d bytes) in %.1f ms%n", args[1], args[2],
+                    new File(args[2]).length(), (System.nanoTime() - start) / 1e6);
+            return;
+        }
+
+        final Scenario scenario = Scenario.load(new File(args[0]));
+        final byte[] compiled = scenario.toBytes();
+        int replications = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+        int numOfWorkers = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        // hundreds of runs would flood the log files
+        LogRecorder.getInstance().mute("elevator_log.txt");
+        LogRecorder.getInstance().mute("ems_log.txt");
+
+        ExecutorService workers = Executors.newFixedThreadPool(numOfWorkers);
+        List<Future<long[]>> runs = new ArrayList<>();
+        for (int i = 0; i < replications; i++) {
+            final long seed = scenario.getSeed() + i;
+            runs.add(workers.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() throws Exception {
+                    long start = System.nanoTime();
+                    Scenario run = Scenario.fromBytes(compiled);
+                    long loadTime = System.nanoTime() - start;
+
+                    Building building = run.build();
+                    CampusShard shard = new CampusShard(1, run.getStartTime());
+                    Random random = new Random(seed);
+                    shard.addBuilding(building, run.createTraffic(building, random));
+                    FaultInjector faults = run.createFaults(building, new Random(random.nextLong()));
+                    if (faults != null)
+                        shard.start(faults);
+                    long end = run.getStartTime() + run.getDuration();
+                    shard.advanceTo(end);
+
+                    TripMetrics metrics = building.getEMS().getTripMetrics();
+                    long trips = metrics.getTrips();
+
+                    // the run time, trips, total wait and deliveries with every number of cars down follow
+                    DegradedModeMetrics degraded = building.getEMS().getDegradedModeMetrics();
+                    int levels = degraded.getMaxCarsDown() + 1;
+                    long[] result = new long[5 + levels * 4];
+                    result[0] = loadTime;
+                    result[1] = trips;
+                    result[2] = trips == 0 ? 0 : metrics.getWaitTime() / trips;
+                    result[3] = metrics.getWaitPercentile(0.95);
+                    result[4] = degraded.getNumOfFailures();
+                    for (int level = 0; level < levels; level++) {
+                        result[5 + level * 4] = degraded.getTime(level, end);
+                        result[6 + level * 4] = degraded.getTrips(level);
+                        result[7 + level * 4] = degraded.getAverageWait(level) * degraded.getTrips(level);
+                        result[8 + level * 4] = degraded.getDeliveries(level);
+                    }
+                    return result;
+                }
+            }));
+        }
+
+        RunningStatistics loadTimes = new RunningStatistics();
+        RunningStatistics trips = new RunningStatistics();
+        RunningStatistics averageWaits = new RunningStatistics();
+        RunningStatistics p95Waits = new RunningStatistics();
+        long failures = 0;
+        long[] degraded = new long[0];
+        for (Future<long[]> run : runs) {
+            long[] result = run.get();
+            loadTimes.add(result[0]);
+            trips.add(result[1]);
+            averageWaits.add(result[2]);
+            p95Waits.add(result[3]);
+
+            failures += result[4];
+            if (result.length - 5 > degraded.length)
+                degraded = Arrays.copyOf(degraded, result.length - 5);
+            for (int i = 5; i < result.length; i++)
+                degraded[i - 5] += result[i];
+        }
+        workers.shutdown();
+
+        System.out.printf("%s: %d replications, %.0f passengers per run%n", args[0], replications, trips.getMean());
+        System.out.printf("average wait %.0f ms (+-%.0f), p95 wait %.0f ms (+-%.0f)%n",
+                averageWaits.getMean(), averageWaits.getHalfWidth(), p95Waits.getMean(), p95Waits.getHalfWidth());
+        System.out.printf("scenario of %d bytes decoded in %.1f us on average%n",
+                compiled.length, loadTimes.getMean() / 1e3);
+
+        if (failures == 0)
+            return;
+
+        long totalTime = 0;
+        for (int i = 0; i < degraded.length; i += 4)
+            totalTime += degraded[i];
+
+        System.out.printf("%.1f failures per run%n", (double) failures / replications);
+        System.out.println("cars down   time    passengers   average wait   handling capacity (5 min)");
+        for (int i = 0; i < degraded.length; i += 4) {
+            if (degraded[i] == 0 && degraded[i + 1] == 0)
+                continue;
+            System.out.printf("%9d %6.1f%% %13d %11d ms %19.1f%n", i / 4,
+                    totalTime == 0 ? 0 : 100.0 * degraded[i] / totalTime,
+                    degraded[i + 1],
+                    degraded[i + 1] == 0 ? 0 : degraded[i + 2] / degraded[i + 1],
+                    degraded[i] == 0 ? 0 : degraded[i + 3] * 300000.0 / degraded[i]);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package driver;
+
+import Module.Building;
+import Module.LogRecorder;
+import Module.StressHarness;
+
+/**
+ * The entry-point of the stress test, which runs the cars, the EMS and the call generators of a busy tower on
+ * their own threads at an extreme call rate, on a clock sped up 50 times. The calls stop after the given minutes,
+ * then the cars have up to an hour to serve everyone left. It exits with 1 if any invariant was violated.
+ *
+ * @author EJWang
+ */
+public class StressMain {
+
+    private static final long MINUTE = 60L * 1000;
+
+    /**
+     * The main method.
+     *
+     * @param args [number of cars] [number of generators] [mean interval of a generator in ms] [minutes]
+     *             [speed up] [random seed]
+     */
+    public static void main(String[] args) throws Exception {
+        int numOfCars = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+        int numOfGenerators = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        long meanInterval = (args.length > 2) ? Long.parseLong(args[2]) : 8000;
+        double minutes = (args.length > 3) ? Double.parseDouble(args[3]) : 20;
+        double speedUp = (args.length > 4) ? Double.parseDouble(args[4]) : 50;
+        long seed = (args.length > 5) ? Long.parseLong(args[5]) : 42;
+
+        // the messages of hundreds of steps per second would flood the log files
+        LogRecorder.getInstance().mute("elevator_log.txt");
+        LogRecorder.getInstance().mute("ems_log.txt");
+
+        Building building = new Building(-2, 40);
+        building.getEMS().constructElevators(numOfCars, 1300.0, 11);
+
+        StressHarness harness = new StressHarness(building, numOfGenerators, meanInterval, speedUp, 30 * MINUTE);
+        harness.run(8 * 60 * MINUTE, (long) (minutes * MINUTE), 60 * MINUTE, seed);
+        System.out.println(harness);
+
+        if (harness.getTotalViolations() > 0)
+            System.exit(1);
+    }
+}
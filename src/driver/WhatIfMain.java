@@ -0,0 +1,99 @@
+package driver;
+
+import Module.Building;
+import Module.CampusShard;
+import Module.DispatchStrategy;
+import Module.DemandWeightedParkingPolicy;
+import Module.ElevatorManagerSystem;
+import Module.LogRecorder;
+import Module.LookaheadDispatchStrategy;
+import Module.NearestCarDispatchStrategy;
+import Module.SimulationCheckpoint;
+import Module.TrafficGenerator;
+import Module.TripMetrics;
+import Module.WorkloadDispatchStrategy;
+
+import java.util.Random;
+
+/**
+ * The entry-point of the what-if study. A tower is warmed up once, then every branch is restored from
+ * the same checkpoint and continues with one change: another dispatch strategy, or one car out of service.
+ *
+ * @author EJWang
+ */
+public class WhatIfMain {
+
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long MEAN_CALL_INTERVAL = 8 * 1000;     // millisecond
+
+    /**
+     * The main method.
+     *
+     * @param args [warm-up hours] [branch hours] [random seed]
+     */
+    public static void main(String[] args) throws Exception {
+        double warmUpHours = (args.length > 0) ? Double.parseDouble(args[0]) : 1;
+        double branchHours = (args.length > 1) ? Double.parseDouble(args[1]) : 1;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 42;
+
+        LogRecorder.getInstance().mute("elevator_log.txt");
+        LogRecorder.getInstance().mute("ems_log.txt");
+
+        // a 40 floors tower with 6 cars, warmed up from 07:00
+        Building building = new Building(-2, 40);
+        ElevatorManagerSystem ems = building.getEMS();
+        ems.constructElevators(6, 1300.0, 11);
+        ems.setParkingPolicy(new DemandWeightedParkingPolicy());
+
+        long startTime = 7 * HOUR;
+        CampusShard shard = new CampusShard(1, startTime);
+        shard.addBuilding(building, new TrafficGenerator(building, new Random(seed), MEAN_CALL_INTERVAL));
+        shard.advanceTo(startTime + (long) (warmUpHours * HOUR));
+
+        byte[] checkpoint = SimulationCheckpoint.save(shard);
+        long endTime = shard.getClock().currentTimeMillis() + (long) (branchHours * HOUR);
+        System.out.printf("checkpoint of %d bytes after %.1f hours warm-up%n", checkpoint.length, warmUpHours);
+
+        // branches of dispatch strategy
+        DispatchStrategy[] strategies = {new WorkloadDispatchStrategy(), new NearestCarDispatchStrategy(),
+                new LookaheadDispatchStrategy()};
+        for (DispatchStrategy strategy : strategies) {
+            CampusShard branch = restore(checkpoint);
+            branch.getBuildings().get(0).getEMS().setDispatchStrategy(strategy);
+            report(strategy.getClass().getSimpleName(), branch, endTime);
+        }
+
+        // branches of one car out of service
+        for (int i = 0; i < ems.getAllElevators().size(); i++) {
+            CampusShard branch = restore(checkpoint);
+            branch.getBuildings().get(0).getEMS().getAllElevators().get(i).turnOff();
+            report("停用" + (i + 1) + "号电梯", branch, endTime);
+        }
+    }
+
+    /**
+     * Restore a branch and print how long it took.
+     */
+    private static CampusShard restore(byte[] checkpoint) throws Exception {
+        long start = System.nanoTime();
+        CampusShard branch = SimulationCheckpoint.restore(checkpoint);
+        System.out.printf("  restored in %.2f ms%n", (System.nanoTime() - start) / 1e6);
+        return branch;
+    }
+
+    /**
+     * Continue a branch and print the trips delivered after the checkpoint.
+     */
+    private static void report(String name, CampusShard branch, long endTime) {
+        TripMetrics before = branch.getBuildings().get(0).getEMS().getTripMetrics();
+        long trips = before.getTrips();
+        long waitTime = before.getWaitTime();
+
+        branch.advanceTo(endTime);
+
+        TripMetrics after = branch.getBuildings().get(0).getEMS().getTripMetrics();
+        long branchTrips = after.getTrips() - trips;
+        System.out.printf("%-30s 送达%d人, 平均等待%.1fs%n", name, branchTrips,
+                branchTrips == 0 ? 0 : (after.getWaitTime() - waitTime) / 1000.0 / branchTrips);
+    }
+}
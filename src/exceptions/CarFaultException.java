@@ -0,0 +1,17 @@
+package exceptions;
+
+/**
+ * A CarFaultException is used to tell the Module.Elevator that a part of the car has broken down,
+ * and it has to stop service until it is repaired.
+ *
+ * @author EJWang
+ */
+public class CarFaultException extends Exception {
+
+    /**
+     * Construct a CarFaultException.
+     */
+    public CarFaultException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,17 @@
+package exceptions;
+
+/**
+ * A ScenarioFormatException may occur when a scenario file cannot be understood,
+ * the message tells the line which is wrong.
+ *
+ * @author EJWang
+ */
+public class ScenarioFormatException extends Exception {
+
+    /**
+     * Construct a ScenarioFormatException.
+     */
+    public ScenarioFormatException(String msg) {
+        super(msg);
+    }
+}
@@ -2,6 +2,8 @@ package view;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.List;
 
 import Module.Building;
@@ -31,23 +33,16 @@ public class GUI implements Runnable {
     class StatusDisplayCanvas extends JComponent {
 
         /**
-         * Construct an animation thread and run it.
+         * Construct an animation timer and start it, the repaint runs on the event dispatch thread.
          */
         public StatusDisplayCanvas() {
-            Thread animationThread = new Thread(new Runnable() {
-                public void run() {
-                    while (true) {
-                        repaint();
-                        try {
-                            Thread.sleep(100);
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
+            Timer animationTimer = new Timer(100, new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    repaint();
                 }
             });
 
-            animationThread.start();
+            animationTimer.start();
         }
 
         public void paintComponent(Graphics g) {
@@ -77,7 +72,7 @@ public class GUI implements Runnable {
 
 
     /**
-     * This method should be invoke by start(). Do not call it directly.
+     * This method should be invoked on the event dispatch thread. Do not call it directly.
      * <p>
      * Start display the GUI.
      */
@@ -93,33 +88,5 @@ public class GUI implements Runnable {
         frame.setVisible(true);
         // center of the screen
         frame.setLocationRelativeTo(null);
-
-        DEBUG_ELEVATORS_CURRENT_LEVELS();
-    }
-
-    private void DEBUG_ELEVATORS_CURRENT_LEVELS() {
-        while (true) {
-            try {
-                int[] currLevels = new int[4];
-                int[] task = new int[4];
-                int[] directions = new int[4];
-                int[] weights = new int[4];
-                int[] persons = new int[4];
-                int[] status = new int[4];
-
-                for (int i = 0; i < 4; i++) {
-                    currLevels[i] = elevatorList.get(i).getCurrFloor().getFloorLevel();
-                    task[i] = elevatorList.get(i).getTasks().size();
-                    directions[i] = elevatorList.get(i).getDirection();
-                    weights[i] = elevatorList.get(i).getCurrWeight();
-                    persons[i] = elevatorList.get(i).getCurrNumOfPassenger();
-                    status[i] = elevatorList.get(i).getOperationSignal();
-                }
-
-                Thread.sleep(1000);
-            } catch (Exception e) {
-                System.err.println("GUI Sleep failed");
-            }
-        }
     }
 }
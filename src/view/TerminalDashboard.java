@@ -0,0 +1,412 @@
+package view;
+
+import Module.Bank;
+import Module.Building;
+import Module.Elevator;
+import Module.ElevatorManagerSystem;
+import Module.ElevatorMetrics;
+import Module.Floor;
+import Module.TripMetrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TerminalDashboard draws the building on an ANSI terminal, for the hosts without a display.
+ * <p>
+ * It shows the shaft diagram with every car, its load and its stops, the passengers waiting at every floor,
+ * and the waiting time percentiles of the passengers arrived. Every number is read from the state published by
+ * the simulation, the atomics of Module.ElevatorMetrics and Module.TripMetrics and the copy-on-write stops of
+ * the cars, so drawing never stalls the elevators. A car is drawn as its direction and load, ^ up, v down,
+ * = stopped and o with the door open, XX while out of service and -- while turned off; a * marks its stops.
+ * <p>
+ * A frame is composed into a grid of cells and compared with the grid on the screen, only the changed cells are
+ * written, so a quiet building costs a few bytes per frame. The frames are drawn by a daemon thread at a capped
+ * rate. The text is kept in ASCII, a wide character would shift every cell after it.
+ *
+ * @author EJWang
+ */
+public class TerminalDashboard implements Runnable {
+
+    public static final int MAX_FRAMES_PER_SECOND = 30;
+
+    private static final String CSI = "\u001b[";
+    private static final int CELL_WIDTH = 4;
+    private static final int FLOOR_COLUMNS = 16;        // "Floor   Up  Dn |"
+    private static final int MIN_COLUMNS = 80;
+
+    // the colors of the cells, as SGR parameters indexed by the attribute
+    private static final byte PLAIN = 0;
+    private static final byte MOVING = 1;
+    private static final byte DOCKED = 2;
+    private static final byte FAULT = 3;
+    private static final byte DIM = 4;
+    private static final String[] COLORS = {"0", "0;32", "0;33", "0;1;31", "0;2"};
+
+    private Building building;
+    private ElevatorManagerSystem ems;
+    private List<Elevator> elevators;
+    private PrintStream out;
+    private long frameInterval;         // millisecond
+    private ScheduledExecutorService timer;
+
+    // the cells composed for the next frame, and the cells on the screen
+    private int rows;
+    private int columns;
+    private char[][] drawn;
+    private byte[][] drawnColors;
+    private char[][] shown;
+    private byte[][] shownColors;
+    private boolean[][] stops;          // by car then floor index
+    private StringBuilder frame;
+    private boolean isCleared;
+
+    // the cost of drawing, in the CPU time of the drawing thread if the JVM measures it
+    private ThreadMXBean threads;
+    private long frames;
+    private long drawTime;              // nanosecond
+    private long bytesWritten;
+    private long startTime;             // nanosecond
+
+    /**
+     * Construct a TerminalDashboard.
+     *
+     * @param building        The building to draw
+     * @param out             The terminal, e.g. System.out
+     * @param framesPerSecond The frames drawn in a second, capped by MAX_FRAMES_PER_SECOND
+     */
+    public TerminalDashboard(Building building, PrintStream out, int framesPerSecond) {
+        this.building = building;
+        this.ems = building.getEMS();
+        this.elevators = ems.getAllElevators();
+        this.out = out;
+        this.frameInterval = 1000 / Math.max(1, Math.min(framesPerSecond, MAX_FRAMES_PER_SECOND));
+
+        int numOfFloors = building.getNumOfFloors();
+        rows = 4 + numOfFloors + 2 + elevators.size();
+        columns = Math.max(MIN_COLUMNS, FLOOR_COLUMNS + CELL_WIDTH * elevators.size());
+        drawn = new char[rows][columns];
+        drawnColors = new byte[rows][columns];
+        shown = new char[rows][columns];
+        shownColors = new byte[rows][columns];
+        stops = new boolean[elevators.size()][numOfFloors];
+        frame = new StringBuilder(rows * columns);
+        threads = ManagementFactory.getThreadMXBean();
+    }
+
+    /* =================================== Public Methods ========================================================== */
+
+    /**
+     * Start drawing the frames on a daemon thread.
+     */
+    public synchronized void start() {
+        if (timer != null)
+            return;
+
+        startTime = System.nanoTime();
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "terminal-dashboard");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.scheduleAtFixedRate(this, 0, frameInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop drawing, the cursor is given back below the dashboard.
+     */
+    public synchronized void stop() {
+        if (timer == null)
+            return;
+
+        timer.shutdown();
+        try {
+            timer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException i) {
+            Thread.currentThread().interrupt();
+        }
+        timer = null;
+
+        out.print(CSI + "0m" + CSI + (rows + 1) + ";1H" + CSI + "?25h");
+        out.flush();
+    }
+
+    /**
+     * Draw a frame, only the cells changed since the last frame are written.
+     */
+    @Override
+    public void run() {
+        long start = getTime();
+        try {
+            compose();
+            write();
+        } catch (RuntimeException e) {
+            // the state changed under a read, the next frame draws everything again
+            isCleared = false;
+        }
+        drawTime += getTime() - start;
+        frames++;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public double getAverageFrameTime() {
+        return (frames == 0) ? 0 : (double) drawTime / frames;
+    }
+
+    public double getAverageFrameBytes() {
+        return (frames == 0) ? 0 : (double) bytesWritten / frames;
+    }
+
+    /**
+     * Get the share of a core spent on drawing since started.
+     *
+     * @return The share between 0 and 1
+     */
+    public double getCoreShare() {
+        long elapsed = System.nanoTime() - startTime;
+        return (startTime == 0 || elapsed == 0) ? 0 : (double) drawTime / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("终端面板: 绘制%d帧, 每帧%.0fus, 输出%.0f字节, 占用%.3f%%个核心",
+                frames, getAverageFrameTime() / 1e3, getAverageFrameBytes(), getCoreShare() * 100);
+    }
+
+    /* =================================== Private Methods ========================================================= */
+
+    /**
+     * Compose the whole dashboard into the cells of the next frame.
+     */
+    private void compose() {
+        for (int r = 0; r < rows; r++) {
+            Arrays.fill(drawn[r], ' ');
+            Arrays.fill(drawnColors[r], PLAIN);
+        }
+
+        int numOfFloors = building.getNumOfFloors();
+        TripMetrics trips = ems.getTripMetrics();
+        long numOfTrips = trips.getTrips();
+
+        put(0, 0, String.format("Elevators  %s  floors %d..%d  cars %d  undispatched %d",
+                formatTime(building.getClock().timeOfDayMillis()), building.getLowestLevel(),
+                building.getHighestLevel(), elevators.size(), ems.getDispatchMetrics().getQueueDepth()), PLAIN);
+        put(1, 0, String.format("Wait  arrived %d  mean %.1fs  p50 %ds  p95 %ds  p99 %ds  max %ds",
+                numOfTrips, numOfTrips == 0 ? 0 : trips.getWaitTime() / 1000.0 / numOfTrips,
+                trips.getWaitPercentile(0.5) / 1000, trips.getWaitPercentile(0.95) / 1000,
+                trips.getWaitPercentile(0.99) / 1000, trips.getMaxWaitTime() / 1000), PLAIN);
+
+        // the shaft diagram, the highest floor on top
+        put(3, 0, "Floor   Up  Dn |", PLAIN);
+        for (int c = 0; c < elevators.size(); c++)
+            put(3, FLOOR_COLUMNS + c * CELL_WIDTH, String.format("%3s", "#" + elevators.get(c).getNumber()), PLAIN);
+
+        for (int c = 0; c < elevators.size(); c++) {
+            Arrays.fill(stops[c], false);
+            for (Floor task : elevators.get(c).getTasks())
+                stops[c][building.getFloorIndex(task.getFloorLevel())] = true;
+        }
+
+        for (int i = 0; i < numOfFloors; i++) {
+            int row = 4 + numOfFloors - 1 - i;
+            Floor floor = building.getFloorByIndex(i);
+            int up = floor.getNumOfWaiting(1);
+            int down = floor.getNumOfWaiting(-1);
+            putNumber(row, 5, floor.getFloorLevel(), PLAIN);
+            if (up == 0)
+                put(row, 9, ".", DIM);
+            else
+                putNumber(row, 10, up, DOCKED);
+            if (down == 0)
+                put(row, 13, ".", DIM);
+            else
+                putNumber(row, 14, down, DOCKED);
+            put(row, 15, "|", PLAIN);
+
+            for (int c = 0; c < elevators.size(); c++)
+                composeCell(row, FLOOR_COLUMNS + c * CELL_WIDTH, elevators.get(c), stops[c][i], floor);
+        }
+
+        // the cars, one line each
+        int row = 4 + numOfFloors + 1;
+        put(row++, 0, "Car   Floor  Dir   Load     Door    Stops", PLAIN);
+        for (int c = 0; c < elevators.size(); c++) {
+            Elevator elevator = elevators.get(c);
+            ElevatorMetrics metrics = elevator.getMetrics();
+            int signal = metrics.getOperationSignal();
+
+            StringBuilder line = new StringBuilder(String.format("#%-4d %5d  %-5s %3d/%-3d  %-7s",
+                    elevator.getNumber(), metrics.getPosition(), formatDirection(metrics.getDirection()),
+                    metrics.getLoad(), elevator.getCapacityOfPassengers(),
+                    formatStatus(signal, metrics.isDoorOpen())));
+            for (int i = numOfFloors - 1; i >= 0; i--)
+                if (stops[c][i])
+                    line.append(' ').append(building.getFloorByIndex(i).getFloorLevel());
+            put(row++, 0, line.toString(), signal == Elevator.EMERGENCY ? FAULT : PLAIN);
+        }
+    }
+
+    /**
+     * Compose the cell of a car at a floor: the car with its direction and load, a stop, or the empty shaft.
+     */
+    private void composeCell(int row, int column, Elevator elevator, boolean isStop, Floor floor) {
+        ElevatorMetrics metrics = elevator.getMetrics();
+        Bank bank = elevator.getBank();
+
+        if (metrics.getPosition() == floor.getFloorLevel()) {
+            int signal = metrics.getOperationSignal();
+            int load = Math.min(metrics.getLoad(), 99);
+            if (signal == Elevator.EMERGENCY)
+                put(row, column, " XX", FAULT);
+            else if (signal == Elevator.OFF)
+                put(row, column, " --", DIM);
+            else if (metrics.isDoorOpen()) {
+                put(row, column, "o", DOCKED);
+                putNumber(row, column + 3, load, DOCKED);
+            } else {
+                byte color = (metrics.getDirection() == Elevator.STOPPED) ? PLAIN : MOVING;
+                put(row, column, formatArrow(metrics.getDirection()), color);
+                putNumber(row, column + 3, load, color);
+            }
+        } else if (isStop) {
+            put(row, column, "  *", MOVING);
+        } else if (bank == null || bank.isServing(floor.getFloorLevel())) {
+            put(row, column, "  .", DIM);
+        }
+    }
+
+    /**
+     * Put a text into the cells of the next frame, the part beyond the last column is cut.
+     */
+    private void put(int row, int column, String text, byte color) {
+        for (int i = 0; i < text.length() && column + i < columns; i++) {
+            drawn[row][column + i] = text.charAt(i);
+            drawnColors[row][column + i] = color;
+        }
+    }
+
+    private long getTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Put a number right aligned before a column, without formatting a string for every cell of every frame.
+     */
+    private void putNumber(int row, int end, int value, byte color) {
+        long rest = Math.abs((long) value);
+        int column = end - 1;
+        do {
+            if (column >= 0 && column < columns) {
+                drawn[row][column] = (char) ('0' + rest % 10);
+                drawnColors[row][column] = color;
+            }
+            rest /= 10;
+            column--;
+        } while (rest > 0);
+
+        if (value < 0 && column >= 0 && column < columns) {
+            drawn[row][column] = '-';
+            drawnColors[row][column] = color;
+        }
+    }
+
+    /**
+     * Write the changed cells to the terminal. A run of changed cells is written after one cursor move,
+     * and a short gap of unchanged cells is written through rather than moving the cursor again.
+     */
+    private void write() {
+        frame.setLength(0);
+        byte color = -1;
+
+        if (!isCleared) {
+            frame.append(CSI).append("?25l").append(CSI).append("2J");
+            for (char[] row : shown)
+                Arrays.fill(row, '\0');
+            isCleared = true;
+        }
+
+        for (int r = 0; r < rows; r++) {
+            int c = 0;
+            while (c < columns) {
+                if (!isChanged(r, c)) {
+                    c++;
+                    continue;
+                }
+
+                frame.append(CSI).append(r + 1).append(';').append(c + 1).append('H');
+                while (c < columns && (isChanged(r, c) || isChangedSoon(r, c))) {
+                    if (drawnColors[r][c] != color) {
+                        color = drawnColors[r][c];
+                        frame.append(CSI).append(COLORS[color]).append('m');
+                    }
+                    frame.append(drawn[r][c]);
+                    shown[r][c] = drawn[r][c];
+                    shownColors[r][c] = drawnColors[r][c];
+                    c++;
+                }
+            }
+        }
+
+        if (frame.length() == 0)
+            return;
+
+        frame.append(CSI).append("0m").append(CSI).append(rows + 1).append(";1H");
+        byte[] bytes = frame.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        out.flush();
+        bytesWritten += bytes.length;
+    }
+
+    private boolean isChanged(int row, int column) {
+        return drawn[row][column] != shown[row][column] || drawnColors[row][column] != shownColors[row][column];
+    }
+
+    /**
+     * Check whether a cell changes within the next few cells, a cursor move costs about as many bytes.
+     */
+    private boolean isChangedSoon(int row, int column) {
+        for (int c = column + 1; c < columns && c <= column + 4; c++)
+            if (isChanged(row, c))
+                return true;
+        return false;
+    }
+
+    private static String formatTime(long timeOfDay) {
+        long seconds = timeOfDay / 1000;
+        return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    private static String formatArrow(int direction) {
+        if (direction == Elevator.UP)
+            return "^";
+        return (direction == Elevator.DOWN) ? "v" : "=";
+    }
+
+    private static String formatDirection(int direction) {
+        if (direction == Elevator.UP)
+            return "up";
+        return (direction == Elevator.DOWN) ? "down" : "idle";
+    }
+
+    private static String formatStatus(int signal, boolean isDoorOpen) {
+        if (signal == Elevator.EMERGENCY)
+            return "FAULT";
+        if (signal == Elevator.OFF)
+            return "off";
+        return isDoorOpen ? "open" : "closed";
+    }
+}